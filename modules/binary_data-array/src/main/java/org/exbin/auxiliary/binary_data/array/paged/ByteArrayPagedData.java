@@ -21,8 +21,11 @@ import java.io.OutputStream;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import org.jspecify.annotations.Nullable;
 import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.BinaryData;
@@ -38,6 +41,13 @@ import org.exbin.auxiliary.binary_data.paged.DataPageCreator;
  * <p>
  * Data are stored using paging. Last page might be shorter than page size, but
  * not empty.
+ * <p>
+ * Page aligned insertions and removals of whole pages only move page
+ * references. Pages inserted from another paged data of the same page size are
+ * shared and copied on first modification.
+ * <p>
+ * Whole pages of zeros created by extending or inserting data refer to single
+ * shared zero page and are allocated on first modification.
  */
 @NullMarked
 public class ByteArrayPagedData implements PagedData {
@@ -47,6 +57,12 @@ public class ByteArrayPagedData implements PagedData {
 
     private int pageSize = DEFAULT_PAGE_SIZE;
     private final List<ByteArrayData> data = new ArrayList<>();
+    /**
+     * Pages shared with other paged data, which must be copied before change.
+     */
+    private final Set<ByteArrayData> sharedPages = Collections.newSetFromMap(new IdentityHashMap<>());
+    @Nullable
+    private ByteArrayData zeroPage = null;
 
     @Nullable
     private DataPageCreator dataPageCreator = null;
@@ -69,7 +85,7 @@ public class ByteArrayPagedData implements PagedData {
 
     @Override
     public long getDataSize() {
-        return (data.size() > 1 ? (data.size() - 1) * pageSize : 0) + (!data.isEmpty() ? data.get(data.size() - 1).getDataSize() : 0);
+        return (data.size() > 1 ? (long) (data.size() - 1) * pageSize : 0) + (!data.isEmpty() ? data.get(data.size() - 1).getDataSize() : 0);
     }
 
     @Override
@@ -87,17 +103,17 @@ public class ByteArrayPagedData implements PagedData {
             if (lastPageSize > 0) {
                 byte[] page = getPageData(lastPage);
                 int nextPageSize = remaining + lastPageSize > pageSize ? pageSize : (int) remaining + lastPageSize;
-                byte[] newPage = new byte[nextPageSize];
-                System.arraycopy(page, 0, newPage, 0, lastPageSize);
-                setPage(lastPage, createNewPage(newPage));
+                setPage(lastPage, createNewPage(page, lastPageSize, nextPageSize));
                 remaining -= (nextPageSize - lastPageSize);
                 lastPage++;
             }
 
-            while (remaining > 0) {
-                int nextPageSize = remaining > pageSize ? pageSize : (int) remaining;
-                data.add(createNewPage(new byte[nextPageSize]));
-                remaining -= nextPageSize;
+            while (remaining >= pageSize) {
+                data.add(getZeroPage());
+                remaining -= pageSize;
+            }
+            if (remaining > 0) {
+                data.add(createNewPage((int) remaining));
             }
         } else if (size < dataSize) {
             int lastPage = (int) (size / pageSize);
@@ -105,14 +121,12 @@ public class ByteArrayPagedData implements PagedData {
             // shrink last page
             if (lastPageSize > 0) {
                 byte[] page = getPageData(lastPage);
-                byte[] newPage = new byte[lastPageSize];
-                System.arraycopy(page, 0, newPage, 0, lastPageSize);
-                setPage(lastPage, createNewPage(newPage));
+                setPage(lastPage, createNewPage(page, lastPageSize, lastPageSize));
                 lastPage++;
             }
 
             for (int pageIndex = data.size() - 1; pageIndex >= lastPage; pageIndex--) {
-                data.remove(pageIndex);
+                releasePage(data.remove(pageIndex));
             }
         }
     }
@@ -129,7 +143,7 @@ public class ByteArrayPagedData implements PagedData {
 
     @Override
     public void setByte(long position, byte value) {
-        byte[] page = getPageData((int) (position / pageSize));
+        byte[] page = getEditablePageData((int) (position / pageSize));
         try {
             page[(int) (position % pageSize)] = value;
         } catch (ArrayIndexOutOfBoundsException ex) {
@@ -157,6 +171,13 @@ public class ByteArrayPagedData implements PagedData {
             return;
         }
 
+        if (startFrom % pageSize == 0 && length % pageSize == 0) {
+            // Splice whole pages
+            int pagesCount = (int) (length / pageSize);
+            data.addAll((int) (startFrom / pageSize), Collections.nCopies(pagesCount, getZeroPage()));
+            return;
+        }
+
         long copyLength = dataSize - startFrom;
         dataSize = dataSize + length;
         setDataSize(dataSize);
@@ -164,19 +185,12 @@ public class ByteArrayPagedData implements PagedData {
         long targetEnd = dataSize;
         // Backward copy
         while (copyLength > 0) {
-            byte[] sourcePage = getPageData((int) (sourceEnd / pageSize));
-            int sourceOffset = (int) (sourceEnd % pageSize);
-            if (sourceOffset == 0) {
-                sourcePage = getPageData((int) ((sourceEnd - 1) / pageSize));
-                sourceOffset = sourcePage.length;
-            }
+            // End positions are exclusive, so page boundary belongs to previous page
+            byte[] sourcePage = getPageData((int) ((sourceEnd - 1) / pageSize));
+            int sourceOffset = (int) ((sourceEnd - 1) % pageSize) + 1;
 
-            byte[] targetPage = getPageData((int) (targetEnd / pageSize));
-            int targetOffset = (int) (targetEnd % pageSize);
-            if (targetOffset == 0) {
-                targetPage = getPageData((int) ((targetEnd - 1) / pageSize));
-                targetOffset = targetPage.length;
-            }
+            byte[] targetPage = getEditablePageData((int) ((targetEnd - 1) / pageSize));
+            int targetOffset = (int) ((targetEnd - 1) % pageSize) + 1;
 
             int copySize = Math.min(sourceOffset, targetOffset);
             if (copySize > copyLength) {
@@ -198,17 +212,64 @@ public class ByteArrayPagedData implements PagedData {
 
     @Override
     public void insert(long startFrom, BinaryData insertedData) {
-        long length = insertedData.getDataSize();
-        insertUninitialized(startFrom, length);
-        replace(startFrom, insertedData, 0, length);
+        insert(startFrom, insertedData, 0, insertedData.getDataSize());
     }
 
     @Override
     public void insert(long startFrom, BinaryData insertedData, long insertedDataOffset, long insertedDataLength) {
+        if (insertedData instanceof ByteArrayPagedData && sharePages(startFrom, (ByteArrayPagedData) insertedData, insertedDataOffset, insertedDataLength)) {
+            return;
+        }
+
         insertUninitialized(startFrom, insertedDataLength);
         replace(startFrom, insertedData, insertedDataOffset, insertedDataLength);
     }
 
+    /**
+     * Inserts pages of other paged data by reference if possible.
+     * <p>
+     * Inserted range must be aligned to pages and either consist of whole
+     * pages or be appended at the end of the data.
+     *
+     * @param startFrom target position
+     * @param insertedData inserted data
+     * @param insertedDataOffset offset in inserted data
+     * @param insertedDataLength length of inserted data
+     * @return true if pages were inserted
+     */
+    private boolean sharePages(long startFrom, ByteArrayPagedData insertedData, long insertedDataOffset, long insertedDataLength) {
+        if (insertedData == this || insertedData.pageSize != pageSize || insertedDataLength <= 0) {
+            return false;
+        }
+        long dataSize = getDataSize();
+        long insertedDataEnd = insertedDataOffset + insertedDataLength;
+        if (startFrom < 0 || startFrom > dataSize || insertedDataOffset < 0 || insertedDataEnd > insertedData.getDataSize() || insertedDataLength > MAX_DATA_SIZE - dataSize) {
+            return false;
+        }
+        if (startFrom % pageSize != 0 || insertedDataOffset % pageSize != 0) {
+            return false;
+        }
+        if (insertedDataLength % pageSize != 0 && (startFrom != dataSize || insertedDataEnd != insertedData.getDataSize())) {
+            return false;
+        }
+
+        int firstPage = (int) (insertedDataOffset / pageSize);
+        int endPage = (int) ((insertedDataEnd + pageSize - 1) / pageSize);
+        List<ByteArrayData> pages = insertedData.data.subList(firstPage, endPage);
+        List<ByteArrayData> insertedPages = new ArrayList<>(pages.size());
+        for (ByteArrayData page : pages) {
+            if (page == insertedData.zeroPage) {
+                insertedPages.add(getZeroPage());
+            } else {
+                sharedPages.add(page);
+                insertedData.sharedPages.add(page);
+                insertedPages.add(page);
+            }
+        }
+        data.addAll((int) (startFrom / pageSize), insertedPages);
+        return true;
+    }
+
     @Override
     public void insert(long startFrom, byte[] insertedData) {
         insert(startFrom, insertedData, 0, insertedData.length);
@@ -223,7 +284,7 @@ public class ByteArrayPagedData implements PagedData {
         insertUninitialized(startFrom, insertedDataLength);
 
         while (insertedDataLength > 0) {
-            byte[] targetPage = getPageData((int) (startFrom / pageSize));
+            byte[] targetPage = getEditablePageData((int) (startFrom / pageSize));
             int targetOffset = (int) (startFrom % pageSize);
             int blockLength = pageSize - targetOffset;
             if (blockLength > insertedDataLength) {
@@ -304,8 +365,17 @@ public class ByteArrayPagedData implements PagedData {
         }
 
         while (length > 0) {
-            byte[] page = getPageData((int) (startFrom / pageSize));
+            int pageIndex = (int) (startFrom / pageSize);
             int pageOffset = (int) (startFrom % pageSize);
+            if (fill == 0 && pageOffset == 0 && length >= pageSize) {
+                // Replace whole page with zero page
+                releasePage(data.set(pageIndex, getZeroPage()));
+                length -= pageSize;
+                startFrom += pageSize;
+                continue;
+            }
+
+            byte[] page = getEditablePageData(pageIndex);
             int fillSize = page.length - pageOffset;
             if (fillSize > length) {
                 fillSize = (int) length;
@@ -318,16 +388,15 @@ public class ByteArrayPagedData implements PagedData {
 
     @Override
     public ByteArrayPagedData copy() {
-        ByteArrayPagedData targetData = new ByteArrayPagedData();
+        ByteArrayPagedData targetData = new ByteArrayPagedData(pageSize);
         targetData.insert(0, this);
         return targetData;
     }
 
     @Override
     public ByteArrayPagedData copy(long startFrom, long length) {
-        ByteArrayPagedData targetData = new ByteArrayPagedData();
-        targetData.insertUninitialized(0, length);
-        targetData.replace(0, this, startFrom, length);
+        ByteArrayPagedData targetData = new ByteArrayPagedData(pageSize);
+        targetData.insert(0, this, startFrom, length);
         return targetData;
     }
 
@@ -364,15 +433,51 @@ public class ByteArrayPagedData implements PagedData {
             throw new OutOfBoundsException("Removed block must be inside existing data");
         }
 
-        if (length > 0) {
-            replace(startFrom, this, startFrom + length, getDataSize() - startFrom - length);
-            setDataSize(getDataSize() - length);
+        if (length == 0) {
+            return;
+        }
+
+        if (startFrom % pageSize == 0 && length % pageSize == 0) {
+            // Splice whole pages
+            int firstPage = (int) (startFrom / pageSize);
+            List<ByteArrayData> removedPages = data.subList(firstPage, firstPage + (int) (length / pageSize));
+            for (ByteArrayData page : removedPages) {
+                releasePage(page);
+            }
+            removedPages.clear();
+            return;
         }
+
+        replace(startFrom, this, startFrom + length, getDataSize() - startFrom - length);
+        setDataSize(getDataSize() - length);
     }
 
     @Override
     public void clear() {
+        if (dataPageCreator != null) {
+            for (ByteArrayData page : data) {
+                releasePage(page);
+            }
+        }
         data.clear();
+        sharedPages.clear();
+    }
+
+    /**
+     * Returns number of pages with allocated content.
+     * <p>
+     * Pages referring to the shared zero page are not counted.
+     *
+     * @return count of pages
+     */
+    public int getAllocatedPagesCount() {
+        int allocatedPagesCount = 0;
+        for (ByteArrayData page : data) {
+            if (page != zeroPage) {
+                allocatedPagesCount++;
+            }
+        }
+        return allocatedPagesCount;
     }
 
     /**
@@ -397,23 +502,74 @@ public class ByteArrayPagedData implements PagedData {
 
     /**
      * Gets data page allowing direct access to it.
+     * <p>
+     * Page shared with other paged data or zero page is copied first.
      *
      * @param pageIndex page index
      * @return data page
      */
     @Override
     public ByteArrayData getPage(int pageIndex) {
+        ByteArrayData page;
         try {
-            return data.get(pageIndex);
+            page = data.get(pageIndex);
         } catch (IndexOutOfBoundsException ex) {
             throw new OutOfBoundsException(ex);
         }
+
+        if (page == zeroPage) {
+            page = createNewPage(pageSize);
+            data.set(pageIndex, page);
+        } else if (!sharedPages.isEmpty() && sharedPages.remove(page)) {
+            byte[] pageData = page.getData();
+            page = createNewPage(pageData, pageData.length, pageData.length);
+            data.set(pageIndex, page);
+        }
+        return page;
     }
 
-    private byte[] getPageData(int pageIndex) {
+    /**
+     * Returns content of data page for reading only.
+     *
+     * @param pageIndex page index
+     * @return page data
+     */
+    byte[] getPageData(int pageIndex) {
+        try {
+            return data.get(pageIndex).getData();
+        } catch (IndexOutOfBoundsException ex) {
+            throw new OutOfBoundsException(ex);
+        }
+    }
+
+    private byte[] getEditablePageData(int pageIndex) {
         return getPage(pageIndex).getData();
     }
 
+    private ByteArrayData getZeroPage() {
+        if (zeroPage == null) {
+            zeroPage = new ByteArrayData(new byte[pageSize]);
+        }
+        return zeroPage;
+    }
+
+    /**
+     * Returns page no longer used to data page creator.
+     * <p>
+     * Page still shared with other paged data is not returned.
+     *
+     * @param page data page
+     */
+    private void releasePage(ByteArrayData page) {
+        if (!sharedPages.isEmpty() && sharedPages.remove(page)) {
+            return;
+        }
+
+        if (dataPageCreator != null && page != zeroPage && page instanceof EditableBinaryData) {
+            dataPageCreator.releasePage((EditableBinaryData) page);
+        }
+    }
+
     /**
      * Sets data page replacing existing page by reference.
      *
@@ -426,7 +582,10 @@ public class ByteArrayPagedData implements PagedData {
             throw new UnsupportedOperationException("Unsupported data page type");
         }
         try {
-            data.set(pageIndex, (ByteArrayData) dataPage);
+            ByteArrayData originalPage = data.set(pageIndex, (ByteArrayData) dataPage);
+            if (originalPage != dataPage) {
+                releasePage(originalPage);
+            }
         } catch (IndexOutOfBoundsException ex) {
             throw new OutOfBoundsException(ex);
         }
@@ -446,7 +605,7 @@ public class ByteArrayPagedData implements PagedData {
         if (replacingData instanceof ByteArrayPagedData) {
             if (replacingData != this || (startFrom > targetPosition) || (startFrom + length < targetPosition)) {
                 while (length > 0) {
-                    byte[] page = getPageData((int) (targetPosition / pageSize));
+                    byte[] page = getEditablePageData((int) (targetPosition / pageSize));
                     int offset = (int) (targetPosition % pageSize);
 
                     byte[] sourcePage = ((ByteArrayPagedData) replacingData).getPageData((int) (startFrom / ((ByteArrayPagedData) replacingData).getPageSize()));
@@ -474,7 +633,7 @@ public class ByteArrayPagedData implements PagedData {
                 targetPosition += length - 1;
                 startFrom += length - 1;
                 while (length > 0) {
-                    byte[] page = getPageData((int) (targetPosition / pageSize));
+                    byte[] page = getEditablePageData((int) (targetPosition / pageSize));
                     int upTo = (int) (targetPosition % pageSize) + 1;
 
                     byte[] sourcePage = ((ByteArrayPagedData) replacingData).getPageData((int) (startFrom / ((ByteArrayPagedData) replacingData).getPageSize()));
@@ -498,7 +657,7 @@ public class ByteArrayPagedData implements PagedData {
             }
         } else {
             while (length > 0) {
-                byte[] page = getPageData((int) (targetPosition / pageSize));
+                byte[] page = getEditablePageData((int) (targetPosition / pageSize));
                 int offset = (int) (targetPosition % pageSize);
 
                 int copySize = pageSize - offset;
@@ -527,7 +686,7 @@ public class ByteArrayPagedData implements PagedData {
         }
 
         while (length > 0) {
-            byte[] page = getPageData((int) (targetPosition / pageSize));
+            byte[] page = getEditablePageData((int) (targetPosition / pageSize));
             int offset = (int) (targetPosition % pageSize);
 
             int copySize = pageSize - offset;
@@ -549,25 +708,27 @@ public class ByteArrayPagedData implements PagedData {
 
     @Override
     public void loadFromStream(InputStream inputStream) throws IOException {
-        data.clear();
-        byte[] buffer = new byte[pageSize];
+        clear();
+        // Data are read directly to the page
+        ByteArrayData page = createUninitializedPage(pageSize);
+        byte[] buffer = page.getData();
         int cnt;
         int offset = 0;
         while ((cnt = inputStream.read(buffer, offset, buffer.length - offset)) > 0) {
             if (cnt + offset < pageSize) {
                 offset = offset + cnt;
             } else {
-                data.add(createNewPage(buffer));
-                buffer = new byte[pageSize];
+                data.add(page);
+                page = createUninitializedPage(pageSize);
+                buffer = page.getData();
                 offset = 0;
             }
         }
 
         if (offset > 0) {
-            byte[] tail = new byte[offset];
-            System.arraycopy(buffer, 0, tail, 0, offset);
-            data.add(createNewPage(tail));
+            data.add(createNewPage(buffer, offset, offset));
         }
+        releasePage(page);
     }
 
     @Override
@@ -587,14 +748,45 @@ public class ByteArrayPagedData implements PagedData {
         return new ByteArrayPagedDataInputStream(this);
     }
 
-    private ByteArrayData createNewPage(byte[] pageData) {
+    /**
+     * Creates new page filled with zeros.
+     *
+     * @param dataSize page size
+     * @return data page
+     */
+    private ByteArrayData createNewPage(int dataSize) {
+        if (dataPageCreator != null) {
+            return (ByteArrayData) dataPageCreator.createPage(dataSize);
+        }
+
+        return new ByteArrayData(new byte[dataSize]);
+    }
+
+    /**
+     * Creates new page starting with copy of given data, rest of the page is
+     * filled with zeros.
+     *
+     * @param sourceData source data
+     * @param length length of copied data
+     * @param dataSize page size
+     * @return data page
+     */
+    private ByteArrayData createNewPage(byte[] sourceData, int length, int dataSize) {
+        ByteArrayData page = createUninitializedPage(dataSize);
+        byte[] pageData = page.getData();
+        System.arraycopy(sourceData, 0, pageData, 0, length);
+        if (length < dataSize) {
+            Arrays.fill(pageData, length, dataSize, (byte) 0);
+        }
+        return page;
+    }
+
+    private ByteArrayData createUninitializedPage(int dataSize) {
         if (dataPageCreator != null) {
-            EditableBinaryData page = dataPageCreator.createPage(pageData.length);
-            page.replace(0, pageData);
-            return (ByteArrayData) page;
+            return (ByteArrayData) dataPageCreator.createUninitializedPage(dataSize);
         }
 
-        return new ByteArrayData(pageData);
+        return new ByteArrayData(new byte[dataSize]);
     }
 
     @Nullable
@@ -708,5 +900,6 @@ public class ByteArrayPagedData implements PagedData {
 
     @Override
     public void dispose() {
+        clear();
     }
 }
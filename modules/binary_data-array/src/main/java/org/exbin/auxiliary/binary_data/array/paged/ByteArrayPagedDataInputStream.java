@@ -59,7 +59,7 @@ public class ByteArrayPagedDataInputStream extends InputStream implements Seekab
                 return offset == off ? -1 : offset - off;
             }
 
-            byte[] page = data.getPage(pageIndex).getData();
+            byte[] page = data.getPageData(pageIndex);
             int srcPos = (int) (position % data.getPageSize());
             int copyLength = page.length - srcPos;
             if (copyLength > remaining) {
@@ -93,7 +93,7 @@ public class ByteArrayPagedDataRangeInputStream extends InputStream implements S
                 return offset == off ? -1 : offset - off;
             }
 
-            byte[] page = data.getPage(pageIndex).getData();
+            byte[] page = data.getPageData(pageIndex);
             int srcPos = (int) (position % data.getPageSize());
             int copyLength = page.length - srcPos;
             if (copyLength > remaining) {
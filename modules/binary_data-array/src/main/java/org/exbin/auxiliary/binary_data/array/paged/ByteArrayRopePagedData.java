@@ -0,0 +1,973 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.array.paged;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import org.jspecify.annotations.Nullable;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.BinaryDataInputStream;
+import org.exbin.auxiliary.binary_data.BinaryDataOutputStream;
+import org.exbin.auxiliary.binary_data.DataOverflowException;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.auxiliary.binary_data.paged.DataPageCreator;
+import org.exbin.auxiliary.binary_data.paged.PagedData;
+
+/**
+ * Encapsulation class for binary data blob.
+ * <p>
+ * Data are stored using pages of variable length, which are at most of page
+ * size and never empty. Pages are kept in balanced tree indexed by data
+ * position, so insertion and removal only splits or merges pages around the
+ * edited area and doesn't shift the rest of the data.
+ * <p>
+ * As pages are not aligned to page size, use {@link #getPagePosition(int)} and
+ * {@link #getPageIndex(long)} to convert between data position and page.
+ */
+@NullMarked
+public class ByteArrayRopePagedData implements PagedData {
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final long MAX_DATA_SIZE = Long.MAX_VALUE;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    @Nullable
+    private PageNode root = null;
+
+    @Nullable
+    private DataPageCreator dataPageCreator = null;
+
+    /**
+     * Index and data position of the page last found by findPageNode.
+     */
+    private int foundPageIndex;
+    private long foundPagePosition;
+    /**
+     * Result of the split operation.
+     */
+    @Nullable
+    private PageNode splitLeft;
+    @Nullable
+    private PageNode splitRight;
+
+    public ByteArrayRopePagedData() {
+    }
+
+    public ByteArrayRopePagedData(DataPageCreator dataPageCreator) {
+        this.dataPageCreator = dataPageCreator;
+    }
+
+    public ByteArrayRopePagedData(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public long getDataSize() {
+        return root == null ? 0 : root.subtreeLength;
+    }
+
+    @Override
+    public void setDataSize(long size) {
+        if (size < 0) {
+            throw new InvalidParameterException("Size cannot be negative");
+        }
+
+        long dataSize = getDataSize();
+        if (size > dataSize) {
+            insertUninitialized(dataSize, size - dataSize);
+        } else if (size < dataSize) {
+            remove(size, dataSize - size);
+        }
+    }
+
+    @Override
+    public byte getByte(long position) {
+        PageNode node = findPageNode(position);
+        return node.page.getData()[(int) (position - foundPagePosition)];
+    }
+
+    @Override
+    public void setByte(long position, byte value) {
+        PageNode node = findPageNode(position);
+        node.page.getData()[(int) (position - foundPagePosition)] = value;
+    }
+
+    @Override
+    public void insertUninitialized(long startFrom, long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length of inserted block must be nonnegative");
+        }
+        if (startFrom < 0) {
+            throw new IllegalArgumentException("Position of inserted block must be nonnegative");
+        }
+        long dataSize = getDataSize();
+        if (startFrom > dataSize) {
+            throw new OutOfBoundsException("Inserted block must be inside or directly after existing data");
+        }
+        if (length > MAX_DATA_SIZE - dataSize) {
+            throw new DataOverflowException("Maximum array size overflow");
+        }
+
+        if (length == 0) {
+            return;
+        }
+
+        if (root == null) {
+            replacePages(0, 0, createPages(length, true));
+            return;
+        }
+
+        // Only page containing insertion point is rebuilt
+        int pageIndex;
+        byte[] page;
+        int splitOffset;
+        if (startFrom == dataSize) {
+            pageIndex = root.subtreeCount - 1;
+            page = getPage(pageIndex).getData();
+            splitOffset = page.length;
+        } else {
+            PageNode node = findPageNode(startFrom);
+            pageIndex = foundPageIndex;
+            page = node.page.getData();
+            splitOffset = (int) (startFrom - foundPagePosition);
+        }
+
+        List<ByteArrayData> pages = createPages(page.length + length, true);
+        copyToPages(pages, 0, page, 0, splitOffset);
+        copyToPages(pages, splitOffset + length, page, splitOffset, page.length - splitOffset);
+        replacePages(pageIndex, 1, pages);
+    }
+
+    @Override
+    public void insert(long startFrom, long length) {
+        insertUninitialized(startFrom, length);
+        fillData(startFrom, length);
+    }
+
+    @Override
+    public void insert(long startFrom, BinaryData insertedData) {
+        long length = insertedData.getDataSize();
+        insertUninitialized(startFrom, length);
+        replace(startFrom, insertedData, 0, length);
+    }
+
+    @Override
+    public void insert(long startFrom, BinaryData insertedData, long insertedDataOffset, long insertedDataLength) {
+        insertUninitialized(startFrom, insertedDataLength);
+        replace(startFrom, insertedData, insertedDataOffset, insertedDataLength);
+    }
+
+    @Override
+    public void insert(long startFrom, byte[] insertedData) {
+        insert(startFrom, insertedData, 0, insertedData.length);
+    }
+
+    @Override
+    public void insert(long startFrom, byte[] insertedData, int insertedDataOffset, int insertedDataLength) {
+        if (insertedDataLength <= 0) {
+            return;
+        }
+        if (insertedDataOffset < 0 || insertedDataOffset + insertedDataLength > insertedData.length) {
+            throw new OutOfBoundsException("Inserted data are outside of source array");
+        }
+
+        insertUninitialized(startFrom, insertedDataLength);
+        replace(startFrom, insertedData, insertedDataOffset, insertedDataLength);
+    }
+
+    @Override
+    public long insert(long startFrom, InputStream inputStream, long maximumDataSize) throws IOException {
+        if (maximumDataSize > MAX_DATA_SIZE - getDataSize()) {
+            throw new DataOverflowException("Maximum array size overflow");
+        }
+
+        if (startFrom > getDataSize()) {
+            setDataSize(startFrom);
+        }
+
+        long loadedData = 0;
+        byte[] buffer = new byte[pageSize];
+        while (maximumDataSize == -1 || maximumDataSize > 0) {
+            int dataToRead = pageSize;
+            if (maximumDataSize >= 0 && maximumDataSize < dataToRead) {
+                dataToRead = (int) maximumDataSize;
+            }
+
+            int readLength = 0;
+            while (dataToRead > 0) {
+                int read = inputStream.read(buffer, readLength, dataToRead);
+                if (read == -1) {
+                    break;
+                }
+
+                readLength += read;
+                dataToRead -= read;
+            }
+
+            if (readLength == 0) {
+                break;
+            }
+
+            insert(startFrom, buffer, 0, readLength);
+            startFrom += readLength;
+            if (maximumDataSize >= 0) {
+                maximumDataSize -= readLength;
+            }
+            loadedData += readLength;
+        }
+        return loadedData;
+    }
+
+    @Override
+    public void fillData(long startFrom, long length) {
+        fillData(startFrom, length, (byte) 0);
+    }
+
+    @Override
+    public void fillData(long startFrom, long length, byte fill) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length of filled block must be non-negative");
+        }
+        if (startFrom < 0) {
+            throw new IllegalArgumentException("Position of filler block must be non-negative");
+        }
+        if (startFrom + length > getDataSize()) {
+            throw new OutOfBoundsException("Filled block must be inside existing data");
+        }
+
+        while (length > 0) {
+            byte[] page = findPageNode(startFrom).page.getData();
+            int pageOffset = (int) (startFrom - foundPagePosition);
+            int fillSize = page.length - pageOffset;
+            if (fillSize > length) {
+                fillSize = (int) length;
+            }
+            Arrays.fill(page, pageOffset, pageOffset + fillSize, fill);
+            length -= fillSize;
+            startFrom += fillSize;
+        }
+    }
+
+    @Override
+    public ByteArrayRopePagedData copy() {
+        ByteArrayRopePagedData targetData = new ByteArrayRopePagedData(pageSize);
+        List<ByteArrayData> pages = new ArrayList<>();
+        PagesIterator iterator = new PagesIterator(root);
+        while (iterator.hasNext()) {
+            byte[] page = iterator.next().getData();
+            pages.add(new ByteArrayData(Arrays.copyOf(page, page.length)));
+        }
+        targetData.replacePages(0, 0, pages);
+        return targetData;
+    }
+
+    @Override
+    public ByteArrayRopePagedData copy(long startFrom, long length) {
+        if (startFrom < 0 || length < 0 || startFrom + length > getDataSize()) {
+            throw new OutOfBoundsException("Copied block must be inside existing data");
+        }
+
+        ByteArrayRopePagedData targetData = new ByteArrayRopePagedData(pageSize);
+        targetData.insertUninitialized(0, length);
+        targetData.replace(0, this, startFrom, length);
+        return targetData;
+    }
+
+    @Override
+    public void copyToArray(long startFrom, byte[] target, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (startFrom < 0 || startFrom + length > getDataSize()) {
+            throw new OutOfBoundsException("Attempt to copy outside of data");
+        }
+
+        while (length > 0) {
+            byte[] page = findPageNode(startFrom).page.getData();
+            int pageOffset = (int) (startFrom - foundPagePosition);
+            int copySize = page.length - pageOffset;
+            if (copySize > length) {
+                copySize = length;
+            }
+
+            try {
+                System.arraycopy(page, pageOffset, target, offset, copySize);
+            } catch (ArrayIndexOutOfBoundsException ex) {
+                throw new OutOfBoundsException(ex);
+            }
+            length -= copySize;
+            offset += copySize;
+            startFrom += copySize;
+        }
+    }
+
+    @Override
+    public void remove(long startFrom, long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length of removed block must be non-negative");
+        }
+        if (startFrom < 0) {
+            throw new IllegalArgumentException("Position of removed block must be non-negative");
+        }
+        if (startFrom + length > getDataSize()) {
+            throw new OutOfBoundsException("Removed block must be inside existing data");
+        }
+
+        if (length == 0) {
+            return;
+        }
+
+        PageNode firstNode = findPageNode(startFrom);
+        int firstPageIndex = foundPageIndex;
+        byte[] firstPage = firstNode.page.getData();
+        int headLength = (int) (startFrom - foundPagePosition);
+
+        long endPosition = startFrom + length;
+        PageNode lastNode = findPageNode(endPosition - 1);
+        int lastPageIndex = foundPageIndex;
+        byte[] lastPage = lastNode.page.getData();
+        int tailOffset = (int) (endPosition - foundPagePosition);
+        int tailLength = lastPage.length - tailOffset;
+
+        // Merge underfilled remainder with following page if possible
+        byte[] nextPage = null;
+        int remainingLength = headLength + tailLength;
+        if (remainingLength < pageSize / 2 && lastPageIndex + 1 < getPagesCount()) {
+            byte[] candidate = getPage(lastPageIndex + 1).getData();
+            if (remainingLength + candidate.length <= pageSize) {
+                nextPage = candidate;
+                remainingLength += candidate.length;
+            }
+        }
+
+        List<ByteArrayData> pages = createPages(remainingLength, false);
+        copyToPages(pages, 0, firstPage, 0, headLength);
+        copyToPages(pages, headLength, lastPage, tailOffset, tailLength);
+        int replacedCount = lastPageIndex - firstPageIndex + 1;
+        if (nextPage != null) {
+            copyToPages(pages, headLength + tailLength, nextPage, 0, nextPage.length);
+            replacedCount++;
+        }
+        replacePages(firstPageIndex, replacedCount, pages);
+    }
+
+    @Override
+    public void clear() {
+        if (dataPageCreator != null) {
+            releasePages(root);
+        }
+        root = null;
+    }
+
+    /**
+     * Returns number of pages currently used.
+     *
+     * @return count of pages
+     */
+    @Override
+    public int getPagesCount() {
+        return root == null ? 0 : root.subtreeCount;
+    }
+
+    /**
+     * Returns maximum page size.
+     *
+     * @return page size in bytes
+     */
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Gets data page allowing direct access to it.
+     *
+     * @param pageIndex page index
+     * @return data page
+     */
+    @Override
+    public ByteArrayData getPage(int pageIndex) {
+        if (pageIndex < 0 || pageIndex >= getPagesCount()) {
+            throw new OutOfBoundsException("Page index " + pageIndex + " is outside of data");
+        }
+
+        PageNode node = root;
+        while (true) {
+            int leftCount = node.left == null ? 0 : node.left.subtreeCount;
+            if (pageIndex < leftCount) {
+                node = node.left;
+            } else if (pageIndex == leftCount) {
+                return node.page;
+            } else {
+                pageIndex -= leftCount + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Sets data page replacing existing page by reference.
+     * <p>
+     * Data page can have different length than original page, but it must not
+     * be empty or longer than page size.
+     *
+     * @param pageIndex page index
+     * @param dataPage data page
+     */
+    @Override
+    public void setPage(int pageIndex, BinaryData dataPage) {
+        if (!(dataPage instanceof ByteArrayData)) {
+            throw new UnsupportedOperationException("Unsupported data page type");
+        }
+        long pageLength = dataPage.getDataSize();
+        if (pageLength == 0 || pageLength > pageSize) {
+            throw new IllegalArgumentException("Page length must be in range from 1 to page size");
+        }
+        if (pageIndex < 0 || pageIndex >= getPagesCount()) {
+            throw new OutOfBoundsException("Page index " + pageIndex + " is outside of data");
+        }
+
+        ByteArrayData originalPage = getPage(pageIndex);
+        setPageNode(root, pageIndex, (ByteArrayData) dataPage);
+        if (originalPage != dataPage) {
+            releasePage(originalPage);
+        }
+    }
+
+    /**
+     * Returns data position of the first byte of given page.
+     *
+     * @param pageIndex page index
+     * @return data position
+     */
+    public long getPagePosition(int pageIndex) {
+        if (pageIndex < 0 || pageIndex > getPagesCount()) {
+            throw new OutOfBoundsException("Page index " + pageIndex + " is outside of data");
+        }
+
+        long position = 0;
+        PageNode node = root;
+        while (node != null) {
+            int leftCount = node.left == null ? 0 : node.left.subtreeCount;
+            if (pageIndex <= leftCount) {
+                if (pageIndex == leftCount) {
+                    position += node.left == null ? 0 : node.left.subtreeLength;
+                    break;
+                }
+                node = node.left;
+            } else {
+                position += (node.left == null ? 0 : node.left.subtreeLength) + node.page.getDataSize();
+                pageIndex -= leftCount + 1;
+                node = node.right;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Returns index of the page containing given data position.
+     *
+     * @param position data position
+     * @return page index
+     */
+    public int getPageIndex(long position) {
+        findPageNode(position);
+        return foundPageIndex;
+    }
+
+    @Override
+    public void replace(long targetPosition, BinaryData replacingData) {
+        replace(targetPosition, replacingData, 0, replacingData.getDataSize());
+    }
+
+    @Override
+    public void replace(long targetPosition, BinaryData replacingData, long startFrom, long length) {
+        if (targetPosition + length > getDataSize()) {
+            throw new OutOfBoundsException("Data can be replaced only inside or at the end");
+        }
+
+        if (replacingData == this && startFrom < targetPosition && startFrom + length > targetPosition) {
+            // Overlapping move forward, copy from the end
+            long targetEnd = targetPosition + length;
+            long sourceEnd = startFrom + length;
+            while (length > 0) {
+                byte[] page = findPageNode(targetEnd - 1).page.getData();
+                int upTo = (int) (targetEnd - foundPagePosition);
+                byte[] sourcePage = findPageNode(sourceEnd - 1).page.getData();
+                int sourceUpTo = (int) (sourceEnd - foundPagePosition);
+
+                int copySize = Math.min(upTo, sourceUpTo);
+                if (copySize > length) {
+                    copySize = (int) length;
+                }
+
+                System.arraycopy(sourcePage, sourceUpTo - copySize, page, upTo - copySize, copySize);
+                length -= copySize;
+                targetEnd -= copySize;
+                sourceEnd -= copySize;
+            }
+            return;
+        }
+
+        while (length > 0) {
+            byte[] page = findPageNode(targetPosition).page.getData();
+            int offset = (int) (targetPosition - foundPagePosition);
+
+            int copySize = page.length - offset;
+            if (copySize > length) {
+                copySize = (int) length;
+            }
+
+            replacingData.copyToArray(startFrom, page, offset, copySize);
+
+            length -= copySize;
+            targetPosition += copySize;
+            startFrom += copySize;
+        }
+    }
+
+    @Override
+    public void replace(long targetPosition, byte[] replacingData) {
+        replace(targetPosition, replacingData, 0, replacingData.length);
+    }
+
+    @Override
+    public void replace(long targetPosition, byte[] replacingData, int replacingDataOffset, int length) {
+        if (targetPosition + length > getDataSize()) {
+            throw new OutOfBoundsException("Data can be replaced only inside or at the end");
+        }
+
+        while (length > 0) {
+            byte[] page = findPageNode(targetPosition).page.getData();
+            int offset = (int) (targetPosition - foundPagePosition);
+
+            int copySize = page.length - offset;
+            if (copySize > length) {
+                copySize = length;
+            }
+
+            try {
+                System.arraycopy(replacingData, replacingDataOffset, page, offset, copySize);
+            } catch (ArrayIndexOutOfBoundsException ex) {
+                throw new OutOfBoundsException(ex);
+            }
+
+            length -= copySize;
+            targetPosition += copySize;
+            replacingDataOffset += copySize;
+        }
+    }
+
+    @Override
+    public void loadFromStream(InputStream inputStream) throws IOException {
+        List<ByteArrayData> pages = new ArrayList<>();
+        // Data are read directly to the page
+        ByteArrayData page = createNewPage(pageSize, false);
+        byte[] buffer = page.getData();
+        int cnt;
+        int offset = 0;
+        while ((cnt = inputStream.read(buffer, offset, buffer.length - offset)) > 0) {
+            if (cnt + offset < pageSize) {
+                offset = offset + cnt;
+            } else {
+                pages.add(page);
+                page = createNewPage(pageSize, false);
+                buffer = page.getData();
+                offset = 0;
+            }
+        }
+
+        if (offset > 0) {
+            ByteArrayData tailPage = createNewPage(offset, false);
+            System.arraycopy(buffer, 0, tailPage.getData(), 0, offset);
+            pages.add(tailPage);
+        }
+        releasePage(page);
+
+        clear();
+        replacePages(0, 0, pages);
+    }
+
+    @Override
+    public void saveToStream(OutputStream outputStream) throws IOException {
+        PagesIterator iterator = new PagesIterator(root);
+        while (iterator.hasNext()) {
+            outputStream.write(iterator.next().getData());
+        }
+    }
+
+    @Override
+    public OutputStream getDataOutputStream() {
+        return new BinaryDataOutputStream(this);
+    }
+
+    @Override
+    public InputStream getDataInputStream() {
+        return new BinaryDataInputStream(this);
+    }
+
+    @Nullable
+    public DataPageCreator getDataPageCreator() {
+        return dataPageCreator;
+    }
+
+    public void setDataPageCreator(@Nullable DataPageCreator dataPageCreator) {
+        this.dataPageCreator = dataPageCreator;
+    }
+
+    /**
+     * Creates new page.
+     *
+     * @param dataSize page size
+     * @param zeroFilled true if page must be filled with zeros, false if
+     * whole page is overwritten by caller
+     * @return data page
+     */
+    private ByteArrayData createNewPage(int dataSize, boolean zeroFilled) {
+        if (dataPageCreator != null) {
+            return (ByteArrayData) (zeroFilled ? dataPageCreator.createPage(dataSize) : dataPageCreator.createUninitializedPage(dataSize));
+        }
+
+        return new ByteArrayData(new byte[dataSize]);
+    }
+
+    /**
+     * Creates pages for given length of data.
+     * <p>
+     * Length is distributed evenly, so that split pages are at least half
+     * filled.
+     *
+     * @param length data length
+     * @param zeroFilled true if pages must be filled with zeros, false if
+     * whole pages are overwritten by caller
+     * @return list of pages
+     */
+    private List<ByteArrayData> createPages(long length, boolean zeroFilled) {
+        List<ByteArrayData> pages = new ArrayList<>();
+        if (length == 0) {
+            return pages;
+        }
+
+        long pagesCount = (length + pageSize - 1) / pageSize;
+        int basePageLength = (int) (length / pagesCount);
+        long longerPages = length % pagesCount;
+        for (long pageIndex = 0; pageIndex < pagesCount; pageIndex++) {
+            int pageLength = pageIndex < longerPages ? basePageLength + 1 : basePageLength;
+            pages.add(createNewPage(pageLength, zeroFilled));
+        }
+        return pages;
+    }
+
+    /**
+     * Copies data to the list of pages.
+     *
+     * @param pages target pages
+     * @param position position in data of target pages
+     * @param source source data
+     * @param offset source offset
+     * @param length length of data
+     */
+    private static void copyToPages(List<ByteArrayData> pages, long position, byte[] source, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        int pageIndex = 0;
+        byte[] page = pages.get(0).getData();
+        while (position >= page.length) {
+            position -= page.length;
+            pageIndex++;
+            page = pages.get(pageIndex).getData();
+        }
+
+        int pageOffset = (int) position;
+        while (length > 0) {
+            int copySize = Math.min(length, page.length - pageOffset);
+            System.arraycopy(source, offset, page, pageOffset, copySize);
+            offset += copySize;
+            length -= copySize;
+            if (length > 0) {
+                pageIndex++;
+                page = pages.get(pageIndex).getData();
+                pageOffset = 0;
+            }
+        }
+    }
+
+    /**
+     * Finds page containing given position.
+     * <p>
+     * Index and data position of the found page are stored to
+     * foundPageIndex and foundPagePosition fields.
+     *
+     * @param position data position
+     * @return page node
+     */
+    private PageNode findPageNode(long position) {
+        if (position < 0 || position >= getDataSize()) {
+            throw new OutOfBoundsException("Position " + position + " is outside of data");
+        }
+
+        PageNode node = root;
+        int pageIndex = 0;
+        long pagePosition = 0;
+        while (true) {
+            long leftLength = node.left == null ? 0 : node.left.subtreeLength;
+            if (position < leftLength) {
+                node = node.left;
+                continue;
+            }
+
+            int leftCount = node.left == null ? 0 : node.left.subtreeCount;
+            position -= leftLength;
+            pagePosition += leftLength;
+            pageIndex += leftCount;
+            long pageLength = node.page.getDataSize();
+            if (position < pageLength) {
+                foundPageIndex = pageIndex;
+                foundPagePosition = pagePosition;
+                return node;
+            }
+
+            position -= pageLength;
+            pagePosition += pageLength;
+            pageIndex++;
+            node = node.right;
+        }
+    }
+
+    /**
+     * Replaces range of pages with given pages.
+     *
+     * @param pageIndex index of first replaced page
+     * @param count number of replaced pages
+     * @param pages new pages
+     */
+    private void replacePages(int pageIndex, int count, List<ByteArrayData> pages) {
+        PageNode inserted = null;
+        for (ByteArrayData page : pages) {
+            inserted = merge(inserted, new PageNode(page));
+        }
+
+        split(root, pageIndex);
+        PageNode left = splitLeft;
+        split(splitRight, count);
+        PageNode removed = splitLeft;
+        PageNode right = splitRight;
+        root = merge(merge(left, inserted), right);
+        if (dataPageCreator != null) {
+            releasePages(removed);
+        }
+    }
+
+    private void releasePages(@Nullable PageNode node) {
+        PagesIterator iterator = new PagesIterator(node);
+        while (iterator.hasNext()) {
+            releasePage(iterator.next());
+        }
+    }
+
+    private void releasePage(ByteArrayData page) {
+        if (dataPageCreator != null && page instanceof EditableBinaryData) {
+            dataPageCreator.releasePage((EditableBinaryData) page);
+        }
+    }
+
+    /**
+     * Splits tree to first count of pages and the rest.
+     * <p>
+     * Result is stored to splitLeft and splitRight fields.
+     *
+     * @param node tree root
+     * @param count count of pages in the left part
+     */
+    private void split(@Nullable PageNode node, int count) {
+        if (node == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+
+        int leftCount = node.left == null ? 0 : node.left.subtreeCount;
+        if (count <= leftCount) {
+            split(node.left, count);
+            node.left = splitRight;
+            node.update();
+            splitRight = node;
+        } else {
+            split(node.right, count - leftCount - 1);
+            node.right = splitLeft;
+            node.update();
+            splitLeft = node;
+        }
+    }
+
+    @Nullable
+    private static PageNode merge(@Nullable PageNode left, @Nullable PageNode right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static void setPageNode(PageNode node, int pageIndex, ByteArrayData page) {
+        int leftCount = node.left == null ? 0 : node.left.subtreeCount;
+        if (pageIndex < leftCount) {
+            setPageNode(node.left, pageIndex, page);
+        } else if (pageIndex == leftCount) {
+            node.page = page;
+        } else {
+            setPageNode(node.right, pageIndex - leftCount - 1, page);
+        }
+        node.update();
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BinaryData)) {
+            return false;
+        }
+
+        BinaryData other = (BinaryData) obj;
+        if (other.getDataSize() != getDataSize()) {
+            return false;
+        }
+
+        byte[] buffer = new byte[pageSize];
+        long position = 0;
+        PagesIterator iterator = new PagesIterator(root);
+        while (iterator.hasNext()) {
+            byte[] page = iterator.next().getData();
+            other.copyToArray(position, buffer, 0, page.length);
+            for (int i = 0; i < page.length; i++) {
+                if (page[i] != buffer[i]) {
+                    return false;
+                }
+            }
+            position += page.length;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getDataSize());
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+    }
+
+    /**
+     * Node of the tree of pages.
+     */
+    private static final class PageNode {
+
+        ByteArrayData page;
+        @Nullable
+        PageNode left;
+        @Nullable
+        PageNode right;
+        final int priority;
+        long subtreeLength;
+        int subtreeCount;
+
+        PageNode(ByteArrayData page) {
+            this.page = page;
+            priority = ThreadLocalRandom.current().nextInt();
+            update();
+        }
+
+        void update() {
+            subtreeLength = page.getDataSize();
+            subtreeCount = 1;
+            if (left != null) {
+                subtreeLength += left.subtreeLength;
+                subtreeCount += left.subtreeCount;
+            }
+            if (right != null) {
+                subtreeLength += right.subtreeLength;
+                subtreeCount += right.subtreeCount;
+            }
+        }
+    }
+
+    /**
+     * In-order iterator over pages.
+     */
+    private static final class PagesIterator {
+
+        private final Deque<PageNode> stack = new ArrayDeque<>();
+
+        PagesIterator(@Nullable PageNode root) {
+            pushLeft(root);
+        }
+
+        boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        ByteArrayData next() {
+            PageNode node = stack.pop();
+            pushLeft(node.right);
+            return node.page;
+        }
+
+        private void pushLeft(@Nullable PageNode node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
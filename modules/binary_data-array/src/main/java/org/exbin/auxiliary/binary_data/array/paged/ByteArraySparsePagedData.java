@@ -0,0 +1,461 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.array.paged;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.BinaryDataInputStream;
+import org.exbin.auxiliary.binary_data.DataNotPresentException;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.binary_data.PresenceAwareBinaryData;
+import org.exbin.auxiliary.binary_data.SparseBinaryData;
+
+/**
+ * Sparse binary data of fixed size with data stored in pages.
+ * <p>
+ * Only pages containing present data are stored. Presence of data is tracked
+ * by index of present ranges, so that presence checks and search for next or
+ * previous presence change take logarithmic time to count of ranges.
+ * <p>
+ * Reading of data which are not present throws
+ * {@link DataNotPresentException} with range of missing data, present parts
+ * of area can be read without exceptions using
+ * {@link #copyPresentToArray(long, byte[], int, int, BitSet)}.
+ */
+@NullMarked
+public class ByteArraySparsePagedData implements BinaryData, SparseBinaryData, PresenceAwareBinaryData {
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+
+    private final int pageSize;
+    private long dataSize;
+    private final TreeMap<Long, byte[]> pages = new TreeMap<>();
+    /**
+     * Present ranges as map of start position to end position exclusive.
+     * Ranges are not overlapping nor adjacent.
+     */
+    private final TreeMap<Long, Long> presentRanges = new TreeMap<>();
+
+    public ByteArraySparsePagedData(long dataSize) {
+        this(dataSize, DEFAULT_PAGE_SIZE);
+    }
+
+    public ByteArraySparsePagedData(long dataSize, int pageSize) {
+        if (dataSize < 0) {
+            throw new InvalidParameterException("Size cannot be negative");
+        }
+        if (pageSize <= 0) {
+            throw new InvalidParameterException("Page size must be positive");
+        }
+        this.dataSize = dataSize;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return dataSize == 0;
+    }
+
+    @Override
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * Sets size of data, extended area is not present.
+     *
+     * @param size new size
+     */
+    public void setDataSize(long size) {
+        if (size < 0) {
+            throw new InvalidParameterException("Size cannot be negative");
+        }
+
+        if (size < dataSize) {
+            removePresence(size, dataSize - size);
+        }
+        dataSize = size;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns count of stored pages.
+     *
+     * @return count of pages
+     */
+    public int getPagesCount() {
+        return pages.size();
+    }
+
+    /**
+     * Returns count of separate ranges of present data.
+     *
+     * @return count of ranges
+     */
+    public int getPresentRangesCount() {
+        return presentRanges.size();
+    }
+
+    /**
+     * Returns total size of present data.
+     *
+     * @return size of present data
+     */
+    public long getPresentDataSize() {
+        long presentSize = 0;
+        for (Map.Entry<Long, Long> range : presentRanges.entrySet()) {
+            presentSize += range.getValue() - range.getKey();
+        }
+        return presentSize;
+    }
+
+    @Override
+    public boolean isDataPresent(long position) {
+        Map.Entry<Long, Long> range = presentRanges.floorEntry(position);
+        return range != null && position < range.getValue();
+    }
+
+    /**
+     * Returns true if whole range of data is present.
+     *
+     * @param startFrom start position
+     * @param length length of range
+     * @return true if present
+     */
+    public boolean isDataPresent(long startFrom, long length) {
+        if (length == 0) {
+            return true;
+        }
+        Map.Entry<Long, Long> range = presentRanges.floorEntry(startFrom);
+        return range != null && startFrom + length <= range.getValue();
+    }
+
+    @Override
+    public long closestNextPossiblePresenceChange(long position) {
+        Map.Entry<Long, Long> range = presentRanges.floorEntry(position);
+        if (range != null && position < range.getValue()) {
+            return range.getValue();
+        }
+
+        Long nextStart = presentRanges.higherKey(position);
+        return nextStart != null ? nextStart : Math.max(dataSize, position + 1);
+    }
+
+    @Override
+    public long closestPreviousPossiblePresenceChange(long position) {
+        Map.Entry<Long, Long> range = presentRanges.floorEntry(position);
+        if (range != null && position < range.getValue()) {
+            return range.getKey() - 1;
+        }
+
+        return range != null ? range.getValue() - 1 : -1;
+    }
+
+    @Override
+    public byte getByte(long position) {
+        checkRange(position, 1);
+        if (!isDataPresent(position)) {
+            throw missingData(position, position + 1);
+        }
+        return pages.get(position / pageSize)[(int) (position % pageSize)];
+    }
+
+    /**
+     * Sets byte on given position and marks it as present.
+     *
+     * @param position position
+     * @param value byte value
+     */
+    public void setByte(long position, byte value) {
+        checkRange(position, 1);
+        getPageForWrite(position / pageSize)[(int) (position % pageSize)] = value;
+        addPresence(position, position + 1);
+    }
+
+    /**
+     * Replaces data on given position and marks them as present.
+     *
+     * @param targetPosition target position
+     * @param replacingData replacing data
+     */
+    public void replace(long targetPosition, byte[] replacingData) {
+        replace(targetPosition, replacingData, 0, replacingData.length);
+    }
+
+    /**
+     * Replaces data on given position and marks them as present.
+     *
+     * @param targetPosition target position
+     * @param replacingData replacing data
+     * @param replacingDataOffset offset in replacing data
+     * @param length length of data
+     */
+    public void replace(long targetPosition, byte[] replacingData, int replacingDataOffset, int length) {
+        checkRange(targetPosition, length);
+        long position = targetPosition;
+        int offset = replacingDataOffset;
+        int remaining = length;
+        while (remaining > 0) {
+            int pageOffset = (int) (position % pageSize);
+            int copyLength = Math.min(remaining, pageSize - pageOffset);
+            System.arraycopy(replacingData, offset, getPageForWrite(position / pageSize), pageOffset, copyLength);
+            position += copyLength;
+            offset += copyLength;
+            remaining -= copyLength;
+        }
+        addPresence(targetPosition, targetPosition + length);
+    }
+
+    /**
+     * Replaces data on given position and marks them as present.
+     *
+     * @param targetPosition target position
+     * @param replacingData replacing data
+     */
+    public void replace(long targetPosition, BinaryData replacingData) {
+        long replacingDataSize = replacingData.getDataSize();
+        checkRange(targetPosition, replacingDataSize);
+        long position = targetPosition;
+        long sourcePosition = 0;
+        while (sourcePosition < replacingDataSize) {
+            int pageOffset = (int) (position % pageSize);
+            int copyLength = (int) Math.min(replacingDataSize - sourcePosition, pageSize - pageOffset);
+            replacingData.copyToArray(sourcePosition, getPageForWrite(position / pageSize), pageOffset, copyLength);
+            position += copyLength;
+            sourcePosition += copyLength;
+        }
+        addPresence(targetPosition, targetPosition + replacingDataSize);
+    }
+
+    /**
+     * Marks range of data as not present and releases pages without present
+     * data.
+     *
+     * @param startFrom start position
+     * @param length length of range
+     */
+    public void removePresence(long startFrom, long length) {
+        checkRange(startFrom, length);
+        if (length == 0) {
+            return;
+        }
+
+        long endPosition = startFrom + length;
+        Map.Entry<Long, Long> lowerRange = presentRanges.lowerEntry(startFrom);
+        if (lowerRange != null && lowerRange.getValue() > startFrom) {
+            presentRanges.put(lowerRange.getKey(), startFrom);
+            if (lowerRange.getValue() > endPosition) {
+                presentRanges.put(endPosition, lowerRange.getValue());
+            }
+        }
+        NavigableMap<Long, Long> coveredRanges = presentRanges.subMap(startFrom, true, endPosition, false);
+        Map.Entry<Long, Long> lastRange = coveredRanges.lastEntry();
+        coveredRanges.clear();
+        if (lastRange != null && lastRange.getValue() > endPosition) {
+            presentRanges.put(endPosition, lastRange.getValue());
+        }
+
+        long firstPage = startFrom / pageSize;
+        long lastPage = (endPosition - 1) / pageSize;
+        if (lastPage > firstPage + 1) {
+            pages.subMap(firstPage + 1, lastPage).clear();
+        }
+        releasePageIfEmpty(firstPage);
+        if (lastPage != firstPage) {
+            releasePageIfEmpty(lastPage);
+        }
+    }
+
+    /**
+     * Removes all present data.
+     */
+    public void clear() {
+        pages.clear();
+        presentRanges.clear();
+    }
+
+    @Override
+    public ByteArraySparsePagedData copy() {
+        return copy(0, dataSize);
+    }
+
+    @Override
+    public ByteArraySparsePagedData copy(long startFrom, long length) {
+        checkRange(startFrom, length);
+        ByteArraySparsePagedData result = new ByteArraySparsePagedData(length, pageSize);
+        long endPosition = startFrom + length;
+        Map.Entry<Long, Long> range = presentRanges.floorEntry(startFrom);
+        if (range == null || range.getValue() <= startFrom) {
+            range = presentRanges.higherEntry(startFrom);
+        }
+        while (range != null && range.getKey() < endPosition) {
+            long rangeStart = Math.max(startFrom, range.getKey());
+            long rangeEnd = Math.min(endPosition, range.getValue());
+            long position = rangeStart;
+            while (position < rangeEnd) {
+                int pageOffset = (int) (position % pageSize);
+                int copyLength = (int) Math.min(rangeEnd - position, pageSize - pageOffset);
+                result.replace(position - startFrom, pages.get(position / pageSize), pageOffset, copyLength);
+                position += copyLength;
+            }
+            range = presentRanges.higherEntry(range.getKey());
+        }
+        return result;
+    }
+
+    @Override
+    public void copyToArray(long startFrom, byte[] target, int offset, int length) {
+        checkRange(startFrom, length);
+        if (!isDataPresent(startFrom, length)) {
+            long missingStart = isDataPresent(startFrom) ? closestNextPossiblePresenceChange(startFrom) : startFrom;
+            throw missingData(missingStart, startFrom + length);
+        }
+
+        long position = startFrom;
+        int remaining = length;
+        while (remaining > 0) {
+            int pageOffset = (int) (position % pageSize);
+            int copyLength = Math.min(remaining, pageSize - pageOffset);
+            System.arraycopy(pages.get(position / pageSize), pageOffset, target, offset, copyLength);
+            position += copyLength;
+            offset += copyLength;
+            remaining -= copyLength;
+        }
+    }
+
+    @Override
+    public int copyPresentToArray(long startFrom, byte[] target, int offset, int length, @Nullable BitSet presenceMap) {
+        checkRange(startFrom, length);
+        if (presenceMap != null) {
+            presenceMap.clear(0, length);
+        }
+
+        long endPosition = startFrom + length;
+        int leadingLength = length;
+        Map.Entry<Long, Long> range = presentRanges.floorEntry(startFrom);
+        if (range == null || range.getValue() <= startFrom) {
+            range = presentRanges.higherEntry(startFrom);
+            leadingLength = 0;
+        }
+        boolean leading = leadingLength > 0;
+        while (range != null && range.getKey() < endPosition) {
+            long rangeStart = Math.max(startFrom, range.getKey());
+            long rangeEnd = Math.min(endPosition, range.getValue());
+            if (leading) {
+                leadingLength = (int) (rangeEnd - startFrom);
+                leading = false;
+            }
+            if (presenceMap != null) {
+                presenceMap.set((int) (rangeStart - startFrom), (int) (rangeEnd - startFrom));
+            }
+            long position = rangeStart;
+            while (position < rangeEnd) {
+                int pageOffset = (int) (position % pageSize);
+                int copyLength = (int) Math.min(rangeEnd - position, pageSize - pageOffset);
+                System.arraycopy(pages.get(position / pageSize), pageOffset, target, offset + (int) (position - startFrom), copyLength);
+                position += copyLength;
+            }
+            range = presentRanges.higherEntry(range.getKey());
+        }
+        return leadingLength;
+    }
+
+    @Override
+    public void saveToStream(OutputStream outputStream) throws IOException {
+        if (!isDataPresent(0, dataSize)) {
+            long missingStart = isDataPresent(0) ? closestNextPossiblePresenceChange(0) : 0;
+            throw missingData(missingStart, dataSize);
+        }
+
+        for (Map.Entry<Long, byte[]> page : pages.entrySet()) {
+            long pageStart = page.getKey() * pageSize;
+            outputStream.write(page.getValue(), 0, (int) Math.min(pageSize, dataSize - pageStart));
+        }
+    }
+
+    @Override
+    public InputStream getDataInputStream() {
+        return new BinaryDataInputStream(this);
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+    }
+
+    /**
+     * Adds range to present ranges merging it with overlapping or adjacent
+     * ranges.
+     */
+    private void addPresence(long startFrom, long endPosition) {
+        if (startFrom == endPosition) {
+            return;
+        }
+
+        Map.Entry<Long, Long> lowerRange = presentRanges.floorEntry(startFrom);
+        if (lowerRange != null && lowerRange.getValue() >= startFrom) {
+            startFrom = lowerRange.getKey();
+            endPosition = Math.max(endPosition, lowerRange.getValue());
+        }
+        NavigableMap<Long, Long> coveredRanges = presentRanges.subMap(startFrom, true, endPosition, true);
+        Map.Entry<Long, Long> lastRange = coveredRanges.lastEntry();
+        if (lastRange != null) {
+            endPosition = Math.max(endPosition, lastRange.getValue());
+        }
+        coveredRanges.clear();
+        presentRanges.put(startFrom, endPosition);
+    }
+
+    private byte[] getPageForWrite(long pageIndex) {
+        return pages.computeIfAbsent(pageIndex, (index) -> new byte[pageSize]);
+    }
+
+    private void releasePageIfEmpty(long pageIndex) {
+        long pageStart = pageIndex * pageSize;
+        Map.Entry<Long, Long> range = presentRanges.lowerEntry(pageStart + pageSize);
+        if (range == null || range.getValue() <= pageStart) {
+            pages.remove(pageIndex);
+        }
+    }
+
+    /**
+     * Creates exception for missing data starting at given position up to next
+     * present data or given limit.
+     */
+    private DataNotPresentException missingData(long missingStart, long limit) {
+        long missingEnd = Math.min(limit, closestNextPossiblePresenceChange(missingStart));
+        return new DataNotPresentException("Requested data are not present", new DataRange(missingStart, missingEnd - 1));
+    }
+
+    private void checkRange(long startFrom, long length) {
+        if (startFrom < 0 || length < 0 || startFrom + length > dataSize) {
+            throw new OutOfBoundsException("Requested range is out of data range");
+        }
+    }
+}
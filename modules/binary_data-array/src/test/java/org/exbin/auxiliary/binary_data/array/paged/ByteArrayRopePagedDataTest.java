@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.array.paged;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.binary_data.TestUtils;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.exbin.auxiliary.binary_data.paged.PagedData;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests for ByteArrayRopePagedData class.
+ */
+public class ByteArrayRopePagedDataTest {
+
+    private final TestUtils testUtils = new TestUtils();
+
+    public ByteArrayRopePagedDataTest() {
+    }
+
+    @Test
+    public void testGetDataSize() {
+        PagedData instanceA = new ByteArrayRopePagedData(8);
+        instanceA.insert(0, testUtils.getSampleDataA());
+        assertEquals(5l, instanceA.getDataSize());
+
+        PagedData instanceC = new ByteArrayRopePagedData(8);
+        instanceC.insert(0, testUtils.getSampleDataC());
+        assertEquals(256l, instanceC.getDataSize());
+        assertEquals(32, instanceC.getPagesCount());
+
+        PagedData instanceD = new ByteArrayRopePagedData(8);
+        assertTrue(instanceD.isEmpty());
+        instanceD.insert(0, new byte[0]);
+        assertTrue(instanceD.isEmpty());
+    }
+
+    @Test
+    public void testGetByte() {
+        PagedData instanceC = new ByteArrayRopePagedData(8);
+        instanceC.insert(0, testUtils.getSampleDataC());
+        assertEquals(0x0, instanceC.getByte(0));
+        assertEquals(0x7f, instanceC.getByte(0x7f) & 0xff);
+        assertEquals(0xff, instanceC.getByte(0xff) & 0xff);
+
+        try {
+            instanceC.getByte(256);
+            fail();
+        } catch (OutOfBoundsException ex) {
+        }
+    }
+
+    @Test
+    public void testInsertSplitsLocalPage() {
+        ByteArrayRopePagedData instance = new ByteArrayRopePagedData(8);
+        instance.insert(0, testUtils.getSampleDataC());
+        byte[] lastPage = instance.getPage(31).getData();
+
+        instance.insert(3, new byte[]{1, 2});
+        assertEquals(258l, instance.getDataSize());
+        assertEquals(33, instance.getPagesCount());
+        assertEquals(10, instance.getPage(0).getDataSize() + instance.getPage(1).getDataSize());
+        // Pages after insertion point are kept by reference
+        assertSame(lastPage, instance.getPage(32).getData());
+        assertEquals((byte) 2, instance.getByte(2));
+        assertEquals((byte) 1, instance.getByte(3));
+        assertEquals((byte) 2, instance.getByte(4));
+        assertEquals((byte) 3, instance.getByte(5));
+        assertEquals((byte) 255, instance.getByte(257));
+    }
+
+    @Test
+    public void testRemoveMergesPages() {
+        ByteArrayRopePagedData instance = new ByteArrayRopePagedData(8);
+        instance.insert(0, testUtils.getSampleDataC());
+        instance.remove(6, 4);
+        assertEquals(252l, instance.getDataSize());
+        assertEquals((byte) 5, instance.getByte(5));
+        assertEquals((byte) 10, instance.getByte(6));
+
+        instance.remove(0, 252);
+        assertTrue(instance.isEmpty());
+        assertEquals(0, instance.getPagesCount());
+
+        try {
+            instance.remove(0, 1);
+            fail();
+        } catch (OutOfBoundsException ex) {
+        }
+    }
+
+    @Test
+    public void testPagePosition() {
+        ByteArrayRopePagedData instance = new ByteArrayRopePagedData(8);
+        instance.insert(0, testUtils.getSampleDataC());
+        instance.insert(9, 3);
+        long position = 0;
+        for (int pageIndex = 0; pageIndex < instance.getPagesCount(); pageIndex++) {
+            assertEquals(position, instance.getPagePosition(pageIndex));
+            assertEquals(pageIndex, instance.getPageIndex(position));
+            position += instance.getPage(pageIndex).getDataSize();
+        }
+        assertEquals(instance.getDataSize(), instance.getPagePosition(instance.getPagesCount()));
+    }
+
+    @Test
+    public void testSetPage() {
+        ByteArrayRopePagedData instance = new ByteArrayRopePagedData(8);
+        instance.insert(0, testUtils.getSampleDataB());
+        instance.setPage(0, new ByteArrayData(new byte[]{1, 2, 3}));
+        assertEquals(8l, instance.getDataSize());
+        assertEquals((byte) 3, instance.getByte(2));
+        assertEquals((byte) 0x46, instance.getByte(3));
+
+        try {
+            instance.setPage(0, new ByteArrayData(new byte[9]));
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        PagedData instanceC = new ByteArrayRopePagedData(8);
+        instanceC.insert(0, testUtils.getSampleDataC());
+        BinaryData copyC = instanceC.copy();
+        assertEquals(instanceC, copyC);
+        instanceC.setByte(0, (byte) 1);
+        assertEquals((byte) 0, copyC.getByte(0));
+
+        BinaryData rangeCopy = instanceC.copy(100, 100);
+        assertEquals(100l, rangeCopy.getDataSize());
+        assertEquals((byte) 100, rangeCopy.getByte(0));
+
+        try {
+            instanceC.copy(100, 200);
+            fail();
+        } catch (OutOfBoundsException ex) {
+        }
+    }
+
+    @Test
+    public void testCopyToArray() {
+        PagedData instanceC = new ByteArrayRopePagedData(8);
+        instanceC.insert(0, testUtils.getSampleDataC());
+        byte[] copyC = new byte[100];
+        instanceC.copyToArray(100, copyC, 0, 100);
+        assertEquals((byte) 100, copyC[0]);
+        assertEquals((byte) 199, copyC[99]);
+
+        try {
+            instanceC.copyToArray(100, copyC, 50, 100);
+            fail();
+        } catch (OutOfBoundsException ex) {
+        }
+
+        try {
+            instanceC.copyToArray(200, copyC, 0, 100);
+            fail();
+        } catch (OutOfBoundsException ex) {
+        }
+    }
+
+    @Test
+    public void testReplaceSelf() {
+        byte[] sampleData = testUtils.getSampleDataC();
+        PagedData instance = new ByteArrayRopePagedData(8);
+        instance.insert(0, sampleData);
+        instance.replace(10, instance, 5, 100);
+        assertEquals((byte) 5, instance.getByte(10));
+        assertEquals((byte) 104, instance.getByte(109));
+
+        instance.replace(0, instance, 50, 100);
+        assertEquals((byte) 45, instance.getByte(0));
+    }
+
+    @Test
+    public void testStreams() throws Exception {
+        PagedData instance = new ByteArrayRopePagedData(8);
+        instance.loadFromStream(new ByteArrayInputStream(testUtils.getSampleDataC()));
+        assertEquals(256l, instance.getDataSize());
+        instance.insert(20, new byte[]{1, 2, 3});
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        instance.saveToStream(output);
+        byte[] savedData = output.toByteArray();
+        assertEquals(259, savedData.length);
+        assertEquals((byte) 1, savedData[20]);
+        assertEquals((byte) 20, savedData[23]);
+
+        InputStream inputStream = instance.getDataInputStream();
+        byte[] readData = new byte[259];
+        int offset = 0;
+        while (offset < readData.length) {
+            int read = inputStream.read(readData, offset, readData.length - offset);
+            assertTrue(read > 0);
+            offset += read;
+        }
+        assertArrayEquals(savedData, readData);
+
+        PagedData target = new ByteArrayRopePagedData(8);
+        try (OutputStream outputStream = target.getDataOutputStream()) {
+            outputStream.write(savedData);
+        }
+        assertEquals(instance, target);
+
+        PagedData loaded = new ByteArrayRopePagedData(8);
+        assertEquals(259l, loaded.insert(0, new ByteArrayInputStream(savedData), -1));
+        assertEquals(instance, loaded);
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(12);
+        ByteArrayRopePagedData instance = new ByteArrayRopePagedData(16);
+        ByteArrayEditableData expected = new ByteArrayEditableData();
+        for (int i = 0; i < 2000; i++) {
+            long dataSize = expected.getDataSize();
+            int operation = random.nextInt(4);
+            if (operation < 2 || dataSize == 0) {
+                long position = dataSize == 0 ? 0 : random.nextInt((int) dataSize + 1);
+                byte[] insertedData = new byte[random.nextInt(40)];
+                random.nextBytes(insertedData);
+                instance.insert(position, insertedData);
+                expected.insert(position, insertedData);
+            } else if (operation == 2) {
+                long position = random.nextInt((int) dataSize);
+                long length = random.nextInt((int) (dataSize - position) + 1);
+                if (length > 50) {
+                    length = 50;
+                }
+                instance.remove(position, length);
+                expected.remove(position, length);
+            } else {
+                long position = random.nextInt((int) dataSize);
+                byte value = (byte) random.nextInt();
+                instance.setByte(position, value);
+                expected.setByte(position, value);
+            }
+
+            assertEquals(expected.getDataSize(), instance.getDataSize());
+            for (int pageIndex = 0; pageIndex < instance.getPagesCount(); pageIndex++) {
+                long pageSize = instance.getPage(pageIndex).getDataSize();
+                assertTrue(pageSize > 0 && pageSize <= 16);
+            }
+        }
+
+        assertEquals(instance, expected);
+        assertEquals(instance, instance.copy());
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.array.paged;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.exbin.auxiliary.binary_data.DataNotPresentException;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests for ByteArraySparsePagedData class.
+ */
+public class ByteArraySparsePagedDataTest {
+
+    public ByteArraySparsePagedDataTest() {
+    }
+
+    @Test
+    public void testPresence() {
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(100, 8);
+        assertFalse(instance.isDataPresent(0));
+        assertEquals(0, instance.getPagesCount());
+
+        instance.replace(10, new byte[]{1, 2, 3, 4});
+        instance.replace(20, new byte[]{5, 6});
+        assertEquals(2, instance.getPresentRangesCount());
+        assertEquals(2, instance.getPagesCount());
+        assertTrue(instance.isDataPresent(10));
+        assertTrue(instance.isDataPresent(13));
+        assertFalse(instance.isDataPresent(14));
+        assertTrue(instance.isDataPresent(10, 4));
+        assertFalse(instance.isDataPresent(10, 5));
+        assertEquals(3, instance.getByte(12));
+
+        // Adjacent and overlapping ranges are merged
+        instance.replace(14, new byte[]{7, 8, 9, 10, 11, 12});
+        assertEquals(1, instance.getPresentRangesCount());
+        assertTrue(instance.isDataPresent(10, 12));
+        assertEquals(6, instance.getByte(21));
+        assertEquals(12, instance.getPresentDataSize());
+        instance.setByte(22, (byte) 13);
+        assertEquals(1, instance.getPresentRangesCount());
+        assertEquals(13, instance.getByte(22));
+
+        try {
+            instance.getByte(100);
+            fail("Position out of data should fail");
+        } catch (OutOfBoundsException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPresenceChanges() {
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(100, 8);
+        instance.replace(10, new byte[5]);
+        instance.replace(40, new byte[10]);
+
+        assertEquals(10, instance.closestNextPossiblePresenceChange(0));
+        assertEquals(15, instance.closestNextPossiblePresenceChange(10));
+        assertEquals(40, instance.closestNextPossiblePresenceChange(15));
+        assertEquals(50, instance.closestNextPossiblePresenceChange(45));
+        assertEquals(100, instance.closestNextPossiblePresenceChange(50));
+
+        assertEquals(-1, instance.closestPreviousPossiblePresenceChange(5));
+        assertEquals(9, instance.closestPreviousPossiblePresenceChange(14));
+        assertEquals(14, instance.closestPreviousPossiblePresenceChange(30));
+        assertEquals(39, instance.closestPreviousPossiblePresenceChange(49));
+        assertEquals(49, instance.closestPreviousPossiblePresenceChange(99));
+    }
+
+    @Test
+    public void testNotPresentData() {
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(100, 8);
+        instance.replace(10, new byte[]{1, 2, 3, 4, 5});
+        instance.replace(40, new byte[10]);
+
+        try {
+            instance.getByte(20);
+            fail("Reading not present data should fail");
+        } catch (DataNotPresentException ex) {
+            assertDataRange(20, 20, ex.getDataRange().get());
+        }
+
+        byte[] target = new byte[10];
+        try {
+            instance.copyToArray(12, target, 0, 10);
+            fail("Reading not present data should fail");
+        } catch (DataNotPresentException ex) {
+            assertDataRange(15, 21, ex.getDataRange().get());
+        }
+
+        instance.copyToArray(11, target, 2, 3);
+        assertArrayEquals(new byte[]{0, 0, 2, 3, 4, 0, 0, 0, 0, 0}, target);
+
+        try {
+            instance.saveToStream(new ByteArrayOutputStream());
+            fail("Saving not present data should fail");
+        } catch (DataNotPresentException | IOException ex) {
+            assertTrue(ex instanceof DataNotPresentException);
+        }
+    }
+
+    @Test
+    public void testCopyPresentToArray() {
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(100, 8);
+        instance.replace(10, new byte[]{1, 2, 3, 4, 5});
+        instance.replace(20, new byte[]{6, 7});
+
+        byte[] target = new byte[20];
+        BitSet presenceMap = new BitSet();
+        presenceMap.set(0, 20);
+        assertEquals(3, instance.copyPresentToArray(12, target, 0, 12, presenceMap));
+        assertArrayEquals(new byte[]{3, 4, 5, 0, 0, 0, 0, 0, 6, 7, 0, 0}, Arrays.copyOf(target, 12));
+        assertEquals(3, presenceMap.nextClearBit(0));
+        assertEquals(8, presenceMap.nextSetBit(3));
+        assertEquals(10, presenceMap.nextClearBit(8));
+        // Bits outside of area are not changed
+        assertEquals(12, presenceMap.nextSetBit(10));
+
+        assertEquals(0, instance.copyPresentToArray(0, target, 0, 20, null));
+        assertEquals(5, instance.copyPresentToArray(10, target, 0, 5, null));
+    }
+
+    @Test
+    public void testRemovePresence() {
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(100, 8);
+        instance.replace(4, new byte[40]);
+        assertEquals(6, instance.getPagesCount());
+
+        instance.removePresence(10, 20);
+        assertEquals(2, instance.getPresentRangesCount());
+        assertTrue(instance.isDataPresent(4, 6));
+        assertFalse(instance.isDataPresent(10));
+        assertFalse(instance.isDataPresent(29));
+        assertTrue(instance.isDataPresent(30, 14));
+        // Pages without present data are released
+        assertEquals(5, instance.getPagesCount());
+
+        instance.removePresence(0, 8);
+        assertEquals(10, instance.closestNextPossiblePresenceChange(8));
+        instance.setDataSize(35);
+        assertTrue(instance.isDataPresent(30, 5));
+        assertEquals(7, instance.getPresentDataSize());
+        instance.setDataSize(100);
+        assertFalse(instance.isDataPresent(35));
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(50, 8);
+        instance.replace(5, new byte[]{1, 2, 3});
+        instance.replace(20, new byte[]{4, 5, 6, 7});
+
+        ByteArraySparsePagedData copy = instance.copy(6, 20);
+        assertEquals(20, copy.getDataSize());
+        assertEquals(2, copy.getPresentRangesCount());
+        assertTrue(copy.isDataPresent(0, 2));
+        assertEquals(3, copy.getByte(1));
+        assertTrue(copy.isDataPresent(14, 4));
+        assertFalse(copy.isDataPresent(18));
+        assertEquals(7, copy.getByte(17));
+
+        ByteArraySparsePagedData full = new ByteArraySparsePagedData(10, 4);
+        full.replace(0, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        full.saveToStream(stream);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, stream.toByteArray());
+    }
+
+    @Test
+    public void testLargeSparseData() {
+        long dataSize = 1L << 40;
+        ByteArraySparsePagedData instance = new ByteArraySparsePagedData(dataSize);
+        for (int i = 0; i < 100; i++) {
+            instance.replace(i * (dataSize / 100) + 1000, new byte[]{(byte) i, (byte) i});
+        }
+        assertEquals(100, instance.getPagesCount());
+
+        // Scanning skips holes
+        int rangesCount = 0;
+        long position = 0;
+        while (position < dataSize) {
+            if (instance.isDataPresent(position)) {
+                assertEquals((byte) rangesCount, instance.getByte(position));
+                rangesCount++;
+            }
+            position = instance.closestNextPossiblePresenceChange(position);
+        }
+        assertEquals(100, rangesCount);
+    }
+
+    private static void assertDataRange(long expectedStart, long expectedEnd, DataRange dataRange) {
+        assertEquals(expectedStart, dataRange.getStartPosition());
+        assertEquals(expectedEnd, dataRange.getEndPosition());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.delta.DataSource;
+
+/**
+ * Binary data instance used by benchmark together with resources to release.
+ */
+@NullMarked
+public class BenchmarkData implements AutoCloseable {
+
+    private final BinaryData data;
+    @Nullable
+    private final DataSource dataSource;
+    @Nullable
+    private final File tempFile;
+
+    public BenchmarkData(BinaryData data) {
+        this(data, null, null);
+    }
+
+    public BenchmarkData(BinaryData data, @Nullable DataSource dataSource, @Nullable File tempFile) {
+        this.data = data;
+        this.dataSource = dataSource;
+        this.tempFile = tempFile;
+    }
+
+    public BinaryData getData() {
+        return data;
+    }
+
+    public EditableBinaryData getEditableData() {
+        if (!(data instanceof EditableBinaryData)) {
+            throw new IllegalStateException("Data are not editable");
+        }
+        return (EditableBinaryData) data;
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.dispose();
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (tempFile != null) {
+            tempFile.delete();
+        }
+    }
+}
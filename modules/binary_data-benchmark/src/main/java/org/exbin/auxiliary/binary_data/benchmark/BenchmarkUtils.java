@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.OutputStream;
+import java.util.Random;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Utilities for benchmarks.
+ */
+@NullMarked
+public class BenchmarkUtils {
+
+    private BenchmarkUtils() {
+    }
+
+    /**
+     * Creates pseudo random content which is the same for each run.
+     *
+     * @param dataSize size of data
+     * @return content
+     */
+    public static byte[] createContent(int dataSize) {
+        byte[] content = new byte[dataSize];
+        new Random(dataSize).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Output stream which drops all written data.
+     */
+    public static class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int value) {
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+        }
+    }
+}
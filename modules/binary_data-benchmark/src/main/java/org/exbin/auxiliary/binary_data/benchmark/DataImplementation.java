@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayRopePagedData;
+import org.exbin.auxiliary.binary_data.buffer.paged.BufferPagedData;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
+import org.exbin.auxiliary.binary_data.delta.SegmentsRepository;
+import org.exbin.auxiliary.binary_data.delta.file.FileDataSource;
+import org.exbin.auxiliary.binary_data.jna.paged.JnaBufferPagedData;
+
+/**
+ * Binary data implementations compared by benchmarks.
+ */
+@NullMarked
+public enum DataImplementation {
+    BYTE_ARRAY_DATA(false),
+    BYTE_ARRAY_EDITABLE_DATA(true),
+    BYTE_ARRAY_PAGED_DATA(true),
+    ROPE_PAGED_DATA(true),
+    BUFFER_PAGED_DATA(true),
+    JNA_BUFFER_PAGED_DATA(true),
+    DELTA_DOCUMENT(true);
+
+    private final boolean editable;
+
+    private DataImplementation(boolean editable) {
+        this.editable = editable;
+    }
+
+    public boolean isEditable() {
+        return editable;
+    }
+
+    /**
+     * Creates data instance with given content.
+     * <p>
+     * Delta document is backed by temporary file which is deleted when
+     * returned data are closed.
+     *
+     * @param content initial content
+     * @return benchmark data
+     * @throws IOException on input/output error
+     */
+    public BenchmarkData createData(byte[] content) throws IOException {
+        switch (this) {
+            case BYTE_ARRAY_DATA:
+                return new BenchmarkData(new ByteArrayData(content.clone()));
+            case BYTE_ARRAY_EDITABLE_DATA:
+                return new BenchmarkData(new ByteArrayEditableData(content.clone()));
+            case BYTE_ARRAY_PAGED_DATA:
+                return new BenchmarkData(fill(new ByteArrayPagedData(), content));
+            case ROPE_PAGED_DATA:
+                return new BenchmarkData(fill(new ByteArrayRopePagedData(), content));
+            case BUFFER_PAGED_DATA:
+                return new BenchmarkData(fill(new BufferPagedData(), content));
+            case JNA_BUFFER_PAGED_DATA:
+                return new BenchmarkData(fill(new JnaBufferPagedData(), content));
+            case DELTA_DOCUMENT:
+                return createDeltaDocument(content);
+            default:
+                throw new IllegalStateException("Unexpected implementation " + name());
+        }
+    }
+
+    private static EditableBinaryData fill(EditableBinaryData data, byte[] content) {
+        data.insert(0, content);
+        return data;
+    }
+
+    private static BenchmarkData createDeltaDocument(byte[] content) throws IOException {
+        File tempFile = File.createTempFile("binary_data-benchmark", ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            output.write(content);
+        }
+
+        SegmentsRepository segmentsRepository = new SegmentsRepository(ByteArrayPagedData::new);
+        FileDataSource dataSource = new FileDataSource(tempFile);
+        segmentsRepository.addDataSource(dataSource);
+        DeltaDocument document = segmentsRepository.createDocument(dataSource);
+        return new BenchmarkData(document, dataSource, tempFile);
+    }
+}
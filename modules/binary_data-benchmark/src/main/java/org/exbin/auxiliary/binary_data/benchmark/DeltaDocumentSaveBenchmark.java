@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of saving delta document to its source file after random edits.
+ * <p>
+ * Edits are insertions, overwrites and removals. Each invocation saves
+ * freshly opened document, so save is run in single shot mode.
+ */
+@NullMarked
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DeltaDocumentSaveBenchmark {
+
+    private static final int MAX_EDIT_LENGTH = 256;
+
+    @Param({"10", "100", "1000"})
+    public int editsCount;
+
+    @Param({"1048576"})
+    public int dataSize;
+
+    private BenchmarkData benchmarkData;
+    private DeltaDocument document;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        benchmarkData = DataImplementation.DELTA_DOCUMENT.createData(BenchmarkUtils.createContent(dataSize));
+        document = (DeltaDocument) benchmarkData.getData();
+
+        Random random = new Random(editsCount);
+        byte[] replacingData = new byte[MAX_EDIT_LENGTH];
+        random.nextBytes(replacingData);
+        for (int i = 0; i < editsCount; i++) {
+            long documentSize = document.getDataSize();
+            long position = (random.nextLong() & Long.MAX_VALUE) % documentSize;
+            int length = 1 + random.nextInt(MAX_EDIT_LENGTH);
+            switch (random.nextInt(3)) {
+                case 0:
+                    document.insert(position, replacingData, 0, length);
+                    break;
+                case 1:
+                    document.remove(position, Math.min(length, documentSize - position));
+                    break;
+                default:
+                    document.replace(position, replacingData, 0, (int) Math.min(length, documentSize - position));
+                    break;
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        benchmarkData.close();
+    }
+
+    @Benchmark
+    public DeltaDocument save() throws IOException {
+        document.save();
+        return document;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insert and remove benchmarks.
+ * <p>
+ * Each iteration runs batch of edits on freshly created data, so score is
+ * time of the whole batch: milliseconds per batch of 1000 edits equals
+ * microseconds per single edit.
+ */
+@NullMarked
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = EditBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = EditBenchmark.BATCH_SIZE)
+@Fork(1)
+public class EditBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+    private static final int EDIT_LENGTH = 100;
+
+    @Param({"BYTE_ARRAY_EDITABLE_DATA", "BYTE_ARRAY_PAGED_DATA", "ROPE_PAGED_DATA", "BUFFER_PAGED_DATA", "JNA_BUFFER_PAGED_DATA", "DELTA_DOCUMENT"})
+    public DataImplementation implementation = DataImplementation.BYTE_ARRAY_EDITABLE_DATA;
+
+    @Param({"1048576"})
+    public int dataSize;
+
+    @Param({"HEAD", "MIDDLE", "TAIL"})
+    public EditPosition editPosition = EditPosition.HEAD;
+
+    private BenchmarkData benchmarkData;
+    private EditableBinaryData data;
+    private final byte[] editData = BenchmarkUtils.createContent(EDIT_LENGTH);
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        benchmarkData = implementation.createData(BenchmarkUtils.createContent(dataSize));
+        data = benchmarkData.getEditableData();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        benchmarkData.close();
+    }
+
+    @Benchmark
+    public EditableBinaryData insert() {
+        data.insert(getEditPosition(), editData);
+        return data;
+    }
+
+    @Benchmark
+    public EditableBinaryData remove() {
+        data.remove(getEditPosition(), EDIT_LENGTH);
+        return data;
+    }
+
+    private long getEditPosition() {
+        long currentSize = data.getDataSize();
+        switch (editPosition) {
+            case HEAD:
+                return 0;
+            case MIDDLE:
+                return currentSize / 2;
+            case TAIL:
+                return currentSize - EDIT_LENGTH;
+            default:
+                throw new IllegalStateException("Unexpected position " + editPosition);
+        }
+    }
+
+    /**
+     * Position of edit operation.
+     */
+    public enum EditPosition {
+        HEAD,
+        MIDDLE,
+        TAIL
+    }
+}
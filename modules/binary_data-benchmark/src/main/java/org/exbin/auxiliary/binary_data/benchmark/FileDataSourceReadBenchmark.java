@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.delta.DataSource;
+import org.exbin.auxiliary.binary_data.delta.file.DataPageCacheSettings;
+import org.exbin.auxiliary.binary_data.delta.file.FileChannelDataSource;
+import org.exbin.auxiliary.binary_data.delta.file.FileDataSource;
+import org.exbin.auxiliary.binary_data.delta.file.MappedFileDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of concurrent random reads from file data sources.
+ * <p>
+ * Reads are mostly sequential with occasional jumps to random position and
+ * are run with different counts of reader threads sharing the same data
+ * source.
+ */
+@NullMarked
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileDataSourceReadBenchmark {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int PAGES_COUNT = 256;
+    private static final int JUMP_INTERVAL = 64;
+
+    @Param({"FILE", "FILE_CHANNEL", "MAPPED_FILE"})
+    public String sourceType;
+
+    @Param({"67108864"})
+    public int dataSize;
+
+    private File tempFile;
+    private DataSource dataSource;
+
+    @Setup
+    public void setup() throws IOException {
+        tempFile = File.createTempFile("benchmark", ".bin");
+        tempFile.deleteOnExit();
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            output.write(BenchmarkUtils.createContent(dataSize));
+        }
+
+        switch (sourceType) {
+            case "FILE":
+                dataSource = new FileDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, new DataPageCacheSettings(PAGE_SIZE, PAGES_COUNT, DataPageCacheSettings.EvictionPolicy.LRU, 0));
+                break;
+            case "FILE_CHANNEL":
+                dataSource = new FileChannelDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, PAGE_SIZE, PAGES_COUNT);
+                break;
+            case "MAPPED_FILE":
+                dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_ONLY);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected source type " + sourceType);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataSource.close();
+        tempFile.delete();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte read1Thread(ReaderState readerState) throws IOException {
+        return readerState.read(dataSource, dataSize);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte read4Threads(ReaderState readerState) throws IOException {
+        return readerState.read(dataSource, dataSize);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public byte read16Threads(ReaderState readerState) throws IOException {
+        return readerState.read(dataSource, dataSize);
+    }
+
+    /**
+     * Read position of single reader thread.
+     */
+    @State(Scope.Thread)
+    public static class ReaderState {
+
+        private final Random random = new Random();
+        private long position = 0;
+        private int readsCount = 0;
+
+        public byte read(DataSource dataSource, int dataSize) throws IOException {
+            if (readsCount++ % JUMP_INTERVAL == 0) {
+                position = random.nextInt(dataSize);
+            } else if (++position == dataSize) {
+                position = 0;
+            }
+            return dataSource.getByte(position);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read access benchmarks.
+ */
+@NullMarked
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+
+    private static final int SEQUENTIAL_LENGTH = 4096;
+    private static final int COPY_LENGTH = 65536;
+    private static final int RANDOM_POSITIONS_COUNT = 4096;
+
+    @Param({"BYTE_ARRAY_DATA", "BYTE_ARRAY_EDITABLE_DATA", "BYTE_ARRAY_PAGED_DATA", "ROPE_PAGED_DATA", "BUFFER_PAGED_DATA", "JNA_BUFFER_PAGED_DATA", "DELTA_DOCUMENT"})
+    public DataImplementation implementation = DataImplementation.BYTE_ARRAY_DATA;
+
+    @Param({"1048576"})
+    public int dataSize;
+
+    private BenchmarkData benchmarkData;
+    private BinaryData data;
+    private final long[] randomPositions = new long[RANDOM_POSITIONS_COUNT];
+    private final byte[] copyBuffer = new byte[COPY_LENGTH];
+    private int randomIndex = 0;
+    private long sequentialPosition = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        benchmarkData = implementation.createData(BenchmarkUtils.createContent(dataSize));
+        data = benchmarkData.getData();
+        Random random = new Random(0);
+        for (int i = 0; i < RANDOM_POSITIONS_COUNT; i++) {
+            randomPositions[i] = random.nextInt(dataSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        benchmarkData.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEQUENTIAL_LENGTH)
+    public long sequentialGetByte() {
+        long position = sequentialPosition;
+        if (position + SEQUENTIAL_LENGTH > dataSize) {
+            position = 0;
+        }
+        long checksum = 0;
+        for (int i = 0; i < SEQUENTIAL_LENGTH; i++) {
+            checksum += data.getByte(position + i);
+        }
+        sequentialPosition = position + SEQUENTIAL_LENGTH;
+        return checksum;
+    }
+
+    @Benchmark
+    public byte randomGetByte() {
+        long position = randomPositions[randomIndex];
+        randomIndex = (randomIndex + 1) % RANDOM_POSITIONS_COUNT;
+        return data.getByte(position);
+    }
+
+    @Benchmark
+    public byte[] copyToArray() {
+        long position = randomPositions[randomIndex] % (dataSize - COPY_LENGTH + 1);
+        randomIndex = (randomIndex + 1) % RANDOM_POSITIONS_COUNT;
+        data.copyToArray(position, copyBuffer, 0, COPY_LENGTH);
+        return copyBuffer;
+    }
+}
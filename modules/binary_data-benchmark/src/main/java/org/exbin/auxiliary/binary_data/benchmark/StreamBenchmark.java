@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stream save and load benchmarks.
+ */
+@NullMarked
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+
+    @Benchmark
+    public BinaryData saveToStream(SaveState state) throws IOException {
+        state.benchmarkData.getData().saveToStream(state.outputStream);
+        return state.benchmarkData.getData();
+    }
+
+    @Benchmark
+    public BinaryData loadFromStream(LoadState state) throws IOException {
+        EditableBinaryData data = state.benchmarkData.getEditableData();
+        data.loadFromStream(new ByteArrayInputStream(state.content));
+        return data;
+    }
+
+    @State(Scope.Benchmark)
+    public static class SaveState {
+
+        @Param({"BYTE_ARRAY_DATA", "BYTE_ARRAY_EDITABLE_DATA", "BYTE_ARRAY_PAGED_DATA", "ROPE_PAGED_DATA", "BUFFER_PAGED_DATA", "JNA_BUFFER_PAGED_DATA", "DELTA_DOCUMENT"})
+        public DataImplementation implementation = DataImplementation.BYTE_ARRAY_DATA;
+
+        @Param({"1048576"})
+        public int dataSize;
+
+        BenchmarkData benchmarkData;
+        final BenchmarkUtils.NullOutputStream outputStream = new BenchmarkUtils.NullOutputStream();
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            benchmarkData = implementation.createData(BenchmarkUtils.createContent(dataSize));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            benchmarkData.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LoadState {
+
+        @Param({"BYTE_ARRAY_EDITABLE_DATA", "BYTE_ARRAY_PAGED_DATA", "ROPE_PAGED_DATA", "BUFFER_PAGED_DATA", "JNA_BUFFER_PAGED_DATA", "DELTA_DOCUMENT"})
+        public DataImplementation implementation = DataImplementation.BYTE_ARRAY_EDITABLE_DATA;
+
+        @Param({"1048576"})
+        public int dataSize;
+
+        BenchmarkData benchmarkData;
+        byte[] content;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            content = BenchmarkUtils.createContent(dataSize);
+            benchmarkData = implementation.createData(new byte[0]);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            benchmarkData.close();
+        }
+    }
+}
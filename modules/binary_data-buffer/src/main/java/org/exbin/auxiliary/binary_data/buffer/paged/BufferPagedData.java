@@ -21,8 +21,11 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import org.jspecify.annotations.Nullable;
 import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.BinaryData;
@@ -38,6 +41,13 @@ import org.exbin.auxiliary.binary_data.paged.DataPageCreator;
 
 /**
  * Paged data stored using byte buffer.
+ * <p>
+ * Page aligned insertions and removals of whole pages only move page
+ * references. Pages inserted from another paged data of the same type and page
+ * size are shared and copied on first modification.
+ * <p>
+ * Whole pages of zeros created by extending or inserting data refer to single
+ * shared zero page and are allocated on first modification.
  */
 @NullMarked
 public class BufferPagedData implements PagedData {
@@ -47,6 +57,12 @@ public class BufferPagedData implements PagedData {
 
     protected int pageSize = DEFAULT_PAGE_SIZE;
     protected final List<BufferData> data = new ArrayList<>();
+    /**
+     * Pages shared with other paged data, which must be copied before change.
+     */
+    protected final Set<BufferData> sharedPages = Collections.newSetFromMap(new IdentityHashMap<>());
+    @Nullable
+    protected BufferData zeroPage = null;
 
     @Nullable
     protected DataPageCreator dataPageCreator = null;
@@ -88,7 +104,7 @@ public class BufferPagedData implements PagedData {
             long remaining = size - dataSize;
             // extend last page
             if (lastPageSize > 0) {
-                BufferData page = getPage(lastPage);
+                BufferData page = peekPage(lastPage);
                 int nextPageSize = remaining + lastPageSize > pageSize ? pageSize : (int) remaining + lastPageSize;
                 BufferData newPage = createNewPage(nextPageSize);
                 page.getData().rewind();
@@ -98,17 +114,19 @@ public class BufferPagedData implements PagedData {
                 lastPage++;
             }
 
-            while (remaining > 0) {
-                int nextPageSize = remaining > pageSize ? pageSize : (int) remaining;
-                data.add(createNewPage(nextPageSize));
-                remaining -= nextPageSize;
+            while (remaining >= pageSize) {
+                data.add(getZeroPage());
+                remaining -= pageSize;
+            }
+            if (remaining > 0) {
+                data.add(createNewPage((int) remaining));
             }
         } else if (size < dataSize) {
             int lastPage = (int) (size / pageSize);
             int lastPageSize = (int) (size % pageSize);
             // shrink last page
             if (lastPageSize > 0) {
-                BufferData page = getPage(lastPage);
+                BufferData page = peekPage(lastPage);
                 BufferData newPage = createNewPage(lastPageSize);
                 BufferPagedData.put(newPage.getData(), 0, page.getData(), 0, lastPageSize);
                 setPage(lastPage, newPage);
@@ -116,14 +134,14 @@ public class BufferPagedData implements PagedData {
             }
 
             for (int pageIndex = data.size() - 1; pageIndex >= lastPage; pageIndex--) {
-                data.remove(pageIndex);
+                releasePage(data.remove(pageIndex));
             }
         }
     }
 
     @Override
     public byte getByte(long position) {
-        BufferData page = getPage((int) (position / pageSize));
+        BufferData page = peekPage((int) (position / pageSize));
         try {
             return page.getByte(position % pageSize);
         } catch (IndexOutOfBoundsException ex) {
@@ -161,6 +179,13 @@ public class BufferPagedData implements PagedData {
             return;
         }
 
+        if (startFrom % pageSize == 0 && length % pageSize == 0) {
+            // Splice whole pages
+            int pagesCount = (int) (length / pageSize);
+            data.addAll((int) (startFrom / pageSize), Collections.nCopies(pagesCount, getZeroPage()));
+            return;
+        }
+
         long copyLength = dataSize - startFrom;
         dataSize = dataSize + length;
         setDataSize(dataSize);
@@ -171,10 +196,10 @@ public class BufferPagedData implements PagedData {
             BufferData sourcePage;
             int sourceOffset = (int) (sourceEnd % pageSize);
             if (sourceOffset == 0) {
-                sourcePage = getPage((int) ((sourceEnd - 1) / pageSize));
+                sourcePage = peekPage((int) ((sourceEnd - 1) / pageSize));
                 sourceOffset = (int) sourcePage.getDataSize();
             } else {
-                sourcePage = getPage((int) (sourceEnd / pageSize));
+                sourcePage = peekPage((int) (sourceEnd / pageSize));
             }
 
             BufferData targetPage;
@@ -206,17 +231,64 @@ public class BufferPagedData implements PagedData {
 
     @Override
     public void insert(long startFrom, BinaryData insertedData) {
-        long length = insertedData.getDataSize();
-        insertUninitialized(startFrom, length);
-        replace(startFrom, insertedData, 0, length);
+        insert(startFrom, insertedData, 0, insertedData.getDataSize());
     }
 
     @Override
     public void insert(long startFrom, BinaryData insertedData, long insertedDataOffset, long insertedDataLength) {
+        if (insertedData instanceof BufferPagedData && sharePages(startFrom, (BufferPagedData) insertedData, insertedDataOffset, insertedDataLength)) {
+            return;
+        }
+
         insertUninitialized(startFrom, insertedDataLength);
         replace(startFrom, insertedData, insertedDataOffset, insertedDataLength);
     }
 
+    /**
+     * Inserts pages of other paged data by reference if possible.
+     * <p>
+     * Inserted range must be aligned to pages and either consist of whole
+     * pages or be appended at the end of the data.
+     *
+     * @param startFrom target position
+     * @param insertedData inserted data
+     * @param insertedDataOffset offset in inserted data
+     * @param insertedDataLength length of inserted data
+     * @return true if pages were inserted
+     */
+    private boolean sharePages(long startFrom, BufferPagedData insertedData, long insertedDataOffset, long insertedDataLength) {
+        if (insertedData == this || insertedData.getClass() != getClass() || insertedData.pageSize != pageSize || insertedDataLength <= 0) {
+            return false;
+        }
+        long dataSize = getDataSize();
+        long insertedDataEnd = insertedDataOffset + insertedDataLength;
+        if (startFrom < 0 || startFrom > dataSize || insertedDataOffset < 0 || insertedDataEnd > insertedData.getDataSize() || insertedDataLength > MAX_DATA_SIZE - dataSize) {
+            return false;
+        }
+        if (startFrom % pageSize != 0 || insertedDataOffset % pageSize != 0) {
+            return false;
+        }
+        if (insertedDataLength % pageSize != 0 && (startFrom != dataSize || insertedDataEnd != insertedData.getDataSize())) {
+            return false;
+        }
+
+        int firstPage = (int) (insertedDataOffset / pageSize);
+        int endPage = (int) ((insertedDataEnd + pageSize - 1) / pageSize);
+        List<BufferData> pages = insertedData.data.subList(firstPage, endPage);
+        List<BufferData> insertedPages = new ArrayList<>(pages.size());
+        for (BufferData page : pages) {
+            if (page == insertedData.zeroPage) {
+                insertedPages.add(getZeroPage());
+            } else {
+                sharedPages.add(page);
+                insertedData.sharedPages.add(page);
+                insertedPages.add(page);
+            }
+        }
+        data.addAll((int) (startFrom / pageSize), insertedPages);
+        return true;
+    }
+
     @Override
     public void insert(long startFrom, byte[] insertedData) {
         insert(startFrom, insertedData, 0, insertedData.length);
@@ -313,8 +385,17 @@ public class BufferPagedData implements PagedData {
         }
 
         while (length > 0) {
-            BufferData page = getPage((int) (startFrom / pageSize));
+            int pageIndex = (int) (startFrom / pageSize);
             int pageOffset = (int) (startFrom % pageSize);
+            if (fill == 0 && pageOffset == 0 && length >= pageSize) {
+                // Replace whole page with zero page
+                releasePage(data.set(pageIndex, getZeroPage()));
+                length -= pageSize;
+                startFrom += pageSize;
+                continue;
+            }
+
+            BufferData page = getPage(pageIndex);
             int fillSize = (int) (page.getDataSize() - pageOffset);
             if (fillSize > length) {
                 fillSize = (int) length;
@@ -331,23 +412,22 @@ public class BufferPagedData implements PagedData {
 
     @Override
     public BufferPagedData copy() {
-        BufferPagedData targetData = new BufferPagedData();
+        BufferPagedData targetData = new BufferPagedData(pageSize);
         targetData.insert(0, this);
         return targetData;
     }
 
     @Override
     public BufferPagedData copy(long startFrom, long length) {
-        BufferPagedData targetData = new BufferPagedData();
-        targetData.insertUninitialized(0, length);
-        targetData.replace(0, this, startFrom, length);
+        BufferPagedData targetData = new BufferPagedData(pageSize);
+        targetData.insert(0, this, startFrom, length);
         return targetData;
     }
 
     @Override
     public void copyToArray(long startFrom, byte[] target, int offset, int length) {
         while (length > 0) {
-            BufferData page = getPage((int) (startFrom / pageSize));
+            BufferData page = peekPage((int) (startFrom / pageSize));
             int pageOffset = (int) (startFrom % pageSize);
             int copySize = pageSize - pageOffset;
             if (copySize > length) {
@@ -374,16 +454,52 @@ public class BufferPagedData implements PagedData {
             throw new OutOfBoundsException("Removed block must be inside existing data");
         }
 
-        if (length > 0) {
-            long dataSize = getDataSize();
-            replace(startFrom, this, startFrom + length, dataSize - startFrom - length);
-            setDataSize(dataSize - length);
+        if (length == 0) {
+            return;
+        }
+
+        if (startFrom % pageSize == 0 && length % pageSize == 0) {
+            // Splice whole pages
+            int firstPage = (int) (startFrom / pageSize);
+            List<BufferData> removedPages = data.subList(firstPage, firstPage + (int) (length / pageSize));
+            for (BufferData page : removedPages) {
+                releasePage(page);
+            }
+            removedPages.clear();
+            return;
         }
+
+        long dataSize = getDataSize();
+        replace(startFrom, this, startFrom + length, dataSize - startFrom - length);
+        setDataSize(dataSize - length);
     }
 
     @Override
     public void clear() {
+        if (dataPageCreator != null) {
+            for (BufferData page : data) {
+                releasePage(page);
+            }
+        }
         data.clear();
+        sharedPages.clear();
+    }
+
+    /**
+     * Returns number of pages with allocated content.
+     * <p>
+     * Pages referring to the shared zero page are not counted.
+     *
+     * @return count of pages
+     */
+    public int getAllocatedPagesCount() {
+        int allocatedPagesCount = 0;
+        for (BufferData page : data) {
+            if (page != zeroPage) {
+                allocatedPagesCount++;
+            }
+        }
+        return allocatedPagesCount;
     }
 
     /**
@@ -408,12 +524,37 @@ public class BufferPagedData implements PagedData {
 
     /**
      * Gets data page allowing direct access to it.
+     * <p>
+     * Page shared with other paged data or zero page is copied first.
      *
      * @param pageIndex page index
      * @return data page
      */
     @Override
     public BufferData getPage(int pageIndex) {
+        BufferData page = peekPage(pageIndex);
+        if (page == zeroPage) {
+            BufferData newPage = createNewPage(pageSize);
+            data.set(pageIndex, newPage);
+            return newPage;
+        }
+        if (!sharedPages.isEmpty() && sharedPages.remove(page)) {
+            int pageDataSize = (int) page.getDataSize();
+            BufferData pageCopy = createNewPage(pageDataSize);
+            BufferPagedData.put(pageCopy.getData(), 0, page.getData(), 0, pageDataSize);
+            data.set(pageIndex, pageCopy);
+            return pageCopy;
+        }
+        return page;
+    }
+
+    /**
+     * Returns data page for reading only.
+     *
+     * @param pageIndex page index
+     * @return data page
+     */
+    protected BufferData peekPage(int pageIndex) {
         try {
             return data.get(pageIndex);
         } catch (IndexOutOfBoundsException ex) {
@@ -421,6 +562,30 @@ public class BufferPagedData implements PagedData {
         }
     }
 
+    protected BufferData getZeroPage() {
+        if (zeroPage == null) {
+            zeroPage = createNewPage(pageSize);
+        }
+        return zeroPage;
+    }
+
+    /**
+     * Returns page no longer used to data page creator.
+     * <p>
+     * Page still shared with other paged data is not returned.
+     *
+     * @param page data page
+     */
+    protected void releasePage(BufferData page) {
+        if (!sharedPages.isEmpty() && sharedPages.remove(page)) {
+            return;
+        }
+
+        if (dataPageCreator != null && page != zeroPage && page instanceof EditableBinaryData) {
+            dataPageCreator.releasePage((EditableBinaryData) page);
+        }
+    }
+
     /**
      * Sets data page replacing existing page by reference.
      *
@@ -433,7 +598,10 @@ public class BufferPagedData implements PagedData {
             throw new UnsupportedOperationException("Unsupported data page type");
         }
         try {
-            data.set(pageIndex, (BufferData) dataPage);
+            BufferData originalPage = data.set(pageIndex, (BufferData) dataPage);
+            if (originalPage != dataPage) {
+                releasePage(originalPage);
+            }
         } catch (IndexOutOfBoundsException ex) {
             throw new OutOfBoundsException(ex);
         }
@@ -456,7 +624,7 @@ public class BufferPagedData implements PagedData {
                     BufferData page = getPage((int) (targetPosition / pageSize));
                     int offset = (int) (targetPosition % pageSize);
 
-                    BufferData sourcePage = ((BufferPagedData) replacingData).getPage((int) (startFrom / ((BufferPagedData) replacingData).getPageSize()));
+                    BufferData sourcePage = ((BufferPagedData) replacingData).peekPage((int) (startFrom / ((BufferPagedData) replacingData).getPageSize()));
                     int sourcePageSize = (int) sourcePage.getDataSize();
                     int sourceOffset = (int) (startFrom % ((BufferPagedData) replacingData).getPageSize());
 
@@ -484,7 +652,7 @@ public class BufferPagedData implements PagedData {
                     BufferData page = getPage((int) (targetPosition / pageSize));
                     int upTo = (int) (targetPosition % pageSize) + 1;
 
-                    BufferData sourcePage = ((BufferPagedData) replacingData).getPage((int) (startFrom / ((BufferPagedData) replacingData).getPageSize()));
+                    BufferData sourcePage = ((BufferPagedData) replacingData).peekPage((int) (startFrom / ((BufferPagedData) replacingData).getPageSize()));
                     int sourceUpTo = (int) (startFrom % ((BufferPagedData) replacingData).getPageSize()) + 1;
 
                     int copySize = upTo;
@@ -560,7 +728,7 @@ public class BufferPagedData implements PagedData {
 
     @Override
     public void loadFromStream(InputStream inputStream) throws IOException {
-        data.clear();
+        clear();
         byte[] buffer = new byte[pageSize];
         int cnt;
         int offset = 0;
@@ -715,6 +883,12 @@ public class BufferPagedData implements PagedData {
 
     @Override
     public void dispose() {
+        clear();
+        if (zeroPage != null) {
+            BufferData page = zeroPage;
+            zeroPage = null;
+            releasePage(page);
+        }
     }
 
     private static void put(ByteBuffer target, int position, ByteBuffer source, int offset, int length) throws IndexOutOfBoundsException {
@@ -608,4 +608,86 @@ public class BufferPagedDataTest {
 
         assertFalse(instanceA.equals(instanceB));
     }
+
+    @Test
+    public void testAlignedInsertRemove() {
+        BufferPagedData instance = new BufferPagedData(8);
+        instance.insert(0, testUtils.getSampleDataC());
+        BufferData lastPage = instance.getPage(31);
+
+        instance.insert(16, 16);
+        assertEquals(272l, instance.getDataSize());
+        assertSame(lastPage, instance.getPage(33));
+        assertEquals((byte) 15, instance.getByte(15));
+        assertEquals((byte) 0, instance.getByte(16));
+        assertEquals((byte) 0, instance.getByte(31));
+        assertEquals((byte) 16, instance.getByte(32));
+
+        instance.remove(8, 24);
+        assertEquals(248l, instance.getDataSize());
+        assertSame(lastPage, instance.getPage(30));
+        assertEquals((byte) 7, instance.getByte(7));
+        assertEquals((byte) 16, instance.getByte(8));
+        assertEquals((byte) 255, instance.getByte(247));
+    }
+
+    @Test
+    public void testInsertSharedPages() {
+        BufferPagedData source = new BufferPagedData(8);
+        source.insert(0, testUtils.getSampleDataC());
+        BufferPagedData instance = new BufferPagedData(8);
+        instance.insert(0, testUtils.getSampleDataB());
+
+        instance.insert(8, source, 16, 16);
+        assertEquals(26l, instance.getDataSize());
+        assertEquals((byte) 0x48, instance.getByte(7));
+        assertEquals((byte) 16, instance.getByte(8));
+        assertEquals((byte) 31, instance.getByte(23));
+        assertEquals((byte) 0x49, instance.getByte(24));
+
+        // Shared pages are copied on modification
+        instance.setByte(8, (byte) 100);
+        source.fillData(24, 8, (byte) 101);
+        assertEquals((byte) 16, source.getByte(16));
+        assertEquals((byte) 100, instance.getByte(8));
+        assertEquals((byte) 24, instance.getByte(16));
+
+        BinaryData copy = source.copy();
+        source.setByte(0, (byte) 50);
+        assertEquals((byte) 0, copy.getByte(0));
+        assertEquals((byte) 101, copy.getByte(24));
+        assertEquals(256l, copy.getDataSize());
+    }
+
+    @Test
+    public void testZeroPages() {
+        BufferPagedData instance = new BufferPagedData(8);
+        instance.setDataSize(1000);
+        assertEquals(1000l, instance.getDataSize());
+        assertEquals(125, instance.getPagesCount());
+        assertEquals(0, instance.getAllocatedPagesCount());
+        assertEquals((byte) 0, instance.getByte(500));
+
+        instance.setByte(500, (byte) 1);
+        instance.replace(16, new byte[]{2, 3});
+        assertEquals(2, instance.getAllocatedPagesCount());
+        assertEquals((byte) 1, instance.getByte(500));
+        assertEquals((byte) 0, instance.getByte(501));
+        assertEquals((byte) 0, instance.getByte(504));
+        assertEquals((byte) 3, instance.getByte(17));
+
+        instance.insert(4, 100);
+        assertEquals(1100l, instance.getDataSize());
+        assertEquals((byte) 1, instance.getByte(600));
+        assertEquals((byte) 3, instance.getByte(117));
+
+        instance.fillData(0, 1100);
+        assertEquals(1, instance.getAllocatedPagesCount());
+        assertEquals((byte) 0, instance.getByte(600));
+
+        BufferPagedData copy = instance.copy();
+        copy.setByte(0, (byte) 5);
+        assertEquals((byte) 0, instance.getByte(0));
+        assertEquals((byte) 5, copy.getByte(0));
+    }
 }
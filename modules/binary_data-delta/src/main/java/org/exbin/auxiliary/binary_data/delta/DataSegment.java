@@ -17,18 +17,21 @@ package org.exbin.auxiliary.binary_data.delta;
 
 import org.jspecify.annotations.Nullable;
 import org.jspecify.annotations.NullMarked;
-import org.exbin.auxiliary.binary_data.delta.list.DoublyLinkedItem;
+import org.exbin.auxiliary.binary_data.delta.list.IndexedDoublyLinkedItem;
+import org.exbin.auxiliary.binary_data.delta.list.IndexedDoublyLinkedList.TreeNode;
 
 /**
  * Abstract data segment of delta data source.
  */
 @NullMarked
-public abstract class DataSegment implements DoublyLinkedItem<DataSegment> {
+public abstract class DataSegment implements IndexedDoublyLinkedItem<DataSegment> {
 
     @Nullable
     private DataSegment previous;
     @Nullable
     private DataSegment next;
+    @Nullable
+    private TreeNode<DataSegment> treeNode;
 
     public DataSegment() {
     }
@@ -45,6 +48,7 @@ public abstract class DataSegment implements DoublyLinkedItem<DataSegment> {
      *
      * @return length of this segment
      */
+    @Override
     public abstract long getLength();
 
     /**
@@ -75,4 +79,24 @@ public abstract class DataSegment implements DoublyLinkedItem<DataSegment> {
     public void setPrev(@Nullable DataSegment previous) {
         this.previous = previous;
     }
+
+    @Nullable
+    @Override
+    public TreeNode<DataSegment> getTreeNode() {
+        return treeNode;
+    }
+
+    @Override
+    public void setTreeNode(@Nullable TreeNode<DataSegment> treeNode) {
+        this.treeNode = treeNode;
+    }
+
+    /**
+     * Updates segments index after length of this segment was changed.
+     */
+    protected void notifyLengthChanged() {
+        if (treeNode != null) {
+            treeNode.updateLength();
+        }
+    }
 }
@@ -24,7 +24,7 @@ import org.jspecify.annotations.Nullable;
 import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.auxiliary.binary_data.EditableBinaryData;
-import org.exbin.auxiliary.binary_data.delta.list.DefaultDoublyLinkedList;
+import org.exbin.auxiliary.binary_data.delta.list.IndexedDoublyLinkedList;
 
 /**
  * Delta document defined as a sequence of segments.
@@ -34,7 +34,7 @@ public class DeltaDocument implements EditableBinaryData {
 
     private final SegmentsRepository repository;
     private DataSource dataSource;
-    private final DefaultDoublyLinkedList<DataSegment> segments = new DefaultDoublyLinkedList<>();
+    private final IndexedDoublyLinkedList<DataSegment> segments = new IndexedDoublyLinkedList<>();
 
     private long dataLength = 0;
     private final DeltaDocumentWindow pointerWindow;
@@ -68,7 +68,7 @@ public class DeltaDocument implements EditableBinaryData {
      *
      * @return segments
      */
-    public DefaultDoublyLinkedList<DataSegment> getSegments() {
+    public IndexedDoublyLinkedList<DataSegment> getSegments() {
         return segments;
     }
 
@@ -201,8 +201,7 @@ public class DeltaDocument implements EditableBinaryData {
      * @param segment inserted segment
      */
     public synchronized void replaceSegment(long targetPosition, DataSegment segment) {
-        remove(targetPosition, segment.getLength());
-        insertSegment(targetPosition, segment);
+        pointerWindow.replaceSegment(targetPosition, segment);
     }
 
     @Override
@@ -225,6 +224,7 @@ public class DeltaDocument implements EditableBinaryData {
         dataLength = 0;
         segments.clear();
         pointerWindow.reset();
+        notifyChangeListeners(pointerWindow);
     }
 
     @Override
@@ -277,10 +277,7 @@ public class DeltaDocument implements EditableBinaryData {
 
     @Override
     public synchronized void copyToArray(long startFrom, byte[] target, int offset, int length) {
-        // TODO optimization later
-        for (int i = 0; i < length; i++) {
-            target[offset + i] = getByte(startFrom + i);
-        }
+        pointerWindow.copyToArray(startFrom, target, offset, length);
     }
 
     @Override
@@ -377,6 +374,10 @@ public class DeltaDocument implements EditableBinaryData {
         if (segmentsSizeSum != getDataSize()) {
             throw new IllegalStateException("Invalid size " + getDataSize() + " (expected " + segmentsSizeSum + ")");
         }
+
+        if (segmentsSizeSum != segments.getTotalLength()) {
+            throw new IllegalStateException("Invalid segments index size " + segments.getTotalLength() + " (expected " + segmentsSizeSum + ")");
+        }
     }
 
     public void validate() {
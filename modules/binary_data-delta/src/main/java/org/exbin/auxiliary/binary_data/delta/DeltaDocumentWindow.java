@@ -20,6 +20,7 @@ import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.auxiliary.binary_data.OutOfBoundsException;
 import org.exbin.auxiliary.binary_data.delta.list.DefaultDoublyLinkedList;
+import org.exbin.auxiliary.binary_data.delta.list.IndexedDoublyLinkedList;
 
 /**
  * Access window for delta document.
@@ -120,14 +121,14 @@ public class DeltaDocumentWindow {
             MemorySegment prevSegment = (MemorySegment) pointer.segment.getPrev();
             prevSegment.getSource().insertUninitialized(prevSegment.getSource().getDataSize(), length);
             repository.updateSegmentLength(prevSegment, prevSegment.getLength() + length);
-            pointer.position++;
+            pointer.position += length;
             document.setDataLength(targetLength);
         } else if (pointer.segment == null && segments.last() instanceof MemorySegment
                 && segments.last().getStartPosition() + segments.last().getLength() == ((MemorySegment) segments.last()).getSource().getDataSize()) {
             MemorySegment prevSegment = (MemorySegment) segments.last();
             prevSegment.getSource().insertUninitialized(prevSegment.getSource().getDataSize(), length);
             repository.updateSegmentLength(prevSegment, prevSegment.getLength() + length);
-            pointer.position++;
+            pointer.position += length;
             document.setDataLength(targetLength);
         } else {
             if (startFrom > pointer.position) {
@@ -165,14 +166,14 @@ public class DeltaDocumentWindow {
             MemorySegment prevSegment = (MemorySegment) pointer.segment.getPrev();
             prevSegment.getSource().insert(prevSegment.getSource().getDataSize(), length);
             repository.updateSegmentLength(prevSegment, prevSegment.getLength() + length);
-            pointer.position++;
+            pointer.position += length;
             document.setDataLength(targetLength);
         } else if (pointer.segment == null && segments.last() instanceof MemorySegment
                 && segments.last().getStartPosition() + segments.last().getLength() == ((MemorySegment) segments.last()).getSource().getDataSize()) {
             MemorySegment prevSegment = (MemorySegment) segments.last();
             prevSegment.getSource().insert(prevSegment.getSource().getDataSize(), length);
             repository.updateSegmentLength(prevSegment, prevSegment.getLength() + length);
-            pointer.position++;
+            pointer.position += length;
             document.setDataLength(targetLength);
         } else {
             if (startFrom > pointer.position) {
@@ -225,13 +226,17 @@ public class DeltaDocumentWindow {
     }
 
     public void insert(long startFrom, byte[] insertedData, int insertedDataOffset, int insertedDataLength) {
+        if (insertedDataLength == 0) {
+            return;
+        }
+
         DefaultDoublyLinkedList<DataSegment> segments = document.getSegments();
         SegmentsRepository repository = document.getRepository();
 
         focusSegment(startFrom);
         long targetLength = document.getDataSize() + insertedDataLength;
         if (pointer.segment instanceof MemorySegment) {
-            repository.insertMemoryData((MemorySegment) pointer.segment, startFrom - pointer.position, insertedData);
+            repository.insertMemoryData((MemorySegment) pointer.segment, startFrom - pointer.position, insertedData, insertedDataOffset, insertedDataLength);
             document.setDataLength(targetLength);
         } else {
             if (startFrom > pointer.position) {
@@ -239,7 +244,7 @@ public class DeltaDocumentWindow {
                 focusSegment(startFrom);
             }
             MemorySegment insertedSegment = repository.createMemorySegment();
-            repository.insertMemoryData(insertedSegment, 0, insertedData);
+            repository.insertMemoryData(insertedSegment, 0, insertedData, insertedDataOffset, insertedDataLength);
             if (pointer.segment == null) {
                 segments.add(insertedSegment);
             } else {
@@ -247,7 +252,7 @@ public class DeltaDocumentWindow {
             }
             pointer.segment = insertedSegment;
             document.setDataLength(targetLength);
-            tryMergeArea(startFrom, insertedData.length);
+            tryMergeArea(startFrom, insertedDataLength);
         }
         document.notifyChangeListeners(this);
     }
@@ -403,36 +408,67 @@ public class DeltaDocumentWindow {
             throw new OutOfBoundsException("Removed area is out of bounds");
         }
 
-        DefaultDoublyLinkedList<DataSegment> segments = document.getSegments();
-        SegmentsRepository repository = document.getRepository();
         if (length > 0) {
-            long targetLength = document.getDataSize() - length;
-            focusSegment(startFrom + length);
-            splitSegment(startFrom + length);
-            focusSegment(startFrom);
-            splitSegment(startFrom);
-            focusSegment(startFrom);
+            removeArea(startFrom, length);
+            tryMergeSegments(startFrom);
+        }
+        document.notifyChangeListeners(this);
+    }
 
-            // Save position to return to
-            DataSegment prevSegment = (DataSegment) pointer.segment.getPrev();
-            long prevPointerPosition = prevSegment == null ? 0 : pointer.position - prevSegment.getLength();
+    /**
+     * Replaces area of the length of given segment with the segment.
+     * <p>
+     * Segments around replaced area are not merged so that they are kept
+     * unchanged.
+     *
+     * @param startFrom start position
+     * @param replacingSegment replacing segment
+     */
+    public void replaceSegment(long startFrom, DataSegment replacingSegment) {
+        if (startFrom + replacingSegment.getLength() > document.getDataSize()) {
+            throw new OutOfBoundsException("Replaced area is out of bounds");
+        }
 
-            // Drop all segments in given range
-            while (length > 0) {
-                length -= pointer.segment.getLength();
-                DataSegment next = segments.nextTo(pointer.segment);
-                repository.dropSegment(pointer.segment);
-                segments.remove(pointer.segment);
-                pointer.segment = next;
-            }
+        if (replacingSegment.getLength() > 0) {
+            removeArea(startFrom, replacingSegment.getLength());
+        }
+        insertSegment(startFrom, replacingSegment);
+    }
 
-            // Set pointer position
-            pointer.segment = prevSegment;
-            pointer.position = prevPointerPosition;
-            document.setDataLength(targetLength);
-            tryMergeSegments(startFrom);
+    /**
+     * Drops all segments in given area, segments on the area boundaries are
+     * split.
+     *
+     * @param startFrom start position
+     * @param length length of area
+     */
+    private void removeArea(long startFrom, long length) {
+        DefaultDoublyLinkedList<DataSegment> segments = document.getSegments();
+        SegmentsRepository repository = document.getRepository();
+        long targetLength = document.getDataSize() - length;
+        focusSegment(startFrom + length);
+        splitSegment(startFrom + length);
+        focusSegment(startFrom);
+        splitSegment(startFrom);
+        focusSegment(startFrom);
+
+        // Save position to return to
+        DataSegment prevSegment = (DataSegment) pointer.segment.getPrev();
+        long prevPointerPosition = prevSegment == null ? 0 : pointer.position - prevSegment.getLength();
+
+        // Drop all segments in given range
+        while (length > 0) {
+            length -= pointer.segment.getLength();
+            DataSegment next = segments.nextTo(pointer.segment);
+            repository.dropSegment(pointer.segment);
+            segments.remove(pointer.segment);
+            pointer.segment = next;
         }
-        document.notifyChangeListeners(this);
+
+        // Set pointer position
+        pointer.segment = prevSegment;
+        pointer.position = prevPointerPosition;
+        document.setDataLength(targetLength);
     }
 
     public void reset() {
@@ -495,8 +531,51 @@ public class DeltaDocumentWindow {
         return copy;
     }
 
+    /**
+     * Copies data to given array.
+     * <p>
+     * Segments are processed as continuous blocks, memory segments are copied
+     * from its memory source and source segments are read from its data
+     * source.
+     *
+     * @param startFrom start position
+     * @param target target array
+     * @param offset target array offset
+     * @param length length of data to copy
+     * @throws OutOfBoundsException if requested area is outside of document
+     */
     public void copyToArray(long startFrom, byte[] target, int offset, int length) {
-        document.copyToArray(startFrom, target, offset, length);
+        if (length == 0) {
+            return;
+        }
+        if (startFrom < 0 || length < 0 || startFrom + length > getDataSize()) {
+            throw new OutOfBoundsException("Attempt to copy outside of data");
+        }
+
+        focusSegment(startFrom);
+        DataSegment segment = pointer.segment;
+        long segmentOffset = startFrom - pointer.position;
+        while (length > 0) {
+            if (segment == null) {
+                throwNullSegmentException();
+            }
+
+            long segmentRemains = segment.getLength() - segmentOffset;
+            int copyLength = segmentRemains < length ? (int) segmentRemains : length;
+            long sourcePosition = segment.getStartPosition() + segmentOffset;
+            if (segment instanceof MemorySegment) {
+                ((MemorySegment) segment).getSource().copyToArray(sourcePosition, target, offset, copyLength);
+            } else if (segment instanceof SourceSegment) {
+                ((SourceSegment) segment).read(sourcePosition, target, offset, copyLength);
+            } else {
+                throw new IllegalStateException("Unsupported segment type for data copy");
+            }
+
+            offset += copyLength;
+            length -= copyLength;
+            segmentOffset = 0;
+            segment = segment.getNext();
+        }
     }
 
     /**
@@ -567,12 +646,15 @@ public class DeltaDocumentWindow {
      * <p>
      * Returns null if position is at the end of the document and throws out of
      * bounds exception otherwise.
+     * <p>
+     * Current and following segment are checked first, otherwise segment is
+     * searched using segments index.
      *
      * @param position requested position
      * @throws OutOfBoundsException if position is before or after document
      */
     private void focusSegment(long position) {
-        DefaultDoublyLinkedList<DataSegment> segments = document.getSegments();
+        IndexedDoublyLinkedList<DataSegment> segments = document.getSegments();
         long dataSize = getDataSize();
         if (position == 0) {
             pointer.position = 0;
@@ -586,43 +668,25 @@ public class DeltaDocumentWindow {
             throw new OutOfBoundsException("Position index out of range");
         }
 
-        if (pointer.segment == null) {
-            pointer.segment = segments.last();
-            pointer.position = dataSize - pointer.segment.getLength();
-        }
-
-        if (position < pointer.position) {
-            if (pointer.segment == null && position == dataSize) {
-                pointer.segment = segments.last();
-                if (pointer.segment == null) {
-                    throwNullSegmentException();
-                }
-                pointer.position -= pointer.segment.getLength();
+        DataSegment segment = pointer.segment;
+        if (segment != null && segment.getTreeNode() != null && position >= pointer.position) {
+            long segmentEnd = pointer.position + segment.getLength();
+            if (position < segmentEnd) {
+                return;
             }
 
-            while (position < pointer.position) {
-                pointer.segment = segments.prevTo(pointer.segment);
-                if (pointer.segment == null) {
-                    throwNullSegmentException();
-                }
-                pointer.position -= pointer.segment.getLength();
-            }
-        } else {
-            if (pointer.segment == null) {
-                throwNullSegmentException();
+            DataSegment nextSegment = segment.getNext();
+            if (nextSegment != null && position < segmentEnd + nextSegment.getLength()) {
+                pointer.setPointer(segmentEnd, nextSegment);
+                return;
             }
+        }
 
-            while (position >= pointer.position + pointer.segment.getLength()) {
-                if ((pointer.segment.getNext() == null) && (position == pointer.position + pointer.segment.getLength())) {
-                    break;
-                }
-                pointer.position += pointer.segment.getLength();
-                pointer.segment = segments.nextTo(pointer.segment);
-                if (pointer.segment == null) {
-                    throwNullSegmentException();
-                }
-            }
+        segment = segments.findAt(position);
+        if (segment == null) {
+            throwNullSegmentException();
         }
+        pointer.setPointer(segments.positionOf(segment), segment);
     }
 
     private void tryMergeArea(long position, long length) {
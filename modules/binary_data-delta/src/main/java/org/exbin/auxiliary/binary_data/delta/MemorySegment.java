@@ -57,6 +57,7 @@ public class MemorySegment extends DataSegment {
 
     public void setLength(long length) {
         this.length = length;
+        notifyLengthChanged();
     }
 
     public byte getByte(long position) {
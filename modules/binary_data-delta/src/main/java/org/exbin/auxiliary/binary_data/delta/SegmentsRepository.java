@@ -125,19 +125,26 @@ public class SegmentsRepository {
         // Handle all released segments
         while (!releasedSegments.isEmpty()) {
             DataArea dataArea = releasedSegments.remove(releasedSegments.size() - 1);
+            if (dataArea.startFrom >= savedDocument.getDataSize()) {
+                // Released area is beyond the end of saved data
+                continue;
+            }
             DataSegment segment = savedDocument.getSegment(dataArea.startFrom);
+            // Segments might have been split since save map was created, so position is tracked directly
+            long segmentDocumentPosition = segment == null ? 0 : savedDocument.getSegments().positionOf(segment);
             while (segment != null) {
-                long segmentPosition = saveMap.get(segment);
-                if (segmentPosition > dataArea.startFrom + dataArea.length) {
+                if (segmentDocumentPosition > dataArea.startFrom + dataArea.length) {
                     break;
                 }
 
                 DataSegment nextSegment = segment.getNext();
+                long segmentLength = segment.getLength();
                 if (!(segment instanceof SpaceSegment)) {
-                    long segmentDocumentPosition = saveMap.get(segment);
+                    saveMap.put(segment, segmentDocumentPosition);
                     processSegmentForSave(segment, dataSource, segmentDocumentPosition, savedDocument, saveMap, releasedSegments);
                 }
 
+                segmentDocumentPosition += segmentLength;
                 segment = nextSegment;
             }
         }
@@ -274,7 +281,7 @@ public class SegmentsRepository {
                             overlapLength -= overlapStart;
                         }
                         if (record.getStartPosition() + overlapStart + overlapLength > segmentDocumentPosition + sectionStart + saveLength) {
-                            overlapLength = segmentDocumentPosition + sectionStart + saveLength - firstRecord.getStartPosition() - overlapStart;
+                            overlapLength = segmentDocumentPosition + sectionStart + saveLength - record.getStartPosition() - overlapStart;
                         }
                         if (overlapLength > 0) {
                             preloadSegmentSection(record.dataSegment, overlapStart, overlapLength, dataSource, saveMap, savedDocument);
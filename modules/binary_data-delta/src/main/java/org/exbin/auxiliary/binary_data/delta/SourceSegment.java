@@ -54,6 +54,7 @@ public class SourceSegment extends DataSegment {
 
     public void setLength(long length) {
         this.length = length;
+        notifyLengthChanged();
     }
 
     public byte getByte(long position) {
@@ -64,6 +65,30 @@ public class SourceSegment extends DataSegment {
         }
     }
 
+    /**
+     * Reads continuous block of data from the source.
+     *
+     * @param position source position
+     * @param target target array
+     * @param offset target array offset
+     * @param length length of data to read
+     */
+    public void read(long position, byte[] target, int offset, int length) {
+        try {
+            while (length > 0) {
+                int read = source.read(position, target, offset, length);
+                if (read <= 0) {
+                    throw new IOException("Unexpected end of data source");
+                }
+                position += read;
+                offset += read;
+                length -= read;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error while processing data source", ex);
+        }
+    }
+
     @Override
     public DataSegment copy() {
         return new SourceSegment(source, startPosition, length);
@@ -45,6 +45,7 @@ public class SpaceSegment extends DataSegment {
 
     public void setLength(long length) {
         this.length = length;
+        notifyLengthChanged();
     }
 
     public byte getByte(long position) {
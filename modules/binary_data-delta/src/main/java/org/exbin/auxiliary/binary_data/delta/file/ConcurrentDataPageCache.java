@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Thread safe cache of data pages.
+ * <p>
+ * Pages are distributed to independently locked stripes, each with its own
+ * LRU eviction. Pages are loaded outside of the lock, so multiple threads can
+ * load different pages concurrently. Each thread also remembers last accessed
+ * page which is reused until any page is invalidated.
+ */
+@NullMarked
+public class ConcurrentDataPageCache {
+
+    public static final int DEFAULT_STRIPES_COUNT = 16;
+
+    private final int pageSize;
+    private final CacheStripe[] stripes;
+    private final PageLoader pageLoader;
+
+    private final LongAdder hitsCount = new LongAdder();
+    private final LongAdder missesCount = new LongAdder();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final ThreadLocal<LastPage> lastPage = ThreadLocal.withInitial(LastPage::new);
+
+    public ConcurrentDataPageCache(int pageSize, int pagesCount, PageLoader pageLoader) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+        int stripesCount = Math.max(1, Math.min(DEFAULT_STRIPES_COUNT, pagesCount));
+        stripes = new CacheStripe[stripesCount];
+        int stripeCapacity = Math.max(1, pagesCount / stripesCount);
+        for (int i = 0; i < stripesCount; i++) {
+            stripes[i] = new CacheStripe(stripeCapacity);
+        }
+    }
+
+    public byte getByte(long position) throws IOException {
+        long pageIndex = position / pageSize;
+        LastPage threadPage = lastPage.get();
+        long currentModificationCount = modificationCount.get();
+        if (threadPage.pageIndex == pageIndex && threadPage.modificationCount == currentModificationCount) {
+            hitsCount.increment();
+            return threadPage.page[(int) (position % pageSize)];
+        }
+
+        byte[] page = getPage(pageIndex);
+        threadPage.pageIndex = pageIndex;
+        threadPage.page = page;
+        threadPage.modificationCount = currentModificationCount;
+        return page[(int) (position % pageSize)];
+    }
+
+    /**
+     * Returns page for given page index loading it if not cached.
+     * <p>
+     * Returned page should not be modified.
+     *
+     * @param pageIndex page index
+     * @return page data
+     * @throws IOException on input/output error
+     */
+    public byte[] getPage(long pageIndex) throws IOException {
+        CacheStripe stripe = stripes[(int) (pageIndex % stripes.length)];
+        int generation;
+        synchronized (stripe) {
+            byte[] page = stripe.pages.get(pageIndex);
+            if (page != null) {
+                hitsCount.increment();
+                return page;
+            }
+            generation = stripe.generation;
+        }
+
+        missesCount.increment();
+        byte[] page = new byte[pageSize];
+        pageLoader.loadPage(pageIndex, page);
+        synchronized (stripe) {
+            if (stripe.generation == generation) {
+                stripe.pages.put(pageIndex, page);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drops cached pages overlapping given area.
+     *
+     * @param position area position
+     * @param length area length
+     */
+    public void invalidate(long position, long length) {
+        if (length <= 0) {
+            return;
+        }
+
+        long firstPageIndex = position / pageSize;
+        long lastPageIndex = (position + length - 1) / pageSize;
+        if (lastPageIndex - firstPageIndex >= stripes.length * (long) stripes[0].capacity) {
+            clear();
+            return;
+        }
+
+        for (long pageIndex = firstPageIndex; pageIndex <= lastPageIndex; pageIndex++) {
+            CacheStripe stripe = stripes[(int) (pageIndex % stripes.length)];
+            synchronized (stripe) {
+                stripe.generation++;
+                stripe.pages.remove(pageIndex);
+            }
+        }
+        // Increment after removal, so that pages cached by threads with new count are not stale
+        modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Drops all cached pages.
+     */
+    public void clear() {
+        for (CacheStripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.generation++;
+                stripe.pages.clear();
+            }
+        }
+        modificationCount.incrementAndGet();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public long getHitsCount() {
+        return hitsCount.sum();
+    }
+
+    public long getMissesCount() {
+        return missesCount.sum();
+    }
+
+    /**
+     * Resets hits and misses counters.
+     */
+    public void resetStatistics() {
+        hitsCount.reset();
+        missesCount.reset();
+    }
+
+    /**
+     * Interface for loading of data page.
+     */
+    public interface PageLoader {
+
+        /**
+         * Loads page content.
+         * <p>
+         * Can be called concurrently from multiple threads.
+         *
+         * @param pageIndex page index
+         * @param page target page data
+         * @throws IOException on input/output error
+         */
+        void loadPage(long pageIndex, byte[] page) throws IOException;
+    }
+
+    /**
+     * Last page accessed by thread.
+     */
+    private static class LastPage {
+
+        long pageIndex = -1;
+        byte[] page = new byte[0];
+        long modificationCount = -1;
+    }
+
+    /**
+     * Independently locked part of the cache.
+     */
+    private static class CacheStripe {
+
+        final int capacity;
+        final Map<Long, byte[]> pages;
+        int generation = 0;
+
+        public CacheStripe(int capacity) {
+            this.capacity = capacity;
+            pages = new LinkedHashMap<Long, byte[]>(capacity * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                    return size() > CacheStripe.this.capacity;
+                }
+            };
+        }
+    }
+}
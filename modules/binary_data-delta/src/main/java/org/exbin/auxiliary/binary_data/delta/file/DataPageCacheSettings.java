@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Settings for cache of data pages.
+ */
+@NullMarked
+public class DataPageCacheSettings {
+
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+    public static final int DEFAULT_PAGES_COUNT = 16;
+    public static final int DEFAULT_READ_AHEAD_PAGES = 4;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int pagesCount = DEFAULT_PAGES_COUNT;
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+    private int readAheadPages = DEFAULT_READ_AHEAD_PAGES;
+
+    public DataPageCacheSettings() {
+    }
+
+    public DataPageCacheSettings(int pageSize, int pagesCount, EvictionPolicy evictionPolicy, int readAheadPages) {
+        setPageSize(pageSize);
+        setPagesCount(pagesCount);
+        this.evictionPolicy = evictionPolicy;
+        setReadAheadPages(readAheadPages);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.pageSize = pageSize;
+    }
+
+    public int getPagesCount() {
+        return pagesCount;
+    }
+
+    public void setPagesCount(int pagesCount) {
+        if (pagesCount < 2) {
+            throw new IllegalArgumentException("At least two pages are required");
+        }
+        this.pagesCount = pagesCount;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Returns number of pages to read in advance when sequential access is
+     * detected.
+     *
+     * @return number of pages, zero if read ahead is disabled
+     */
+    public int getReadAheadPages() {
+        return readAheadPages;
+    }
+
+    public void setReadAheadPages(int readAheadPages) {
+        if (readAheadPages < 0) {
+            throw new IllegalArgumentException("Negative read ahead not allowed");
+        }
+        this.readAheadPages = readAheadPages;
+    }
+
+    /**
+     * Policy for selection of page to drop from cache.
+     */
+    public static enum EvictionPolicy {
+        /**
+         * Least recently used page is dropped.
+         */
+        LRU,
+        /**
+         * Clock (second chance) algorithm is used.
+         */
+        CLOCK
+    }
+}
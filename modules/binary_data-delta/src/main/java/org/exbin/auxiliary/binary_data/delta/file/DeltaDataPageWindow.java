@@ -16,83 +16,396 @@
 package org.exbin.auxiliary.binary_data.delta.file;
 
 import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.jspecify.annotations.Nullable;
 import org.jspecify.annotations.NullMarked;
 
 /**
  * Access window for delta data.
+ * <p>
+ * Keeps configurable number of data pages with LRU or CLOCK eviction. When
+ * sequential access is detected, following pages are read in advance on
+ * background thread.
  */
 @NullMarked
 public class DeltaDataPageWindow {
 
-    public static final int PAGE_SIZE = 1024;
+    public static final int PAGE_SIZE = DataPageCacheSettings.DEFAULT_PAGE_SIZE;
 
     private final FileDataSource data;
-    private final DataPage[] dataPages = new DataPage[]{new DataPage(), new DataPage()};
-    private int activeDataPage = 1;
+    private final int pageSize;
+    private final DataPageCacheSettings.EvictionPolicy evictionPolicy;
+    private final int readAheadPages;
+    private final DataPage[] dataPages;
+    private final Map<Long, DataPage> pagesMap = new HashMap<>();
+    private final Set<Long> pendingPages = new HashSet<>();
+    @Nullable
+    private ExecutorService readAheadExecutor = null;
+    private boolean disposed = false;
+
+    private int clockHand = 0;
+    /**
+     * Pages in order of access for LRU policy, head is least recently used.
+     */
+    @Nullable
+    private DataPage lruHead = null;
+    @Nullable
+    private DataPage lruTail = null;
+    private long lastPageIndex = -1;
+    private int sequentialCount = 0;
+    /**
+     * Generation of the cache content, read ahead pages loaded for previous
+     * generation are dropped.
+     */
+    private int generation = 0;
+
+    private long hitsCount = 0;
+    private long missesCount = 0;
+    private long readAheadCount = 0;
 
     public DeltaDataPageWindow(FileDataSource data) {
+        this(data, new DataPageCacheSettings());
+    }
+
+    public DeltaDataPageWindow(FileDataSource data, DataPageCacheSettings settings) {
         this.data = data;
-        dataPages[0].pageIndex = 0;
-        loadPage(0);
+        pageSize = settings.getPageSize();
+        evictionPolicy = settings.getEvictionPolicy();
+        int pagesCount = settings.getPagesCount();
+        readAheadPages = Math.min(settings.getReadAheadPages(), pagesCount / 2);
+        dataPages = new DataPage[pagesCount];
+        for (int i = 0; i < pagesCount; i++) {
+            dataPages[i] = new DataPage(pageSize);
+            if (evictionPolicy == DataPageCacheSettings.EvictionPolicy.LRU) {
+                linkLast(dataPages[i]);
+            }
+        }
         data.addCacheClearListener(() -> {
             DeltaDataPageWindow.this.clearCache();
         });
     }
 
-    private void loadPage(int index) {
-        long pageIndex = dataPages[index].pageIndex;
-        long pagePosition = pageIndex * PAGE_SIZE;
-        try {
-            long fileLength = data.getDataLength();
-            byte[] page = dataPages[index].page;
-            int offset = 0;
-            int toRead = PAGE_SIZE;
-            if (pagePosition + PAGE_SIZE > fileLength) {
-                toRead = (int) (fileLength - pagePosition);
+    /**
+     * Reads page from data source.
+     *
+     * @param pageIndex page index
+     * @param page target page data
+     * @throws IOException on input/output error
+     */
+    private void readPage(long pageIndex, byte[] page) throws IOException {
+        long pagePosition = pageIndex * pageSize;
+        long fileLength = data.getDataLength();
+        int offset = 0;
+        int toRead = pageSize;
+        if (pagePosition + pageSize > fileLength) {
+            toRead = (int) (fileLength - pagePosition);
+        }
+        while (toRead > 0) {
+            int read = data.read(pagePosition, page, offset, toRead);
+            if (read == -1) {
+                throw new IOException("Unexpected read error ");
+            }
+            toRead -= read;
+            offset += read;
+            pagePosition += read;
+        }
+    }
+
+    /**
+     * Returns byte on given position.
+     *
+     * @param position position
+     * @return byte value
+     * @throws IOException if page cannot be read
+     */
+    public synchronized byte getByte(long position) throws IOException {
+        long targetPageIndex = position / pageSize;
+        DataPage dataPage = pagesMap.get(targetPageIndex);
+        if (dataPage != null) {
+            hitsCount++;
+            touchPage(dataPage);
+        } else {
+            missesCount++;
+            dataPage = replacePage(targetPageIndex);
+            try {
+                readPage(targetPageIndex, dataPage.page);
+            } catch (IOException | RuntimeException ex) {
+                // Page content is not valid, it must not be returned by later reads
+                pagesMap.remove(targetPageIndex);
+                releasePage(dataPage);
+                throw ex;
+            }
+        }
+
+        if (targetPageIndex != lastPageIndex) {
+            detectSequentialAccess(targetPageIndex);
+        }
+
+        return dataPage.page[(int) (position % pageSize)];
+    }
+
+    /**
+     * Selects page to drop and reassigns it to given page index.
+     *
+     * @param pageIndex new page index
+     * @return data page
+     */
+    private DataPage replacePage(long pageIndex) {
+        DataPage dataPage = selectVictim();
+        if (dataPage.pageIndex >= 0) {
+            pagesMap.remove(dataPage.pageIndex);
+        }
+        dataPage.pageIndex = pageIndex;
+        touchPage(dataPage);
+        pagesMap.put(pageIndex, dataPage);
+        return dataPage;
+    }
+
+    /**
+     * Marks page as recently used.
+     *
+     * @param dataPage data page
+     */
+    private void touchPage(DataPage dataPage) {
+        if (evictionPolicy == DataPageCacheSettings.EvictionPolicy.LRU) {
+            if (dataPage != lruTail) {
+                unlink(dataPage);
+                linkLast(dataPage);
+            }
+        } else {
+            dataPage.referenced = true;
+        }
+    }
+
+    /**
+     * Marks page as free so that it is reused first.
+     *
+     * @param dataPage data page
+     */
+    private void releasePage(DataPage dataPage) {
+        dataPage.pageIndex = -1;
+        dataPage.referenced = false;
+        if (evictionPolicy == DataPageCacheSettings.EvictionPolicy.LRU && dataPage != lruHead) {
+            unlink(dataPage);
+            linkFirst(dataPage);
+        }
+    }
+
+    private void linkFirst(DataPage dataPage) {
+        dataPage.previous = null;
+        dataPage.next = lruHead;
+        if (lruHead == null) {
+            lruTail = dataPage;
+        } else {
+            lruHead.previous = dataPage;
+        }
+        lruHead = dataPage;
+    }
+
+    private void linkLast(DataPage dataPage) {
+        dataPage.next = null;
+        dataPage.previous = lruTail;
+        if (lruTail == null) {
+            lruHead = dataPage;
+        } else {
+            lruTail.next = dataPage;
+        }
+        lruTail = dataPage;
+    }
+
+    private void unlink(DataPage dataPage) {
+        DataPage previous = dataPage.previous;
+        DataPage next = dataPage.next;
+        if (previous == null) {
+            lruHead = next;
+        } else {
+            previous.next = next;
+        }
+        if (next == null) {
+            lruTail = previous;
+        } else {
+            next.previous = previous;
+        }
+        dataPage.previous = null;
+        dataPage.next = null;
+    }
+
+    private DataPage selectVictim() {
+        if (evictionPolicy == DataPageCacheSettings.EvictionPolicy.CLOCK) {
+            while (true) {
+                DataPage dataPage = dataPages[clockHand];
+                clockHand = (clockHand + 1) % dataPages.length;
+                if (dataPage.pageIndex < 0 || !dataPage.referenced) {
+                    return dataPage;
+                }
+                dataPage.referenced = false;
             }
-            while (toRead > 0) {
-                int read = data.read(pagePosition, page, offset, toRead);
-                if (read == -1) {
-                    throw new IOException("Unexpected read error ");
+        }
+
+        // Free pages are kept at the head of the list as well
+        return Objects.requireNonNull(lruHead);
+    }
+
+    private void detectSequentialAccess(long pageIndex) {
+        if (pageIndex == lastPageIndex + 1) {
+            sequentialCount++;
+        } else {
+            sequentialCount = 0;
+        }
+        lastPageIndex = pageIndex;
+
+        if (readAheadPages > 0 && sequentialCount > 0) {
+            for (long readAheadIndex = pageIndex + 1; readAheadIndex <= pageIndex + readAheadPages; readAheadIndex++) {
+                if (!pagesMap.containsKey(readAheadIndex) && !pendingPages.contains(readAheadIndex)) {
+                    scheduleReadAhead(readAheadIndex);
                 }
-                toRead -= read;
-                offset += read;
-                pagePosition += read;
             }
-        } catch (IOException ex) {
-            Logger.getLogger(DeltaDataPageWindow.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
-    public byte getByte(long position) {
-        long targetPageIndex = position / PAGE_SIZE;
-        int index = -1;
-        long pageIndex1 = dataPages[0].pageIndex;
-        long pageIndex2 = dataPages[1].pageIndex;
-        if (pageIndex1 == targetPageIndex) {
-            index = 0;
-        } else if (pageIndex2 == targetPageIndex) {
-            index = 1;
+    private void scheduleReadAhead(long pageIndex) {
+        if (disposed) {
+            return;
+        }
+
+        try {
+            if (pageIndex * pageSize >= data.getDataLength()) {
+                return;
+            }
+        } catch (IOException | IllegalStateException ex) {
+            return;
+        }
+
+        if (readAheadExecutor == null) {
+            readAheadExecutor = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "DeltaDataPageWindow-ReadAhead");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        final int taskGeneration = generation;
+        pendingPages.add(pageIndex);
+        try {
+            readAheadExecutor.execute(() -> {
+                byte[] page = new byte[pageSize];
+                boolean loaded;
+                try {
+                    readPage(pageIndex, page);
+                    loaded = true;
+                } catch (IOException | IllegalStateException ex) {
+                    // Read ahead is optional, page will be loaded on demand
+                    loaded = false;
+                }
+                finishReadAhead(pageIndex, page, loaded, taskGeneration);
+            });
+        } catch (RejectedExecutionException ex) {
+            pendingPages.remove(pageIndex);
+        }
+    }
+
+    private synchronized void finishReadAhead(long pageIndex, byte[] page, boolean loaded, int taskGeneration) {
+        pendingPages.remove(pageIndex);
+        if (!loaded || disposed || taskGeneration != generation || pagesMap.containsKey(pageIndex)) {
+            return;
+        }
+
+        DataPage dataPage = replacePage(pageIndex);
+        dataPage.page = page;
+        readAheadCount++;
+    }
+
+    /**
+     * Drops cached pages overlapping given area.
+     *
+     * @param position area position
+     * @param length area length
+     */
+    public synchronized void dataChanged(long position, long length) {
+        generation++;
+        if (length <= 0) {
+            return;
         }
-        if (index == -1) {
-            DataPage dataPage = dataPages[activeDataPage];
-            dataPage.pageIndex = targetPageIndex;
-            loadPage(activeDataPage);
-            activeDataPage = (activeDataPage + 1) & 1;
-            return dataPage.page[(int) (position % PAGE_SIZE)];
+
+        long firstPageIndex = position / pageSize;
+        long lastChangedPageIndex = (position + length - 1) / pageSize;
+        if (lastChangedPageIndex - firstPageIndex >= dataPages.length) {
+            clearCache();
+            return;
         }
 
-        return dataPages[index].page[(int) (position % PAGE_SIZE)];
+        for (long pageIndex = firstPageIndex; pageIndex <= lastChangedPageIndex; pageIndex++) {
+            DataPage dataPage = pagesMap.remove(pageIndex);
+            if (dataPage != null) {
+                releasePage(dataPage);
+            }
+        }
     }
 
     /**
      * Clears window cache.
      */
-    public void clearCache() {
-        dataPages[0].pageIndex = -1;
-        dataPages[1].pageIndex = -1;
+    public synchronized void clearCache() {
+        generation++;
+        pagesMap.clear();
+        for (DataPage dataPage : dataPages) {
+            releasePage(dataPage);
+        }
+        lastPageIndex = -1;
+        sequentialCount = 0;
+    }
+
+    /**
+     * Stops background reading and releases resources.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        if (readAheadExecutor != null) {
+            readAheadExecutor.shutdownNow();
+            readAheadExecutor = null;
+        }
+        clearCache();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPagesCount() {
+        return dataPages.length;
+    }
+
+    public synchronized long getHitsCount() {
+        return hitsCount;
+    }
+
+    public synchronized long getMissesCount() {
+        return missesCount;
+    }
+
+    /**
+     * Returns number of pages loaded by read ahead.
+     *
+     * @return number of pages
+     */
+    public synchronized long getReadAheadCount() {
+        return readAheadCount;
+    }
+
+    /**
+     * Resets hits, misses and read ahead counters.
+     */
+    public synchronized void resetStatistics() {
+        hitsCount = 0;
+        missesCount = 0;
+        readAheadCount = 0;
     }
 
     /**
@@ -102,9 +415,14 @@ public class DeltaDataPageWindow {
 
         long pageIndex = -1;
         byte[] page;
+        boolean referenced = false;
+        @Nullable
+        DataPage previous = null;
+        @Nullable
+        DataPage next = null;
 
-        public DataPage() {
-            page = new byte[PAGE_SIZE];
+        public DataPage(int pageSize) {
+            page = new byte[pageSize];
         }
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.delta.DataSource;
+
+/**
+ * Data source for access to file resource using positional file channel
+ * operations.
+ * <p>
+ * Reading doesn't use shared seek position, so data source can be read
+ * concurrently from multiple threads.
+ */
+@NullMarked
+public class FileChannelDataSource implements DataSource {
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final int DEFAULT_PAGES_COUNT = 256;
+
+    private final File file;
+    private final RandomAccessFile accessFile;
+    private final FileChannel channel;
+    private final ConcurrentDataPageCache cache;
+    private volatile boolean closed = false;
+
+    public FileChannelDataSource(File sourceFile, FileDataSource.EditMode editMode, int pageSize, int pagesCount) throws FileNotFoundException, IOException {
+        file = sourceFile;
+        accessFile = new RandomAccessFile(sourceFile, editMode.getFileAccessMode());
+        channel = accessFile.getChannel();
+        cache = new ConcurrentDataPageCache(pageSize, pagesCount, this::loadPage);
+    }
+
+    public FileChannelDataSource(File sourceFile, FileDataSource.EditMode editMode) throws FileNotFoundException, IOException {
+        this(sourceFile, editMode, DEFAULT_PAGE_SIZE, DEFAULT_PAGES_COUNT);
+    }
+
+    public FileChannelDataSource(File sourceFile) throws FileNotFoundException, IOException {
+        this(sourceFile, FileDataSource.EditMode.READ_WRITE);
+    }
+
+    @Override
+    public long getDataLength() throws IOException {
+        checkClosed();
+        return channel.size();
+    }
+
+    @Override
+    public void setDataLength(long length) throws IOException {
+        checkClosed();
+        accessFile.setLength(length);
+        cache.clear();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns page cache with access to cache statistics.
+     *
+     * @return page cache
+     */
+    public ConcurrentDataPageCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public byte getByte(long position) throws IOException {
+        checkClosed();
+        return cache.getByte(position);
+    }
+
+    @Override
+    public void setByte(long position, byte value) throws IOException {
+        checkClosed();
+        writeFully(position, ByteBuffer.wrap(new byte[]{value}));
+        cache.invalidate(position, 1);
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        checkClosed();
+        return channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+    }
+
+    @Override
+    public void write(long position, byte[] buffer, int offset, int length) throws IOException {
+        checkClosed();
+        writeFully(position, ByteBuffer.wrap(buffer, offset, length));
+        cache.invalidate(position, length);
+    }
+
+    private void writeFully(long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void loadPage(long pageIndex, byte[] page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        long position = pageIndex * page.length;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Clears cache.
+     */
+    @Override
+    public void clearCache() {
+        cache.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkClosed();
+        closed = true;
+        accessFile.close();
+        cache.clear();
+    }
+
+    private void checkClosed() {
+        if (closed) {
+            throw new IllegalStateException("File was already closed");
+        }
+    }
+}
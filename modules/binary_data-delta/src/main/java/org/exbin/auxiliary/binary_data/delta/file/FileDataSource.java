@@ -38,9 +38,13 @@ public class FileDataSource implements DataSource {
     private final List<CacheClearListener> listeners = new ArrayList<>();
 
     public FileDataSource(File sourceFile, EditMode editMode) throws FileNotFoundException, IOException {
+        this(sourceFile, editMode, new DataPageCacheSettings());
+    }
+
+    public FileDataSource(File sourceFile, EditMode editMode, DataPageCacheSettings cacheSettings) throws FileNotFoundException, IOException {
         file = sourceFile;
         accessFile = new RandomAccessFile(sourceFile, editMode.getFileAccessMode());
-        window = new DeltaDataPageWindow(this);
+        window = new DeltaDataPageWindow(this, cacheSettings);
     }
 
     public FileDataSource(File sourceFile) throws FileNotFoundException, IOException {
@@ -56,13 +60,25 @@ public class FileDataSource implements DataSource {
     @Override
     public void setDataLength(long length) throws IOException {
         checkClosed();
-        accessFile.setLength(length);
+        synchronized (accessFile) {
+            accessFile.setLength(length);
+        }
+        window.clearCache();
     }
 
     public File getFile() {
         return file;
     }
 
+    /**
+     * Returns cache window with access to cache statistics.
+     *
+     * @return page window
+     */
+    public DeltaDataPageWindow getPageWindow() {
+        return window;
+    }
+
     /* package */ RandomAccessFile getAccessFile() {
         checkClosed();
         return accessFile;
@@ -77,20 +93,28 @@ public class FileDataSource implements DataSource {
     @Override
     public void setByte(long position, byte value) throws IOException {
         checkClosed();
-        accessFile.seek(position);
-        accessFile.writeByte(value);
+        synchronized (accessFile) {
+            accessFile.seek(position);
+            accessFile.writeByte(value);
+        }
+        window.dataChanged(position, 1);
     }
 
     @Override
     public int read(long position, byte[] buffer, int offset, int length) throws IOException {
-        accessFile.seek(position);
-        return accessFile.read(buffer, offset, length);
+        synchronized (accessFile) {
+            accessFile.seek(position);
+            return accessFile.read(buffer, offset, length);
+        }
     }
 
     @Override
     public void write(long position, byte[] buffer, int offset, int length) throws IOException {
-        accessFile.seek(position);
-        accessFile.write(buffer, offset, length);
+        synchronized (accessFile) {
+            accessFile.seek(position);
+            accessFile.write(buffer, offset, length);
+        }
+        window.dataChanged(position, length);
     }
 
     /**
@@ -106,6 +130,7 @@ public class FileDataSource implements DataSource {
     @Override
     public void close() throws IOException {
         checkClosed();
+        window.dispose();
         accessFile.close();
         closed = true;
     }
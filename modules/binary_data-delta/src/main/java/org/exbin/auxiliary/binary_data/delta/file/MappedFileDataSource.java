@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.binary_data.delta.DataSource;
+
+/**
+ * Data source for access to file resource mapped to memory.
+ * <p>
+ * File is mapped as sequence of windows of the same size, each smaller than
+ * 2 GB, so files of any size are supported. Data are accessed directly in
+ * mapped memory without system calls. Suitable mostly for read-mostly access
+ * to large files.
+ * <p>
+ * Windows are remapped when length of the file changes. Data access holds
+ * shared lock, while change of the length waits for all running accesses to
+ * finish. Released windows are unmapped explicitly before file is truncated,
+ * so that no access to the truncated area is possible. If explicit unmapping
+ * is not supported by the runtime, released windows are unmapped when garbage
+ * collected.
+ */
+@NullMarked
+public class MappedFileDataSource implements DataSource {
+
+    public static final int DEFAULT_WINDOW_SIZE_BITS = 30;
+
+    private final File file;
+    private final RandomAccessFile accessFile;
+    private final FileChannel channel;
+    private final FileChannel.MapMode mapMode;
+    private final int windowSizeBits;
+    private final long windowSize;
+    private final long windowMask;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    private volatile Mapping mapping;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates data source for given file.
+     *
+     * @param sourceFile source file
+     * @param editMode edit mode
+     * @param windowSizeBits size of single mapped window as power of two, at
+     * most 30
+     * @throws FileNotFoundException if file not found
+     * @throws IOException on input/output error
+     */
+    public MappedFileDataSource(File sourceFile, FileDataSource.EditMode editMode, int windowSizeBits) throws FileNotFoundException, IOException {
+        if (windowSizeBits < 1 || windowSizeBits > 30) {
+            throw new IllegalArgumentException("Window size bits must be in range from 1 to 30");
+        }
+        file = sourceFile;
+        accessFile = new RandomAccessFile(sourceFile, editMode.getFileAccessMode());
+        channel = accessFile.getChannel();
+        mapMode = editMode == FileDataSource.EditMode.READ_ONLY ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+        this.windowSizeBits = windowSizeBits;
+        windowSize = 1L << windowSizeBits;
+        windowMask = windowSize - 1;
+        mapping = createMapping(channel.size(), new MappedByteBuffer[0]);
+    }
+
+    public MappedFileDataSource(File sourceFile, FileDataSource.EditMode editMode) throws FileNotFoundException, IOException {
+        this(sourceFile, editMode, DEFAULT_WINDOW_SIZE_BITS);
+    }
+
+    public MappedFileDataSource(File sourceFile) throws FileNotFoundException, IOException {
+        this(sourceFile, FileDataSource.EditMode.READ_ONLY);
+    }
+
+    @Override
+    public long getDataLength() throws IOException {
+        checkClosed();
+        return mapping.dataLength;
+    }
+
+    @Override
+    public void setDataLength(long length) throws IOException {
+        writeLock.lock();
+        try {
+            checkClosed();
+            changeDataLength(length);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns size of single mapped window.
+     *
+     * @return window size in bytes
+     */
+    public long getWindowSize() {
+        return windowSize;
+    }
+
+    @Override
+    public byte getByte(long position) throws IOException {
+        readLock.lock();
+        try {
+            checkClosed();
+            Mapping currentMapping = mapping;
+            if (position < 0 || position >= currentMapping.dataLength) {
+                throw new OutOfBoundsException("Position " + position + " is outside of data");
+            }
+            return currentMapping.windows[(int) (position >>> windowSizeBits)].get((int) (position & windowMask));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void setByte(long position, byte value) throws IOException {
+        Mapping currentMapping = lockMapping(position + 1);
+        try {
+            currentMapping.windows[(int) (position >>> windowSizeBits)].put((int) (position & windowMask), value);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        readLock.lock();
+        try {
+            checkClosed();
+            Mapping currentMapping = mapping;
+            if (position >= currentMapping.dataLength) {
+                return -1;
+            }
+            if (position + length > currentMapping.dataLength) {
+                length = (int) (currentMapping.dataLength - position);
+            }
+
+            MappedByteBuffer[] currentWindows = currentMapping.windows;
+            int processed = 0;
+            while (processed < length) {
+                int windowIndex = (int) (position >>> windowSizeBits);
+                int windowOffset = (int) (position & windowMask);
+                ByteBuffer window = currentWindows[windowIndex].duplicate();
+                int toRead = Math.min(length - processed, window.limit() - windowOffset);
+                window.position(windowOffset);
+                window.get(buffer, offset + processed, toRead);
+                processed += toRead;
+                position += toRead;
+            }
+            return processed;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void write(long position, byte[] buffer, int offset, int length) throws IOException {
+        Mapping currentMapping = lockMapping(position + length);
+        try {
+            MappedByteBuffer[] currentWindows = currentMapping.windows;
+            int processed = 0;
+            while (processed < length) {
+                int windowIndex = (int) (position >>> windowSizeBits);
+                int windowOffset = (int) (position & windowMask);
+                ByteBuffer window = currentWindows[windowIndex].duplicate();
+                int toWrite = Math.min(length - processed, window.limit() - windowOffset);
+                window.position(windowOffset);
+                window.put(buffer, offset + processed, toWrite);
+                processed += toWrite;
+                position += toWrite;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Acquires shared lock and returns mapping of at least given length.
+     * <p>
+     * Data are extended if needed. Caller is responsible for releasing the
+     * lock.
+     *
+     * @param length minimal data length
+     * @return current mapping
+     * @throws IOException on input/output error
+     */
+    private Mapping lockMapping(long length) throws IOException {
+        while (true) {
+            if (length > mapping.dataLength) {
+                writeLock.lock();
+                try {
+                    checkClosed();
+                    if (length > mapping.dataLength) {
+                        changeDataLength(length);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            readLock.lock();
+            Mapping currentMapping = mapping;
+            if (!closed && length <= currentMapping.dataLength) {
+                return currentMapping;
+            }
+            readLock.unlock();
+            // Data were closed or shrunk meanwhile
+            checkClosed();
+        }
+    }
+
+    /**
+     * Changes length of the file and remaps windows.
+     * <p>
+     * Must be called with exclusive lock held.
+     *
+     * @param length new length
+     * @throws IOException on input/output error
+     */
+    private void changeDataLength(long length) throws IOException {
+        Mapping currentMapping = mapping;
+        if (length == currentMapping.dataLength) {
+            return;
+        }
+
+        if (length < currentMapping.dataLength) {
+            // Windows must be unmapped before file is truncated
+            int reusableCount = getReusableWindowsCount(length, currentMapping.windows);
+            Mapping reducedMapping = new Mapping(Math.min(length, (long) reusableCount << windowSizeBits), Arrays.copyOf(currentMapping.windows, reusableCount));
+            mapping = reducedMapping;
+            unmapReleasedWindows(currentMapping.windows, reducedMapping.windows);
+            currentMapping = reducedMapping;
+        }
+
+        try {
+            accessFile.setLength(length);
+        } finally {
+            Mapping updatedMapping = createMapping(channel.size(), currentMapping.windows);
+            mapping = updatedMapping;
+            unmapReleasedWindows(currentMapping.windows, updatedMapping.windows);
+        }
+    }
+
+    private int getWindowsCount(long length) {
+        return (int) ((length + windowMask) >>> windowSizeBits);
+    }
+
+    /**
+     * Creates mapping of the file of given length.
+     * <p>
+     * Full windows of previous mapping are reused, other windows are mapped.
+     *
+     * @param length file length
+     * @param previousWindows windows of previous mapping
+     * @return mapping
+     * @throws IOException on input/output error
+     */
+    private Mapping createMapping(long length, MappedByteBuffer[] previousWindows) throws IOException {
+        int windowsCount = getWindowsCount(length);
+        int reusableCount = getReusableWindowsCount(length, previousWindows);
+        MappedByteBuffer[] mappedWindows = new MappedByteBuffer[windowsCount];
+        for (int windowIndex = 0; windowIndex < windowsCount; windowIndex++) {
+            if (windowIndex < reusableCount) {
+                mappedWindows[windowIndex] = previousWindows[windowIndex];
+            } else {
+                long windowPosition = (long) windowIndex << windowSizeBits;
+                long mappedSize = Math.min(windowSize, length - windowPosition);
+                mappedWindows[windowIndex] = channel.map(mapMode, windowPosition, mappedSize);
+            }
+        }
+        return new Mapping(length, mappedWindows);
+    }
+
+    /**
+     * Returns number of leading full windows which lie within given length.
+     *
+     * @param length file length
+     * @param windows mapped windows
+     * @return number of windows
+     */
+    private int getReusableWindowsCount(long length, MappedByteBuffer[] windows) {
+        int windowsCount = (int) Math.min(windows.length, length >>> windowSizeBits);
+        int reusableCount = 0;
+        while (reusableCount < windowsCount && windows[reusableCount].capacity() == windowSize) {
+            reusableCount++;
+        }
+        return reusableCount;
+    }
+
+    /**
+     * Unmaps windows of previous mapping which are not used in current
+     * mapping.
+     *
+     * @param previousWindows windows of previous mapping
+     * @param currentWindows windows of current mapping
+     */
+    private static void unmapReleasedWindows(MappedByteBuffer[] previousWindows, MappedByteBuffer[] currentWindows) {
+        for (int windowIndex = 0; windowIndex < previousWindows.length; windowIndex++) {
+            if (windowIndex >= currentWindows.length || previousWindows[windowIndex] != currentWindows[windowIndex]) {
+                Unmapper.unmap(previousWindows[windowIndex]);
+            }
+        }
+    }
+
+    /**
+     * Writes modified content of mapped windows to the storage device.
+     */
+    public void force() {
+        readLock.lock();
+        try {
+            for (MappedByteBuffer window : mapping.windows) {
+                window.force();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Clears cache.
+     * <p>
+     * Mapped data are managed by operating system, so no action is needed.
+     */
+    @Override
+    public void clearCache() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            checkClosed();
+            if (mapMode == FileChannel.MapMode.READ_WRITE) {
+                force();
+            }
+            MappedByteBuffer[] releasedWindows = mapping.windows;
+            mapping = new Mapping(0, new MappedByteBuffer[0]);
+            closed = true;
+            unmapReleasedWindows(releasedWindows, mapping.windows);
+            accessFile.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void checkClosed() {
+        if (closed) {
+            throw new IllegalStateException("File was already closed");
+        }
+    }
+
+    /**
+     * Explicit unmapping of mapped buffers using internal runtime API.
+     * <p>
+     * Uses Unsafe.invokeCleaner on Java 9 and later and buffer cleaner on
+     * Java 8. If neither is available, buffers are left for garbage collector.
+     */
+    private static final class Unmapper {
+
+        @Nullable
+        private static final Object UNSAFE;
+        @Nullable
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+                unsafeField.setAccessible(true);
+                unsafe = unsafeField.get(null);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                // Java 8 or restricted runtime
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        private Unmapper() {
+        }
+
+        static void unmap(MappedByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } else {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                // Buffer will be unmapped when garbage collected
+            }
+        }
+    }
+
+    /**
+     * Immutable snapshot of data length and windows mapping it.
+     */
+    private static final class Mapping {
+
+        private final long dataLength;
+        private final MappedByteBuffer[] windows;
+
+        Mapping(long dataLength, MappedByteBuffer[] windows) {
+            this.dataLength = dataLength;
+            this.windows = windows;
+        }
+    }
+}
@@ -338,7 +338,7 @@ public class DefaultDoublyLinkedList<T extends DoublyLinkedItem<T>> implements D
         return false;
     }
 
-    private void removeItem(T item) {
+    protected void removeItem(T item) {
         if (item == first) {
             T itemNext = item.getNext();
             if (itemNext != null) {
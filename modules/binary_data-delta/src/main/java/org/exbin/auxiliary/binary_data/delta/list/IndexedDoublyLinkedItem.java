@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.list;
+
+import org.jspecify.annotations.Nullable;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.delta.list.IndexedDoublyLinkedList.TreeNode;
+
+/**
+ * Interface for item of doubly linked list indexed by length of items.
+ *
+ * @param <T> instance class
+ */
+@NullMarked
+public interface IndexedDoublyLinkedItem<T extends IndexedDoublyLinkedItem<T>> extends DoublyLinkedItem<T> {
+
+    /**
+     * Returns length of the item.
+     *
+     * @return length
+     */
+    long getLength();
+
+    /**
+     * Returns index tree node.
+     *
+     * @return tree node or null if item is not indexed
+     */
+    @Nullable
+    TreeNode<T> getTreeNode();
+
+    /**
+     * Sets index tree node.
+     *
+     * @param treeNode tree node
+     */
+    void setTreeNode(@Nullable TreeNode<T> treeNode);
+}
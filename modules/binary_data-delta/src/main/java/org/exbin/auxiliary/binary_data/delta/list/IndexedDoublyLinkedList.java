@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.list;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import org.jspecify.annotations.Nullable;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+
+/**
+ * Doubly linked list of items with balanced tree index.
+ * <p>
+ * Items are kept in randomized balanced binary tree (treap) in the same order
+ * as in the list and each tree node caches sum of lengths and count of items
+ * in its subtree. This allows to find item for given position, position of
+ * given item and item for given index in logarithmic time.
+ * <p>
+ * Item is expected to call {@link TreeNode#updateLength()} on its tree node
+ * whenever its length changes.
+ *
+ * @param <T> indexed doubly linked list item
+ */
+@NullMarked
+public class IndexedDoublyLinkedList<T extends IndexedDoublyLinkedItem<T>> extends DefaultDoublyLinkedList<T> {
+
+    @Nullable
+    private TreeNode<T> root = null;
+
+    /**
+     * Returns total length of all items.
+     *
+     * @return total length
+     */
+    public long getTotalLength() {
+        return root == null ? 0 : root.subtreeLength;
+    }
+
+    /**
+     * Returns item covering given position.
+     * <p>
+     * Items of zero length are never returned.
+     *
+     * @param position position
+     * @return item or null if position is outside of items range
+     */
+    @Nullable
+    public T findAt(long position) {
+        if (position < 0) {
+            return null;
+        }
+
+        TreeNode<T> node = root;
+        long offset = position;
+        while (node != null) {
+            long leftLength = subtreeLength(node.left);
+            if (offset < leftLength) {
+                node = node.left;
+            } else {
+                offset -= leftLength;
+                long length = node.item.getLength();
+                if (offset < length) {
+                    return node.item;
+                }
+                offset -= length;
+                node = node.right;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns start position of given item.
+     *
+     * @param item item of this list
+     * @return start position
+     */
+    public long positionOf(T item) {
+        TreeNode<T> node = item.getTreeNode();
+        if (node == null) {
+            throw new IllegalStateException("Item is not indexed");
+        }
+
+        long position = subtreeLength(node.left);
+        TreeNode<T> parent = node.parent;
+        while (parent != null) {
+            if (parent.right == node) {
+                position += subtreeLength(parent.left) + parent.item.getLength();
+            }
+            node = parent;
+            parent = node.parent;
+        }
+
+        return position;
+    }
+
+    @Nullable
+    @Override
+    public T get(int index) {
+        if (index < 0) {
+            return null;
+        }
+
+        TreeNode<T> node = root;
+        int offset = index;
+        while (node != null) {
+            int leftCount = subtreeCount(node.left);
+            if (offset < leftCount) {
+                node = node.left;
+            } else if (offset == leftCount) {
+                return node.item;
+            } else {
+                offset -= leftCount + 1;
+                node = node.right;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public T set(int index, T item) {
+        T origItem = get(index);
+        if (origItem == null) {
+            throw new OutOfBoundsException("No item for index " + index);
+        }
+
+        addBefore(origItem, item);
+        removeItem(origItem);
+        return origItem;
+    }
+
+    @Override
+    public boolean add(T item) {
+        boolean result = super.add(item);
+        indexItem(item);
+        return result;
+    }
+
+    @Override
+    public void add(int index, T item) {
+        if (index == 0 && isEmpty()) {
+            add(item);
+            return;
+        }
+
+        super.add(index, item);
+        indexItem(item);
+    }
+
+    @Override
+    public void addAfter(T listItem, T item) {
+        super.addAfter(listItem, item);
+        indexItem(item);
+    }
+
+    @Override
+    public void addBefore(T targetItem, T item) {
+        super.addBefore(targetItem, item);
+        indexItem(item);
+    }
+
+    @Override
+    protected void removeItem(T item) {
+        TreeNode<T> node = item.getTreeNode();
+        if (node != null) {
+            removeNode(node);
+            item.setTreeNode(null);
+        }
+        super.removeItem(item);
+    }
+
+    @Override
+    public void clear() {
+        T item = first();
+        while (item != null) {
+            T next = item.getNext();
+            item.setTreeNode(null);
+            item.setPrev(null);
+            item.setNext(null);
+            item = next;
+        }
+        root = null;
+        super.clear();
+    }
+
+    /**
+     * Inserts tree node for item which was already linked to the list.
+     *
+     * @param item linked item
+     */
+    private void indexItem(T item) {
+        TreeNode<T> node = new TreeNode<>(item);
+        item.setTreeNode(node);
+
+        T prev = item.getPrev();
+        if (root == null) {
+            root = node;
+            return;
+        }
+
+        TreeNode<T> target;
+        if (prev == null) {
+            target = Objects.requireNonNull(root);
+            while (target.left != null) {
+                target = target.left;
+            }
+            target.left = node;
+        } else {
+            target = Objects.requireNonNull(prev.getTreeNode());
+            if (target.right == null) {
+                target.right = node;
+            } else {
+                target = target.right;
+                while (target.left != null) {
+                    target = target.left;
+                }
+                target.left = node;
+            }
+        }
+        node.parent = target;
+        updatePath(target);
+
+        while (node.parent != null && node.parent.priority < node.priority) {
+            rotateUp(node);
+        }
+    }
+
+    private void removeNode(TreeNode<T> node) {
+        while (node.left != null || node.right != null) {
+            TreeNode<T> child;
+            if (node.left == null) {
+                child = node.right;
+            } else if (node.right == null) {
+                child = node.left;
+            } else {
+                child = node.left.priority > node.right.priority ? node.left : node.right;
+            }
+            rotateUp(Objects.requireNonNull(child));
+        }
+
+        TreeNode<T> parent = node.parent;
+        if (parent == null) {
+            root = null;
+        } else {
+            if (parent.left == node) {
+                parent.left = null;
+            } else {
+                parent.right = null;
+            }
+            node.parent = null;
+            updatePath(parent);
+        }
+    }
+
+    /**
+     * Rotates given node above its parent.
+     *
+     * @param node tree node with parent
+     */
+    private void rotateUp(TreeNode<T> node) {
+        TreeNode<T> parent = Objects.requireNonNull(node.parent);
+        TreeNode<T> grandParent = parent.parent;
+        if (parent.left == node) {
+            parent.left = node.right;
+            if (node.right != null) {
+                node.right.parent = parent;
+            }
+            node.right = parent;
+        } else {
+            parent.right = node.left;
+            if (node.left != null) {
+                node.left.parent = parent;
+            }
+            node.left = parent;
+        }
+        parent.parent = node;
+        node.parent = grandParent;
+        if (grandParent == null) {
+            root = node;
+        } else if (grandParent.left == parent) {
+            grandParent.left = node;
+        } else {
+            grandParent.right = node;
+        }
+        parent.update();
+        node.update();
+    }
+
+    private static <T extends IndexedDoublyLinkedItem<T>> void updatePath(@Nullable TreeNode<T> node) {
+        while (node != null) {
+            node.update();
+            node = node.parent;
+        }
+    }
+
+    private static <T extends IndexedDoublyLinkedItem<T>> long subtreeLength(@Nullable TreeNode<T> node) {
+        return node == null ? 0 : node.subtreeLength;
+    }
+
+    private static <T extends IndexedDoublyLinkedItem<T>> int subtreeCount(@Nullable TreeNode<T> node) {
+        return node == null ? 0 : node.subtreeCount;
+    }
+
+    /**
+     * Node of the index tree.
+     *
+     * @param <T> indexed doubly linked list item
+     */
+    @NullMarked
+    public static final class TreeNode<T extends IndexedDoublyLinkedItem<T>> {
+
+        private final T item;
+        private final int priority;
+        @Nullable
+        private TreeNode<T> parent;
+        @Nullable
+        private TreeNode<T> left;
+        @Nullable
+        private TreeNode<T> right;
+        private long subtreeLength;
+        private int subtreeCount;
+
+        private TreeNode(T item) {
+            this.item = item;
+            priority = ThreadLocalRandom.current().nextInt();
+            subtreeLength = item.getLength();
+            subtreeCount = 1;
+        }
+
+        /**
+         * Updates cached lengths after length of the item was changed.
+         */
+        public void updateLength() {
+            updatePath(this);
+        }
+
+        private void update() {
+            subtreeLength = item.getLength() + subtreeLength(left) + subtreeLength(right);
+            subtreeCount = 1 + subtreeCount(left) + subtreeCount(right);
+        }
+    }
+}
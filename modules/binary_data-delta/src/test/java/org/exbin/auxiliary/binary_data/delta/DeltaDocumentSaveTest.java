@@ -27,6 +27,7 @@ import java.util.logging.Logger;
 import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
 import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
 import org.junit.Assert;
 import org.junit.Test;
@@ -493,6 +494,91 @@ public class DeltaDocumentSaveTest {
         closeTempDeltaDocument(document);
     }
 
+    @Test
+    public void testRemoveNearEndSaveDocument() {
+        DeltaDocument document = openTempDeltaDocument();
+        Assert.assertEquals(SAMPLE_ALLBYTES_SIZE, document.getDataSize());
+        document.remove(200, 40);
+        document.validatePointerPosition();
+
+        try {
+            document.save();
+
+            Assert.assertEquals(SAMPLE_ALLBYTES_SIZE - 40, document.getDataSize());
+            Assert.assertEquals((byte) 199, document.getByte(199));
+            Assert.assertEquals((byte) 240, document.getByte(200));
+            Assert.assertEquals((byte) 255, document.getByte(215));
+        } catch (IOException ex) {
+            Logger.getLogger(DeltaDocumentSaveTest.class.getName()).log(Level.SEVERE, null, ex);
+            Assert.fail("Exception: " + ex.getMessage());
+        }
+
+        document.validatePointerPosition();
+        closeTempDeltaDocument(document);
+    }
+
+    @Test
+    public void testInsertArrayPartSaveDocument() {
+        DeltaDocument document = openTempDeltaDocument();
+        document.replace(100, new byte[]{1, 2, 3, 4, 5, 6}, 2, 3);
+        document.validatePointerPosition();
+
+        try {
+            document.save();
+
+            Assert.assertEquals(SAMPLE_ALLBYTES_SIZE, document.getDataSize());
+            Assert.assertEquals((byte) 99, document.getByte(99));
+            Assert.assertEquals((byte) 3, document.getByte(100));
+            Assert.assertEquals((byte) 5, document.getByte(102));
+            Assert.assertEquals((byte) 103, document.getByte(103));
+        } catch (IOException ex) {
+            Logger.getLogger(DeltaDocumentSaveTest.class.getName()).log(Level.SEVERE, null, ex);
+            Assert.fail("Exception: " + ex.getMessage());
+        }
+
+        document.validatePointerPosition();
+        closeTempDeltaDocument(document);
+    }
+
+    @Test
+    public void testInsertsSaveDocument() {
+        DeltaDocument document = openTempDeltaDocument();
+        byte[] insertedData = new byte[25];
+        for (int i = 0; i < insertedData.length; i++) {
+            insertedData[i] = (byte) (0x80 + i);
+        }
+        ByteArrayEditableData expectedData = new ByteArrayEditableData();
+        expectedData.insert(0, document);
+
+        // Source segments adjacent in file are placed next to each other during save
+        document.insert(118, insertedData, 0, 1);
+        expectedData.insert(118, insertedData, 0, 1);
+        document.insert(45, insertedData, 0, 22);
+        expectedData.insert(45, insertedData, 0, 22);
+        document.insert(139, insertedData, 0, 1);
+        expectedData.insert(139, insertedData, 0, 1);
+        document.replace(92, insertedData, 0, 22);
+        expectedData.replace(92, insertedData, 0, 22);
+        document.insert(164, insertedData, 0, 1);
+        expectedData.insert(164, insertedData, 0, 1);
+        document.insert(0, insertedData, 0, 25);
+        expectedData.insert(0, insertedData, 0, 25);
+        document.validatePointerPosition();
+
+        try {
+            document.save();
+
+            Assert.assertEquals(expectedData.getDataSize(), document.getDataSize());
+            TestUtils.assertEqualsInputStream(expectedData.getDataInputStream(), document.getDataInputStream());
+        } catch (IOException ex) {
+            Logger.getLogger(DeltaDocumentSaveTest.class.getName()).log(Level.SEVERE, null, ex);
+            Assert.fail("Exception: " + ex.getMessage());
+        }
+
+        document.validatePointerPosition();
+        closeTempDeltaDocument(document);
+    }
+
     @Test
     public void testSwapHalfSaveDocument() {
         DeltaDocument document = openTempDeltaDocument();
@@ -17,10 +17,12 @@ package org.exbin.auxiliary.binary_data.delta;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
 import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
 import org.exbin.auxiliary.binary_data.delta.file.FileDataSource;
 import org.exbin.auxiliary.binary_data.delta.list.DefaultDoublyLinkedList;
@@ -121,6 +123,122 @@ public class DeltaDocumentTest {
         Assert.assertEquals(0, document.getSegments().size());
     }
 
+    @Test
+    public void testInsertArrayPart() {
+        DeltaDocument document = openDeltaDocument();
+        document.insert(10, new byte[] {1, 2, 3, 4}, 1, 2);
+        Assert.assertEquals(SAMPLE_ALLBYTES_SIZE + 2, document.getDataSize());
+        document.insert(11, new byte[] {5, 6, 7}, 2, 1);
+        Assert.assertEquals(SAMPLE_ALLBYTES_SIZE + 3, document.getDataSize());
+
+        DataSegment segment1 = document.getSegments().get(1);
+        Assert.assertTrue(segment1 instanceof MemorySegment);
+        Assert.assertEquals(3, segment1.getLength());
+        Assert.assertEquals(2, document.getByte(10));
+        Assert.assertEquals(7, document.getByte(11));
+        Assert.assertEquals(3, document.getByte(12));
+        Assert.assertEquals(10, document.getByte(13));
+
+        document.validatePointerPosition();
+        document.dispose();
+    }
+
+    @Test
+    public void testInsertEmptyArrayPart() {
+        DeltaDocument document = openDeltaDocument();
+        document.insert(10, new byte[] {1, 2, 3, 4}, 1, 0);
+        Assert.assertEquals(SAMPLE_ALLBYTES_SIZE, document.getDataSize());
+        Assert.assertEquals(1, document.getSegments().size());
+
+        document.validatePointerPosition();
+        document.dispose();
+    }
+
+    @Test
+    public void testCopyToArray() {
+        DeltaDocument document = openDeltaDocument();
+        document.setByte(10, (byte) 0);
+        document.insert(20, new byte[] {1, 2, 3});
+        document.remove(100, 5);
+        Assert.assertEquals(SAMPLE_ALLBYTES_SIZE - 2, document.getDataSize());
+
+        int dataSize = (int) document.getDataSize();
+        byte[] expected = new byte[dataSize];
+        for (int i = 0; i < dataSize; i++) {
+            expected[i] = document.getByte(i);
+        }
+
+        byte[] data = new byte[dataSize + 2];
+        document.copyToArray(0, data, 1, dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            Assert.assertEquals("Issue on position " + i, expected[i], data[i + 1]);
+        }
+
+        byte[] part = new byte[30];
+        document.copyToArray(5, part, 0, part.length);
+        for (int i = 0; i < part.length; i++) {
+            Assert.assertEquals("Issue on position " + (i + 5), expected[i + 5], part[i]);
+        }
+
+        document.validate();
+        document.clear();
+        document.dispose();
+    }
+
+    @Test
+    public void testRandomEdits() {
+        DeltaDocument document = openDeltaDocument();
+        ByteArrayEditableData expected = new ByteArrayEditableData();
+        for (int i = 0; i < SAMPLE_ALLBYTES_SIZE; i++) {
+            expected.insert(i, new byte[] {document.getByte(i)});
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            long dataSize = expected.getDataSize();
+            switch (dataSize == 0 ? 1 : random.nextInt(3)) {
+                case 0: {
+                    long position = random.nextInt((int) dataSize);
+                    byte value = (byte) random.nextInt();
+                    document.setByte(position, value);
+                    expected.setByte(position, value);
+                    break;
+                }
+                case 1: {
+                    long position = random.nextInt((int) dataSize + 1);
+                    byte[] data = new byte[1 + random.nextInt(8)];
+                    random.nextBytes(data);
+                    document.insert(position, data);
+                    expected.insert(position, data);
+                    break;
+                }
+                case 2: {
+                    long position = random.nextInt((int) dataSize);
+                    long length = Math.min(1 + random.nextInt(8), dataSize - position);
+                    document.remove(position, length);
+                    expected.remove(position, length);
+                    break;
+                }
+            }
+
+            Assert.assertEquals(expected.getDataSize(), document.getDataSize());
+            document.validateDocumentSize();
+            long position = random.nextInt((int) expected.getDataSize());
+            Assert.assertEquals(expected.getByte(position), document.getByte(position));
+        }
+
+        int dataSize = (int) expected.getDataSize();
+        byte[] data = new byte[dataSize];
+        document.copyToArray(0, data, 0, dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            Assert.assertEquals("Issue on position " + i, expected.getByte(i), data[i]);
+            Assert.assertEquals("Issue on position " + i, expected.getByte(i), document.getByte(i));
+        }
+
+        document.clear();
+        document.dispose();
+    }
+
     public static DeltaDocument openDeltaDocument() {
         SegmentsRepository segmentsRepository = new SegmentsRepository(() -> new ByteArrayPagedData());
         try {
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.NullMarked;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for delta data page window.
+ */
+@NullMarked
+public class DeltaDataPageWindowTest {
+
+    private static final int PAGE_SIZE = 16;
+    private static final int DATA_SIZE = 1024;
+
+    public DeltaDataPageWindowTest() {
+    }
+
+    @Test
+    public void testLruCache() throws IOException {
+        testCacheAccess(DataPageCacheSettings.EvictionPolicy.LRU);
+    }
+
+    @Test
+    public void testClockCache() throws IOException {
+        testCacheAccess(DataPageCacheSettings.EvictionPolicy.CLOCK);
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() throws IOException {
+        File tempFile = createTempFile();
+        FileDataSource dataSource = new FileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, new DataPageCacheSettings(PAGE_SIZE, 3, DataPageCacheSettings.EvictionPolicy.LRU, 0));
+        try {
+            DeltaDataPageWindow window = dataSource.getPageWindow();
+            long[] positions = {0, 300, 700, 0, 900};
+            for (long position : positions) {
+                Assert.assertEquals((byte) position, dataSource.getByte(position));
+            }
+            Assert.assertEquals(4, window.getMissesCount());
+
+            // Page 300 was evicted, pages 0 and 700 are kept
+            dataSource.getByte(1);
+            dataSource.getByte(701);
+            Assert.assertEquals(4, window.getMissesCount());
+            dataSource.getByte(301);
+            Assert.assertEquals(5, window.getMissesCount());
+
+            // Invalidated page is reused before evicting other pages
+            dataSource.setByte(302, (byte) 1);
+            dataSource.getByte(100);
+            Assert.assertEquals(6, window.getMissesCount());
+            dataSource.getByte(2);
+            dataSource.getByte(702);
+            Assert.assertEquals(6, window.getMissesCount());
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testFailedReadDropsPage() throws IOException {
+        File tempFile = createTempFile();
+        AtomicBoolean failRead = new AtomicBoolean(false);
+        FileDataSource dataSource = new FileDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, new DataPageCacheSettings(PAGE_SIZE, 3, DataPageCacheSettings.EvictionPolicy.LRU, 0)) {
+            @Override
+            public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+                if (failRead.get()) {
+                    throw new IOException("Read failed");
+                }
+                return super.read(position, buffer, offset, length);
+            }
+        };
+        try {
+            DeltaDataPageWindow window = dataSource.getPageWindow();
+            dataSource.getByte(0);
+            dataSource.getByte(300);
+            dataSource.getByte(700);
+
+            failRead.set(true);
+            try {
+                dataSource.getByte(900);
+                Assert.fail("Failed read should be reported");
+            } catch (IOException ex) {
+                // Expected
+            }
+            failRead.set(false);
+            Assert.assertEquals((byte) 900, dataSource.getByte(900));
+            Assert.assertEquals(5, window.getMissesCount());
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testWriteInvalidatesPage() throws IOException {
+        File tempFile = createTempFile();
+        FileDataSource dataSource = new FileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, new DataPageCacheSettings(PAGE_SIZE, 4, DataPageCacheSettings.EvictionPolicy.LRU, 0));
+        try {
+            Assert.assertEquals(5, dataSource.getByte(5));
+            dataSource.setByte(5, (byte) 100);
+            Assert.assertEquals(100, dataSource.getByte(5));
+            dataSource.write(20, new byte[]{1, 2}, 0, 2);
+            Assert.assertEquals(2, dataSource.getByte(21));
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testSequentialReadAhead() throws IOException {
+        File tempFile = createTempFile();
+        FileDataSource dataSource = new FileDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, new DataPageCacheSettings(PAGE_SIZE, 8, DataPageCacheSettings.EvictionPolicy.LRU, 4));
+        try {
+            for (int position = 0; position < DATA_SIZE; position++) {
+                Assert.assertEquals((byte) position, dataSource.getByte(position));
+            }
+            DeltaDataPageWindow window = dataSource.getPageWindow();
+            Assert.assertEquals(DATA_SIZE, window.getHitsCount() + window.getMissesCount());
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    private void testCacheAccess(DataPageCacheSettings.EvictionPolicy evictionPolicy) throws IOException {
+        File tempFile = createTempFile();
+        FileDataSource dataSource = new FileDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, new DataPageCacheSettings(PAGE_SIZE, 3, evictionPolicy, 0));
+        try {
+            DeltaDataPageWindow window = dataSource.getPageWindow();
+            long[] positions = {0, 300, 700, 1, 301, 701, 2};
+            for (long position : positions) {
+                Assert.assertEquals((byte) position, dataSource.getByte(position));
+            }
+            Assert.assertEquals(3, window.getMissesCount());
+            Assert.assertEquals(4, window.getHitsCount());
+
+            dataSource.getByte(900);
+            Assert.assertEquals(4, window.getMissesCount());
+
+            dataSource.clearCache();
+            dataSource.getByte(0);
+            Assert.assertEquals(5, window.getMissesCount());
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    private static File createTempFile() throws IOException {
+        File tempFile = File.createTempFile("pagewindow", ".dat");
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            byte[] data = new byte[DATA_SIZE];
+            for (int i = 0; i < DATA_SIZE; i++) {
+                data[i] = (byte) i;
+            }
+            output.write(data);
+        }
+        return tempFile;
+    }
+}
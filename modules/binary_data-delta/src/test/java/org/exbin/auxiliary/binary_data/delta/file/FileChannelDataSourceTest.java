@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
+import org.exbin.auxiliary.binary_data.delta.SegmentsRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for file channel data source.
+ */
+@NullMarked
+public class FileChannelDataSourceTest {
+
+    private static final int DATA_SIZE = 65536;
+
+    public FileChannelDataSourceTest() {
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        File tempFile = createTempFile(DATA_SIZE);
+        FileChannelDataSource dataSource = new FileChannelDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, 64, 8);
+        try {
+            Assert.assertEquals(DATA_SIZE, dataSource.getDataLength());
+            Assert.assertEquals((byte) 300, dataSource.getByte(300));
+            dataSource.setByte(300, (byte) 7);
+            Assert.assertEquals(7, dataSource.getByte(300));
+            dataSource.write(1000, new byte[]{1, 2, 3}, 1, 2);
+            Assert.assertEquals(3, dataSource.getByte(1001));
+
+            byte[] buffer = new byte[4];
+            Assert.assertEquals(4, dataSource.read(999, buffer, 0, 4));
+            Assert.assertArrayEquals(new byte[]{(byte) 999, 2, 3, (byte) 1002}, buffer);
+
+            dataSource.setDataLength(100);
+            Assert.assertEquals(100, dataSource.getDataLength());
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        File tempFile = createTempFile(DATA_SIZE);
+        FileChannelDataSource dataSource = new FileChannelDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, 256, 16);
+        SegmentsRepository repository = new SegmentsRepository(() -> new ByteArrayPagedData());
+        repository.addDataSource(dataSource);
+        DeltaDocument document = repository.createDocument(dataSource);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final boolean bulk = i % 2 == 0;
+                results.add(executor.submit(() -> {
+                    try (InputStream stream = document.getDataInputStream()) {
+                        byte[] buffer = new byte[1000];
+                        int position = 0;
+                        while (position < DATA_SIZE) {
+                            if (bulk) {
+                                int read = stream.read(buffer, 0, buffer.length);
+                                for (int j = 0; j < read; j++) {
+                                    if (buffer[j] != (byte) (position + j)) {
+                                        return false;
+                                    }
+                                }
+                                position += read;
+                            } else {
+                                if (stream.read() != ((position) & 0xFF)) {
+                                    return false;
+                                }
+                                position++;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+            document.dispose();
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    /* package */ static File createTempFile(long dataSize) throws IOException {
+        File tempFile = File.createTempFile("filechannel", ".dat");
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            byte[] data = new byte[4096];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) i;
+            }
+            long remains = dataSize;
+            while (remains > 0) {
+                int length = remains < data.length ? (int) remains : data.length;
+                output.write(data, 0, length);
+                remains -= length;
+            }
+        }
+        return tempFile;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
+import org.exbin.auxiliary.binary_data.delta.SegmentsRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for memory mapped file data source.
+ */
+@NullMarked
+public class MappedFileDataSourceTest {
+
+    private static final int DATA_SIZE = 1000;
+    private static final int WINDOW_SIZE_BITS = 6;
+
+    public MappedFileDataSourceTest() {
+    }
+
+    @Test
+    public void testReadAcrossWindows() throws IOException {
+        File tempFile = FileChannelDataSourceTest.createTempFile(DATA_SIZE);
+        MappedFileDataSource dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_ONLY, WINDOW_SIZE_BITS);
+        try {
+            Assert.assertEquals(DATA_SIZE, dataSource.getDataLength());
+            for (int position = 0; position < DATA_SIZE; position++) {
+                Assert.assertEquals((byte) position, dataSource.getByte(position));
+            }
+
+            byte[] buffer = new byte[200];
+            Assert.assertEquals(200, dataSource.read(50, buffer, 0, 200));
+            for (int i = 0; i < buffer.length; i++) {
+                Assert.assertEquals((byte) (i + 50), buffer[i]);
+            }
+            Assert.assertEquals(10, dataSource.read(DATA_SIZE - 10, buffer, 0, 200));
+            Assert.assertEquals(-1, dataSource.read(DATA_SIZE, buffer, 0, 200));
+        } finally {
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testChangeLength() throws IOException {
+        File tempFile = FileChannelDataSourceTest.createTempFile(DATA_SIZE);
+        MappedFileDataSource dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, WINDOW_SIZE_BITS);
+        try {
+            dataSource.setDataLength(100);
+            Assert.assertEquals(100, dataSource.getDataLength());
+            Assert.assertEquals((byte) 99, dataSource.getByte(99));
+
+            dataSource.write(150, new byte[]{1, 2, 3}, 0, 3);
+            Assert.assertEquals(153, dataSource.getDataLength());
+            Assert.assertEquals(0, dataSource.getByte(120));
+            Assert.assertEquals(3, dataSource.getByte(152));
+
+            dataSource.setByte(200, (byte) 5);
+            Assert.assertEquals(201, dataSource.getDataLength());
+            Assert.assertEquals(5, dataSource.getByte(200));
+        } finally {
+            dataSource.close();
+        }
+        Assert.assertEquals(201, tempFile.length());
+        tempFile.delete();
+    }
+
+    @Test
+    public void testConcurrentReadWhileChangingLength() throws Exception {
+        File tempFile = FileChannelDataSourceTest.createTempFile(DATA_SIZE);
+        MappedFileDataSource dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, WINDOW_SIZE_BITS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final long seed = i;
+                readers.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    byte[] buffer = new byte[100];
+                    while (running.get()) {
+                        long position = random.nextInt(DATA_SIZE);
+                        try {
+                            dataSource.getByte(position);
+                            dataSource.read(position, buffer, 0, buffer.length);
+                        } catch (OutOfBoundsException ex) {
+                            // Data might be shrunk meanwhile
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            Random random = new Random(0);
+            for (int i = 0; i < 2000; i++) {
+                dataSource.setDataLength(1 + random.nextInt(DATA_SIZE));
+            }
+            running.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentWriteWhileChangingLength() throws Exception {
+        File tempFile = FileChannelDataSourceTest.createTempFile(DATA_SIZE);
+        MappedFileDataSource dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, WINDOW_SIZE_BITS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final long seed = i;
+                writers.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    byte[] buffer = new byte[100];
+                    while (running.get()) {
+                        long position = random.nextInt(DATA_SIZE);
+                        dataSource.setByte(position, (byte) 1);
+                        dataSource.write(position, buffer, 0, buffer.length);
+                    }
+                    return null;
+                }));
+            }
+
+            Random random = new Random(0);
+            for (int i = 0; i < 2000; i++) {
+                dataSource.setDataLength(1 + random.nextInt(DATA_SIZE));
+            }
+            running.set(false);
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testShrinkAndExtend() throws IOException {
+        File tempFile = FileChannelDataSourceTest.createTempFile(DATA_SIZE);
+        MappedFileDataSource dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, WINDOW_SIZE_BITS);
+        try {
+            dataSource.setDataLength(100);
+            Assert.assertEquals(100, tempFile.length());
+            dataSource.setDataLength(300);
+            Assert.assertEquals(300, dataSource.getDataLength());
+            Assert.assertEquals((byte) 99, dataSource.getByte(99));
+            for (int position = 100; position < 300; position++) {
+                Assert.assertEquals(0, dataSource.getByte(position));
+            }
+        } finally {
+            dataSource.close();
+        }
+        try {
+            dataSource.getByte(0);
+            Assert.fail("Closed data source should not be accessible");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+        tempFile.delete();
+    }
+
+    @Test
+    public void testSaveDocument() throws IOException {
+        File tempFile = FileChannelDataSourceTest.createTempFile(DATA_SIZE);
+        MappedFileDataSource dataSource = new MappedFileDataSource(tempFile, FileDataSource.EditMode.READ_WRITE, WINDOW_SIZE_BITS);
+        SegmentsRepository repository = new SegmentsRepository(() -> new ByteArrayPagedData());
+        repository.addDataSource(dataSource);
+        DeltaDocument document = repository.createDocument(dataSource);
+        try {
+            document.insert(10, new byte[]{1, 2, 3});
+            document.remove(500, 100);
+            document.save();
+            Assert.assertEquals(DATA_SIZE - 97, dataSource.getDataLength());
+            Assert.assertEquals(9, dataSource.getByte(9));
+            Assert.assertEquals(1, dataSource.getByte(10));
+            Assert.assertEquals(10, dataSource.getByte(13));
+            Assert.assertEquals((byte) 600, dataSource.getByte(503));
+        } finally {
+            document.dispose();
+            dataSource.close();
+            tempFile.delete();
+        }
+    }
+}
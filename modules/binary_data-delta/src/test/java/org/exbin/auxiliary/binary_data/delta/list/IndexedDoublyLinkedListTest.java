@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.delta.list;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jspecify.annotations.Nullable;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.delta.list.IndexedDoublyLinkedList.TreeNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for indexed doubly linked list.
+ */
+@NullMarked
+public class IndexedDoublyLinkedListTest {
+
+    public IndexedDoublyLinkedListTest() {
+    }
+
+    @Test
+    public void testFindAt() {
+        IndexedDoublyLinkedList<TestItem> list = new IndexedDoublyLinkedList<>();
+        TestItem item1 = new TestItem(10);
+        TestItem item2 = new TestItem(0);
+        TestItem item3 = new TestItem(5);
+        list.add(item1);
+        list.add(item3);
+        list.addBefore(item3, item2);
+
+        Assert.assertEquals(15, list.getTotalLength());
+        Assert.assertSame(item1, list.findAt(0));
+        Assert.assertSame(item1, list.findAt(9));
+        Assert.assertSame(item3, list.findAt(10));
+        Assert.assertNull(list.findAt(15));
+        Assert.assertEquals(10, list.positionOf(item2));
+        Assert.assertEquals(10, list.positionOf(item3));
+        Assert.assertSame(item2, list.get(1));
+
+        item1.setLength(3);
+        Assert.assertEquals(8, list.getTotalLength());
+        Assert.assertSame(item3, list.findAt(3));
+        Assert.assertEquals(3, list.positionOf(item3));
+
+        list.remove(item1);
+        Assert.assertEquals(5, list.getTotalLength());
+        Assert.assertSame(item3, list.findAt(0));
+        Assert.assertNull(item1.getTreeNode());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        IndexedDoublyLinkedList<TestItem> list = new IndexedDoublyLinkedList<>();
+        List<TestItem> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int operation = expected.isEmpty() ? 0 : random.nextInt(4);
+            switch (operation) {
+                case 0: {
+                    TestItem item = new TestItem(random.nextInt(20));
+                    int index = random.nextInt(expected.size() + 1);
+                    if (index == expected.size()) {
+                        list.add(item);
+                    } else if (random.nextBoolean()) {
+                        list.addBefore(expected.get(index), item);
+                    } else {
+                        list.add(index, item);
+                    }
+                    expected.add(index, item);
+                    break;
+                }
+                case 1: {
+                    TestItem item = new TestItem(random.nextInt(20));
+                    int index = random.nextInt(expected.size());
+                    list.addAfter(expected.get(index), item);
+                    expected.add(index + 1, item);
+                    break;
+                }
+                case 2: {
+                    int index = random.nextInt(expected.size());
+                    list.remove(expected.remove(index));
+                    break;
+                }
+                case 3: {
+                    TestItem item = expected.get(random.nextInt(expected.size()));
+                    item.setLength(random.nextInt(20));
+                    break;
+                }
+            }
+
+            if (i % 100 == 0) {
+                assertListMatches(expected, list);
+            }
+        }
+        assertListMatches(expected, list);
+    }
+
+    private static void assertListMatches(List<TestItem> expected, IndexedDoublyLinkedList<TestItem> list) {
+        Assert.assertEquals(expected.size(), list.size());
+        long position = 0;
+        for (int index = 0; index < expected.size(); index++) {
+            TestItem item = expected.get(index);
+            Assert.assertSame(item, list.get(index));
+            Assert.assertEquals(position, list.positionOf(item));
+            if (item.getLength() > 0) {
+                Assert.assertSame(item, list.findAt(position));
+                Assert.assertSame(item, list.findAt(position + item.getLength() - 1));
+            }
+            position += item.getLength();
+        }
+        Assert.assertEquals(position, list.getTotalLength());
+        Assert.assertNull(list.findAt(position));
+    }
+
+    @NullMarked
+    private static class TestItem implements IndexedDoublyLinkedItem<TestItem> {
+
+        @Nullable
+        private TestItem prev;
+        @Nullable
+        private TestItem next;
+        @Nullable
+        private TreeNode<TestItem> treeNode;
+        private long length;
+
+        public TestItem(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        public void setLength(long length) {
+            this.length = length;
+            if (treeNode != null) {
+                treeNode.updateLength();
+            }
+        }
+
+        @Nullable
+        @Override
+        public TreeNode<TestItem> getTreeNode() {
+            return treeNode;
+        }
+
+        @Override
+        public void setTreeNode(@Nullable TreeNode<TestItem> treeNode) {
+            this.treeNode = treeNode;
+        }
+
+        @Nullable
+        @Override
+        public TestItem getNext() {
+            return next;
+        }
+
+        @Override
+        public void setNext(@Nullable TestItem next) {
+            this.next = next;
+        }
+
+        @Nullable
+        @Override
+        public TestItem getPrev() {
+            return prev;
+        }
+
+        @Override
+        public void setPrev(@Nullable TestItem prev) {
+            this.prev = prev;
+        }
+    }
+}
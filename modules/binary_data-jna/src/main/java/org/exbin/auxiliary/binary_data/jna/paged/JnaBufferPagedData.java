@@ -18,6 +18,7 @@ package org.exbin.auxiliary.binary_data.jna.paged;
 import org.jspecify.annotations.Nullable;
 import org.jspecify.annotations.NullMarked;
 import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.buffer.BufferData;
 import org.exbin.auxiliary.binary_data.jna.JnaBufferData;
 import org.exbin.auxiliary.binary_data.buffer.paged.BufferPagedData;
 import org.exbin.auxiliary.binary_data.paged.DataPageCreator;
@@ -40,20 +41,20 @@ public class JnaBufferPagedData extends BufferPagedData {
     }
 
     @Override
-    protected JnaBufferData createNewPage(byte[] pageData) {
+    protected BufferData createNewPage(byte[] pageData) {
         if (dataPageCreator != null) {
             EditableBinaryData page = dataPageCreator.createPage(pageData.length);
             page.replace(0, pageData);
-            return (JnaBufferData) page;
+            return (BufferData) page;
         }
 
         return new JnaBufferData(pageData);
     }
 
     @Override
-    protected JnaBufferData createNewPage(int pageDataSize) {
+    protected BufferData createNewPage(int pageDataSize) {
         if (dataPageCreator != null) {
-            return (JnaBufferData) dataPageCreator.createPage(pageDataSize);
+            return (BufferData) dataPageCreator.createPage(pageDataSize);
         }
 
         return new JnaBufferData(pageDataSize);
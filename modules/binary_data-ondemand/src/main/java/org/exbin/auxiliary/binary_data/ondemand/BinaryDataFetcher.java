@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+/**
+ * Data fetcher providing data from binary data.
+ */
+@NullMarked
+public class BinaryDataFetcher implements OnDemandDataFetcher {
+
+    private final BinaryData data;
+
+    public BinaryDataFetcher(BinaryData data) {
+        this.data = data;
+    }
+
+    @Override
+    public long getDataSize() {
+        return data.getDataSize();
+    }
+
+    @Override
+    public void fetchData(long startFrom, byte[] target, int offset, int length) throws IOException {
+        data.copyToArray(startFrom, target, offset, length);
+    }
+}
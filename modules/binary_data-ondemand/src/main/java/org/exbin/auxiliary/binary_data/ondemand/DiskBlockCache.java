@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Persistent cache of data blocks stored in single preallocated file.
+ * <p>
+ * File contains header, index with fixed size entry for each slot and data
+ * slots of block size. Blocks are identified by hash of source identifier and
+ * block index and validated by hash of source version token and checksum of
+ * the data. When all slots are used, least recently used block is replaced.
+ * <p>
+ * File is accessed without channel so that interruption of loading thread
+ * doesn't close the cache.
+ */
+@NullMarked
+public class DiskBlockCache {
+
+    public static final int DEFAULT_SLOTS_COUNT = 16384;
+
+    private static final int FILE_MAGIC = 0x45584243;
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    /**
+     * Index entry: source key, block index, version key, access tick, length
+     * and checksum.
+     */
+    private static final int INDEX_ENTRY_SIZE = 40;
+
+    private final File cacheFile;
+    private final int blockSize;
+    private final int slotsCount;
+    private final RandomAccessFile accessFile;
+    /**
+     * Used slots in order from the least recently used.
+     */
+    private final LinkedHashMap<BlockKey, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private long accessTick = 0;
+    private boolean closed = false;
+
+    public DiskBlockCache(File cacheFile, int blockSize, int slotsCount) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        if (slotsCount <= 0) {
+            throw new IllegalArgumentException("Count of slots must be positive");
+        }
+        this.cacheFile = cacheFile;
+        this.blockSize = blockSize;
+        this.slotsCount = slotsCount;
+        accessFile = new RandomAccessFile(cacheFile, "rw");
+        if (!loadIndex()) {
+            initFile();
+        }
+    }
+
+    public DiskBlockCache(File cacheFile, int blockSize) throws IOException {
+        this(cacheFile, blockSize, DEFAULT_SLOTS_COUNT);
+    }
+
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getSlotsCount() {
+        return slotsCount;
+    }
+
+    /**
+     * Returns count of blocks stored in cache.
+     *
+     * @return count of blocks
+     */
+    public synchronized int getBlocksCount() {
+        return slots.size();
+    }
+
+    /**
+     * Reads block from cache.
+     *
+     * @param sourceId source identifier
+     * @param versionToken version token of the source
+     * @param blockIndex block index
+     * @return block data or null if block is not cached or is not valid
+     * @throws IOException if reading fails
+     */
+    public synchronized byte @Nullable [] readBlock(String sourceId, String versionToken, long blockIndex) throws IOException {
+        checkClosed();
+        BlockKey blockKey = new BlockKey(hashKey(sourceId), blockIndex);
+        Slot slot = slots.get(blockKey);
+        if (slot == null) {
+            return null;
+        }
+        if (slot.versionKey != hashKey(versionToken)) {
+            removeSlot(blockKey, slot);
+            return null;
+        }
+
+        byte[] data = new byte[slot.length];
+        readFully(getSlotPosition(slot.slotIndex), data);
+        if (computeChecksum(data) != slot.checksum) {
+            removeSlot(blockKey, slot);
+            return null;
+        }
+        accessTick++;
+        slot.accessTick = accessTick;
+        return data;
+    }
+
+    /**
+     * Stores block to cache replacing least recently used block if cache is
+     * full.
+     *
+     * @param sourceId source identifier
+     * @param versionToken version token of the source
+     * @param blockIndex block index
+     * @param data block data
+     * @throws IOException if writing fails
+     */
+    public synchronized void writeBlock(String sourceId, String versionToken, long blockIndex, byte[] data) throws IOException {
+        checkClosed();
+        if (data.length == 0 || data.length > blockSize) {
+            throw new IllegalArgumentException("Block data must be nonempty and not larger than block size");
+        }
+
+        BlockKey blockKey = new BlockKey(hashKey(sourceId), blockIndex);
+        Slot slot = slots.get(blockKey);
+        if (slot == null) {
+            Integer slotIndex = freeSlots.poll();
+            if (slotIndex == null) {
+                Iterator<Map.Entry<BlockKey, Slot>> iterator = slots.entrySet().iterator();
+                slotIndex = iterator.next().getValue().slotIndex;
+                iterator.remove();
+            }
+            slot = new Slot(slotIndex);
+            slots.put(blockKey, slot);
+        }
+
+        accessTick++;
+        slot.versionKey = hashKey(versionToken);
+        slot.length = data.length;
+        slot.checksum = computeChecksum(data);
+        slot.accessTick = accessTick;
+        // Data are written first so that interrupted write is detected by checksum
+        writeFully(getSlotPosition(slot.slotIndex), data);
+        writeIndexEntry(blockKey, slot);
+    }
+
+    /**
+     * Removes all blocks of given source.
+     *
+     * @param sourceId source identifier
+     * @throws IOException if writing fails
+     */
+    public synchronized void invalidateSource(String sourceId) throws IOException {
+        checkClosed();
+        long sourceKey = hashKey(sourceId);
+        List<Map.Entry<BlockKey, Slot>> removedSlots = new ArrayList<>();
+        for (Map.Entry<BlockKey, Slot> entry : slots.entrySet()) {
+            if (entry.getKey().sourceKey == sourceKey) {
+                removedSlots.add(entry);
+            }
+        }
+        for (Map.Entry<BlockKey, Slot> entry : removedSlots) {
+            removeSlot(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Stores access order of blocks and closes cache file.
+     *
+     * @throws IOException if writing fails
+     */
+    public synchronized void close() throws IOException {
+        checkClosed();
+        closed = true;
+        try {
+            ByteBuffer index = ByteBuffer.allocate(slotsCount * INDEX_ENTRY_SIZE);
+            for (Map.Entry<BlockKey, Slot> entry : slots.entrySet()) {
+                putIndexEntry(index, entry.getValue().slotIndex * INDEX_ENTRY_SIZE, entry.getKey(), entry.getValue());
+            }
+            writeFully(HEADER_SIZE, index.array());
+        } finally {
+            accessFile.close();
+        }
+    }
+
+    private boolean loadIndex() throws IOException {
+        long indexSize = (long) slotsCount * INDEX_ENTRY_SIZE;
+        if (accessFile.length() != HEADER_SIZE + indexSize + (long) slotsCount * blockSize) {
+            return false;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(0, header.array());
+        if (header.getInt(0) != FILE_MAGIC || header.getInt(4) != FILE_FORMAT_VERSION
+                || header.getInt(8) != blockSize || header.getInt(12) != slotsCount) {
+            return false;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int) indexSize);
+        readFully(HEADER_SIZE, index.array());
+        List<Map.Entry<BlockKey, Slot>> entries = new ArrayList<>();
+        for (int slotIndex = 0; slotIndex < slotsCount; slotIndex++) {
+            int offset = slotIndex * INDEX_ENTRY_SIZE;
+            long sourceKey = index.getLong(offset);
+            long blockIndex = index.getLong(offset + 8);
+            Slot slot = new Slot(slotIndex);
+            slot.versionKey = index.getLong(offset + 16);
+            slot.accessTick = index.getLong(offset + 24);
+            slot.length = index.getInt(offset + 32);
+            slot.checksum = index.getInt(offset + 36);
+            if (slot.length <= 0 || slot.length > blockSize) {
+                freeSlots.add(slotIndex);
+            } else {
+                entries.add(new AbstractMap.SimpleEntry<>(new BlockKey(sourceKey, blockIndex), slot));
+            }
+        }
+
+        // Restore access order
+        entries.sort((first, second) -> Long.compare(first.getValue().accessTick, second.getValue().accessTick));
+        for (Map.Entry<BlockKey, Slot> entry : entries) {
+            slots.put(entry.getKey(), entry.getValue());
+            accessTick = Math.max(accessTick, entry.getValue().accessTick);
+        }
+        return true;
+    }
+
+    private void initFile() throws IOException {
+        slots.clear();
+        freeSlots.clear();
+        accessFile.setLength(0);
+        // Preallocated file with zero filled index has all slots free
+        accessFile.setLength(HEADER_SIZE + (long) slotsCount * INDEX_ENTRY_SIZE + (long) slotsCount * blockSize);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(FILE_MAGIC).putInt(FILE_FORMAT_VERSION).putInt(blockSize).putInt(slotsCount);
+        writeFully(0, header.array());
+        for (int slotIndex = 0; slotIndex < slotsCount; slotIndex++) {
+            freeSlots.add(slotIndex);
+        }
+    }
+
+    private void removeSlot(BlockKey blockKey, Slot slot) throws IOException {
+        slots.remove(blockKey);
+        freeSlots.add(slot.slotIndex);
+        slot.length = 0;
+        writeIndexEntry(new BlockKey(0, 0), slot);
+    }
+
+    private void writeIndexEntry(BlockKey blockKey, Slot slot) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        putIndexEntry(entry, 0, blockKey, slot);
+        writeFully(HEADER_SIZE + (long) slot.slotIndex * INDEX_ENTRY_SIZE, entry.array());
+    }
+
+    private static void putIndexEntry(ByteBuffer buffer, int offset, BlockKey blockKey, Slot slot) {
+        buffer.putLong(offset, blockKey.sourceKey);
+        buffer.putLong(offset + 8, blockKey.blockIndex);
+        buffer.putLong(offset + 16, slot.versionKey);
+        buffer.putLong(offset + 24, slot.accessTick);
+        buffer.putInt(offset + 32, slot.length);
+        buffer.putInt(offset + 36, slot.checksum);
+    }
+
+    private long getSlotPosition(int slotIndex) {
+        return HEADER_SIZE + (long) slotsCount * INDEX_ENTRY_SIZE + (long) slotIndex * blockSize;
+    }
+
+    private void readFully(long position, byte[] target) throws IOException {
+        accessFile.seek(position);
+        accessFile.readFully(target);
+    }
+
+    private void writeFully(long position, byte[] source) throws IOException {
+        accessFile.seek(position);
+        accessFile.write(source);
+    }
+
+    private void checkClosed() {
+        if (closed) {
+            throw new IllegalStateException("Cache was already closed");
+        }
+    }
+
+    private static int computeChecksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Computes 64-bit FNV-1a hash of given text.
+     */
+    private static long hashKey(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte value : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= value & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @NullMarked
+    private static final class BlockKey {
+
+        private final long sourceKey;
+        private final long blockIndex;
+
+        public BlockKey(long sourceKey, long blockIndex) {
+            this.sourceKey = sourceKey;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sourceKey * 31 + blockIndex);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            BlockKey other = (BlockKey) obj;
+            return sourceKey == other.sourceKey && blockIndex == other.blockIndex;
+        }
+    }
+
+    @NullMarked
+    private static final class Slot {
+
+        private final int slotIndex;
+        private long versionKey;
+        private long accessTick;
+        private int length;
+        private int checksum;
+
+        public Slot(int slotIndex) {
+            this.slotIndex = slotIndex;
+        }
+    }
+}
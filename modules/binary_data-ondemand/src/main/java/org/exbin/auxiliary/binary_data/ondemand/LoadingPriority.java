@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Priority of loading of on demand data.
+ */
+@NullMarked
+public enum LoadingPriority {
+
+    /**
+     * Data currently visible to user, newer viewport request supersedes older
+     * ones.
+     */
+    VIEWPORT,
+    /**
+     * Data expected to be needed soon.
+     */
+    PREFETCH,
+    /**
+     * Data for background processing like scanning.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,925 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.BinaryDataInputStream;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.binary_data.PresenceAwareBinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+
+/**
+ * On demand binary data split into blocks of fixed size.
+ * <p>
+ * Fetched blocks are kept in cache limited by count of blocks, least recently
+ * used blocks are dropped. Missing blocks of requests are queued and all
+ * queued blocks are fetched using single fetch for each run of consecutive
+ * blocks. Requests share loads of blocks which are already queued or being
+ * fetched and cancelling of request doesn't affect loads needed by other
+ * requests.
+ * <p>
+ * Blocks are fetched in order of the highest priority of requests waiting for
+ * them and newer viewport request cancels older viewport requests. Futures of
+ * requests provide progress observer of the request.
+ * <p>
+ * Optional disk block cache serves as second level cache shared between
+ * sessions, queued blocks found in it are not fetched.
+ * <p>
+ * Reading of data which are not available throws
+ * {@link DataRequestedException} and requests loading of data, or
+ * {@link DataNotLoadedException} if requesting on missing data is disabled.
+ */
+@NullMarked
+public class OnDemandBlockData implements OnDemandBinaryData, BinaryData, PresenceAwareBinaryData {
+
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+    public static final int DEFAULT_CACHE_BLOCKS_COUNT = 1024;
+    /**
+     * Maximum count of consecutive blocks fetched at once.
+     */
+    public static final int MAX_FETCH_BLOCKS = 64;
+
+    private final OnDemandDataFetcher fetcher;
+    private final int blockSize;
+    private final int cacheBlocksCount;
+    private final long dataSize;
+    private final Executor executor;
+    @Nullable
+    private final ExecutorService ownExecutor;
+    private final Map<Long, byte[]> blocks;
+    /**
+     * Loads of blocks which are queued or being fetched.
+     */
+    private final Map<Long, BlockLoad> blockLoads = new HashMap<>();
+    /**
+     * Queued blocks for each loading priority.
+     */
+    private final List<TreeSet<Long>> queuedBlocks = new ArrayList<>();
+    /**
+     * Viewport requests which are superseded by newer viewport request.
+     */
+    private final List<LoadRequest> viewportRequests = new ArrayList<>();
+    /**
+     * Unfinished requests for missing data by start position, reused for
+     * repeated access to the same missing area.
+     */
+    private final Map<Long, LoadRequest> missingRequests = new HashMap<>();
+    private final List<DataLoadingObserver> dataLoadingObservers = new CopyOnWriteArrayList<>();
+    private boolean loadingScheduled = false;
+    private boolean disposed = false;
+    private boolean requestOnMissing = true;
+    private long fetchCount = 0;
+    @Nullable
+    private DiskBlockCache diskCache = null;
+    private String sourceId = "";
+    private String sourceVersion = "";
+
+    public OnDemandBlockData(OnDemandDataFetcher fetcher, int blockSize, int cacheBlocksCount, Executor executor) {
+        this(fetcher, blockSize, cacheBlocksCount, executor, null);
+    }
+
+    public OnDemandBlockData(OnDemandDataFetcher fetcher, int blockSize, int cacheBlocksCount) {
+        this(fetcher, blockSize, cacheBlocksCount, null, Executors.newSingleThreadExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "OnDemandBlockData loader");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public OnDemandBlockData(OnDemandDataFetcher fetcher) {
+        this(fetcher, DEFAULT_BLOCK_SIZE, DEFAULT_CACHE_BLOCKS_COUNT);
+    }
+
+    private OnDemandBlockData(OnDemandDataFetcher fetcher, int blockSize, int cacheBlocksCount, @Nullable Executor executor, @Nullable ExecutorService ownExecutor) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        if (cacheBlocksCount <= 0) {
+            throw new IllegalArgumentException("Count of cached blocks must be positive");
+        }
+        this.fetcher = fetcher;
+        this.blockSize = blockSize;
+        this.cacheBlocksCount = cacheBlocksCount;
+        this.ownExecutor = ownExecutor;
+        this.executor = executor != null ? executor : ownExecutor;
+        dataSize = fetcher.getDataSize();
+        for (LoadingPriority priority : LoadingPriority.values()) {
+            queuedBlocks.add(new TreeSet<>());
+        }
+        blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > OnDemandBlockData.this.cacheBlocksCount;
+            }
+        };
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getCacheBlocksCount() {
+        return cacheBlocksCount;
+    }
+
+    /**
+     * Returns count of fetches performed using data fetcher.
+     *
+     * @return fetch count
+     */
+    public synchronized long getFetchCount() {
+        return fetchCount;
+    }
+
+    public synchronized boolean isRequestOnMissing() {
+        return requestOnMissing;
+    }
+
+    /**
+     * Sets whether reading of missing data should request its loading.
+     *
+     * @param requestOnMissing true to request loading and throw
+     * DataRequestedException, false to throw DataNotLoadedException
+     */
+    public synchronized void setRequestOnMissing(boolean requestOnMissing) {
+        this.requestOnMissing = requestOnMissing;
+    }
+
+    /**
+     * Sets disk block cache used as second level cache.
+     * <p>
+     * Cache is not closed when data are disposed so that it can be shared by
+     * multiple sources.
+     *
+     * @param diskCache disk block cache or null to disable it
+     * @param sourceId identifier of the source of data
+     * @param sourceVersion version token of the source, cached blocks of
+     * different version are not used
+     */
+    public synchronized void setDiskBlockCache(@Nullable DiskBlockCache diskCache, String sourceId, String sourceVersion) {
+        if (diskCache != null && diskCache.getBlockSize() != blockSize) {
+            throw new IllegalArgumentException("Block size of disk cache doesn't match block size of data");
+        }
+        this.diskCache = diskCache;
+        this.sourceId = sourceId;
+        this.sourceVersion = sourceVersion;
+    }
+
+    @Nullable
+    public synchronized DiskBlockCache getDiskBlockCache() {
+        return diskCache;
+    }
+
+    public void addDataLoadingObserver(DataLoadingObserver observer) {
+        dataLoadingObservers.add(observer);
+    }
+
+    public void removeDataLoadingObserver(DataLoadingObserver observer) {
+        dataLoadingObservers.remove(observer);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return dataSize == 0;
+    }
+
+    @Override
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    @Override
+    public synchronized boolean isAvailable(long startFrom, long length) {
+        checkRange(startFrom, length);
+        if (length == 0) {
+            return true;
+        }
+
+        long lastBlock = (startFrom + length - 1) / blockSize;
+        for (long blockIndex = startFrom / blockSize; blockIndex <= lastBlock; blockIndex++) {
+            if (!blocks.containsKey(blockIndex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Future<BinaryData> retrieveData(long startFrom, long length) {
+        return retrieveData(startFrom, length, LoadingPriority.PREFETCH);
+    }
+
+    /**
+     * Requests retrieval of data with given priority.
+     * <p>
+     * Queued blocks are fetched in order of priority of requests waiting for
+     * them. Request with viewport priority cancels all previous unfinished
+     * viewport requests.
+     *
+     * @param startFrom position to start copy from
+     * @param length length of area
+     * @param priority loading priority
+     * @return retrieval future object
+     */
+    public DataLoadingFuture retrieveData(long startFrom, long length, LoadingPriority priority) {
+        checkRange(startFrom, length);
+        synchronized (this) {
+            if (isAvailable(startFrom, length)) {
+                RequestLoadingObserver observer = new RequestLoadingObserver(length);
+                observer.addProgress(length);
+                DataLoadingFuture future = new DataLoadingFuture(observer);
+                future.complete(copyAvailable(startFrom, length));
+                return future;
+            }
+
+            return requestLoad(startFrom, length, priority).future;
+        }
+    }
+
+    @Override
+    public byte getByte(long position) {
+        if (position < 0 || position >= dataSize) {
+            throw new OutOfBoundsException("Position " + position + " is out of data range");
+        }
+
+        byte[] block;
+        synchronized (this) {
+            block = blocks.get(position / blockSize);
+        }
+        if (block == null) {
+            throw missingData(position, 1);
+        }
+        return block[(int) (position % blockSize)];
+    }
+
+    @Override
+    public BinaryData copy() {
+        return copy(0, dataSize);
+    }
+
+    @Override
+    public BinaryData copy(long startFrom, long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfBoundsException("Copied data are limited by integer length");
+        }
+        byte[] data = new byte[(int) length];
+        copyToArray(startFrom, data, 0, (int) length);
+        return new ByteArrayData(data);
+    }
+
+    @Override
+    public void copyToArray(long startFrom, byte[] target, int offset, int length) {
+        checkRange(startFrom, length);
+        synchronized (this) {
+            long missingPosition = findMissing(startFrom, length);
+            if (missingPosition >= 0) {
+                throw missingData(missingPosition, startFrom + length - missingPosition);
+            }
+            copyCached(startFrom, target, offset, length);
+        }
+    }
+
+    /**
+     * Copies loaded data of given area into array of bytes.
+     * <p>
+     * If requesting on missing data is enabled, loading of missing part of
+     * area is requested.
+     */
+    @Override
+    public int copyPresentToArray(long startFrom, byte[] target, int offset, int length, @Nullable BitSet presenceMap) {
+        checkRange(startFrom, length);
+        if (presenceMap != null) {
+            presenceMap.clear(0, length);
+        }
+
+        int leadingLength = length;
+        long missingStart = -1;
+        long missingEnd = -1;
+        synchronized (this) {
+            int copied = 0;
+            while (copied < length) {
+                long position = startFrom + copied;
+                int blockOffset = (int) (position % blockSize);
+                int copyLength = Math.min(length - copied, blockSize - blockOffset);
+                byte[] block = blocks.get(position / blockSize);
+                if (block != null) {
+                    System.arraycopy(block, blockOffset, target, offset + copied, copyLength);
+                    if (presenceMap != null) {
+                        presenceMap.set(copied, copied + copyLength);
+                    }
+                } else {
+                    if (missingStart < 0) {
+                        missingStart = position;
+                        leadingLength = copied;
+                    }
+                    missingEnd = position + copyLength;
+                }
+                copied += copyLength;
+            }
+
+            if (missingStart >= 0 && requestOnMissing) {
+                requestMissing(missingStart, missingEnd - missingStart);
+            }
+        }
+        return leadingLength;
+    }
+
+    @Override
+    public void saveToStream(OutputStream outputStream) throws IOException {
+        byte[] block = new byte[blockSize];
+        for (long position = 0; position < dataSize; position += blockSize) {
+            int length = (int) Math.min(blockSize, dataSize - position);
+            copyToArray(position, block, 0, length);
+            outputStream.write(block, 0, length);
+        }
+    }
+
+    @Override
+    public InputStream getDataInputStream() {
+        return new BinaryDataInputStream(this);
+    }
+
+    /**
+     * Drops cached blocks and stops loading thread if owned.
+     * <p>
+     * Pending requests are completed exceptionally and later requests for
+     * loading of data are rejected.
+     */
+    @Override
+    public void dispose() {
+        List<BlockLoad> pendingLoads;
+        synchronized (this) {
+            disposed = true;
+            blocks.clear();
+            viewportRequests.clear();
+            missingRequests.clear();
+            pendingLoads = dropPendingLoads();
+        }
+        failLoads(pendingLoads, new IllegalStateException("Data were disposed"));
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    private RuntimeException missingData(long startFrom, long length) {
+        synchronized (this) {
+            if (requestOnMissing) {
+                LoadRequest request = requestMissing(startFrom, length);
+                return new DataRequestedException("Requested data are not loaded yet", request.future);
+            }
+        }
+        return new DataNotLoadedException("Requested data are not loaded", new DataRange(startFrom, startFrom + length - 1));
+    }
+
+    /**
+     * Returns first position in given range which is not available.
+     *
+     * @return position or -1 if whole range is available
+     */
+    private long findMissing(long startFrom, long length) {
+        if (length == 0) {
+            return -1;
+        }
+
+        long lastBlock = (startFrom + length - 1) / blockSize;
+        for (long blockIndex = startFrom / blockSize; blockIndex <= lastBlock; blockIndex++) {
+            if (!blocks.containsKey(blockIndex)) {
+                return Math.max(startFrom, blockIndex * blockSize);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Requests loading of missing range, unfinished request for the same range
+     * is reused.
+     */
+    private LoadRequest requestMissing(long startFrom, long length) {
+        LoadRequest request = missingRequests.get(startFrom);
+        if (request != null && request.length == length && !request.future.isDone()) {
+            return request;
+        }
+
+        request = requestLoad(startFrom, length, LoadingPriority.PREFETCH);
+        if (!request.future.isDone()) {
+            missingRequests.put(startFrom, request);
+        }
+        return request;
+    }
+
+    /**
+     * Requests loading of range, blocks which are already being loaded are
+     * shared with other requests.
+     */
+    private LoadRequest requestLoad(long startFrom, long length, LoadingPriority priority) {
+        if (disposed) {
+            throw new IllegalStateException("Data were disposed");
+        }
+
+        LoadRequest request = new LoadRequest(startFrom, length, priority);
+        long endPosition = startFrom + length;
+        long firstBlock = startFrom / blockSize;
+        long lastBlock = (endPosition - 1) / blockSize;
+        long availableSize = 0;
+        List<CompletableFuture<byte[]>> blockFutures = new ArrayList<>();
+        for (long blockIndex = firstBlock; blockIndex <= lastBlock; blockIndex++) {
+            long coveredSize = Math.min(endPosition, (blockIndex + 1) * blockSize) - Math.max(startFrom, blockIndex * blockSize);
+            byte[] block = blocks.get(blockIndex);
+            if (block != null) {
+                blockFutures.add(CompletableFuture.completedFuture(block));
+                availableSize += coveredSize;
+                continue;
+            }
+
+            BlockLoad blockLoad = blockLoads.get(blockIndex);
+            if (blockLoad == null) {
+                blockLoad = new BlockLoad(blockIndex, priority);
+                blockLoads.put(blockIndex, blockLoad);
+                queuedBlocks.get(priority.ordinal()).add(blockIndex);
+            }
+            blockLoad.waitersCounts[priority.ordinal()]++;
+            updateQueuedPriority(blockLoad);
+            request.blockLoads.add(blockLoad);
+            blockFutures.add(blockLoad.future);
+            blockLoad.future.thenRun(() -> request.observer.addProgress(coveredSize));
+        }
+        request.observer.addProgress(availableSize);
+
+        CompletableFuture.allOf(blockFutures.toArray(new CompletableFuture<?>[0])).whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                request.future.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                return;
+            }
+
+            byte[] data = new byte[(int) length];
+            int offset = 0;
+            long position = startFrom;
+            for (CompletableFuture<byte[]> blockFuture : blockFutures) {
+                byte[] block = blockFuture.join();
+                int blockOffset = (int) (position % blockSize);
+                int copyLength = Math.min((int) length - offset, block.length - blockOffset);
+                System.arraycopy(block, blockOffset, data, offset, copyLength);
+                offset += copyLength;
+                position += copyLength;
+            }
+            request.observer.dataLoaded(new DataRange(startFrom, startFrom + length - 1));
+            request.future.complete(new ByteArrayData(data));
+        });
+        request.future.whenComplete((result, throwable) -> {
+            finishRequest(request);
+        });
+
+        if (priority == LoadingPriority.VIEWPORT && !request.future.isDone()) {
+            List<LoadRequest> supersededRequests = new ArrayList<>(viewportRequests);
+            viewportRequests.clear();
+            viewportRequests.add(request);
+            for (LoadRequest supersededRequest : supersededRequests) {
+                supersededRequest.future.cancel(false);
+            }
+        }
+
+        if (!loadingScheduled && hasQueuedBlocks()) {
+            loadingScheduled = true;
+            try {
+                executor.execute(this::processQueuedBlocks);
+            } catch (RejectedExecutionException ex) {
+                loadingScheduled = false;
+                failLoads(dropPendingLoads(), ex);
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Removes all queued loads and loads being fetched.
+     *
+     * @return removed loads
+     */
+    private List<BlockLoad> dropPendingLoads() {
+        List<BlockLoad> pendingLoads = new ArrayList<>(blockLoads.values());
+        blockLoads.clear();
+        for (TreeSet<Long> priorityBlocks : queuedBlocks) {
+            priorityBlocks.clear();
+        }
+        return pendingLoads;
+    }
+
+    private static void failLoads(List<BlockLoad> loads, Throwable throwable) {
+        for (BlockLoad blockLoad : loads) {
+            blockLoad.future.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * Releases blocks of cancelled request, blocks without other waiters are
+     * removed from queue if their fetch was not started yet.
+     */
+    private synchronized void finishRequest(LoadRequest request) {
+        if (request.priority == LoadingPriority.VIEWPORT) {
+            viewportRequests.remove(request);
+        }
+        if (missingRequests.get(request.startFrom) == request) {
+            missingRequests.remove(request.startFrom);
+        }
+        if (!request.future.isCancelled()) {
+            return;
+        }
+
+        for (BlockLoad blockLoad : request.blockLoads) {
+            blockLoad.waitersCounts[request.priority.ordinal()]--;
+            if (blockLoad.fetching || blockLoads.get(blockLoad.blockIndex) != blockLoad) {
+                continue;
+            }
+
+            if (blockLoad.hasWaiters()) {
+                updateQueuedPriority(blockLoad);
+            } else {
+                blockLoads.remove(blockLoad.blockIndex);
+                queuedBlocks.get(blockLoad.priority.ordinal()).remove(blockLoad.blockIndex);
+                blockLoad.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Moves queued block to queue of the highest priority of its waiters.
+     */
+    private void updateQueuedPriority(BlockLoad blockLoad) {
+        if (blockLoad.fetching) {
+            return;
+        }
+
+        LoadingPriority priority = blockLoad.getWaitersPriority();
+        if (priority != blockLoad.priority) {
+            queuedBlocks.get(blockLoad.priority.ordinal()).remove(blockLoad.blockIndex);
+            queuedBlocks.get(priority.ordinal()).add(blockLoad.blockIndex);
+            blockLoad.priority = priority;
+        }
+    }
+
+    private boolean hasQueuedBlocks() {
+        for (TreeSet<Long> priorityBlocks : queuedBlocks) {
+            if (!priorityBlocks.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetches queued blocks until there are no queued blocks.
+     * <p>
+     * Each fetch takes run of consecutive blocks of the highest priority.
+     */
+    private void processQueuedBlocks() {
+        while (true) {
+            List<BlockLoad> runLoads = new ArrayList<>();
+            synchronized (this) {
+                TreeSet<Long> priorityBlocks = null;
+                for (TreeSet<Long> blocksQueue : queuedBlocks) {
+                    if (!blocksQueue.isEmpty()) {
+                        priorityBlocks = blocksQueue;
+                        break;
+                    }
+                }
+                if (priorityBlocks == null) {
+                    loadingScheduled = false;
+                    return;
+                }
+
+                long blockIndex = priorityBlocks.pollFirst();
+                runLoads.add(blockLoads.get(blockIndex));
+                while (runLoads.size() < MAX_FETCH_BLOCKS && !priorityBlocks.isEmpty() && priorityBlocks.first() == blockIndex + 1) {
+                    blockIndex = priorityBlocks.pollFirst();
+                    runLoads.add(blockLoads.get(blockIndex));
+                }
+                for (BlockLoad blockLoad : runLoads) {
+                    blockLoad.fetching = true;
+                }
+            }
+
+            loadBlocks(runLoads);
+        }
+    }
+
+    /**
+     * Loads run of consecutive blocks using disk cache if available, parts of
+     * run which are not in disk cache are fetched.
+     */
+    private void loadBlocks(List<BlockLoad> runLoads) {
+        DiskBlockCache cache;
+        String cacheSourceId;
+        String cacheSourceVersion;
+        synchronized (this) {
+            cache = diskCache;
+            cacheSourceId = sourceId;
+            cacheSourceVersion = sourceVersion;
+        }
+        if (cache == null) {
+            fetchBlocks(runLoads);
+            return;
+        }
+
+        List<BlockLoad> missingLoads = new ArrayList<>();
+        for (BlockLoad blockLoad : runLoads) {
+            byte[] block = readDiskBlock(cache, cacheSourceId, cacheSourceVersion, blockLoad.blockIndex);
+            if (block == null) {
+                missingLoads.add(blockLoad);
+                continue;
+            }
+
+            if (!missingLoads.isEmpty()) {
+                fetchBlocks(missingLoads);
+                missingLoads = new ArrayList<>();
+            }
+            completeBlocks(Collections.singletonList(blockLoad), new byte[][]{block});
+        }
+        if (!missingLoads.isEmpty()) {
+            fetchBlocks(missingLoads);
+        }
+    }
+
+    private byte @Nullable [] readDiskBlock(DiskBlockCache cache, String cacheSourceId, String cacheSourceVersion, long blockIndex) {
+        byte[] block;
+        try {
+            block = cache.readBlock(cacheSourceId, cacheSourceVersion, blockIndex);
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(OnDemandBlockData.class.getName()).log(Level.WARNING, null, ex);
+            return null;
+        }
+        long blockLength = Math.min(blockSize, dataSize - blockIndex * blockSize);
+        return block != null && block.length == blockLength ? block : null;
+    }
+
+    /**
+     * Fetches run of consecutive blocks using single fetch.
+     */
+    private void fetchBlocks(List<BlockLoad> runLoads) {
+        long firstBlock = runLoads.get(0).blockIndex;
+        long startFrom = firstBlock * blockSize;
+        long length = Math.min((firstBlock + runLoads.size()) * blockSize, dataSize) - startFrom;
+        byte[] data = new byte[(int) length];
+        try {
+            fetcher.fetchData(startFrom, data, 0, data.length);
+        } catch (IOException | RuntimeException ex) {
+            synchronized (this) {
+                for (BlockLoad blockLoad : runLoads) {
+                    blockLoads.remove(blockLoad.blockIndex);
+                }
+            }
+            for (BlockLoad blockLoad : runLoads) {
+                blockLoad.future.completeExceptionally(ex);
+            }
+            return;
+        }
+
+        byte[][] runBlocks = new byte[runLoads.size()][];
+        for (int i = 0; i < runLoads.size(); i++) {
+            int blockOffset = i * blockSize;
+            int blockLength = Math.min(blockSize, data.length - blockOffset);
+            runBlocks[i] = new byte[blockLength];
+            System.arraycopy(data, blockOffset, runBlocks[i], 0, blockLength);
+        }
+        DiskBlockCache cache;
+        String cacheSourceId;
+        String cacheSourceVersion;
+        synchronized (this) {
+            fetchCount++;
+            cache = diskCache;
+            cacheSourceId = sourceId;
+            cacheSourceVersion = sourceVersion;
+        }
+        if (cache != null) {
+            // Blocks are stored before completion so that completed loads are persisted
+            try {
+                for (int i = 0; i < runLoads.size(); i++) {
+                    cache.writeBlock(cacheSourceId, cacheSourceVersion, runLoads.get(i).blockIndex, runBlocks[i]);
+                }
+            } catch (IOException | RuntimeException ex) {
+                Logger.getLogger(OnDemandBlockData.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+        completeBlocks(runLoads, runBlocks);
+    }
+
+    /**
+     * Stores loaded run of consecutive blocks to cache and completes their
+     * loads.
+     */
+    private void completeBlocks(List<BlockLoad> runLoads, byte[][] runBlocks) {
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+
+            for (int i = 0; i < runLoads.size(); i++) {
+                BlockLoad blockLoad = runLoads.get(i);
+                blocks.put(blockLoad.blockIndex, runBlocks[i]);
+                blockLoads.remove(blockLoad.blockIndex);
+            }
+        }
+
+        long startFrom = runLoads.get(0).blockIndex * blockSize;
+        long endPosition = (runLoads.get(runLoads.size() - 1).blockIndex * blockSize) + runBlocks[runBlocks.length - 1].length;
+        DataRange dataRange = new DataRange(startFrom, endPosition - 1);
+        for (DataLoadingObserver observer : dataLoadingObservers) {
+            observer.dataLoaded(dataRange);
+        }
+        for (int i = 0; i < runLoads.size(); i++) {
+            runLoads.get(i).future.complete(runBlocks[i]);
+        }
+    }
+
+    private BinaryData copyAvailable(long startFrom, long length) {
+        byte[] data = new byte[(int) length];
+        copyCached(startFrom, data, 0, (int) length);
+        return new ByteArrayData(data);
+    }
+
+    private void copyCached(long startFrom, byte[] target, int offset, int length) {
+        while (length > 0) {
+            long blockIndex = startFrom / blockSize;
+            int blockOffset = (int) (startFrom % blockSize);
+            byte[] block = blocks.get(blockIndex);
+            if (block == null) {
+                throw new DataNotLoadedException("Requested data are not loaded", new DataRange(startFrom, startFrom + length - 1));
+            }
+            int copyLength = Math.min(length, block.length - blockOffset);
+            System.arraycopy(block, blockOffset, target, offset, copyLength);
+            startFrom += copyLength;
+            offset += copyLength;
+            length -= copyLength;
+        }
+    }
+
+    private void checkRange(long startFrom, long length) {
+        if (startFrom < 0 || length < 0 || startFrom + length > dataSize) {
+            throw new OutOfBoundsException("Requested range is out of data range");
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfBoundsException("Requested range is limited by integer length");
+        }
+    }
+
+    /**
+     * Request for loading of data range.
+     */
+    @NullMarked
+    private static final class LoadRequest {
+
+        private final long startFrom;
+        private final long length;
+        private final LoadingPriority priority;
+        private final RequestLoadingObserver observer;
+        private final DataLoadingFuture future;
+        private final List<BlockLoad> blockLoads = new ArrayList<>();
+
+        public LoadRequest(long startFrom, long length, LoadingPriority priority) {
+            this.startFrom = startFrom;
+            this.length = length;
+            this.priority = priority;
+            observer = new RequestLoadingObserver(length);
+            future = new DataLoadingFuture(observer);
+        }
+    }
+
+    /**
+     * Load of single block shared by all requests waiting for the block.
+     */
+    @NullMarked
+    private static final class BlockLoad {
+
+        private final long blockIndex;
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        /**
+         * Counts of waiting requests for each loading priority.
+         */
+        private final int[] waitersCounts = new int[LoadingPriority.values().length];
+        private LoadingPriority priority;
+        private boolean fetching = false;
+
+        public BlockLoad(long blockIndex, LoadingPriority priority) {
+            this.blockIndex = blockIndex;
+            this.priority = priority;
+        }
+
+        private boolean hasWaiters() {
+            for (int waitersCount : waitersCounts) {
+                if (waitersCount > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private LoadingPriority getWaitersPriority() {
+            LoadingPriority[] priorities = LoadingPriority.values();
+            for (int i = 0; i < waitersCounts.length; i++) {
+                if (waitersCounts[i] > 0) {
+                    return priorities[i];
+                }
+            }
+            return priority;
+        }
+    }
+
+    /**
+     * Observer of loading of single request.
+     */
+    @NullMarked
+    private static final class RequestLoadingObserver implements DataLoadingProgressObserver {
+
+        private final long fullDataSize;
+        private volatile long loadedProgressSize = 0;
+        private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+        public RequestLoadingObserver(long fullDataSize) {
+            this.fullDataSize = fullDataSize;
+        }
+
+        @Override
+        public void dataLoaded(@Nullable DataRange dataRange) {
+            synchronized (this) {
+                loadedProgressSize = fullDataSize;
+            }
+            notifyChanged();
+        }
+
+        private void addProgress(long loadedSize) {
+            if (loadedSize == 0) {
+                return;
+            }
+
+            synchronized (this) {
+                loadedProgressSize = Math.min(fullDataSize, loadedProgressSize + loadedSize);
+            }
+            notifyChanged();
+        }
+
+        private void notifyChanged() {
+            ChangeEvent changeEvent = new ChangeEvent(this);
+            for (ChangeListener changeListener : changeListeners) {
+                changeListener.stateChanged(changeEvent);
+            }
+        }
+
+        @Override
+        public long fullDataSize() {
+            return fullDataSize;
+        }
+
+        @Override
+        public long loadedProgressSize() {
+            return loadedProgressSize;
+        }
+
+        @Override
+        public void addChangeListener(ChangeListener changeListener) {
+            changeListeners.add(changeListener);
+        }
+
+        @Override
+        public void removeChangeListener(ChangeListener changeListener) {
+            changeListeners.remove(changeListener);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Interface for fetching of data from source of on demand data.
+ * <p>
+ * Fetching is called from loading thread and can block.
+ */
+@NullMarked
+public interface OnDemandDataFetcher {
+
+    /**
+     * Returns size of source data.
+     *
+     * @return data size
+     */
+    long getDataSize();
+
+    /**
+     * Fetches continuous range of data from source.
+     *
+     * @param startFrom position to start fetch from
+     * @param target target byte array
+     * @param offset offset in target array
+     * @param length length of data to fetch
+     * @throws IOException if fetch fails
+     */
+    void fetchData(long startFrom, byte[] target, int offset, int length) throws IOException;
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.jspecify.annotations.NullMarked;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for disk block cache.
+ */
+@NullMarked
+public class DiskBlockCacheTest {
+
+    public static final int SAMPLE_BLOCK_SIZE = 16;
+
+    public DiskBlockCacheTest() {
+    }
+
+    @Test
+    public void testReopenCache() throws IOException {
+        File cacheFile = createCacheFile();
+        DiskBlockCache cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 4);
+        Assert.assertEquals(16 + 4 * 40 + 4 * SAMPLE_BLOCK_SIZE, cacheFile.length());
+        cache.writeBlock("first", "1", 0, createBlock(1, SAMPLE_BLOCK_SIZE));
+        cache.writeBlock("first", "1", 5, createBlock(2, 3));
+        cache.writeBlock("second", "1", 0, createBlock(3, SAMPLE_BLOCK_SIZE));
+        Assert.assertNull(cache.readBlock("first", "1", 1));
+        cache.close();
+
+        cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 4);
+        Assert.assertEquals(3, cache.getBlocksCount());
+        Assert.assertArrayEquals(createBlock(1, SAMPLE_BLOCK_SIZE), cache.readBlock("first", "1", 0));
+        Assert.assertArrayEquals(createBlock(2, 3), cache.readBlock("first", "1", 5));
+        Assert.assertArrayEquals(createBlock(3, SAMPLE_BLOCK_SIZE), cache.readBlock("second", "1", 0));
+        cache.close();
+
+        // Cache with different layout is recreated
+        cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 8);
+        Assert.assertEquals(0, cache.getBlocksCount());
+        Assert.assertNull(cache.readBlock("first", "1", 0));
+        cache.close();
+    }
+
+    @Test
+    public void testSourceVersion() throws IOException {
+        File cacheFile = createCacheFile();
+        DiskBlockCache cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 4);
+        cache.writeBlock("first", "1", 0, createBlock(1, SAMPLE_BLOCK_SIZE));
+        cache.writeBlock("first", "1", 1, createBlock(2, SAMPLE_BLOCK_SIZE));
+        cache.writeBlock("second", "1", 0, createBlock(3, SAMPLE_BLOCK_SIZE));
+
+        Assert.assertNull(cache.readBlock("first", "2", 0));
+        Assert.assertEquals(2, cache.getBlocksCount());
+        cache.invalidateSource("first");
+        Assert.assertEquals(1, cache.getBlocksCount());
+        Assert.assertNull(cache.readBlock("first", "1", 1));
+        Assert.assertArrayEquals(createBlock(3, SAMPLE_BLOCK_SIZE), cache.readBlock("second", "1", 0));
+        cache.close();
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        File cacheFile = createCacheFile();
+        DiskBlockCache cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 2);
+        cache.writeBlock("source", "1", 0, createBlock(1, SAMPLE_BLOCK_SIZE));
+        cache.writeBlock("source", "1", 1, createBlock(2, SAMPLE_BLOCK_SIZE));
+        Assert.assertNotNull(cache.readBlock("source", "1", 0));
+        cache.writeBlock("source", "1", 2, createBlock(3, SAMPLE_BLOCK_SIZE));
+        cache.close();
+
+        // Least recently used block is replaced and access order is kept
+        cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 2);
+        Assert.assertEquals(2 * SAMPLE_BLOCK_SIZE + 16 + 2 * 40, cacheFile.length());
+        Assert.assertNull(cache.readBlock("source", "1", 1));
+        Assert.assertArrayEquals(createBlock(3, SAMPLE_BLOCK_SIZE), cache.readBlock("source", "1", 2));
+        cache.writeBlock("source", "1", 3, createBlock(4, SAMPLE_BLOCK_SIZE));
+        Assert.assertNull(cache.readBlock("source", "1", 0));
+        Assert.assertNotNull(cache.readBlock("source", "1", 2));
+        cache.close();
+    }
+
+    @Test
+    public void testCorruptedBlock() throws IOException {
+        File cacheFile = createCacheFile();
+        DiskBlockCache cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 2);
+        cache.writeBlock("source", "1", 0, createBlock(1, SAMPLE_BLOCK_SIZE));
+        cache.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.seek(16 + 2 * 40);
+            file.write(0x7f);
+        }
+        cache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 2);
+        Assert.assertNull(cache.readBlock("source", "1", 0));
+        Assert.assertEquals(0, cache.getBlocksCount());
+        cache.close();
+    }
+
+    private static File createCacheFile() throws IOException {
+        File cacheFile = File.createTempFile("blockcache", ".cache");
+        cacheFile.deleteOnExit();
+        return cacheFile;
+    }
+
+    private static byte[] createBlock(int seed, int length) {
+        byte[] block = new byte[length];
+        for (int i = 0; i < length; i++) {
+            block[i] = (byte) (seed * 31 + i);
+        }
+        return block;
+    }
+}
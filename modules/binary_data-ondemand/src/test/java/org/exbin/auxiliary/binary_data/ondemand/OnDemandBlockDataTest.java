@@ -0,0 +1,555 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.ondemand;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for on demand block data.
+ */
+@NullMarked
+public class OnDemandBlockDataTest {
+
+    public static final int SAMPLE_DATA_SIZE = 10000;
+    public static final int SAMPLE_BLOCK_SIZE = 100;
+
+    public OnDemandBlockDataTest() {
+    }
+
+    @Test
+    public void testRetrieveData() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        OnDemandBlockData data = new OnDemandBlockData(new BinaryDataFetcher(new ByteArrayData(sampleData)), SAMPLE_BLOCK_SIZE, 10);
+        Assert.assertEquals(SAMPLE_DATA_SIZE, data.getDataSize());
+        Assert.assertFalse(data.isAvailable(150, 300));
+
+        BinaryData retrievedData = data.retrieveData(150, 300).get();
+        assertData(sampleData, 150, retrievedData);
+        Assert.assertTrue(data.isAvailable(100, 400));
+        Assert.assertFalse(data.isAvailable(100, 401));
+        Assert.assertEquals(1, data.getFetchCount());
+        Assert.assertEquals(sampleData[449], data.getByte(449));
+
+        // Last block is shorter
+        retrievedData = data.retrieveData(SAMPLE_DATA_SIZE - 50, 50).get();
+        assertData(sampleData, SAMPLE_DATA_SIZE - 50, retrievedData);
+        data.dispose();
+    }
+
+    @Test
+    public void testRequestsCoalescing() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 100);
+        List<DataRange> loadedRanges = new ArrayList<>();
+        data.addDataLoadingObserver((dataRange) -> {
+            synchronized (loadedRanges) {
+                loadedRanges.add(dataRange);
+            }
+        });
+
+        fetcher.blockFetching();
+        Future<BinaryData> firstRequest = data.retrieveData(0, 100);
+        fetcher.awaitFetchStarted();
+        // Requests collected while fetching are loaded together
+        Future<BinaryData> secondRequest = data.retrieveData(500, 100);
+        Future<BinaryData> thirdRequest = data.retrieveData(550, 200);
+        Future<BinaryData> fourthRequest = data.retrieveData(300, 50);
+        fetcher.releaseFetching();
+
+        assertData(sampleData, 0, firstRequest.get());
+        assertData(sampleData, 500, secondRequest.get());
+        assertData(sampleData, 550, thirdRequest.get());
+        assertData(sampleData, 300, fourthRequest.get());
+        Assert.assertEquals(3, data.getFetchCount());
+        Assert.assertEquals(3, fetcher.getFetchCount());
+        synchronized (loadedRanges) {
+            Assert.assertEquals(3, loadedRanges.size());
+            Assert.assertEquals(0, loadedRanges.get(0).getStartPosition());
+            Assert.assertEquals(99, loadedRanges.get(0).getEndPosition());
+            Assert.assertEquals(300, loadedRanges.get(1).getStartPosition());
+            Assert.assertEquals(399, loadedRanges.get(1).getEndPosition());
+            Assert.assertEquals(500, loadedRanges.get(2).getStartPosition());
+            Assert.assertEquals(799, loadedRanges.get(2).getEndPosition());
+        }
+        data.dispose();
+    }
+
+    @Test
+    public void testSharedLoads() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 100);
+
+        fetcher.blockFetching();
+        Future<BinaryData> firstRequest = data.retrieveData(0, 300);
+        fetcher.awaitFetchStarted();
+        // Block which is being fetched is shared, only remaining blocks are queued
+        Future<BinaryData> secondRequest = data.retrieveData(250, 250);
+        Future<BinaryData> thirdRequest = data.retrieveData(10, 20);
+        Future<BinaryData> fourthRequest = data.retrieveData(420, 30);
+        fetcher.releaseFetching();
+
+        assertData(sampleData, 0, firstRequest.get());
+        assertData(sampleData, 250, secondRequest.get());
+        assertData(sampleData, 10, thirdRequest.get());
+        assertData(sampleData, 420, fourthRequest.get());
+        Assert.assertEquals(2, fetcher.getFetchCount());
+        Assert.assertEquals(500, fetcher.getFetchedSize());
+        data.dispose();
+    }
+
+    @Test
+    public void testCancelRequest() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 100);
+
+        fetcher.blockFetching();
+        Future<BinaryData> firstRequest = data.retrieveData(0, 100);
+        fetcher.awaitFetchStarted();
+        Future<BinaryData> secondRequest = data.retrieveData(500, 100);
+        Future<BinaryData> thirdRequest = data.retrieveData(500, 50);
+        Future<BinaryData> fourthRequest = data.retrieveData(800, 100);
+        // Cancelling of one of the waiters keeps shared load
+        Assert.assertTrue(secondRequest.cancel(false));
+        // Load without other waiters is dropped
+        Assert.assertTrue(fourthRequest.cancel(false));
+        // Cancelling of request doesn't stop fetch which was already started
+        Assert.assertTrue(firstRequest.cancel(false));
+        fetcher.releaseFetching();
+
+        assertData(sampleData, 500, thirdRequest.get());
+        Assert.assertTrue(secondRequest.isCancelled());
+        Assert.assertEquals(2, fetcher.getFetchCount());
+        Assert.assertTrue(data.isAvailable(0, 100));
+        Assert.assertFalse(data.isAvailable(800, 100));
+        data.dispose();
+    }
+
+    @Test
+    public void testLoadingPriority() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 100);
+
+        fetcher.blockFetching();
+        Future<BinaryData> firstRequest = data.retrieveData(0, 100, LoadingPriority.BACKGROUND);
+        fetcher.awaitFetchStarted();
+        Future<BinaryData> backgroundRequest = data.retrieveData(1000, 100, LoadingPriority.BACKGROUND);
+        Future<BinaryData> prefetchRequest = data.retrieveData(2000, 100, LoadingPriority.PREFETCH);
+        Future<BinaryData> viewportRequest = data.retrieveData(3000, 100, LoadingPriority.VIEWPORT);
+        // Shared block is loaded with the highest priority of its requests
+        Future<BinaryData> upgradedRequest = data.retrieveData(4000, 100, LoadingPriority.BACKGROUND);
+        Future<BinaryData> upgradingRequest = data.retrieveData(4050, 10, LoadingPriority.PREFETCH);
+        fetcher.releaseFetching();
+
+        assertData(sampleData, 0, firstRequest.get());
+        assertData(sampleData, 1000, backgroundRequest.get());
+        assertData(sampleData, 2000, prefetchRequest.get());
+        assertData(sampleData, 3000, viewportRequest.get());
+        assertData(sampleData, 4000, upgradedRequest.get());
+        assertData(sampleData, 4050, upgradingRequest.get());
+        Assert.assertArrayEquals(new long[] {0, 3000, 2000, 4000, 1000}, fetcher.getFetchPositions());
+        data.dispose();
+    }
+
+    @Test
+    public void testViewportSuperseding() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 100);
+
+        fetcher.blockFetching();
+        Future<BinaryData> firstRequest = data.retrieveData(0, 100, LoadingPriority.BACKGROUND);
+        fetcher.awaitFetchStarted();
+        Future<BinaryData> staleRequest = data.retrieveData(1000, 100, LoadingPriority.VIEWPORT);
+        Future<BinaryData> droppedRequest = data.retrieveData(1500, 200, LoadingPriority.VIEWPORT);
+        Future<BinaryData> scanRequest = data.retrieveData(1000, 100, LoadingPriority.BACKGROUND);
+        Future<BinaryData> viewportRequest = data.retrieveData(2000, 100, LoadingPriority.VIEWPORT);
+        Assert.assertTrue(staleRequest.isCancelled());
+        Assert.assertTrue(droppedRequest.isCancelled());
+        fetcher.releaseFetching();
+
+        assertData(sampleData, 0, firstRequest.get());
+        assertData(sampleData, 2000, viewportRequest.get());
+        assertData(sampleData, 1000, scanRequest.get());
+        Assert.assertArrayEquals(new long[] {0, 2000, 1000}, fetcher.getFetchPositions());
+        Assert.assertFalse(data.isAvailable(1500, 200));
+        data.dispose();
+    }
+
+    @Test
+    public void testLoadingProgress() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 100);
+        data.retrieveData(0, 100).get();
+
+        fetcher.blockFetching();
+        data.retrieveData(1000, 100, LoadingPriority.BACKGROUND);
+        fetcher.awaitFetchStarted();
+        DataLoadingFuture request = data.retrieveData(50, 300, LoadingPriority.VIEWPORT);
+        DataLoadingProgressObserver progressObserver = request.getDataLoadedObserver();
+        Assert.assertEquals(300, progressObserver.fullDataSize());
+        Assert.assertEquals(50, progressObserver.loadedProgressSize());
+        List<Long> progress = new ArrayList<>();
+        progressObserver.addChangeListener((event) -> {
+            synchronized (progress) {
+                progress.add(progressObserver.loadedProgressSize());
+            }
+        });
+        fetcher.releaseFetching();
+
+        assertData(sampleData, 50, request.get());
+        Assert.assertEquals(300, progressObserver.loadedProgressSize());
+        synchronized (progress) {
+            Assert.assertFalse(progress.isEmpty());
+            Assert.assertEquals(Long.valueOf(300), progress.get(progress.size() - 1));
+        }
+        data.dispose();
+    }
+
+    @Test
+    public void testMissingData() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        OnDemandBlockData data = new OnDemandBlockData(new BinaryDataFetcher(new ByteArrayData(sampleData)), SAMPLE_BLOCK_SIZE, 10);
+
+        data.setRequestOnMissing(false);
+        try {
+            data.getByte(1234);
+            Assert.fail("Reading of missing data should fail");
+        } catch (DataNotLoadedException ex) {
+            Assert.assertEquals(1234, ex.getDataRange().get().getStartPosition());
+        }
+
+        data.setRequestOnMissing(true);
+        CountDownLatch loaded = new CountDownLatch(1);
+        try {
+            byte[] target = new byte[200];
+            data.copyToArray(1150, target, 0, target.length);
+            Assert.fail("Reading of missing data should fail");
+        } catch (DataRequestedException ex) {
+            DataLoadingObserver observer = ex.getDataLoadingObserverProvider().get().getDataLoadedObserver();
+            DataLoadingProgressObserver progressObserver = (DataLoadingProgressObserver) observer;
+            Assert.assertEquals(200, progressObserver.fullDataSize());
+            progressObserver.addChangeListener((event) -> loaded.countDown());
+            if (progressObserver.loadedProgressSize() == progressObserver.fullDataSize()) {
+                loaded.countDown();
+            }
+        }
+
+        loaded.await();
+        byte[] target = new byte[200];
+        data.copyToArray(1150, target, 0, target.length);
+        for (int i = 0; i < target.length; i++) {
+            Assert.assertEquals(sampleData[1150 + i], target[i]);
+        }
+        data.dispose();
+    }
+
+    @Test
+    public void testCacheLimit() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 2);
+
+        // Request larger than cache is still completed
+        assertData(sampleData, 0, data.retrieveData(0, 300).get());
+        Assert.assertFalse(data.isAvailable(0, 100));
+        Assert.assertTrue(data.isAvailable(100, 200));
+
+        data.retrieveData(50, 100).get();
+        Assert.assertEquals(2, fetcher.getFetchCount());
+        Assert.assertFalse(data.isAvailable(200, 100));
+        data.dispose();
+    }
+
+    @Test
+    public void testFetchFailure() throws InterruptedException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 10);
+
+        fetcher.setFailing(true);
+        try {
+            data.retrieveData(0, 10).get();
+            Assert.fail("Failed fetch should fail request");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IOException);
+        }
+        Assert.assertFalse(data.isAvailable(0, 10));
+
+        fetcher.setFailing(false);
+        try {
+            assertData(sampleData, 0, data.retrieveData(0, 10).get());
+        } catch (ExecutionException ex) {
+            Assert.fail("Fetch should succeed");
+        }
+        data.dispose();
+    }
+
+    @Test
+    public void testDisposeWithPendingLoads() throws InterruptedException, TimeoutException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 10);
+
+        fetcher.blockFetching();
+        Future<BinaryData> fetchingRequest = data.retrieveData(0, 100);
+        fetcher.awaitFetchStarted();
+        Future<BinaryData> queuedRequest = data.retrieveData(500, 100);
+        Future<BinaryData> missingRequest = null;
+        try {
+            data.getByte(800);
+            Assert.fail("Reading of missing data should fail");
+        } catch (DataRequestedException ex) {
+            missingRequest = (DataLoadingFuture) ex.getDataLoadingObserverProvider().get();
+        }
+
+        data.dispose();
+        // Pending requests are not left waiting
+        for (Future<BinaryData> request : Arrays.asList(fetchingRequest, queuedRequest, missingRequest)) {
+            try {
+                request.get(10, TimeUnit.SECONDS);
+                Assert.fail("Pending request should fail on dispose");
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+        }
+        fetcher.releaseFetching();
+
+        try {
+            data.getByte(900);
+            Assert.fail("Reading of disposed data should fail");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+        try {
+            data.retrieveData(900, 10);
+            Assert.fail("Retrieving of disposed data should fail");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+        Assert.assertFalse(data.isAvailable(0, 100));
+    }
+
+    @Test
+    public void testRepeatedMissingDataRequest() throws InterruptedException {
+        byte[] sampleData = createSampleData();
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        fetcher.blockFetching();
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 10);
+
+        byte[] target = new byte[300];
+        Assert.assertEquals(0, data.copyPresentToArray(150, target, 0, target.length, null));
+        Object firstProvider = null;
+        for (int i = 0; i < 3; i++) {
+            try {
+                data.copyToArray(150, target, 0, target.length);
+                Assert.fail("Reading of missing data should fail");
+            } catch (DataRequestedException ex) {
+                Object provider = ex.getDataLoadingObserverProvider().get();
+                if (firstProvider == null) {
+                    firstProvider = provider;
+                } else {
+                    Assert.assertSame(firstProvider, provider);
+                }
+            }
+        }
+
+        CountDownLatch loadedLatch = new CountDownLatch(1);
+        data.addDataLoadingObserver((dataRange) -> loadedLatch.countDown());
+        fetcher.releaseFetching();
+        loadedLatch.await();
+        Assert.assertEquals(1, fetcher.getFetchCount());
+        data.dispose();
+    }
+
+    @Test
+    public void testCopyPresentToArray() throws InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        OnDemandBlockData data = new OnDemandBlockData(new TestFetcher(sampleData), SAMPLE_BLOCK_SIZE, 10);
+        data.retrieveData(100, 100).get();
+        data.retrieveData(300, 100).get();
+
+        data.setRequestOnMissing(false);
+        byte[] target = new byte[400];
+        BitSet presenceMap = new BitSet();
+        Assert.assertEquals(50, data.copyPresentToArray(150, target, 0, 300, presenceMap));
+        Assert.assertEquals(50, presenceMap.nextClearBit(0));
+        Assert.assertEquals(150, presenceMap.nextSetBit(50));
+        Assert.assertEquals(250, presenceMap.nextClearBit(150));
+        Assert.assertEquals(sampleData[150], target[0]);
+        Assert.assertEquals(sampleData[399], target[249]);
+        Assert.assertEquals(0, target[100]);
+        Assert.assertEquals(0, data.copyPresentToArray(0, target, 0, 50, null));
+        Assert.assertEquals(2, data.getFetchCount());
+
+        // Missing data are requested, non-consecutive blocks are fetched separately
+        data.setRequestOnMissing(true);
+        CountDownLatch loadedLatch = new CountDownLatch(2);
+        data.addDataLoadingObserver((dataRange) -> loadedLatch.countDown());
+        Assert.assertEquals(50, data.copyPresentToArray(150, target, 0, 300, presenceMap));
+        loadedLatch.await();
+        Assert.assertEquals(300, data.copyPresentToArray(150, target, 0, 300, presenceMap));
+        Assert.assertEquals(300, presenceMap.cardinality());
+        assertData(sampleData, 150, new ByteArrayData(Arrays.copyOf(target, 300)));
+        data.dispose();
+    }
+
+    @Test
+    public void testDiskBlockCache() throws IOException, InterruptedException, ExecutionException {
+        byte[] sampleData = createSampleData();
+        File cacheFile = File.createTempFile("ondemand", ".cache");
+        cacheFile.deleteOnExit();
+        DiskBlockCache diskCache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 50);
+        TestFetcher fetcher = new TestFetcher(sampleData);
+        OnDemandBlockData data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 10);
+        data.setDiskBlockCache(diskCache, "sample", "1");
+        assertData(sampleData, 150, data.retrieveData(150, 300).get());
+        assertData(sampleData, SAMPLE_DATA_SIZE - 50, data.retrieveData(SAMPLE_DATA_SIZE - 50, 50).get());
+        data.dispose();
+        diskCache.close();
+
+        // Reopened source is served from disk cache
+        diskCache = new DiskBlockCache(cacheFile, SAMPLE_BLOCK_SIZE, 50);
+        fetcher = new TestFetcher(sampleData);
+        data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 10);
+        data.setDiskBlockCache(diskCache, "sample", "1");
+        assertData(sampleData, 100, data.retrieveData(100, 400).get());
+        assertData(sampleData, SAMPLE_DATA_SIZE - 100, data.retrieveData(SAMPLE_DATA_SIZE - 100, 100).get());
+        Assert.assertEquals(0, fetcher.getFetchCount());
+        // Blocks missing in both caches are fetched
+        assertData(sampleData, 0, data.retrieveData(0, 600).get());
+        Assert.assertEquals(2, fetcher.getFetchCount());
+        data.dispose();
+
+        // Changed source version invalidates cached blocks
+        fetcher = new TestFetcher(sampleData);
+        data = new OnDemandBlockData(fetcher, SAMPLE_BLOCK_SIZE, 10);
+        data.setDiskBlockCache(diskCache, "sample", "2");
+        assertData(sampleData, 100, data.retrieveData(100, 400).get());
+        Assert.assertEquals(1, fetcher.getFetchCount());
+        data.dispose();
+        diskCache.close();
+    }
+
+    private static byte[] createSampleData() {
+        byte[] sampleData = new byte[SAMPLE_DATA_SIZE];
+        new Random(1).nextBytes(sampleData);
+        return sampleData;
+    }
+
+    private static void assertData(byte[] expectedData, int startFrom, BinaryData data) {
+        for (int i = 0; i < data.getDataSize(); i++) {
+            Assert.assertEquals("Issue on position " + (startFrom + i), expectedData[startFrom + i], data.getByte(i));
+        }
+    }
+
+    /**
+     * In process data fetcher with option to block or fail fetching.
+     */
+    @NullMarked
+    private static class TestFetcher implements OnDemandDataFetcher {
+
+        private final byte[] sourceData;
+        private volatile boolean failing = false;
+        private volatile CountDownLatch fetchStarted = new CountDownLatch(0);
+        private volatile CountDownLatch fetchReleased = new CountDownLatch(0);
+        private int fetchCount = 0;
+        private long fetchedSize = 0;
+        private final List<Long> fetchPositions = new ArrayList<>();
+
+        public TestFetcher(byte[] sourceData) {
+            this.sourceData = sourceData;
+        }
+
+        public void setFailing(boolean failing) {
+            this.failing = failing;
+        }
+
+        public void blockFetching() {
+            fetchStarted = new CountDownLatch(1);
+            fetchReleased = new CountDownLatch(1);
+        }
+
+        public void awaitFetchStarted() throws InterruptedException {
+            fetchStarted.await();
+        }
+
+        public void releaseFetching() {
+            fetchReleased.countDown();
+        }
+
+        public synchronized int getFetchCount() {
+            return fetchCount;
+        }
+
+        public synchronized long getFetchedSize() {
+            return fetchedSize;
+        }
+
+        public synchronized long[] getFetchPositions() {
+            long[] positions = new long[fetchPositions.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = fetchPositions.get(i);
+            }
+            return positions;
+        }
+
+        @Override
+        public long getDataSize() {
+            return sourceData.length;
+        }
+
+        @Override
+        public void fetchData(long startFrom, byte[] target, int offset, int length) throws IOException {
+            fetchStarted.countDown();
+            try {
+                fetchReleased.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            if (failing) {
+                throw new IOException("Fetch failed");
+            }
+            synchronized (this) {
+                fetchCount++;
+                fetchedSize += length;
+                fetchPositions.add(startFrom);
+            }
+            System.arraycopy(sourceData, (int) startFrom, target, offset, length);
+        }
+    }
+}
@@ -15,36 +15,119 @@
  */
 package org.exbin.auxiliary.binary_data.delta.swap;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import org.jspecify.annotations.NullMarked;
-import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.jspecify.annotations.Nullable;
 import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
 import org.exbin.auxiliary.binary_data.delta.MemorySegmentCreator;
 import org.exbin.auxiliary.binary_data.delta.SegmentsRepository;
+import org.exbin.auxiliary.binary_data.delta.list.DefaultDoublyLinkedList;
+import org.exbin.auxiliary.binary_data.paged.DataPageCreator;
 
 /**
- * TODO: Repository for data paging with support for swapping.
+ * Repository for data paging with support for swapping.
+ * <p>
+ * Memory segments are stored as paged data. When memory used by pages exceeds
+ * maximum memory usage, least recently used pages are moved to swap file and
+ * loaded back on access. Few most recently used pages are never swapped, so
+ * memory usage can exceed the limit by size of these pages.
+ * <p>
+ * Runs of pages are written to consecutive swap file pages and loaded back
+ * together, arrays of swapped out pages are reused for loading.
+ * <p>
+ * Swapped out pages are written by background writer thread. Pages waiting
+ * for write are loaded back directly from the queue and swapping is blocked
+ * when size of waiting pages reaches write behind limit.
  */
 @NullMarked
 public class SwapDataRepository {
 
+    /**
+     * Memory usage without limit, pages are never swapped.
+     */
+    public static final long UNLIMITED_MEMORY_USAGE = -1;
+    /**
+     * Count of most recently used pages which are never swapped.
+     */
+    public static final int PROTECTED_PAGES_COUNT = 4;
+    /**
+     * Maximum count of pages written to or read from swap file at once.
+     */
+    public static final int SWAP_BATCH_PAGES = 16;
+    /**
+     * Write behind limit for writing swapped pages in caller's thread.
+     */
+    public static final long NO_WRITE_BEHIND = 0;
+    public static final long DEFAULT_WRITE_BEHIND_LIMIT = 256 * 1024;
+
     /**
      * Maximum memory allowed to be used before swapping will be enforced.
      */
-    private long maximumMemoryUsage = 0;
+    private long maximumMemoryUsage = UNLIMITED_MEMORY_USAGE;
+    private long memoryUsage = 0;
 
     private final SwapFilePages swapFilePages = new SwapFilePages();
     private final MemorySegmentCreator memorySegmentCreator;
+    private final DataPageCreator dataPageCreator;
     private final SegmentsRepository segmentsRepository;
+    /**
+     * Pages kept in memory ordered from the least recently used.
+     */
+    private final DefaultDoublyLinkedList<SwappedDataPage> residentPages = new DefaultDoublyLinkedList<>();
+    private final Map<Long, SwappedDataPage> swappedPages = new HashMap<>();
+    @Nullable
+    private SwappedDataPage lastAccessedPage = null;
+    private final @Nullable SwappedDataPage[] batchPages = new SwappedDataPage[SWAP_BATCH_PAGES];
+    /**
+     * Arrays of swapped out pages reused for loading of pages.
+     */
+    private final ArrayDeque<byte[]> recycledPageData = new ArrayDeque<>();
+
+    /**
+     * Maximum size of swapped pages waiting for write.
+     */
+    private long writeBehindLimit = DEFAULT_WRITE_BEHIND_LIMIT;
+    /**
+     * Swapped pages waiting for write mapped by swap page index.
+     */
+    private final TreeMap<Long, PendingWrite> pendingWrites = new TreeMap<>();
+    private long pendingWritesSize = 0;
+    /**
+     * Range of swap pages currently written by background writer.
+     */
+    private long writingPageIndex = SwappedDataPage.NO_SWAP_PAGE;
+    private int writingPagesCount = 0;
+    /**
+     * Swap pages released while they were written.
+     */
+    private final List<Long> deferredReleases = new ArrayList<>();
+    @Nullable
+    private Thread writerThread = null;
+    private boolean closed = false;
 
     public SwapDataRepository() {
         memorySegmentCreator = new SwapDataSegmentCreator();
+        dataPageCreator = new SwapDataPageCreator();
         segmentsRepository = new SegmentsRepository(memorySegmentCreator);
+        swapFilePages.addSwapMovingListener(this::swapPageMoved);
     }
 
     public MemorySegmentCreator getMemorySegmentCreator() {
         return memorySegmentCreator;
     }
 
+    public DataPageCreator getDataPageCreator() {
+        return dataPageCreator;
+    }
+
     public SwapFilePages getSwapFilePages() {
         return swapFilePages;
     }
@@ -53,31 +136,511 @@ public class SwapDataRepository {
         return segmentsRepository;
     }
 
-    public long getMaximumMemoryUsage() {
+    public synchronized long getMaximumMemoryUsage() {
         return maximumMemoryUsage;
     }
 
-    public void setMaximumMemoryUsage(long maximumMemoryUsage) {
+    /**
+     * Sets maximum memory usage and swaps pages over the limit.
+     *
+     * @param maximumMemoryUsage maximum memory usage in bytes or
+     * UNLIMITED_MEMORY_USAGE
+     */
+    public synchronized void setMaximumMemoryUsage(long maximumMemoryUsage) {
+        if (maximumMemoryUsage < 0 && maximumMemoryUsage != UNLIMITED_MEMORY_USAGE) {
+            throw new IllegalArgumentException("Maximum memory usage must be nonnegative");
+        }
         this.maximumMemoryUsage = maximumMemoryUsage;
-        // TODO
+        enforceMemoryLimit();
+    }
+
+    /**
+     * Returns size of pages data kept in memory.
+     *
+     * @return memory usage in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public synchronized int getResidentPagesCount() {
+        return residentPages.size();
+    }
+
+    public synchronized int getSwappedPagesCount() {
+        return swappedPages.size();
+    }
+
+    public synchronized long getWriteBehindLimit() {
+        return writeBehindLimit;
     }
 
+    /**
+     * Sets maximum size of swapped pages waiting for write in background.
+     *
+     * @param writeBehindLimit limit in bytes or NO_WRITE_BEHIND to write pages
+     * in caller's thread
+     */
+    public synchronized void setWriteBehindLimit(long writeBehindLimit) {
+        if (writeBehindLimit < 0) {
+            throw new IllegalArgumentException("Write behind limit must be nonnegative");
+        }
+        this.writeBehindLimit = writeBehindLimit;
+    }
+
+    /**
+     * Returns size of swapped pages waiting for write.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getPendingWritesSize() {
+        return pendingWritesSize;
+    }
+
+    /**
+     * Waits until all swapped pages are written to swap file.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void flush() throws InterruptedException {
+        while (!pendingWrites.isEmpty()) {
+            wait();
+        }
+    }
+
+    /**
+     * Performs step of compaction of swap file.
+     * <p>
+     * Intended to be called repeatedly, for example from background thread
+     * while idle, until it returns false.
+     *
+     * @param maximumMovedPages maximum count of pages to move
+     * @return true if swap file can be compacted further
+     */
+    public synchronized boolean compactSwapFile(int maximumMovedPages) {
+        if (!pendingWrites.isEmpty() || writingPagesCount > 0) {
+            // Pages can be moved only after they are written
+            return true;
+        }
+        return swapFilePages.compact(maximumMovedPages);
+    }
+
+    /**
+     * Closes swap file.
+     */
+    public void close() {
+        Thread writer;
+        synchronized (this) {
+            while (!residentPages.isEmpty()) {
+                removeResidentPage(Objects.requireNonNull(residentPages.first()));
+            }
+            swappedPages.clear();
+            pendingWrites.clear();
+            pendingWritesSize = 0;
+            lastAccessedPage = null;
+            memoryUsage = 0;
+            closed = true;
+            writer = writerThread;
+            writerThread = null;
+            notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        swapFilePages.close();
+    }
+
+    /**
+     * Registers access to page loading its content from swap file if needed.
+     *
+     * @param page data page
+     */
+    synchronized void accessPage(SwappedDataPage page) {
+        if (page == lastAccessedPage) {
+            return;
+        }
+
+        if (page.isSwapped()) {
+            swapIn(page);
+        } else if (page.isResident()) {
+            removeResidentPage(page);
+        }
+        addResidentPage(page);
+        lastAccessedPage = page;
+        enforceMemoryLimit();
+    }
+
+    synchronized void pageResized(SwappedDataPage page, int sizeDifference) {
+        memoryUsage += sizeDifference;
+        enforceMemoryLimit();
+    }
+
+    synchronized void releasePage(SwappedDataPage page) {
+        if (page.isSwapped()) {
+            long swapPageIndex = page.getSwapPageIndex();
+            page.setSwapPageIndex(SwappedDataPage.NO_SWAP_PAGE);
+            swappedPages.remove(swapPageIndex);
+            removePendingWrite(swapPageIndex);
+            releaseSwapPage(swapPageIndex);
+        } else if (page.isResident()) {
+            removeResidentPage(page);
+            memoryUsage -= page.getResidentData().length;
+        }
+        if (page == lastAccessedPage) {
+            lastAccessedPage = null;
+        }
+        page.setResidentData(new byte[0]);
+    }
+
+    private void enforceMemoryLimit() {
+        if (maximumMemoryUsage == UNLIMITED_MEMORY_USAGE) {
+            return;
+        }
+
+        int pageSize = swapFilePages.getPageSize();
+        while (memoryUsage > maximumMemoryUsage && residentPages.size() > PROTECTED_PAGES_COUNT) {
+            boolean writeBehind = awaitWriteBehind();
+            if (memoryUsage <= maximumMemoryUsage || residentPages.size() <= PROTECTED_PAGES_COUNT) {
+                break;
+            }
+
+            // Collect run of least recently used pages to write them at once
+            int batchCount = 0;
+            long batchMemory = 0;
+            SwappedDataPage page = residentPages.first();
+            while (page != null && batchCount < SWAP_BATCH_PAGES
+                    && memoryUsage - batchMemory > maximumMemoryUsage
+                    && residentPages.size() - batchCount > PROTECTED_PAGES_COUNT) {
+                batchPages[batchCount] = page;
+                batchCount++;
+                int pageLength = page.getResidentData().length;
+                batchMemory += pageLength;
+                if (pageLength != pageSize) {
+                    break;
+                }
+                page = residentPages.nextTo(page);
+            }
+            swapOut(batchCount, writeBehind);
+        }
+    }
+
+    /**
+     * Waits while size of pages waiting for write is over the limit.
+     *
+     * @return true if pages should be written in background
+     */
+    private boolean awaitWriteBehind() {
+        if (writeBehindLimit == NO_WRITE_BEHIND || closed) {
+            return false;
+        }
+
+        try {
+            while (pendingWritesSize >= writeBehindLimit) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void addResidentPage(SwappedDataPage page) {
+        residentPages.add(page);
+        page.setResident(true);
+    }
+
+    private void removeResidentPage(SwappedDataPage page) {
+        residentPages.remove(page);
+        page.setResident(false);
+    }
+
+    /**
+     * Writes collected pages to continuous range of swap file pages.
+     *
+     * @param batchCount count of pages in batch
+     * @param writeBehind true to pass pages to background writer
+     */
+    private void swapOut(int batchCount, boolean writeBehind) {
+        long swapPageIndex = swapFilePages.allocatePages(batchCount);
+        if (writeBehind) {
+            for (int i = 0; i < batchCount; i++) {
+                byte[] pageData = batchPages[i].getResidentData();
+                pendingWrites.put(swapPageIndex + i, new PendingWrite(pageData));
+                pendingWritesSize += pageData.length;
+            }
+            startWriter();
+            notifyAll();
+        } else {
+            ByteBuffer[] buffers = new ByteBuffer[batchCount];
+            for (int i = 0; i < batchCount; i++) {
+                buffers[i] = ByteBuffer.wrap(batchPages[i].getResidentData());
+            }
+            swapFilePages.writePages(swapPageIndex, buffers);
+        }
+
+        for (int i = 0; i < batchCount; i++) {
+            SwappedDataPage page = batchPages[i];
+            batchPages[i] = null;
+            byte[] pageData = page.getResidentData();
+            removeResidentPage(page);
+            page.setSwapPageIndex(swapPageIndex + i);
+            page.setResidentData(null);
+            swappedPages.put(swapPageIndex + i, page);
+            memoryUsage -= pageData.length;
+            if (!writeBehind) {
+                recyclePageData(pageData);
+            }
+            if (page == lastAccessedPage) {
+                lastAccessedPage = null;
+            }
+        }
+    }
+
+    /**
+     * Loads page from swap file together with following swapped pages stored
+     * in consecutive swap file pages if they fit into memory limit.
+     *
+     * @param page swapped page
+     */
+    private void swapIn(SwappedDataPage page) {
+        int pageSize = swapFilePages.getPageSize();
+        long swapPageIndex = page.getSwapPageIndex();
+        PendingWrite pendingWrite = removePendingWrite(swapPageIndex);
+        if (pendingWrite != null) {
+            // Page was not written yet, data are taken from the queue
+            swappedPages.remove(swapPageIndex);
+            releaseSwapPage(swapPageIndex);
+            page.setSwapPageIndex(SwappedDataPage.NO_SWAP_PAGE);
+            page.setResidentData(pendingWrite.data);
+            memoryUsage += pendingWrite.data.length;
+            return;
+        }
+
+        int batchCount = 1;
+        batchPages[0] = page;
+        long batchMemory = page.getDataSize();
+        int pageLength = (int) page.getDataSize();
+        while (pageLength == pageSize && batchCount < SWAP_BATCH_PAGES) {
+            SwappedDataPage nextPage = swappedPages.get(swapPageIndex + batchCount);
+            if (nextPage == null || pendingWrites.containsKey(swapPageIndex + batchCount)) {
+                break;
+            }
+            pageLength = (int) nextPage.getDataSize();
+            if (maximumMemoryUsage != UNLIMITED_MEMORY_USAGE && memoryUsage + batchMemory + pageLength > maximumMemoryUsage) {
+                break;
+            }
+            batchPages[batchCount] = nextPage;
+            batchCount++;
+            batchMemory += pageLength;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[batchCount];
+        for (int i = 0; i < batchCount; i++) {
+            SwappedDataPage batchPage = batchPages[i];
+            byte[] pageData = obtainPageData((int) batchPage.getDataSize());
+            batchPage.setResidentData(pageData);
+            buffers[i] = ByteBuffer.wrap(pageData);
+        }
+        swapFilePages.readPages(swapPageIndex, buffers);
+        swapFilePages.releasePages(swapPageIndex, batchCount);
+
+        for (int i = 0; i < batchCount; i++) {
+            SwappedDataPage batchPage = batchPages[i];
+            batchPages[i] = null;
+            swappedPages.remove(swapPageIndex + i);
+            batchPage.setSwapPageIndex(SwappedDataPage.NO_SWAP_PAGE);
+            memoryUsage += batchPage.getResidentData().length;
+            if (i > 0) {
+                // Preloaded pages are considered less recently used than accessed page
+                addResidentPage(batchPage);
+            }
+        }
+    }
+
+    @Nullable
+    private PendingWrite removePendingWrite(long swapPageIndex) {
+        PendingWrite pendingWrite = pendingWrites.remove(swapPageIndex);
+        if (pendingWrite != null) {
+            pendingWritesSize -= pendingWrite.data.length;
+            notifyAll();
+        }
+        return pendingWrite;
+    }
+
+    /**
+     * Releases swap page, release of page which is being written is deferred
+     * until write is finished so that page cannot be reused meanwhile.
+     *
+     * @param swapPageIndex swap page index
+     */
+    private void releaseSwapPage(long swapPageIndex) {
+        if (swapPageIndex >= writingPageIndex && swapPageIndex < writingPageIndex + writingPagesCount) {
+            deferredReleases.add(swapPageIndex);
+        } else {
+            swapFilePages.releasePage(swapPageIndex);
+        }
+    }
+
+    private void startWriter() {
+        if (writerThread == null) {
+            writerThread = new Thread(this::writePendingPages, "SwapDataRepository writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Writes pages waiting in the queue, runs of pages with consecutive swap
+     * pages are written at once.
+     */
+    private void writePendingPages() {
+        try {
+            writePendingPagesLoop();
+        } finally {
+            synchronized (this) {
+                if (writerThread == Thread.currentThread()) {
+                    writerThread = null;
+                }
+            }
+        }
+    }
+
+    private void writePendingPagesLoop() {
+        int pageSize = swapFilePages.getPageSize();
+        long[] writeIndexes = new long[SWAP_BATCH_PAGES];
+        PendingWrite[] writes = new PendingWrite[SWAP_BATCH_PAGES];
+        while (true) {
+            int writesCount = 0;
+            synchronized (this) {
+                try {
+                    while (pendingWrites.isEmpty() && !closed) {
+                        wait();
+                    }
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+
+                for (Map.Entry<Long, PendingWrite> entry : pendingWrites.entrySet()) {
+                    if (writesCount > 0 && (entry.getKey() != writeIndexes[writesCount - 1] + 1 || writes[writesCount - 1].data.length != pageSize)) {
+                        break;
+                    }
+                    writeIndexes[writesCount] = entry.getKey();
+                    writes[writesCount] = entry.getValue();
+                    writesCount++;
+                    if (writesCount == SWAP_BATCH_PAGES) {
+                        break;
+                    }
+                }
+                writingPageIndex = writeIndexes[0];
+                writingPagesCount = writesCount;
+            }
+
+            // Content of pages doesn't change while waiting in the queue
+            ByteBuffer[] buffers = new ByteBuffer[writesCount];
+            for (int i = 0; i < writesCount; i++) {
+                buffers[i] = ByteBuffer.wrap(writes[i].data);
+            }
+            swapFilePages.writePages(writeIndexes[0], buffers);
+
+            synchronized (this) {
+                for (int i = 0; i < writesCount; i++) {
+                    PendingWrite write = writes[i];
+                    writes[i] = null;
+                    // Page might be loaded back or released while writing
+                    if (pendingWrites.remove(writeIndexes[i], write)) {
+                        pendingWritesSize -= write.data.length;
+                        recyclePageData(write.data);
+                    }
+                }
+                writingPageIndex = SwappedDataPage.NO_SWAP_PAGE;
+                writingPagesCount = 0;
+                if (!closed) {
+                    for (Long swapPageIndex : deferredReleases) {
+                        swapFilePages.releasePage(swapPageIndex);
+                    }
+                }
+                deferredReleases.clear();
+                notifyAll();
+            }
+        }
+    }
+
+    private byte[] obtainPageData(int length) {
+        if (length == swapFilePages.getPageSize() && !recycledPageData.isEmpty()) {
+            return recycledPageData.pop();
+        }
+        return new byte[length];
+    }
+
+    private void recyclePageData(byte[] pageData) {
+        if (pageData.length == swapFilePages.getPageSize() && recycledPageData.size() < SWAP_BATCH_PAGES) {
+            recycledPageData.push(pageData);
+        }
+    }
+
+    private void swapPageMoved(long sourcePage, long targetPage) {
+        SwappedDataPage page = swappedPages.remove(sourcePage);
+        if (page != null) {
+            page.setSwapPageIndex(targetPage);
+            swappedPages.put(targetPage, page);
+        }
+    }
+
+    /**
+     * Swapped page data waiting for write.
+     */
+    @NullMarked
+    private static final class PendingWrite {
+
+        private final byte[] data;
+
+        public PendingWrite(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * Creator of memory segments as paged data with swappable pages.
+     */
     @NullMarked
     private class SwapDataSegmentCreator implements MemorySegmentCreator {
 
         @Override
         public EditableBinaryData createSegment() {
-            return new ByteArrayEditableData();
-            /*
-            if ((maximumMemoryUsage == -1) || (maximumMemoryUsage > sourceData.length)) {
-                EditableBinaryData dataPage = new ByteArrayEditableData(sourceData);
-                maximumMemoryUsage -= sourceData.length;
-                return dataPage;
+            ByteArrayPagedData pagedData = new ByteArrayPagedData(swapFilePages.getPageSize());
+            pagedData.setDataPageCreator(dataPageCreator);
+            return pagedData;
+        }
+    }
+
+    /**
+     * Creator of swappable data pages.
+     */
+    @NullMarked
+    private class SwapDataPageCreator implements DataPageCreator {
+
+        @Override
+        public EditableBinaryData createPage(int dataSize) {
+            SwappedDataPage page = new SwappedDataPage(SwapDataRepository.this, new byte[dataSize]);
+            synchronized (SwapDataRepository.this) {
+                memoryUsage += dataSize;
+                addResidentPage(page);
+                enforceMemoryLimit();
             }
+            return page;
+        }
 
-            long allocatedPage = swapFilePages.allocatePage();
-            swapFilePages.setPage(allocatedPage, sourceData);
-            return new SwappedDataPage(SwapDataRepository.this, allocatedPage, sourceData.length); */
+        @Override
+        public void releasePage(EditableBinaryData dataPage) {
+            dataPage.dispose();
         }
     }
 }
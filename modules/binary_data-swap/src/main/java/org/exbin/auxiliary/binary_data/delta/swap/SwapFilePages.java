@@ -16,12 +16,15 @@
 package org.exbin.auxiliary.binary_data.delta.swap;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jspecify.annotations.Nullable;
@@ -32,23 +35,44 @@ import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
 
 /**
  * Repository for swap file.
+ * <p>
+ * Free pages are tracked as ranges of pages, released pages are reused by
+ * later allocations and the file is compacted only on explicit request.
+ * <p>
+ * Pages are accessed using positional file channel operations with
+ * scattering and gathering variants for runs of consecutive pages. Access to
+ * file content is synchronized, so pages can be written from background
+ * thread while free pages are managed by other thread.
  */
 @NullMarked
 public class SwapFilePages {
 
     private static final String DEFAULT_SWAPFILE_PREFIX = "swap";
     private static final String DEFAULT_SWAPFILE_SUFFIX = "";
-    private static final int MAX_UNUSED_PAGES = 20;
 
     private int pageSize = ByteArrayPagedData.DEFAULT_PAGE_SIZE;
 
     private File swapFile = null;
     private RandomAccessFile accessFile;
+    private FileChannel channel;
+    /**
+     * Length of the swap file tracked to avoid querying file system.
+     */
+    private long fileLength = 0;
     private long usedPages = 0;
+    private byte @Nullable [] transferData = null;
 
     private final List<SwapMovingListener> swapMovingListeners = new ArrayList<>();
-    private final int[] unusedPages = new int[MAX_UNUSED_PAGES];
-    private int unusedPagesCount = 0;
+    /**
+     * Ranges of free pages inside of the file mapped from the first page to
+     * count of pages.
+     */
+    private final TreeMap<Long, Long> freeExtents = new TreeMap<>();
+    /**
+     * Starts of ranges of free pages grouped by count of pages.
+     */
+    private final TreeMap<Long, TreeSet<Long>> freeExtentsBySize = new TreeMap<>();
+    private long freePages = 0;
 
     public SwapFilePages() {
         initSwapFile(DEFAULT_SWAPFILE_PREFIX, DEFAULT_SWAPFILE_SUFFIX, null);
@@ -63,6 +87,7 @@ public class SwapFilePages {
         try {
             swapFile = File.createTempFile(prefix, suffix, directory);
             accessFile = new RandomAccessFile(swapFile, FileDataSource.EditMode.READ_WRITE.getFileAccessMode());
+            channel = accessFile.getChannel();
         } catch (IOException ex) {
             Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
             throw new RuntimeException(ex);
@@ -73,7 +98,7 @@ public class SwapFilePages {
         return pageSize;
     }
 
-    public void close() {
+    public synchronized void close() {
         try {
             accessFile.close();
         } catch (IOException ex) {
@@ -83,35 +108,146 @@ public class SwapFilePages {
     }
 
     public long allocatePage() {
-        long page;
-        if (unusedPagesCount > 0) {
-            unusedPagesCount--;
-            page = unusedPages[unusedPagesCount];
-        } else {
-            page = usedPages;
-            usedPages++;
+        return allocatePages(1);
+    }
+
+    /**
+     * Allocates continuous range of pages.
+     * <p>
+     * Smallest sufficient range of free pages is reused, otherwise pages are
+     * appended to the end of the file.
+     *
+     * @param count count of pages
+     * @return index of the first allocated page
+     */
+    public long allocatePages(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count of allocated pages must be positive");
         }
-        return page;
+
+        Map.Entry<Long, TreeSet<Long>> sizeEntry = freeExtentsBySize.ceilingEntry((long) count);
+        if (sizeEntry == null) {
+            long page = usedPages;
+            usedPages += count;
+            return page;
+        }
+
+        long extentLength = sizeEntry.getKey();
+        long extentStart = sizeEntry.getValue().first();
+        removeFreeExtent(extentStart, extentLength);
+        if (extentLength > count) {
+            addFreeExtent(extentStart + count, extentLength - count);
+        }
+        return extentStart;
     }
 
-    public void releasePage(int pageIndex) {
-        if (unusedPagesCount == MAX_UNUSED_PAGES) {
-            sweepUnused();
+    public void releasePage(long pageIndex) {
+        releasePages(pageIndex, 1);
+    }
+
+    /**
+     * Releases continuous range of pages.
+     * <p>
+     * Released pages are merged with neighboring free pages, free pages at the
+     * end of the file are truncated.
+     *
+     * @param pageIndex index of the first page
+     * @param count count of pages
+     */
+    public void releasePages(long pageIndex, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count of released pages must be positive");
+        }
+        if (pageIndex < 0 || pageIndex + count > usedPages) {
+            throw new OutOfBoundsException("Released pages are out of bounds");
         }
 
-        unusedPages[unusedPagesCount] = pageIndex;
-        unusedPagesCount++;
+        long extentStart = pageIndex;
+        long extentLength = count;
+        Map.Entry<Long, Long> previousExtent = freeExtents.floorEntry(pageIndex);
+        if (previousExtent != null) {
+            long previousEnd = previousExtent.getKey() + previousExtent.getValue();
+            if (previousEnd > pageIndex) {
+                throw new IllegalStateException("Page " + pageIndex + " is already released");
+            }
+            if (previousEnd == pageIndex) {
+                removeFreeExtent(previousExtent.getKey(), previousExtent.getValue());
+                extentStart = previousExtent.getKey();
+                extentLength += previousExtent.getValue();
+            }
+        }
+        Map.Entry<Long, Long> nextExtent = freeExtents.ceilingEntry(pageIndex);
+        if (nextExtent != null) {
+            if (nextExtent.getKey() < pageIndex + count) {
+                throw new IllegalStateException("Page " + nextExtent.getKey() + " is already released");
+            }
+            if (nextExtent.getKey() == pageIndex + count) {
+                removeFreeExtent(nextExtent.getKey(), nextExtent.getValue());
+                extentLength += nextExtent.getValue();
+            }
+        }
+
+        if (extentStart + extentLength == usedPages) {
+            usedPages = extentStart;
+            shrinkFile();
+        } else {
+            addFreeExtent(extentStart, extentLength);
+        }
+    }
+
+    /**
+     * Returns count of released pages inside of the swap file.
+     *
+     * @return count of free pages
+     */
+    public long getFreePages() {
+        return freePages;
     }
 
-    private void sweepUnused() {
-        for (int i = unusedPagesCount - 1; i >= 0; i--) {
-            long sourcePage = usedPages;
-            long targetPage = unusedPages[i];
+    /**
+     * Performs step of compaction of swap file.
+     * <p>
+     * Moves up to given count of pages from the end of the file to free pages
+     * with lower index and truncates the file. Listeners are notified about
+     * each moved page.
+     *
+     * @param maximumMovedPages maximum count of pages to move
+     * @return true if there are still free pages left for compaction
+     */
+    public boolean compact(int maximumMovedPages) {
+        int movedPages = 0;
+        while (movedPages < maximumMovedPages && !freeExtents.isEmpty()) {
+            // Free pages at the end of the file are truncated, so last page is used
+            long sourcePage = usedPages - 1;
+            long targetPage = freeExtents.firstKey();
+            long extentLength = freeExtents.get(targetPage);
+            removeFreeExtent(targetPage, extentLength);
+            if (extentLength > 1) {
+                addFreeExtent(targetPage + 1, extentLength - 1);
+            }
+
             copyPage(sourcePage, targetPage);
             notifyPageMoving(sourcePage, targetPage);
-            usedPages--;
+            releasePage(sourcePage);
+            movedPages++;
+        }
+        return !freeExtents.isEmpty();
+    }
+
+    private void addFreeExtent(long extentStart, long extentLength) {
+        freeExtents.put(extentStart, extentLength);
+        freeExtentsBySize.computeIfAbsent(extentLength, (length) -> new TreeSet<>()).add(extentStart);
+        freePages += extentLength;
+    }
+
+    private void removeFreeExtent(long extentStart, long extentLength) {
+        freeExtents.remove(extentStart);
+        TreeSet<Long> extents = freeExtentsBySize.get(extentLength);
+        extents.remove(extentStart);
+        if (extents.isEmpty()) {
+            freeExtentsBySize.remove(extentLength);
         }
-        shrinkFile();
+        freePages -= extentLength;
     }
 
     private void notifyPageMoving(long sourcePage, long targetPage) {
@@ -120,23 +256,25 @@ public class SwapFilePages {
         });
     }
 
-    private void copyPage(long sourcePage, long targetPage) {
-        try {
-            byte[] page = new byte[pageSize];
-            accessFile.seek(sourcePage * pageSize);
-            accessFile.readFully(page, 0, pageSize);
-            accessFile.seek(targetPage * pageSize);
-            accessFile.write(page, 0, pageSize);
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IOException ex) {
-            Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
+    private synchronized void copyPage(long sourcePage, long targetPage) {
+        // Last page in file might be shorter
+        long sourcePosition = sourcePage * pageSize;
+        int length = (int) Math.max(0, Math.min(pageSize, fileLength - sourcePosition));
+        if (transferData == null) {
+            transferData = new byte[pageSize];
         }
+        readPage(sourcePage, ByteBuffer.wrap(transferData, 0, length));
+        writePage(targetPage, ByteBuffer.wrap(transferData, 0, length));
     }
 
-    private void shrinkFile() {
+    private synchronized void shrinkFile() {
+        long length = usedPages * pageSize;
+        if (length >= fileLength) {
+            return;
+        }
         try {
-            accessFile.setLength(usedPages * pageSize);
+            channel.truncate(length);
+            fileLength = length;
         } catch (IOException ex) {
             Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -166,22 +304,55 @@ public class SwapFilePages {
         if (targetData.length == 0) {
             throw new IllegalArgumentException("Reading empty data is not allowed");
         }
-        if (targetData.length + offset > pageSize) {
+        if (targetData.length - offset > pageSize) {
+            throw new OutOfBoundsException("Cannot read data page over it's size");
+        }
+        readPage(pageIndex, ByteBuffer.wrap(targetData, offset, targetData.length - offset));
+    }
+
+    /**
+     * Reads page content to remaining space of given buffer.
+     * <p>
+     * Area of the page after the end of the file is filled with zeros.
+     *
+     * @param pageIndex page index
+     * @param target target buffer
+     */
+    public synchronized void readPage(long pageIndex, ByteBuffer target) {
+        if (target.remaining() > pageSize) {
             throw new OutOfBoundsException("Cannot read data page over it's size");
         }
+        readFully(pageIndex * pageSize, target);
+        fillZeros(target);
+    }
+
+    /**
+     * Reads content of consecutive pages using single scattering read.
+     * <p>
+     * Each buffer is filled with content of one page, all buffers except the
+     * last one must have remaining space of the page size.
+     *
+     * @param pageIndex index of the first page
+     * @param targets target buffers
+     */
+    public synchronized void readPages(long pageIndex, ByteBuffer[] targets) {
+        checkPagesBuffers(targets);
+        long position = pageIndex * pageSize;
         try {
-            long pagePosition = pageIndex * pageSize;
-            if (accessFile.length() <= pagePosition) {
-                Arrays.fill(targetData, offset, targetData.length - offset, (byte) 0);
-            } else {
-                accessFile.seek(pagePosition);
-                accessFile.readFully(targetData, offset, targetData.length - offset);
+            channel.position(position);
+            while (position < fileLength && targets[targets.length - 1].hasRemaining()) {
+                long read = channel.read(targets);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
             }
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
         } catch (IOException ex) {
             Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
         }
+        for (ByteBuffer target : targets) {
+            fillZeros(target);
+        }
     }
 
     public void setPage(long pageIndex, byte[] pageData) {
@@ -192,21 +363,87 @@ public class SwapFilePages {
         if (pageData.length == 0) {
             throw new IllegalArgumentException("Cannot set empty data as page");
         }
+        writePage(pageIndex, ByteBuffer.wrap(pageData, offset, pageData.length - offset));
+    }
+
+    /**
+     * Writes remaining content of given buffer to page.
+     *
+     * @param pageIndex page index
+     * @param source source buffer
+     */
+    public synchronized void writePage(long pageIndex, ByteBuffer source) {
+        if (source.remaining() > pageSize) {
+            throw new OutOfBoundsException("Cannot write data page over it's size");
+        }
+        long position = pageIndex * pageSize;
         try {
-            long pagePosition = pageIndex * pageSize;
-            if (pagePosition > accessFile.length()) {
-                accessFile.setLength(pagePosition);
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
             }
+            fileLength = Math.max(fileLength, position);
+        } catch (IOException ex) {
+            Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
 
-            accessFile.seek(pagePosition);
-            accessFile.write(pageData, offset, pageData.length);
-        } catch (FileNotFoundException ex) {
+    /**
+     * Writes content of consecutive pages using single gathering write.
+     * <p>
+     * Each buffer provides content of one page, all buffers except the last
+     * one must have remaining content of the page size.
+     *
+     * @param pageIndex index of the first page
+     * @param sources source buffers
+     */
+    public synchronized void writePages(long pageIndex, ByteBuffer[] sources) {
+        checkPagesBuffers(sources);
+        long position = pageIndex * pageSize;
+        try {
+            channel.position(position);
+            while (sources[sources.length - 1].hasRemaining()) {
+                position += channel.write(sources);
+            }
+            fileLength = Math.max(fileLength, position);
+        } catch (IOException ex) {
             Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void checkPagesBuffers(ByteBuffer[] buffers) {
+        if (buffers.length == 0) {
+            throw new IllegalArgumentException("At least one page buffer is required");
+        }
+        for (int i = 0; i < buffers.length - 1; i++) {
+            if (buffers[i].remaining() != pageSize) {
+                throw new IllegalArgumentException("Only last page buffer can differ from page size");
+            }
+        }
+        if (buffers[buffers.length - 1].remaining() > pageSize) {
+            throw new OutOfBoundsException("Cannot access data page over it's size");
+        }
+    }
+
+    private void readFully(long position, ByteBuffer target) {
+        try {
+            while (target.hasRemaining() && position < fileLength) {
+                int read = channel.read(target, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
         } catch (IOException ex) {
             Logger.getLogger(SwapFilePages.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
+    private static void fillZeros(ByteBuffer target) {
+        while (target.hasRemaining()) {
+            target.put((byte) 0);
+        }
+    }
+
     public void addSwapMovingListener(SwapMovingListener listener) {
         swapMovingListeners.add(listener);
     }
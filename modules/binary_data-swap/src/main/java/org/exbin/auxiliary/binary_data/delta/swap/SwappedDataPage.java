@@ -19,187 +19,297 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.exbin.auxiliary.binary_data.BinaryData;
-import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.exbin.auxiliary.binary_data.delta.list.DoublyLinkedItem;
 
 /**
- * Data page swapped to swap file.
+ * Data page which can be swapped to swap file.
+ * <p>
+ * Content of the page is either kept in memory or stored in swap file page.
+ * Swapped content is loaded back on any access. Memory usage and selection
+ * of pages to swap are handled by repository.
  */
 @NullMarked
-public class SwappedDataPage implements EditableBinaryData {
+public class SwappedDataPage extends ByteArrayEditableData implements DoublyLinkedItem<SwappedDataPage> {
+
+    public static final long NO_SWAP_PAGE = -1;
+    private static final byte[] SWAPPED_DATA = new byte[0];
 
     private final SwapDataRepository repository;
-    private long pageIndex;
-    private int length = 0;
+    private long swapPageIndex = NO_SWAP_PAGE;
+    private int length;
+    private boolean resident = false;
+
+    @Nullable
+    private SwappedDataPage prev;
+    @Nullable
+    private SwappedDataPage next;
 
-    public SwappedDataPage(SwapDataRepository repository, long pageIndex, int length) {
+    public SwappedDataPage(SwapDataRepository repository, byte[] data) {
+        super(data);
         this.repository = repository;
-        this.pageIndex = pageIndex;
-        this.length = length;
-        repository.getSwapFilePages().addSwapMovingListener((long sourcePage, long targetPage) -> {
-            if (sourcePage == pageIndex) {
-                updatePageIndex(targetPage);
-            }
-        });
+        length = data.length;
     }
 
-    private void updatePageIndex(long pageIndex) {
-        this.pageIndex = pageIndex;
-    }
-/*
+    /**
+     * Returns internal data loading them from swap file if needed.
+     *
+     * @return byte array
+     */
     @Override
     public byte[] getData() {
-        return repository.getSwapFilePages().getPagePart(pageIndex, length);
+        repository.accessPage(this);
+        return data;
     }
 
-    @Override
-    public void setData(byte[] page) {
-        length = page.length;
-        repository.getSwapFilePages().setPage(pageIndex, page);
+    /**
+     * Returns whether page content is stored in swap file.
+     *
+     * @return true if swapped
+     */
+    public boolean isSwapped() {
+        return swapPageIndex != NO_SWAP_PAGE;
     }
 
-    @Override
-    public int getDataLength() {
-        return length;
-    } */
+    long getSwapPageIndex() {
+        return swapPageIndex;
+    }
+
+    void setSwapPageIndex(long swapPageIndex) {
+        this.swapPageIndex = swapPageIndex;
+    }
+
+    /**
+     * Returns whether page is in list of pages kept in memory.
+     *
+     * @return true if resident
+     */
+    boolean isResident() {
+        return resident;
+    }
+
+    void setResident(boolean resident) {
+        this.resident = resident;
+    }
+
+    /**
+     * Returns page content without loading it from swap.
+     *
+     * @return byte array
+     */
+    byte[] getResidentData() {
+        return data;
+    }
+
+    /**
+     * Replaces page content without notifying repository.
+     *
+     * @param residentData byte array or null if swapped out
+     */
+    void setResidentData(byte @Nullable [] residentData) {
+        data = residentData == null ? SWAPPED_DATA : residentData;
+    }
 
     @Override
     public boolean isEmpty() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return length == 0;
     }
 
     @Override
     public long getDataSize() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return length;
     }
 
     @Override
     public byte getByte(long position) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        return super.getByte(position);
     }
 
     @Override
-    public BinaryData copy() {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void copyToArray(long startFrom, byte[] target, int offset, int length) {
+        getData();
+        super.copyToArray(startFrom, target, offset, length);
     }
 
     @Override
-    public BinaryData copy(long startFrom, long length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public ByteArrayEditableData copy() {
+        getData();
+        return super.copy();
     }
 
     @Override
-    public void copyToArray(long startFrom, byte[] target, int offset, int length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public ByteArrayEditableData copy(long startFrom, long length) {
+        getData();
+        return super.copy(startFrom, length);
     }
 
     @Override
     public void saveToStream(OutputStream outputStream) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.saveToStream(outputStream);
     }
 
     @Override
-    public InputStream getDataInputStream() {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public boolean compareTo(BinaryData other) {
+        getData();
+        return super.compareTo(other);
     }
 
     @Override
-    public void dispose() {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public int hashCode() {
+        getData();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        getData();
+        if (obj instanceof SwappedDataPage) {
+            ((SwappedDataPage) obj).getData();
+        }
+        return super.equals(obj);
     }
 
     @Override
     public void setDataSize(long size) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.setDataSize(size);
+        updateLength();
     }
 
     @Override
     public void setByte(long position, byte value) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.setByte(position, value);
     }
 
     @Override
     public void insertUninitialized(long startFrom, long length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.insertUninitialized(startFrom, length);
+        updateLength();
     }
 
     @Override
     public void insert(long startFrom, long length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.insert(startFrom, length);
+        updateLength();
     }
 
     @Override
     public void insert(long startFrom, byte[] insertedData) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.insert(startFrom, insertedData);
+        updateLength();
     }
 
     @Override
-    public void insert(long startFrom, byte[] insertedData, int insertedDataOffset, int insertedDataLength) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void insert(long startFrom, byte[] insertedData, int insertedDataOffset, int length) {
+        getData();
+        super.insert(startFrom, insertedData, insertedDataOffset, length);
+        updateLength();
     }
 
     @Override
     public void insert(long startFrom, BinaryData insertedData) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.insert(startFrom, insertedData);
+        updateLength();
     }
 
     @Override
     public void insert(long startFrom, BinaryData insertedData, long insertedDataOffset, long insertedDataLength) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        super.insert(startFrom, insertedData, insertedDataOffset, insertedDataLength);
+        updateLength();
     }
 
     @Override
     public long insert(long startFrom, InputStream inputStream, long maximumDataSize) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        getData();
+        long result = super.insert(startFrom, inputStream, maximumDataSize);
+        updateLength();
+        return result;
     }
 
     @Override
-    public void replace(long targetPosition, BinaryData replacingData) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void fillData(long startFrom, long length, byte fill) {
+        getData();
+        super.fillData(startFrom, length, fill);
     }
 
     @Override
-    public void replace(long targetPosition, BinaryData replacingData, long startFrom, long length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void replace(long targetPosition, BinaryData replacingData, long startFrom, long replacingLength) {
+        getData();
+        super.replace(targetPosition, replacingData, startFrom, replacingLength);
     }
 
     @Override
-    public void replace(long targetPosition, byte[] replacingData) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void replace(long targetPosition, byte[] replacingData, int replacingDataOffset, int length) {
+        getData();
+        super.replace(targetPosition, replacingData, replacingDataOffset, length);
     }
 
     @Override
-    public void replace(long targetPosition, byte[] replacingData, int replacingDataOffset, int length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void remove(long startFrom, long length) {
+        getData();
+        super.remove(startFrom, length);
+        updateLength();
     }
 
     @Override
-    public void fillData(long startFrom, long length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void clear() {
+        getData();
+        super.clear();
+        updateLength();
     }
 
     @Override
-    public void fillData(long startFrom, long length, byte fill) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void loadFromStream(InputStream inputStream) throws IOException {
+        getData();
+        super.loadFromStream(inputStream);
+        updateLength();
     }
 
+    /**
+     * Releases page from memory and from swap file.
+     */
     @Override
-    public void remove(long startFrom, long length) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void dispose() {
+        repository.releasePage(this);
     }
 
+    @Nullable
     @Override
-    public void clear() {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public SwappedDataPage getNext() {
+        return next;
     }
 
     @Override
-    public void loadFromStream(InputStream inputStream) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void setNext(@Nullable SwappedDataPage next) {
+        this.next = next;
     }
 
+    @Nullable
     @Override
-    public OutputStream getDataOutputStream() {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public SwappedDataPage getPrev() {
+        return prev;
+    }
+
+    @Override
+    public void setPrev(@Nullable SwappedDataPage previous) {
+        this.prev = previous;
+    }
+
+    private void updateLength() {
+        int originalLength = length;
+        length = data.length;
+        if (length != originalLength) {
+            repository.pageResized(this, length - originalLength);
+        }
     }
 }
@@ -15,9 +15,11 @@
  */
 package org.exbin.auxiliary.binary_data.delta.swap;
 
+import java.util.Arrays;
+import java.util.Random;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
 import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
 import org.junit.Assert;
-import org.junit.Ignore;
 import org.junit.Test;
 
 /**
@@ -32,14 +34,119 @@ public class SwapDataRepositoryTest {
     public SwapDataRepositoryTest() {
     }
 
-    @Ignore
     @Test
     public void testSwapping() {
         SwapDataRepository swapDataRepository = new SwapDataRepository();
         swapDataRepository.setMaximumMemoryUsage(0);
         DeltaDocument testDocument = swapDataRepository.getSegmentsRepository().createDocument();
-        testDocument.insert(0, 8096);
+        byte[] insertedData = new byte[8096 * 4];
+        Arrays.fill(insertedData, (byte) 1);
+        testDocument.insert(0, insertedData);
         long usedPages = swapDataRepository.getSwapFilePages().getUsedPages();
-        Assert.assertNotSame(0L, usedPages);
+        Assert.assertTrue(usedPages > 0);
+        Assert.assertEquals(1, testDocument.getByte(0));
+        Assert.assertEquals(1, testDocument.getByte(8096 * 4 - 1));
+        swapDataRepository.close();
+    }
+
+    @Test
+    public void testMemoryLimit() throws InterruptedException {
+        SwapDataRepository swapDataRepository = new SwapDataRepository();
+        int pageSize = swapDataRepository.getSwapFilePages().getPageSize();
+        long memoryLimit = 8 * pageSize;
+        swapDataRepository.setMaximumMemoryUsage(memoryLimit);
+        DeltaDocument testDocument = swapDataRepository.getSegmentsRepository().createDocument();
+        ByteArrayEditableData expectedData = new ByteArrayEditableData();
+
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            byte[] insertedData = new byte[random.nextInt(pageSize * 2)];
+            random.nextBytes(insertedData);
+            long position = expectedData.isEmpty() ? 0 : random.nextInt((int) expectedData.getDataSize());
+            testDocument.insert(position, insertedData);
+            expectedData.insert(position, insertedData);
+            if (i % 4 == 3) {
+                long removedLength = Math.min(pageSize, expectedData.getDataSize() - position);
+                testDocument.remove(position, removedLength);
+                expectedData.remove(position, removedLength);
+            }
+            Assert.assertTrue(swapDataRepository.getMemoryUsage() <= memoryLimit + SwapDataRepository.PROTECTED_PAGES_COUNT * pageSize);
+        }
+
+        Assert.assertTrue(swapDataRepository.getSwappedPagesCount() > 0);
+        swapDataRepository.flush();
+        while (swapDataRepository.compactSwapFile(16)) {
+            // Compact whole swap file
+        }
+        SwapFilePages swapFilePages = swapDataRepository.getSwapFilePages();
+        Assert.assertEquals(0, swapFilePages.getFreePages());
+        Assert.assertEquals(swapDataRepository.getSwappedPagesCount(), swapFilePages.getUsedPages());
+        Assert.assertEquals(expectedData.getDataSize(), testDocument.getDataSize());
+        for (long position = 0; position < expectedData.getDataSize(); position++) {
+            Assert.assertEquals(expectedData.getByte(position), testDocument.getByte(position));
+        }
+
+        swapDataRepository.setMaximumMemoryUsage(SwapDataRepository.UNLIMITED_MEMORY_USAGE);
+        testDocument.clear();
+        swapDataRepository.close();
+    }
+
+    @Test
+    public void testBatchedSwapIn() throws InterruptedException {
+        SwapDataRepository swapDataRepository = new SwapDataRepository();
+        int pageSize = swapDataRepository.getSwapFilePages().getPageSize();
+        DeltaDocument testDocument = swapDataRepository.getSegmentsRepository().createDocument();
+        byte[] insertedData = new byte[pageSize * 32];
+        new Random(5).nextBytes(insertedData);
+        testDocument.insert(0, insertedData);
+
+        swapDataRepository.setMaximumMemoryUsage(0);
+        Assert.assertEquals(SwapDataRepository.PROTECTED_PAGES_COUNT, swapDataRepository.getResidentPagesCount());
+        swapDataRepository.flush();
+        swapDataRepository.setMaximumMemoryUsage(pageSize * 20L);
+
+        // Access to first page loads following pages too
+        Assert.assertEquals(insertedData[0], testDocument.getByte(0));
+        Assert.assertTrue(swapDataRepository.getResidentPagesCount() > SwapDataRepository.PROTECTED_PAGES_COUNT + 1);
+        for (int position = 0; position < insertedData.length; position++) {
+            Assert.assertEquals(insertedData[position], testDocument.getByte(position));
+        }
+
+        testDocument.clear();
+        swapDataRepository.close();
+    }
+
+    @Test
+    public void testWriteBehind() throws InterruptedException {
+        SwapDataRepository swapDataRepository = new SwapDataRepository();
+        int pageSize = swapDataRepository.getSwapFilePages().getPageSize();
+        swapDataRepository.setWriteBehindLimit(pageSize * 4L);
+        DeltaDocument testDocument = swapDataRepository.getSegmentsRepository().createDocument();
+        byte[] insertedData = new byte[pageSize * 64];
+        new Random(9).nextBytes(insertedData);
+        testDocument.insert(0, insertedData);
+
+        swapDataRepository.setMaximumMemoryUsage(pageSize * 8L);
+        Assert.assertTrue(swapDataRepository.getPendingWritesSize() <= pageSize * 4L + SwapDataRepository.SWAP_BATCH_PAGES * pageSize);
+        for (int i = 0; i < 3; i++) {
+            for (int position = 0; position < insertedData.length; position += 97) {
+                Assert.assertEquals(insertedData[position], testDocument.getByte(position));
+            }
+        }
+
+        swapDataRepository.flush();
+        Assert.assertEquals(0, swapDataRepository.getPendingWritesSize());
+        for (int position = insertedData.length - 1; position >= 0; position--) {
+            Assert.assertEquals(insertedData[position], testDocument.getByte(position));
+        }
+
+        swapDataRepository.setWriteBehindLimit(SwapDataRepository.NO_WRITE_BEHIND);
+        swapDataRepository.flush();
+        testDocument.remove(0, pageSize * 10L);
+        Assert.assertEquals(0, swapDataRepository.getPendingWritesSize());
+        Assert.assertEquals(insertedData[pageSize * 10], testDocument.getByte(0));
+
+        testDocument.clear();
+        swapDataRepository.close();
     }
 }
@@ -17,7 +17,11 @@ package org.exbin.auxiliary.binary_data.delta.swap;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.junit.Assert;
@@ -60,4 +64,118 @@ public class SwapFilePagesTest {
         Assert.assertArrayEquals(page1Data, page1Modified);
         swapFilePages.close();
     }
+
+    @Test
+    public void testReleasedPagesReuse() {
+        SwapFilePages swapFilePages = new SwapFilePages();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i, swapFilePages.allocatePage());
+        }
+
+        swapFilePages.releasePage(2);
+        swapFilePages.releasePage(4);
+        swapFilePages.releasePage(3);
+        swapFilePages.releasePage(7);
+        Assert.assertEquals(4, swapFilePages.getFreePages());
+
+        // Smallest sufficient range is used
+        Assert.assertEquals(7, swapFilePages.allocatePage());
+        Assert.assertEquals(2, swapFilePages.allocatePages(3));
+        Assert.assertEquals(10, swapFilePages.allocatePages(2));
+        Assert.assertEquals(0, swapFilePages.getFreePages());
+        Assert.assertEquals(12, swapFilePages.getUsedPages());
+
+        // Free pages at the end are truncated
+        swapFilePages.releasePages(10, 2);
+        swapFilePages.releasePage(8);
+        swapFilePages.releasePage(9);
+        Assert.assertEquals(8, swapFilePages.getUsedPages());
+        Assert.assertEquals(0, swapFilePages.getFreePages());
+
+        try {
+            swapFilePages.releasePage(5);
+            swapFilePages.releasePage(5);
+            Assert.fail("Releasing free page should fail");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        swapFilePages.close();
+    }
+
+    @Test
+    public void testCompact() {
+        SwapFilePages swapFilePages = new SwapFilePages();
+        int pageSize = swapFilePages.getPageSize();
+        for (int i = 0; i < 10; i++) {
+            long page = swapFilePages.allocatePage();
+            byte[] pageData = new byte[pageSize];
+            Arrays.fill(pageData, (byte) i);
+            swapFilePages.setPage(page, pageData);
+        }
+        swapFilePages.releasePage(1);
+        swapFilePages.releasePage(3);
+        swapFilePages.releasePage(5);
+
+        Map<Long, Long> movedPages = new HashMap<>();
+        swapFilePages.addSwapMovingListener(movedPages::put);
+
+        Assert.assertTrue(swapFilePages.compact(1));
+        Assert.assertEquals(1, movedPages.size());
+        Assert.assertEquals(Long.valueOf(1), movedPages.get(9L));
+        Assert.assertEquals(9, swapFilePages.getUsedPages());
+
+        Assert.assertFalse(swapFilePages.compact(10));
+        Assert.assertEquals(3, movedPages.size());
+        Assert.assertEquals(Long.valueOf(3), movedPages.get(8L));
+        Assert.assertEquals(Long.valueOf(5), movedPages.get(7L));
+        Assert.assertEquals(7, swapFilePages.getUsedPages());
+        Assert.assertEquals(0, swapFilePages.getFreePages());
+
+        byte[] expectedData = new byte[pageSize];
+        Arrays.fill(expectedData, (byte) 8);
+        Assert.assertArrayEquals(expectedData, swapFilePages.getPage(3));
+        Arrays.fill(expectedData, (byte) 6);
+        Assert.assertArrayEquals(expectedData, swapFilePages.getPage(6));
+        swapFilePages.close();
+    }
+
+    @Test
+    public void testPagesBuffers() {
+        SwapFilePages swapFilePages = new SwapFilePages();
+        int pageSize = swapFilePages.getPageSize();
+        long firstPage = swapFilePages.allocatePages(3);
+        ByteBuffer[] sources = new ByteBuffer[3];
+        for (int i = 0; i < sources.length; i++) {
+            byte[] pageData = new byte[i == 2 ? 100 : pageSize];
+            Arrays.fill(pageData, (byte) (i + 1));
+            sources[i] = ByteBuffer.wrap(pageData);
+        }
+        swapFilePages.writePages(firstPage, sources);
+
+        byte[] pageData = new byte[pageSize];
+        swapFilePages.readPage(firstPage + 1, ByteBuffer.wrap(pageData));
+        byte[] expectedData = new byte[pageSize];
+        Arrays.fill(expectedData, (byte) 2);
+        Assert.assertArrayEquals(expectedData, pageData);
+
+        // Area after the end of the file is filled with zeros
+        ByteBuffer[] targets = new ByteBuffer[2];
+        byte[] firstPageData = new byte[pageSize];
+        Arrays.fill(pageData, (byte) 10);
+        targets[0] = ByteBuffer.wrap(firstPageData);
+        targets[1] = ByteBuffer.wrap(pageData);
+        swapFilePages.readPages(firstPage + 1, targets);
+        Assert.assertArrayEquals(expectedData, firstPageData);
+        Arrays.fill(expectedData, (byte) 0);
+        Arrays.fill(expectedData, 0, 100, (byte) 3);
+        Assert.assertArrayEquals(expectedData, pageData);
+
+        try {
+            swapFilePages.readPages(firstPage, new ByteBuffer[] {ByteBuffer.allocate(10), ByteBuffer.allocate(10)});
+            Assert.fail("Short buffer before last buffer should fail");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        swapFilePages.close();
+    }
 }
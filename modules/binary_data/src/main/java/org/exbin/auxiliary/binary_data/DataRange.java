@@ -29,7 +29,7 @@ public class DataRange {
     protected final long endPosition;
 
     public DataRange(long startPosition, long endPosition) {
-        if (endPosition > startPosition) {
+        if (endPosition < startPosition) {
             throw new IllegalStateException("Invalid data range");
         }
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data;
+
+import java.util.BitSet;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Interface for binary data where part of data might not be present, which
+ * allows to read available data without handling of exceptions.
+ */
+@NullMarked
+public interface PresenceAwareBinaryData {
+
+    /**
+     * Copies present data of given area into array of bytes.
+     * <p>
+     * Bytes of target for positions where data are not present are not
+     * modified. Presence of data is not changed by this method, but
+     * implementation can request loading of missing data.
+     *
+     * @param startFrom position to start copy from
+     * @param target target byte array
+     * @param offset offset position in target
+     * @param length length of area to copy
+     * @param presenceMap bitmap with bits for positions of area relative to
+     * start position, set for present data and cleared otherwise, or null
+     * @return length of leading present data, length of area if whole area is
+     * present
+     */
+    int copyPresentToArray(long startFrom, byte[] target, int offset, int length, @Nullable BitSet presenceMap);
+}
@@ -31,4 +31,29 @@ public interface DataPageCreator {
      * @return data page
      */
     EditableBinaryData createPage(int dataSize);
+
+    /**
+     * Creates new data page with specified size for caller which overwrites
+     * whole content of the page.
+     * <p>
+     * Content of the page is undefined. Default implementation creates page
+     * using {@link #createPage(int)}.
+     *
+     * @param dataSize data size
+     * @return data page
+     */
+    default EditableBinaryData createUninitializedPage(int dataSize) {
+        return createPage(dataSize);
+    }
+
+    /**
+     * Releases data page which is no longer used by paged data.
+     * <p>
+     * Released page can be reused for later created pages. Default
+     * implementation does nothing.
+     *
+     * @param dataPage data page
+     */
+    default void releasePage(EditableBinaryData dataPage) {
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.paged;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Data page creator reusing released pages.
+ * <p>
+ * Released pages are kept in free lists for each page size, limited by count
+ * of pages per size and by total size of pooled pages. Pages which don't fit
+ * into the pool are disposed. Reused pages are filled with zeros unless they
+ * are requested as uninitialized.
+ * <p>
+ * Pool can be shared by multiple paged data instances and accessed from
+ * multiple threads.
+ */
+@NullMarked
+public class PoolingDataPageCreator implements DataPageCreator {
+
+    public static final int DEFAULT_MAX_PAGES_PER_SIZE = 256;
+    public static final long DEFAULT_MAX_POOLED_BYTES = 64 * 1024 * 1024;
+
+    private final DataPageCreator pageCreator;
+    private final int maxPagesPerSize;
+    private final long maxPooledBytes;
+    private final Map<Integer, Deque<EditableBinaryData>> freePages = new HashMap<>();
+
+    private long pooledBytes = 0;
+    private int pooledPagesCount = 0;
+    private long hitsCount = 0;
+    private long missesCount = 0;
+
+    /**
+     * Creates pool with default limits.
+     *
+     * @param pageCreator creator of new pages
+     */
+    public PoolingDataPageCreator(DataPageCreator pageCreator) {
+        this(pageCreator, DEFAULT_MAX_PAGES_PER_SIZE, DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /**
+     * Creates pool.
+     *
+     * @param pageCreator creator of new pages
+     * @param maxPagesPerSize maximum number of pooled pages of single size
+     * @param maxPooledBytes maximum total size of pooled pages
+     */
+    public PoolingDataPageCreator(DataPageCreator pageCreator, int maxPagesPerSize, long maxPooledBytes) {
+        if (maxPagesPerSize < 0 || maxPooledBytes < 0) {
+            throw new IllegalArgumentException("Pool limits cannot be negative");
+        }
+        this.pageCreator = pageCreator;
+        this.maxPagesPerSize = maxPagesPerSize;
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    @Override
+    public EditableBinaryData createPage(int dataSize) {
+        EditableBinaryData dataPage = pollPage(dataSize);
+        if (dataPage == null) {
+            return pageCreator.createPage(dataSize);
+        }
+
+        dataPage.fillData(0, dataSize);
+        return dataPage;
+    }
+
+    @Override
+    public EditableBinaryData createUninitializedPage(int dataSize) {
+        EditableBinaryData dataPage = pollPage(dataSize);
+        return dataPage == null ? pageCreator.createUninitializedPage(dataSize) : dataPage;
+    }
+
+    /**
+     * Takes released page of given size from the pool.
+     *
+     * @param dataSize data size
+     * @return data page or null if there is no such page
+     */
+    @Nullable
+    private EditableBinaryData pollPage(int dataSize) {
+        EditableBinaryData dataPage = null;
+        synchronized (this) {
+            Deque<EditableBinaryData> pages = freePages.get(dataSize);
+            if (pages != null && !pages.isEmpty()) {
+                dataPage = pages.pop();
+                pooledBytes -= dataSize;
+                pooledPagesCount--;
+                hitsCount++;
+            } else {
+                missesCount++;
+            }
+        }
+        return dataPage;
+    }
+
+    @Override
+    public void releasePage(EditableBinaryData dataPage) {
+        long dataSize = dataPage.getDataSize();
+        if (dataSize > 0 && dataSize <= Integer.MAX_VALUE) {
+            synchronized (this) {
+                Deque<EditableBinaryData> pages = freePages.computeIfAbsent((int) dataSize, (size) -> new ArrayDeque<>());
+                if (pages.size() < maxPagesPerSize && pooledBytes + dataSize <= maxPooledBytes) {
+                    pages.push(dataPage);
+                    pooledBytes += dataSize;
+                    pooledPagesCount++;
+                    return;
+                }
+            }
+        }
+
+        dataPage.dispose();
+    }
+
+    /**
+     * Disposes all pooled pages.
+     */
+    public void clear() {
+        Deque<EditableBinaryData> releasedPages = new ArrayDeque<>();
+        synchronized (this) {
+            for (Deque<EditableBinaryData> pages : freePages.values()) {
+                releasedPages.addAll(pages);
+            }
+            freePages.clear();
+            pooledBytes = 0;
+            pooledPagesCount = 0;
+        }
+
+        for (EditableBinaryData dataPage : releasedPages) {
+            dataPage.dispose();
+        }
+    }
+
+    /**
+     * Returns total size of pooled pages.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    public synchronized int getPooledPagesCount() {
+        return pooledPagesCount;
+    }
+
+    /**
+     * Returns number of pages reused from the pool.
+     *
+     * @return number of pages
+     */
+    public synchronized long getHitsCount() {
+        return hitsCount;
+    }
+
+    /**
+     * Returns number of pages newly created because pool was empty.
+     *
+     * @return number of pages
+     */
+    public synchronized long getMissesCount() {
+        return missesCount;
+    }
+
+    /**
+     * Resets hits and misses counters.
+     */
+    public synchronized void resetStatistics() {
+        hitsCount = 0;
+        missesCount = 0;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.binary_data.paged;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.auxiliary.binary_data.TestUtils;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayRopePagedData;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests for PoolingDataPageCreator class.
+ */
+public class PoolingDataPageCreatorTest {
+
+    private final TestUtils testUtils = new TestUtils();
+
+    public PoolingDataPageCreatorTest() {
+    }
+
+    @Test
+    public void testReusePage() {
+        PoolingDataPageCreator pool = new PoolingDataPageCreator((int dataSize) -> new ByteArrayEditableData(new byte[dataSize]));
+        EditableBinaryData page = pool.createPage(8);
+        page.setByte(0, (byte) 5);
+        assertEquals(1l, pool.getMissesCount());
+
+        pool.releasePage(page);
+        assertEquals(8l, pool.getPooledBytes());
+        assertEquals(1, pool.getPooledPagesCount());
+
+        EditableBinaryData reusedPage = pool.createPage(8);
+        assertSame(page, reusedPage);
+        assertEquals((byte) 0, reusedPage.getByte(0));
+        assertEquals(1l, pool.getHitsCount());
+        assertEquals(0l, pool.getPooledBytes());
+
+        EditableBinaryData otherSizePage = pool.createPage(4);
+        assertNotSame(page, otherSizePage);
+        assertEquals(2l, pool.getMissesCount());
+    }
+
+    @Test
+    public void testReuseUninitializedPage() {
+        PoolingDataPageCreator pool = new PoolingDataPageCreator((int dataSize) -> new ByteArrayEditableData(new byte[dataSize]));
+        EditableBinaryData page = pool.createUninitializedPage(8);
+        page.setByte(0, (byte) 5);
+        pool.releasePage(page);
+
+        // Content of uninitialized page is not cleared
+        EditableBinaryData reusedPage = pool.createUninitializedPage(8);
+        assertSame(page, reusedPage);
+        assertEquals((byte) 5, reusedPage.getByte(0));
+        assertEquals(1l, pool.getHitsCount());
+        assertEquals(1l, pool.getMissesCount());
+    }
+
+    @Test
+    public void testPoolLimits() {
+        PoolingDataPageCreator pool = new PoolingDataPageCreator((int dataSize) -> new ByteArrayEditableData(new byte[dataSize]), 2, 20);
+        for (int i = 0; i < 3; i++) {
+            pool.releasePage(new ByteArrayEditableData(new byte[8]));
+        }
+        assertEquals(2, pool.getPooledPagesCount());
+
+        pool.releasePage(new ByteArrayEditableData(new byte[6]));
+        assertEquals(2, pool.getPooledPagesCount());
+        pool.releasePage(new ByteArrayEditableData(new byte[4]));
+        assertEquals(3, pool.getPooledPagesCount());
+        assertEquals(20l, pool.getPooledBytes());
+
+        pool.clear();
+        assertEquals(0, pool.getPooledPagesCount());
+        assertEquals(0l, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testPagedDataReleasesPages() {
+        PoolingDataPageCreator pool = new PoolingDataPageCreator((int dataSize) -> new ByteArrayEditableData(new byte[dataSize]));
+        ByteArrayPagedData instance = new ByteArrayPagedData(pool);
+        instance.insert(0, testUtils.getSampleDataC());
+        assertEquals(0, pool.getPooledPagesCount());
+
+        // Shrinking replaces last page
+        instance.remove(100, 10);
+        assertEquals(1, pool.getPooledPagesCount());
+        instance.clear();
+        assertEquals(2, pool.getPooledPagesCount());
+        assertEquals(502l, pool.getPooledBytes());
+
+        pool.resetStatistics();
+        ByteArrayPagedData otherInstance = new ByteArrayPagedData(pool);
+        otherInstance.insert(0, testUtils.getSampleDataC());
+        assertEquals(1l, pool.getHitsCount());
+        assertEquals(0l, pool.getMissesCount());
+        assertArrayEquals(testUtils.getSampleDataC(), ((ByteArrayEditableData) otherInstance.getPage(0)).getData());
+
+        otherInstance.dispose();
+        assertEquals(2, pool.getPooledPagesCount());
+    }
+
+    @Test
+    public void testLoadFromStreamReusesPages() throws IOException {
+        PoolingDataPageCreator pool = new PoolingDataPageCreator((int dataSize) -> new ByteArrayEditableData(new byte[dataSize]));
+        byte[] sampleData = new byte[ByteArrayPagedData.DEFAULT_PAGE_SIZE * 2 + 100];
+        for (int i = 0; i < sampleData.length; i++) {
+            sampleData[i] = (byte) i;
+        }
+        ByteArrayPagedData instance = new ByteArrayPagedData(pool);
+        instance.loadFromStream(new ByteArrayInputStream(sampleData));
+        assertEquals(sampleData.length, instance.getDataSize());
+        // Page for data beyond the end of stream is returned to the pool
+        assertEquals(1, pool.getPooledPagesCount());
+
+        instance.clear();
+        pool.resetStatistics();
+        instance.loadFromStream(new ByteArrayInputStream(sampleData));
+        assertEquals(4l, pool.getHitsCount());
+        assertEquals(0l, pool.getMissesCount());
+        assertEquals(1, pool.getPooledPagesCount());
+        for (int i = 0; i < sampleData.length; i++) {
+            assertEquals(sampleData[i], instance.getByte(i));
+        }
+
+        ByteArrayRopePagedData ropeInstance = new ByteArrayRopePagedData(pool);
+        ropeInstance.loadFromStream(new ByteArrayInputStream(sampleData));
+        assertEquals(sampleData.length, ropeInstance.getDataSize());
+        for (int i = 0; i < sampleData.length; i++) {
+            assertEquals(sampleData[i], ropeInstance.getByte(i));
+        }
+    }
+
+    @Test
+    public void testSetSamePageKeepsPage() {
+        PoolingDataPageCreator pool = new PoolingDataPageCreator((int dataSize) -> new ByteArrayEditableData(new byte[dataSize]));
+        ByteArrayPagedData instance = new ByteArrayPagedData(pool);
+        instance.insert(0, testUtils.getSampleDataC());
+        instance.setPage(0, instance.getPage(0));
+        assertEquals(0, pool.getPooledPagesCount());
+
+        ByteArrayPagedData otherInstance = new ByteArrayPagedData(pool);
+        otherInstance.insert(0, new byte[testUtils.getSampleDataC().length]);
+        otherInstance.setByte(0, (byte) 99);
+        assertEquals(testUtils.getSampleDataC()[0], instance.getByte(0));
+
+        ByteArrayRopePagedData ropeInstance = new ByteArrayRopePagedData(pool);
+        ropeInstance.insert(0, testUtils.getSampleDataC());
+        ropeInstance.setPage(0, ropeInstance.getPage(0));
+        assertEquals(0, pool.getPooledPagesCount());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.delta;
+
+import java.io.IOException;
+import java.util.Optional;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.delta.DataSegment;
+import org.exbin.auxiliary.binary_data.delta.DataSource;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocumentChangedListener;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocumentWindow;
+import org.exbin.auxiliary.binary_data.delta.SourceSegment;
+import org.exbin.auxiliary.zone_data.DefaultZoneDataSource;
+import org.exbin.auxiliary.zone_data.EditZoneType;
+import org.exbin.auxiliary.zone_data.ZoneData;
+import org.exbin.auxiliary.zone_data.ZoneDataSource;
+import org.exbin.auxiliary.zone_data.ZoneState;
+import org.exbin.auxiliary.zone_data.ZoneType;
+
+/**
+ * Zone data source of edited areas of delta document derived from its
+ * segments.
+ * <p>
+ * Source segments of document data source following in increasing order of
+ * source position are original data. Sequence of other segments between them
+ * is modified data up to the length of the skipped source data and added data
+ * for the rest.
+ * <p>
+ * Zones are rebuilt lazily on first access after document change, which takes
+ * linear time to count of segments regardless of size of data.
+ */
+@NullMarked
+public class DeltaDocumentZoneDataSource implements ZoneDataSource {
+
+    private final DeltaDocument document;
+    private final DefaultZoneDataSource zones = new DefaultZoneDataSource(0);
+    private final DeltaDocumentChangedListener changeListener;
+    private volatile boolean valid = false;
+
+    public DeltaDocumentZoneDataSource(DeltaDocument document) {
+        this.document = document;
+        changeListener = (DeltaDocumentWindow window) -> {
+            valid = false;
+        };
+        document.addChangeListener(changeListener);
+    }
+
+    public DeltaDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Marks zones for rebuild on next access.
+     * <p>
+     * Needed only for changes of segments not reported by document.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Stops listening for changes of document.
+     */
+    public void dispose() {
+        document.removeChangeListener(changeListener);
+    }
+
+    @Override
+    public ZoneData getZone(long zoneIndex) {
+        return getZones().getZone(zoneIndex);
+    }
+
+    @Override
+    public long getZonesCount() {
+        return getZones().getZonesCount();
+    }
+
+    @Override
+    public void updateZoneState(ZoneState zoneState, long zoneIndex) {
+        getZones().updateZoneState(zoneState, zoneIndex);
+    }
+
+    @Override
+    public Optional<ZoneType> findZoneType(long dataPosition) {
+        return getZones().findZoneType(dataPosition);
+    }
+
+    @Override
+    public ZoneType findZone(long dataPosition) {
+        return getZones().findZone(dataPosition);
+    }
+
+    @Override
+    public DataRange findZoneRange(long dataPosition) {
+        return getZones().findZoneRange(dataPosition);
+    }
+
+    @Override
+    public long findZoneStart(long dataPosition) {
+        return getZones().findZoneStart(dataPosition);
+    }
+
+    @Override
+    public long findZoneEnd(long dataPosition) {
+        return getZones().findZoneEnd(dataPosition);
+    }
+
+    @Override
+    public void findZoneState(ZoneState zoneState, long dataPosition) {
+        getZones().findZoneState(zoneState, dataPosition);
+    }
+
+    private DefaultZoneDataSource getZones() {
+        synchronized (document) {
+            if (!valid) {
+                rebuildZones();
+                valid = true;
+            }
+            return zones;
+        }
+    }
+
+    private void rebuildZones() {
+        DataSource dataSource = document.getDataSource();
+        long sourceLength;
+        try {
+            sourceLength = dataSource == null ? 0 : dataSource.getDataLength();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error while processing data source", ex);
+        }
+
+        zones.clear();
+        zones.setDataSize(document.getDataSize());
+        long sourcePosition = 0;
+        long position = 0;
+        long editStart = -1;
+        DataSegment segment = document.getSegments().first();
+        while (segment != null) {
+            long length = segment.getLength();
+            if (length > 0) {
+                if (isOriginalSegment(segment, dataSource, sourcePosition)) {
+                    if (editStart >= 0) {
+                        addEditZones(editStart, position, segment.getStartPosition() - sourcePosition);
+                        editStart = -1;
+                    }
+                    sourcePosition = segment.getStartPosition() + length;
+                } else if (editStart < 0) {
+                    editStart = position;
+                }
+                position += length;
+            }
+            segment = segment.getNext();
+        }
+
+        if (editStart >= 0) {
+            addEditZones(editStart, position, Math.max(sourceLength - sourcePosition, 0));
+        }
+    }
+
+    private void addEditZones(long startPosition, long endPosition, long replacedLength) {
+        long modifiedLength = Math.min(endPosition - startPosition, replacedLength);
+        if (modifiedLength > 0) {
+            zones.addZone(EditZoneType.MODIFIED, startPosition, startPosition + modifiedLength - 1);
+        }
+        if (startPosition + modifiedLength < endPosition) {
+            zones.addZone(EditZoneType.ADDED, startPosition + modifiedLength, endPosition - 1);
+        }
+    }
+
+    private static boolean isOriginalSegment(DataSegment segment, @Nullable DataSource dataSource, long sourcePosition) {
+        return dataSource != null && segment instanceof SourceSegment
+                && ((SourceSegment) segment).getSource() == dataSource
+                && segment.getStartPosition() >= sourcePosition;
+    }
+}
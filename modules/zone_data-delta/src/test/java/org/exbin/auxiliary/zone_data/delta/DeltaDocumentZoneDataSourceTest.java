@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.delta;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.auxiliary.binary_data.delta.DeltaDocument;
+import org.exbin.auxiliary.binary_data.delta.SegmentsRepository;
+import org.exbin.auxiliary.binary_data.delta.file.FileDataSource;
+import org.exbin.auxiliary.zone_data.EditZoneType;
+import org.exbin.auxiliary.zone_data.ZoneData;
+import org.exbin.auxiliary.zone_data.ZoneType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for delta document zone data source.
+ */
+@NullMarked
+public class DeltaDocumentZoneDataSourceTest {
+
+    private static final int SAMPLE_SIZE = 100;
+
+    public DeltaDocumentZoneDataSourceTest() {
+    }
+
+    @Test
+    public void testEditZones() throws IOException {
+        File sampleFile = createSampleFile();
+        SegmentsRepository repository = new SegmentsRepository(() -> new ByteArrayPagedData());
+        FileDataSource dataSource = new FileDataSource(sampleFile);
+        repository.addDataSource(dataSource);
+        DeltaDocument document = repository.createDocument(dataSource);
+        DeltaDocumentZoneDataSource zoneSource = new DeltaDocumentZoneDataSource(document);
+        Assert.assertEquals(0, zoneSource.getZonesCount());
+
+        document.setByte(10, (byte) 0);
+        checkZones(zoneSource, EditZoneType.MODIFIED, 10, 10);
+
+        document.insert(50, new byte[5]);
+        checkZones(zoneSource, EditZoneType.MODIFIED, 10, 10, EditZoneType.ADDED, 50, 54);
+
+        document.remove(70, 5);
+        checkZones(zoneSource, EditZoneType.MODIFIED, 10, 10, EditZoneType.ADDED, 50, 54);
+
+        document.replace(30, new byte[4]);
+        checkZones(zoneSource, EditZoneType.MODIFIED, 10, 10, EditZoneType.MODIFIED, 30, 33, EditZoneType.ADDED, 50, 54);
+        Assert.assertEquals(EditZoneType.MODIFIED, zoneSource.findZone(31));
+        Assert.assertEquals(Optional.empty(), zoneSource.findZoneType(40));
+
+        document.setByte(SAMPLE_SIZE - 1, (byte) 0);
+        document.insert(SAMPLE_SIZE, new byte[2]);
+        checkZones(zoneSource, EditZoneType.MODIFIED, 10, 10, EditZoneType.MODIFIED, 30, 33, EditZoneType.ADDED, 50, 54,
+                EditZoneType.MODIFIED, 99, 99, EditZoneType.ADDED, 100, 101);
+
+        document.clear();
+        Assert.assertEquals(0, zoneSource.getZonesCount());
+        document.insert(0, new byte[3]);
+        checkZones(zoneSource, EditZoneType.MODIFIED, 0, 2);
+
+        zoneSource.dispose();
+        document.dispose();
+        dataSource.close();
+        sampleFile.delete();
+    }
+
+    private static void checkZones(DeltaDocumentZoneDataSource zoneSource, Object... expectedZones) {
+        Assert.assertEquals(expectedZones.length / 3, zoneSource.getZonesCount());
+        for (int i = 0; i < expectedZones.length / 3; i++) {
+            ZoneData zone = zoneSource.getZone(i);
+            Assert.assertEquals(Optional.of((ZoneType) expectedZones[i * 3]), zone.getZoneType());
+            Assert.assertEquals(((Integer) expectedZones[i * 3 + 1]).longValue(), zone.getStartPosition());
+            Assert.assertEquals(((Integer) expectedZones[i * 3 + 2]).longValue(), zone.getEndPosition());
+        }
+    }
+
+    private static File createSampleFile() throws IOException {
+        File sampleFile = File.createTempFile("deltazones", ".bin");
+        sampleFile.deleteOnExit();
+        byte[] sampleData = new byte[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            sampleData[i] = (byte) (i + 1);
+        }
+        try (FileOutputStream output = new FileOutputStream(sampleFile)) {
+            output.write(sampleData);
+        }
+        return sampleFile;
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+
+/**
+ * Default zone data source storing sorted nonoverlapping zones.
+ * <p>
+ * Zones are stored in arrays of start and end positions with index to table of
+ * zone types, so that zone can be found by binary search and consecutive
+ * lookups of the following positions take constant time.
+ * <p>
+ * Areas between zones are handled as zones without type.
+ * <p>
+ * Insertion or removal of data shifts following zones lazily using tree of
+ * shifts, so that edit takes logarithmic time to count of zones. Only edits
+ * which split zone or remove whole zones rewrite zone arrays.
+ */
+@NullMarked
+public class DefaultZoneDataSource implements ZoneDataSource {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final short NO_ZONE_TYPE = -1;
+
+    private long dataSize;
+    private long[] startPositions = new long[INITIAL_CAPACITY];
+    private long[] endPositions = new long[INITIAL_CAPACITY];
+    private short[] zoneTypeIndexes = new short[INITIAL_CAPACITY];
+    private int zonesCount = 0;
+    private final List<ZoneType> zoneTypes = new ArrayList<>();
+    private ZoneEditPolicy editPolicy = ZoneEditPolicy.STRETCH;
+    /**
+     * Binary indexed tree of shifts of zones, shift of zone is sum of its
+     * prefix. Positions in zone arrays are relative to shift of zone.
+     */
+    private long @Nullable [] shifts = null;
+    /**
+     * Index of the last found zone used as hint for following lookup.
+     */
+    private int lastZoneIndex = 0;
+
+    public DefaultZoneDataSource(long dataSize) {
+        if (dataSize < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        this.dataSize = dataSize;
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * Sets size of data, zones after the end of data are removed or truncated.
+     *
+     * @param dataSize size of data
+     */
+    public void setDataSize(long dataSize) {
+        if (dataSize < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+
+        this.dataSize = dataSize;
+        applyShifts();
+        while (zonesCount > 0 && startPositions[zonesCount - 1] >= dataSize) {
+            zonesCount--;
+        }
+        if (zonesCount > 0 && endPositions[zonesCount - 1] >= dataSize) {
+            endPositions[zonesCount - 1] = dataSize - 1;
+        }
+        lastZoneIndex = 0;
+    }
+
+    public ZoneEditPolicy getEditPolicy() {
+        return editPolicy;
+    }
+
+    /**
+     * Sets policy for zones containing position of inserted data.
+     *
+     * @param editPolicy edit policy
+     */
+    public void setEditPolicy(ZoneEditPolicy editPolicy) {
+        this.editPolicy = editPolicy;
+    }
+
+    /**
+     * Adds zone after the last zone.
+     *
+     * @param zoneType zone type
+     * @param startPosition start position
+     * @param endPosition end position inclusive
+     */
+    public void addZone(@Nullable ZoneType zoneType, long startPosition, long endPosition) {
+        if (endPosition < startPosition) {
+            throw new IllegalArgumentException("Zone end cannot be before zone start");
+        }
+        if (startPosition < 0 || endPosition >= dataSize) {
+            throw new OutOfBoundsException("Zone must be inside data");
+        }
+        if (zonesCount > 0 && startPosition <= getEnd(zonesCount - 1)) {
+            throw new IllegalArgumentException("Zone must be added after the last zone");
+        }
+
+        if (zonesCount == startPositions.length) {
+            applyShifts();
+            int capacity = Math.max(zonesCount + 1, zonesCount + (zonesCount >> 1));
+            startPositions = Arrays.copyOf(startPositions, capacity);
+            endPositions = Arrays.copyOf(endPositions, capacity);
+            zoneTypeIndexes = Arrays.copyOf(zoneTypeIndexes, capacity);
+        }
+        long shift = getShift(zonesCount);
+        startPositions[zonesCount] = startPosition - shift;
+        endPositions[zonesCount] = endPosition - shift;
+        zoneTypeIndexes[zonesCount] = getZoneTypeIndex(zoneType);
+        zonesCount++;
+    }
+
+    /**
+     * Adds zone after the last zone.
+     *
+     * @param zoneData zone data
+     */
+    public void addZone(ZoneData zoneData) {
+        addZone(zoneData.getZoneType().orElse(null), zoneData.getStartPosition(), zoneData.getEndPosition());
+    }
+
+    /**
+     * Removes all zones.
+     */
+    public void clear() {
+        zonesCount = 0;
+        lastZoneIndex = 0;
+        zoneTypes.clear();
+        shifts = null;
+    }
+
+    /**
+     * Releases unused capacity of zone arrays.
+     */
+    public void trimToSize() {
+        applyShifts();
+        int capacity = Math.max(zonesCount, 1);
+        startPositions = Arrays.copyOf(startPositions, capacity);
+        endPositions = Arrays.copyOf(endPositions, capacity);
+        zoneTypeIndexes = Arrays.copyOf(zoneTypeIndexes, capacity);
+    }
+
+    /**
+     * Shifts zones for data inserted on given position.
+     * <p>
+     * Zone containing position, which is not its start position, is handled
+     * according to edit policy.
+     *
+     * @param position position of inserted data
+     * @param length length of inserted data
+     */
+    public void insertData(long position, long length) {
+        if (position < 0 || position > dataSize) {
+            throw new OutOfBoundsException("Position " + position + " is out of data range");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative");
+        }
+        if (length == 0) {
+            return;
+        }
+
+        dataSize += length;
+        int index = findPrecedingZone(position);
+        if (index >= 0 && getStart(index) < position && position <= getEnd(index)) {
+            if (editPolicy == ZoneEditPolicy.STRETCH) {
+                endPositions[index] += length;
+            } else {
+                splitZone(index, position, length);
+                index++;
+            }
+        } else if (index >= 0 && getStart(index) == position) {
+            index--;
+        }
+        addShift(index + 1, length);
+    }
+
+    /**
+     * Shifts zones for data removed from given position.
+     * <p>
+     * Zones are shrunk by removed data and zones inside removed data are
+     * removed.
+     *
+     * @param position position of removed data
+     * @param length length of removed data
+     */
+    public void removeData(long position, long length) {
+        if (position < 0 || length < 0 || position + length > dataSize) {
+            throw new OutOfBoundsException("Removed data must be inside data");
+        }
+        if (length == 0) {
+            return;
+        }
+
+        dataSize -= length;
+        long lastPosition = position + length - 1;
+        int firstIndex = findPrecedingZone(position);
+        if (firstIndex < 0 || getEnd(firstIndex) < position) {
+            firstIndex++;
+        }
+        int lastIndex = findPrecedingZone(lastPosition);
+
+        int removedCount = 0;
+        for (int index = firstIndex; index <= lastIndex; index++) {
+            if (getStart(index) >= position && getEnd(index) <= lastPosition) {
+                removedCount++;
+            }
+        }
+        if (removedCount > 0) {
+            applyShifts();
+            int keptCount = 0;
+            for (int index = firstIndex; index <= lastIndex; index++) {
+                if (startPositions[index] < position || endPositions[index] > lastPosition) {
+                    moveZone(index, firstIndex + keptCount);
+                    keptCount++;
+                }
+            }
+            System.arraycopy(startPositions, lastIndex + 1, startPositions, firstIndex + keptCount, zonesCount - lastIndex - 1);
+            System.arraycopy(endPositions, lastIndex + 1, endPositions, firstIndex + keptCount, zonesCount - lastIndex - 1);
+            System.arraycopy(zoneTypeIndexes, lastIndex + 1, zoneTypeIndexes, firstIndex + keptCount, zonesCount - lastIndex - 1);
+            zonesCount -= removedCount;
+            lastIndex -= removedCount;
+            lastZoneIndex = 0;
+        }
+
+        // At most first and last zone overlap removed data partially
+        for (int index = firstIndex; index <= lastIndex; index++) {
+            long start = getStart(index);
+            long end = getEnd(index);
+            long newStart = start < position ? start : Math.max(start - length, position);
+            long newEnd = end > lastPosition ? end - length : position - 1;
+            startPositions[index] += newStart - start;
+            endPositions[index] += newEnd - end;
+        }
+        addShift(lastIndex + 1, -length);
+    }
+
+    @Override
+    public ZoneData getZone(long zoneIndex) {
+        checkZoneIndex(zoneIndex);
+        int index = (int) zoneIndex;
+        return new ZoneData(getZoneType(index), getStart(index), getEnd(index));
+    }
+
+    @Override
+    public long getZonesCount() {
+        return zonesCount;
+    }
+
+    @Override
+    public void updateZoneState(ZoneState zoneState, long zoneIndex) {
+        checkZoneIndex(zoneIndex);
+        int index = (int) zoneIndex;
+        zoneState.setZoneType(getZoneType(index));
+        zoneState.setStartPosition(getStart(index));
+        zoneState.setEndPosition(getEnd(index));
+    }
+
+    /**
+     * Returns index of zone on given data position.
+     *
+     * @param dataPosition data position
+     * @return zone index or -1 if position is not inside any zone
+     */
+    public long findZoneIndex(long dataPosition) {
+        checkPosition(dataPosition);
+        int index = findPrecedingZone(dataPosition);
+        return index >= 0 && dataPosition <= getEnd(index) ? index : -1;
+    }
+
+    @Override
+    public Optional<ZoneType> findZoneType(long dataPosition) {
+        checkPosition(dataPosition);
+        int index = findPrecedingZone(dataPosition);
+        return index >= 0 && dataPosition <= getEnd(index) ? Optional.ofNullable(getZoneType(index)) : Optional.empty();
+    }
+
+    /**
+     * Returns zone type for specific data position.
+     *
+     * @param dataPosition data position
+     * @return zone type
+     * @throws ZoneNotPresentException if there is no zone with type on given
+     * position
+     */
+    @Override
+    public ZoneType findZone(long dataPosition) {
+        checkPosition(dataPosition);
+        int index = findPrecedingZone(dataPosition);
+        ZoneType zoneType = index >= 0 && dataPosition <= getEnd(index) ? getZoneType(index) : null;
+        if (zoneType == null) {
+            throw new ZoneNotPresentException("No zone type on given position", findZoneRange(dataPosition));
+        }
+        return zoneType;
+    }
+
+    @Override
+    public DataRange findZoneRange(long dataPosition) {
+        return new DataRange(findZoneStart(dataPosition), findZoneEnd(dataPosition));
+    }
+
+    @Override
+    public long findZoneStart(long dataPosition) {
+        checkPosition(dataPosition);
+        int index = findPrecedingZone(dataPosition);
+        if (index < 0) {
+            return 0;
+        }
+        return dataPosition <= getEnd(index) ? getStart(index) : getEnd(index) + 1;
+    }
+
+    @Override
+    public long findZoneEnd(long dataPosition) {
+        checkPosition(dataPosition);
+        int index = findPrecedingZone(dataPosition);
+        if (index >= 0 && dataPosition <= getEnd(index)) {
+            return getEnd(index);
+        }
+        return index + 1 < zonesCount ? getStart(index + 1) - 1 : dataSize - 1;
+    }
+
+    @Override
+    public void findZoneState(ZoneState zoneState, long dataPosition) {
+        checkPosition(dataPosition);
+        int index = findPrecedingZone(dataPosition);
+        if (index >= 0 && dataPosition <= getEnd(index)) {
+            zoneState.setZoneType(getZoneType(index));
+            zoneState.setStartPosition(getStart(index));
+            zoneState.setEndPosition(getEnd(index));
+        } else {
+            zoneState.setZoneType(null);
+            zoneState.setStartPosition(index < 0 ? 0 : getEnd(index) + 1);
+            zoneState.setEndPosition(index + 1 < zonesCount ? getStart(index + 1) - 1 : dataSize - 1);
+        }
+    }
+
+    /**
+     * Returns index of the last zone starting at or before given position.
+     *
+     * @return zone index or -1 if there is no such zone
+     */
+    private int findPrecedingZone(long dataPosition) {
+        int hint = lastZoneIndex;
+        if (hint < zonesCount && getStart(hint) <= dataPosition) {
+            if (hint + 1 == zonesCount || dataPosition < getStart(hint + 1)) {
+                return hint;
+            }
+            if (hint + 2 == zonesCount || dataPosition < getStart(hint + 2)) {
+                lastZoneIndex = hint + 1;
+                return hint + 1;
+            }
+        }
+
+        int index;
+        if (shifts == null) {
+            index = Arrays.binarySearch(startPositions, 0, zonesCount, dataPosition);
+            if (index < 0) {
+                index = -index - 2;
+            }
+        } else {
+            int low = 0;
+            int high = zonesCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (getStart(middle) <= dataPosition) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            index = high;
+        }
+        if (index >= 0) {
+            lastZoneIndex = index;
+        }
+        return index;
+    }
+
+    private long getStart(int index) {
+        return startPositions[index] + getShift(index);
+    }
+
+    private long getEnd(int index) {
+        return endPositions[index] + getShift(index);
+    }
+
+    private long getShift(int index) {
+        long[] tree = shifts;
+        if (tree == null) {
+            return 0;
+        }
+
+        long shift = 0;
+        for (int i = index + 1; i > 0; i -= i & -i) {
+            shift += tree[i];
+        }
+        return shift;
+    }
+
+    /**
+     * Adds shift to zones starting from given index.
+     */
+    private void addShift(int fromIndex, long shift) {
+        if (fromIndex >= zonesCount) {
+            return;
+        }
+
+        long[] tree = shifts;
+        if (tree == null) {
+            tree = new long[startPositions.length + 1];
+            shifts = tree;
+        }
+        for (int i = fromIndex + 1; i < tree.length; i += i & -i) {
+            tree[i] += shift;
+        }
+    }
+
+    /**
+     * Applies pending shifts to zone arrays.
+     */
+    private void applyShifts() {
+        if (shifts == null) {
+            return;
+        }
+
+        for (int index = 0; index < zonesCount; index++) {
+            long shift = getShift(index);
+            startPositions[index] += shift;
+            endPositions[index] += shift;
+        }
+        shifts = null;
+    }
+
+    /**
+     * Splits zone around inserted data, shifts are applied.
+     */
+    private void splitZone(int index, long position, long length) {
+        applyShifts();
+        if (zonesCount == startPositions.length) {
+            int capacity = Math.max(zonesCount + 1, zonesCount + (zonesCount >> 1));
+            startPositions = Arrays.copyOf(startPositions, capacity);
+            endPositions = Arrays.copyOf(endPositions, capacity);
+            zoneTypeIndexes = Arrays.copyOf(zoneTypeIndexes, capacity);
+        }
+        System.arraycopy(startPositions, index + 1, startPositions, index + 2, zonesCount - index - 1);
+        System.arraycopy(endPositions, index + 1, endPositions, index + 2, zonesCount - index - 1);
+        System.arraycopy(zoneTypeIndexes, index + 1, zoneTypeIndexes, index + 2, zonesCount - index - 1);
+        startPositions[index + 1] = position + length;
+        endPositions[index + 1] = endPositions[index] + length;
+        zoneTypeIndexes[index + 1] = zoneTypeIndexes[index];
+        endPositions[index] = position - 1;
+        zonesCount++;
+        lastZoneIndex = 0;
+    }
+
+    private void moveZone(int sourceIndex, int targetIndex) {
+        startPositions[targetIndex] = startPositions[sourceIndex];
+        endPositions[targetIndex] = endPositions[sourceIndex];
+        zoneTypeIndexes[targetIndex] = zoneTypeIndexes[sourceIndex];
+    }
+
+    @Nullable
+    private ZoneType getZoneType(int index) {
+        short typeIndex = zoneTypeIndexes[index];
+        return typeIndex == NO_ZONE_TYPE ? null : zoneTypes.get(typeIndex);
+    }
+
+    private short getZoneTypeIndex(@Nullable ZoneType zoneType) {
+        if (zoneType == null) {
+            return NO_ZONE_TYPE;
+        }
+
+        int typeIndex = zoneTypes.indexOf(zoneType);
+        if (typeIndex < 0) {
+            if (zoneTypes.size() == Short.MAX_VALUE) {
+                throw new IllegalStateException("Maximum count of zone types reached");
+            }
+            typeIndex = zoneTypes.size();
+            zoneTypes.add(zoneType);
+        }
+        return (short) typeIndex;
+    }
+
+    private void checkZoneIndex(long zoneIndex) {
+        if (zoneIndex < 0 || zoneIndex >= zonesCount) {
+            throw new OutOfBoundsException("Zone index " + zoneIndex + " is out of range");
+        }
+    }
+
+    private void checkPosition(long dataPosition) {
+        if (dataPosition < 0 || dataPosition >= dataSize) {
+            throw new OutOfBoundsException("Position " + dataPosition + " is out of data range");
+        }
+    }
+}
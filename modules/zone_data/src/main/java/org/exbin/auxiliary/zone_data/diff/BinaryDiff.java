@@ -0,0 +1,556 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.diff;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.zone_data.DiffZoneType;
+
+/**
+ * Comparison of binary data producing zones of difference.
+ * <p>
+ * Data are compared in windows of limited size. Matching anchors are found
+ * using rolling hash of blocks of source window searched in target window and
+ * areas between anchors are refined using Myers difference algorithm if they
+ * are small enough. When window contains no anchor, following data are
+ * scanned to find where data match again.
+ * <p>
+ * Refinement runs in parallel using executor and zones are passed to
+ * consumer in order as soon as they are available, so that memory use is
+ * limited by window size and count of pending refinements.
+ */
+@NullMarked
+public class BinaryDiff {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+    /**
+     * Size of block used for anchor matching.
+     */
+    public static final int ANCHOR_BLOCK_SIZE = 32;
+    /**
+     * Maximum length of area on each side refined using difference algorithm.
+     */
+    public static final int MAX_REFINED_LENGTH = 16 * 1024;
+    /**
+     * Maximum count of edits in refined area.
+     */
+    public static final int MAX_REFINED_EDITS = 256;
+    /**
+     * Count of windows scanned to find matching data again.
+     */
+    public static final int LOOKAHEAD_WINDOWS = 8;
+
+    private static final int HASH_BASE = 0x01000193;
+
+    private final BinaryData sourceData;
+    private final BinaryData targetData;
+    private final Executor executor;
+    private final int windowSize;
+    private final int maxPendingRefinements;
+    private volatile boolean cancelled = false;
+
+    public BinaryDiff(BinaryData sourceData, BinaryData targetData) {
+        this(sourceData, targetData, ForkJoinPool.commonPool(), DEFAULT_WINDOW_SIZE);
+    }
+
+    public BinaryDiff(BinaryData sourceData, BinaryData targetData, Executor executor, int windowSize) {
+        if (windowSize < ANCHOR_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Window size must be at least anchor block size");
+        }
+        this.sourceData = sourceData;
+        this.targetData = targetData;
+        this.executor = executor;
+        this.windowSize = windowSize;
+        maxPendingRefinements = 4 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Compares data and passes zones of difference to consumer.
+     * <p>
+     * Consumer is called from calling thread.
+     *
+     * @param consumer zones consumer
+     * @throws CancellationException if comparison was cancelled
+     */
+    public void compare(DiffZoneConsumer consumer) {
+        new Comparison(consumer).run();
+    }
+
+    /**
+     * Cancels running comparison.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * State of single comparison.
+     */
+    @NullMarked
+    private final class Comparison {
+
+        private final DiffZoneConsumer consumer;
+        private final long sourceSize;
+        private final long targetSize;
+        private final byte[] sourceWindow = new byte[windowSize];
+        private final byte[] targetWindow = new byte[windowSize];
+        private final byte[] scanBuffer = new byte[windowSize + ANCHOR_BLOCK_SIZE];
+        private final ArrayDeque<CompletableFuture<List<DiffZone>>> pendingZones = new ArrayDeque<>();
+        @Nullable
+        private DiffZone lastZone = null;
+
+        public Comparison(DiffZoneConsumer consumer) {
+            this.consumer = consumer;
+            sourceSize = sourceData.getDataSize();
+            targetSize = targetData.getDataSize();
+        }
+
+        public void run() {
+            long sourcePosition = 0;
+            long targetPosition = 0;
+            while (sourcePosition < sourceSize || targetPosition < targetSize) {
+                if (cancelled) {
+                    throw new CancellationException("Comparison was cancelled");
+                }
+                if (sourcePosition == sourceSize || targetPosition == targetSize) {
+                    addCoarseZones(sourcePosition, sourceSize - sourcePosition, targetPosition, targetSize - targetPosition);
+                    break;
+                }
+
+                int sourceLength = (int) Math.min(windowSize, sourceSize - sourcePosition);
+                int targetLength = (int) Math.min(windowSize, targetSize - targetPosition);
+                sourceData.copyToArray(sourcePosition, sourceWindow, 0, sourceLength);
+                targetData.copyToArray(targetPosition, targetWindow, 0, targetLength);
+                BlockIndex sourceIndex = new BlockIndex(sourceWindow, sourceLength);
+                List<int[]> anchors = findAnchors(sourceIndex, sourceLength, targetLength);
+                if (!anchors.isEmpty()) {
+                    int sourceOffset = 0;
+                    int targetOffset = 0;
+                    for (int[] anchor : anchors) {
+                        addGap(sourcePosition, sourceOffset, anchor[0] - sourceOffset, targetPosition, targetOffset, anchor[1] - targetOffset);
+                        sourceOffset = anchor[0] + anchor[2];
+                        targetOffset = anchor[1] + anchor[2];
+                    }
+                    sourcePosition += sourceOffset;
+                    targetPosition += targetOffset;
+                    continue;
+                }
+
+                if (sourcePosition + sourceLength == sourceSize && targetPosition + targetLength == targetSize) {
+                    addGap(sourcePosition, 0, sourceLength, targetPosition, 0, targetLength);
+                    break;
+                }
+
+                long[] match = findMatch(sourceIndex, sourcePosition, sourceLength, targetPosition, targetLength);
+                if (match != null) {
+                    addCoarseZones(sourcePosition, match[0] - sourcePosition, targetPosition, match[1] - targetPosition);
+                    sourcePosition = match[0];
+                    targetPosition = match[1];
+                } else {
+                    addCoarseZones(sourcePosition, sourceLength, targetPosition, targetLength);
+                    sourcePosition += sourceLength;
+                    targetPosition += targetLength;
+                }
+            }
+
+            while (!pendingZones.isEmpty()) {
+                emitZones(pendingZones.poll().join());
+            }
+            if (lastZone != null) {
+                consumer.zoneFound(lastZone);
+                lastZone = null;
+            }
+        }
+
+        /**
+         * Finds chain of matching areas increasing in both windows.
+         *
+         * @return list of source offset, target offset and length
+         */
+        private List<int[]> findAnchors(BlockIndex sourceIndex, int sourceLength, int targetLength) {
+            List<int[]> anchors = new ArrayList<>();
+            int lastSourceEnd = 0;
+            int lastTargetEnd = 0;
+            int targetOffset = 0;
+            int hash = targetLength >= ANCHOR_BLOCK_SIZE ? computeHash(targetWindow, 0) : 0;
+            while (targetOffset + ANCHOR_BLOCK_SIZE <= targetLength) {
+                int sourceOffset = -1;
+                int indexedOffset = sourceIndex.get(hash);
+                if (indexedOffset >= 0) {
+                    // Prefer continuation on the diagonal of the previous anchor
+                    int diagonalOffset = lastSourceEnd + (targetOffset - lastTargetEnd);
+                    if (diagonalOffset + ANCHOR_BLOCK_SIZE <= sourceLength && matches(sourceWindow, diagonalOffset, targetWindow, targetOffset)) {
+                        sourceOffset = diagonalOffset;
+                    } else if (indexedOffset >= lastSourceEnd && matches(sourceWindow, indexedOffset, targetWindow, targetOffset)) {
+                        sourceOffset = indexedOffset;
+                    }
+                }
+
+                if (sourceOffset >= 0) {
+                    int backward = 0;
+                    while (sourceOffset - backward > lastSourceEnd && targetOffset - backward > lastTargetEnd
+                            && sourceWindow[sourceOffset - backward - 1] == targetWindow[targetOffset - backward - 1]) {
+                        backward++;
+                    }
+                    int forward = ANCHOR_BLOCK_SIZE;
+                    while (sourceOffset + forward < sourceLength && targetOffset + forward < targetLength
+                            && sourceWindow[sourceOffset + forward] == targetWindow[targetOffset + forward]) {
+                        forward++;
+                    }
+                    anchors.add(new int[]{sourceOffset - backward, targetOffset - backward, backward + forward});
+                    lastSourceEnd = sourceOffset + forward;
+                    lastTargetEnd = targetOffset + forward;
+                    targetOffset = lastTargetEnd;
+                    if (targetOffset + ANCHOR_BLOCK_SIZE <= targetLength) {
+                        hash = computeHash(targetWindow, targetOffset);
+                    }
+                    continue;
+                }
+
+                if (targetOffset + ANCHOR_BLOCK_SIZE < targetLength) {
+                    hash = rollHash(hash, targetWindow[targetOffset], targetWindow[targetOffset + ANCHOR_BLOCK_SIZE]);
+                }
+                targetOffset++;
+            }
+            return anchors;
+        }
+
+        /**
+         * Finds nearest position after windows where data match again.
+         *
+         * @return source and target position or null if not found
+         */
+        private long @Nullable [] findMatch(BlockIndex sourceIndex, long sourcePosition, int sourceLength, long targetPosition, int targetLength) {
+            long lookahead = (long) LOOKAHEAD_WINDOWS * windowSize;
+            // Blocks starting inside windows were already checked
+            long[] insertedMatch = scanForBlock(targetData, targetPosition + Math.max(0, targetLength - ANCHOR_BLOCK_SIZE + 1), Math.min(targetSize, targetPosition + lookahead), sourceIndex, sourceWindow);
+            BlockIndex targetIndex = new BlockIndex(targetWindow, targetLength);
+            long[] removedMatch = scanForBlock(sourceData, sourcePosition + Math.max(0, sourceLength - ANCHOR_BLOCK_SIZE + 1), Math.min(sourceSize, sourcePosition + lookahead), targetIndex, targetWindow);
+            if (insertedMatch == null && removedMatch == null) {
+                return null;
+            }
+
+            long[] match = null;
+            if (insertedMatch != null) {
+                match = new long[]{sourcePosition + insertedMatch[0], insertedMatch[1]};
+            }
+            if (removedMatch != null) {
+                long[] removedCandidate = new long[]{removedMatch[1], targetPosition + removedMatch[0]};
+                if (match == null || removedCandidate[0] - sourcePosition + removedCandidate[1] - targetPosition < match[0] - sourcePosition + match[1] - targetPosition) {
+                    match = removedCandidate;
+                }
+            }
+            return match;
+        }
+
+        /**
+         * Scans data for first block present in index.
+         *
+         * @return indexed offset and scanned position or null if not found
+         */
+        private long @Nullable [] scanForBlock(BinaryData data, long startPosition, long endPosition, BlockIndex index, byte[] indexedData) {
+            long position = startPosition;
+            while (position + ANCHOR_BLOCK_SIZE <= endPosition) {
+                if (cancelled) {
+                    throw new CancellationException("Comparison was cancelled");
+                }
+                int length = (int) Math.min(scanBuffer.length, endPosition - position);
+                data.copyToArray(position, scanBuffer, 0, length);
+                int hash = computeHash(scanBuffer, 0);
+                for (int offset = 0; offset + ANCHOR_BLOCK_SIZE <= length; offset++) {
+                    if (offset > 0) {
+                        hash = rollHash(hash, scanBuffer[offset - 1], scanBuffer[offset + ANCHOR_BLOCK_SIZE - 1]);
+                    }
+                    int indexedOffset = index.get(hash);
+                    if (indexedOffset >= 0 && matches(indexedData, indexedOffset, scanBuffer, offset)) {
+                        return new long[]{indexedOffset, position + offset};
+                    }
+                }
+                position += length - ANCHOR_BLOCK_SIZE + 1;
+            }
+            return null;
+        }
+
+        /**
+         * Adds zones for differing areas in loaded windows.
+         */
+        private void addGap(long sourcePosition, int sourceOffset, int sourceLength, long targetPosition, int targetOffset, int targetLength) {
+            if (sourceLength == 0 || targetLength == 0 || sourceLength > MAX_REFINED_LENGTH || targetLength > MAX_REFINED_LENGTH) {
+                addCoarseZones(sourcePosition + sourceOffset, sourceLength, targetPosition + targetOffset, targetLength);
+                return;
+            }
+
+            byte[] sourcePart = Arrays.copyOfRange(sourceWindow, sourceOffset, sourceOffset + sourceLength);
+            byte[] targetPart = Arrays.copyOfRange(targetWindow, targetOffset, targetOffset + targetLength);
+            long refinedSourcePosition = sourcePosition + sourceOffset;
+            long refinedTargetPosition = targetPosition + targetOffset;
+            addPendingZones(CompletableFuture.supplyAsync(() -> refine(sourcePart, refinedSourcePosition, targetPart, refinedTargetPosition), executor));
+        }
+
+        private void addCoarseZones(long sourcePosition, long sourceLength, long targetPosition, long targetLength) {
+            List<DiffZone> zones = new ArrayList<>();
+            addEditZones(zones, sourcePosition, sourceLength, targetPosition, targetLength);
+            addPendingZones(CompletableFuture.completedFuture(zones));
+        }
+
+        private void addPendingZones(CompletableFuture<List<DiffZone>> zones) {
+            pendingZones.add(zones);
+            while (!pendingZones.isEmpty() && (pendingZones.peek().isDone() || pendingZones.size() > maxPendingRefinements)) {
+                emitZones(pendingZones.poll().join());
+            }
+        }
+
+        /**
+         * Passes zones to consumer, consecutive zones of the same type are
+         * merged.
+         */
+        private void emitZones(List<DiffZone> zones) {
+            for (DiffZone zone : zones) {
+                DiffZone previousZone = lastZone;
+                if (previousZone != null) {
+                    if (previousZone.getZoneType() == zone.getZoneType()
+                            && previousZone.getSourcePosition() + previousZone.getSourceLength() == zone.getSourcePosition()
+                            && previousZone.getTargetPosition() + previousZone.getTargetLength() == zone.getTargetPosition()) {
+                        lastZone = new DiffZone(zone.getZoneType(), previousZone.getSourcePosition(), previousZone.getSourceLength() + zone.getSourceLength(),
+                                previousZone.getTargetPosition(), previousZone.getTargetLength() + zone.getTargetLength());
+                        continue;
+                    }
+                    consumer.zoneFound(previousZone);
+                }
+                lastZone = zone;
+            }
+        }
+    }
+
+    /**
+     * Refines differing area using Myers difference algorithm.
+     */
+    private static List<DiffZone> refine(byte[] source, long sourcePosition, byte[] target, long targetPosition) {
+        int sourceLength = source.length;
+        int targetLength = target.length;
+        int offset = MAX_REFINED_EDITS + 1;
+        int[] furthest = new int[2 * offset + 1];
+        List<int[]> trace = new ArrayList<>();
+        int editsCount = -1;
+        for (int edits = 0; edits <= MAX_REFINED_EDITS && editsCount < 0; edits++) {
+            trace.add(furthest.clone());
+            for (int diagonal = -edits; diagonal <= edits; diagonal += 2) {
+                int x;
+                if (diagonal == -edits || (diagonal != edits && furthest[offset + diagonal - 1] < furthest[offset + diagonal + 1])) {
+                    x = furthest[offset + diagonal + 1];
+                } else {
+                    x = furthest[offset + diagonal - 1] + 1;
+                }
+                int y = x - diagonal;
+                while (x < sourceLength && y < targetLength && source[x] == target[y]) {
+                    x++;
+                    y++;
+                }
+                furthest[offset + diagonal] = x;
+                if (x >= sourceLength && y >= targetLength) {
+                    editsCount = edits;
+                    break;
+                }
+            }
+        }
+
+        List<DiffZone> zones = new ArrayList<>();
+        if (editsCount < 0) {
+            addEditZones(zones, sourcePosition, sourceLength, targetPosition, targetLength);
+            return zones;
+        }
+
+        // Backtrack edits from the end, operations are stored in reverse order
+        byte[] operations = new byte[sourceLength + targetLength];
+        int operationsCount = 0;
+        int x = sourceLength;
+        int y = targetLength;
+        for (int edits = editsCount; edits > 0; edits--) {
+            int[] previous = trace.get(edits);
+            int diagonal = x - y;
+            int previousDiagonal;
+            if (diagonal == -edits || (diagonal != edits && previous[offset + diagonal - 1] < previous[offset + diagonal + 1])) {
+                previousDiagonal = diagonal + 1;
+            } else {
+                previousDiagonal = diagonal - 1;
+            }
+            int previousX = previous[offset + previousDiagonal];
+            int previousY = previousX - previousDiagonal;
+            while (x > previousX && y > previousY) {
+                operations[operationsCount++] = EditOperation.MATCH;
+                x--;
+                y--;
+            }
+            operations[operationsCount++] = previousDiagonal == diagonal + 1 ? EditOperation.INSERT : EditOperation.REMOVE;
+            x = previousX;
+            y = previousY;
+        }
+        while (x > 0 && y > 0) {
+            operations[operationsCount++] = EditOperation.MATCH;
+            x--;
+            y--;
+        }
+
+        long sourceEditPosition = sourcePosition;
+        long targetEditPosition = targetPosition;
+        int removedCount = 0;
+        int insertedCount = 0;
+        for (int i = operationsCount - 1; i >= 0; i--) {
+            switch (operations[i]) {
+                case EditOperation.MATCH:
+                    addEditZones(zones, sourceEditPosition, removedCount, targetEditPosition, insertedCount);
+                    sourceEditPosition += removedCount + 1;
+                    targetEditPosition += insertedCount + 1;
+                    removedCount = 0;
+                    insertedCount = 0;
+                    break;
+                case EditOperation.REMOVE:
+                    removedCount++;
+                    break;
+                default:
+                    insertedCount++;
+                    break;
+            }
+        }
+        addEditZones(zones, sourceEditPosition, removedCount, targetEditPosition, insertedCount);
+        return zones;
+    }
+
+    /**
+     * Adds zones for replacing of source area with target area.
+     */
+    private static void addEditZones(List<DiffZone> zones, long sourcePosition, long sourceLength, long targetPosition, long targetLength) {
+        long replacedLength = Math.min(sourceLength, targetLength);
+        if (replacedLength > 0) {
+            zones.add(new DiffZone(DiffZoneType.REPLACED, sourcePosition, replacedLength, targetPosition, replacedLength));
+        }
+        if (sourceLength > replacedLength) {
+            zones.add(new DiffZone(DiffZoneType.REMOVED, sourcePosition + replacedLength, sourceLength - replacedLength, targetPosition + replacedLength, 0));
+        } else if (targetLength > replacedLength) {
+            zones.add(new DiffZone(DiffZoneType.INSERTED, sourcePosition + replacedLength, 0, targetPosition + replacedLength, targetLength - replacedLength));
+        }
+    }
+
+    private static boolean matches(byte[] data, int offset, byte[] otherData, int otherOffset) {
+        for (int i = 0; i < ANCHOR_BLOCK_SIZE; i++) {
+            if (data[offset + i] != otherData[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int computeHash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = 0; i < ANCHOR_BLOCK_SIZE; i++) {
+            hash = hash * HASH_BASE + (data[offset + i] & 0xff);
+        }
+        return hash;
+    }
+
+    private static int rollHash(int hash, byte removed, byte added) {
+        return (hash - (removed & 0xff) * HashPower.VALUE) * HASH_BASE + (added & 0xff);
+    }
+
+    @NullMarked
+    private static final class HashPower {
+
+        /**
+         * Hash base powered to block size minus one.
+         */
+        private static final int VALUE;
+
+        static {
+            int value = 1;
+            for (int i = 1; i < ANCHOR_BLOCK_SIZE; i++) {
+                value *= HASH_BASE;
+            }
+            VALUE = value;
+        }
+    }
+
+    @NullMarked
+    private static final class EditOperation {
+
+        private static final byte MATCH = 0;
+        private static final byte REMOVE = 1;
+        private static final byte INSERT = 2;
+    }
+
+    /**
+     * Open addressing index of hashes of aligned blocks to their first offset.
+     */
+    @NullMarked
+    private static final class BlockIndex {
+
+        private final int[] hashes;
+        private final int[] offsets;
+        private final int mask;
+
+        public BlockIndex(byte[] data, int length) {
+            int blocksCount = length / ANCHOR_BLOCK_SIZE;
+            int capacity = Integer.highestOneBit(Math.max(blocksCount, 1) * 2 - 1) << 1;
+            hashes = new int[capacity];
+            offsets = new int[capacity];
+            mask = capacity - 1;
+            for (int block = 0; block < blocksCount; block++) {
+                int offset = block * ANCHOR_BLOCK_SIZE;
+                int hash = computeHash(data, offset);
+                int slot = slotOf(hash);
+                while (offsets[slot] != 0 && hashes[slot] != hash) {
+                    slot = (slot + 1) & mask;
+                }
+                if (offsets[slot] == 0) {
+                    hashes[slot] = hash;
+                    offsets[slot] = offset + 1;
+                }
+            }
+        }
+
+        /**
+         * Returns offset of block with given hash.
+         *
+         * @return offset or -1 if not found
+         */
+        public int get(int hash) {
+            int slot = slotOf(hash);
+            while (offsets[slot] != 0) {
+                if (hashes[slot] == hash) {
+                    return offsets[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slotOf(int hash) {
+            return ((hash * 0x9e3779b9) >>> 7) & mask;
+        }
+    }
+}
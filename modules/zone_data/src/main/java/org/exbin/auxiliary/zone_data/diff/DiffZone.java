@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.diff;
+
+import javax.annotation.concurrent.Immutable;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.zone_data.DiffZoneType;
+
+/**
+ * Zone of difference between source and target data.
+ * <p>
+ * Inserted zone has zero source length and removed zone has zero target
+ * length.
+ */
+@Immutable
+@NullMarked
+public class DiffZone {
+
+    private final DiffZoneType zoneType;
+    private final long sourcePosition;
+    private final long sourceLength;
+    private final long targetPosition;
+    private final long targetLength;
+
+    public DiffZone(DiffZoneType zoneType, long sourcePosition, long sourceLength, long targetPosition, long targetLength) {
+        this.zoneType = zoneType;
+        this.sourcePosition = sourcePosition;
+        this.sourceLength = sourceLength;
+        this.targetPosition = targetPosition;
+        this.targetLength = targetLength;
+    }
+
+    public DiffZoneType getZoneType() {
+        return zoneType;
+    }
+
+    public long getSourcePosition() {
+        return sourcePosition;
+    }
+
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    public long getTargetPosition() {
+        return targetPosition;
+    }
+
+    public long getTargetLength() {
+        return targetLength;
+    }
+}
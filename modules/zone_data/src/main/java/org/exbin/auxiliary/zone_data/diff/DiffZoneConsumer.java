@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.diff;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Consumer of zones of difference.
+ */
+@NullMarked
+public interface DiffZoneConsumer {
+
+    /**
+     * Processes zone of difference.
+     * <p>
+     * Zones are passed in order of their positions.
+     *
+     * @param zone zone
+     */
+    void zoneFound(DiffZone zone);
+}
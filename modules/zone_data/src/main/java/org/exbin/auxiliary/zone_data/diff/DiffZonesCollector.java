@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.diff;
+
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.zone_data.DefaultZoneDataSource;
+
+/**
+ * Consumer of zones of difference collecting zones to zone data sources of
+ * source and target data.
+ * <p>
+ * Source zones contain removed and replaced zones, target zones contain
+ * inserted and replaced zones. Zone data sources are modified while holding
+ * their monitor, so that they can be read while comparison is running.
+ */
+@NullMarked
+public class DiffZonesCollector implements DiffZoneConsumer {
+
+    private final DefaultZoneDataSource sourceZones;
+    private final DefaultZoneDataSource targetZones;
+
+    public DiffZonesCollector(long sourceDataSize, long targetDataSize) {
+        sourceZones = new DefaultZoneDataSource(sourceDataSize);
+        targetZones = new DefaultZoneDataSource(targetDataSize);
+    }
+
+    public DefaultZoneDataSource getSourceZones() {
+        return sourceZones;
+    }
+
+    public DefaultZoneDataSource getTargetZones() {
+        return targetZones;
+    }
+
+    @Override
+    public void zoneFound(DiffZone zone) {
+        if (zone.getSourceLength() > 0) {
+            synchronized (sourceZones) {
+                sourceZones.addZone(zone.getZoneType(), zone.getSourcePosition(), zone.getSourcePosition() + zone.getSourceLength() - 1);
+            }
+        }
+        if (zone.getTargetLength() > 0) {
+            synchronized (targetZones) {
+                targetZones.addZone(zone.getZoneType(), zone.getTargetPosition(), zone.getTargetPosition() + zone.getTargetLength() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+/**
+ * Finder of rows terminated by delimiter byte, such as new line.
+ * <p>
+ * Delimiter is included in the row. Data are read in blocks which are kept
+ * for following rows.
+ */
+@NullMarked
+public class DelimiterRowBoundaryFinder implements RowBoundaryFinder {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final byte delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private long bufferStart = 0;
+    private int bufferLength = 0;
+
+    public DelimiterRowBoundaryFinder(byte delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public byte getDelimiter() {
+        return delimiter;
+    }
+
+    @Override
+    public long findNextRowStart(BinaryData data, long rowStart) {
+        long dataSize = data.getDataSize();
+        long position = rowStart;
+        while (position < dataSize) {
+            if (position < bufferStart || position >= bufferStart + bufferLength) {
+                bufferStart = position;
+                bufferLength = (int) Math.min(BUFFER_SIZE, dataSize - position);
+                data.copyToArray(position, buffer, 0, bufferLength);
+            }
+
+            int offset = (int) (position - bufferStart);
+            while (offset < bufferLength) {
+                if (buffer[offset] == delimiter) {
+                    return bufferStart + offset + 1;
+                }
+                offset++;
+            }
+            position = bufferStart + bufferLength;
+        }
+        return dataSize;
+    }
+
+    @Override
+    public void reset() {
+        bufferLength = 0;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import java.util.Optional;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.zone_data.RowZoneType;
+import org.exbin.auxiliary.zone_data.ZoneData;
+import org.exbin.auxiliary.zone_data.ZoneDataSource;
+import org.exbin.auxiliary.zone_data.ZoneState;
+import org.exbin.auxiliary.zone_data.ZoneType;
+
+/**
+ * Zone data source of rows of fixed length.
+ * <p>
+ * Rows are computed from data size and row length without storing any zones,
+ * last row can be shorter.
+ */
+@NullMarked
+public class FixedRowZoneDataSource implements ZoneDataSource {
+
+    private long dataSize;
+    private long rowLength;
+
+    public FixedRowZoneDataSource(long dataSize, long rowLength) {
+        if (dataSize < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        if (rowLength <= 0) {
+            throw new IllegalArgumentException("Row length must be positive");
+        }
+        this.dataSize = dataSize;
+        this.rowLength = rowLength;
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public void setDataSize(long dataSize) {
+        if (dataSize < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        this.dataSize = dataSize;
+    }
+
+    public long getRowLength() {
+        return rowLength;
+    }
+
+    public void setRowLength(long rowLength) {
+        if (rowLength <= 0) {
+            throw new IllegalArgumentException("Row length must be positive");
+        }
+        this.rowLength = rowLength;
+    }
+
+    /**
+     * Returns index of row on given data position.
+     *
+     * @param dataPosition data position
+     * @return row index
+     */
+    public long findZoneIndex(long dataPosition) {
+        checkPosition(dataPosition);
+        return dataPosition / rowLength;
+    }
+
+    @Override
+    public ZoneData getZone(long zoneIndex) {
+        checkZoneIndex(zoneIndex);
+        return new ZoneData(RowZoneType.ROW, zoneIndex * rowLength, getRowEnd(zoneIndex));
+    }
+
+    @Override
+    public long getZonesCount() {
+        return dataSize / rowLength + (dataSize % rowLength > 0 ? 1 : 0);
+    }
+
+    @Override
+    public void updateZoneState(ZoneState zoneState, long zoneIndex) {
+        checkZoneIndex(zoneIndex);
+        zoneState.setZoneType(RowZoneType.ROW);
+        zoneState.setStartPosition(zoneIndex * rowLength);
+        zoneState.setEndPosition(getRowEnd(zoneIndex));
+    }
+
+    @Override
+    public Optional<ZoneType> findZoneType(long dataPosition) {
+        checkPosition(dataPosition);
+        return Optional.of(RowZoneType.ROW);
+    }
+
+    @Override
+    public ZoneType findZone(long dataPosition) {
+        checkPosition(dataPosition);
+        return RowZoneType.ROW;
+    }
+
+    @Override
+    public DataRange findZoneRange(long dataPosition) {
+        long rowIndex = findZoneIndex(dataPosition);
+        return new DataRange(rowIndex * rowLength, getRowEnd(rowIndex));
+    }
+
+    @Override
+    public long findZoneStart(long dataPosition) {
+        return findZoneIndex(dataPosition) * rowLength;
+    }
+
+    @Override
+    public long findZoneEnd(long dataPosition) {
+        return getRowEnd(findZoneIndex(dataPosition));
+    }
+
+    @Override
+    public void findZoneState(ZoneState zoneState, long dataPosition) {
+        updateZoneState(zoneState, findZoneIndex(dataPosition));
+    }
+
+    private long getRowEnd(long rowIndex) {
+        long rowStart = rowIndex * rowLength;
+        return rowStart + Math.min(rowLength, dataSize - rowStart) - 1;
+    }
+
+    private void checkZoneIndex(long zoneIndex) {
+        if (zoneIndex < 0 || zoneIndex >= getZonesCount()) {
+            throw new OutOfBoundsException("Zone index " + zoneIndex + " is out of range");
+        }
+    }
+
+    private void checkPosition(long dataPosition) {
+        if (dataPosition < 0 || dataPosition >= dataSize) {
+            throw new OutOfBoundsException("Position " + dataPosition + " is out of data range");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+/**
+ * Finder of records prefixed with unsigned length of record data.
+ * <p>
+ * Row contains length prefix followed by record data. Record which doesn't
+ * fit into data ends with data.
+ */
+@NullMarked
+public class LengthPrefixRowBoundaryFinder implements RowBoundaryFinder {
+
+    private final int prefixLength;
+    private final boolean bigEndian;
+
+    /**
+     * Creates finder for records with length prefix.
+     *
+     * @param prefixLength length of prefix in bytes from 1 to 7
+     * @param bigEndian true for big endian prefix, little endian otherwise
+     */
+    public LengthPrefixRowBoundaryFinder(int prefixLength, boolean bigEndian) {
+        if (prefixLength < 1 || prefixLength > 7) {
+            throw new IllegalArgumentException("Unsupported prefix length " + prefixLength);
+        }
+        this.prefixLength = prefixLength;
+        this.bigEndian = bigEndian;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    public boolean isBigEndian() {
+        return bigEndian;
+    }
+
+    @Override
+    public long findNextRowStart(BinaryData data, long rowStart) {
+        long dataSize = data.getDataSize();
+        if (dataSize - rowStart <= prefixLength) {
+            return dataSize;
+        }
+
+        long recordLength = 0;
+        for (int i = 0; i < prefixLength; i++) {
+            int value = data.getByte(rowStart + (bigEndian ? i : prefixLength - 1 - i)) & 0xff;
+            recordLength = (recordLength << 8) | value;
+        }
+        long recordStart = rowStart + prefixLength;
+        return recordLength >= dataSize - recordStart ? dataSize : recordStart + recordLength;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+/**
+ * Finder of boundaries of rows of variable length.
+ * <p>
+ * Finder is used by single thread at a time and can keep state between
+ * consecutive calls.
+ */
+@NullMarked
+public interface RowBoundaryFinder {
+
+    /**
+     * Returns start position of the row following the row starting on given
+     * position.
+     *
+     * @param data data
+     * @param rowStart start position of the row
+     * @return start position of the next row greater than row start or data
+     * size if row ends with data
+     */
+    long findNextRowStart(BinaryData data, long rowStart);
+
+    /**
+     * Drops any state kept from previous calls as data has changed.
+     */
+    default void reset() {
+    }
+}
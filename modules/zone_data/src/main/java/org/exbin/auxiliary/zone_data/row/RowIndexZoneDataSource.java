@@ -0,0 +1,530 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.zone_data.RowZoneType;
+import org.exbin.auxiliary.zone_data.SparseZoneData;
+import org.exbin.auxiliary.zone_data.ZoneData;
+import org.exbin.auxiliary.zone_data.ZoneDataSource;
+import org.exbin.auxiliary.zone_data.ZoneNotPresentException;
+import org.exbin.auxiliary.zone_data.ZoneState;
+import org.exbin.auxiliary.zone_data.ZoneType;
+
+/**
+ * Zone data source of rows of variable length with index of row starts.
+ * <p>
+ * Index is built from the start of data by row boundary finder, either in
+ * batches on executor or by explicit call. Rows are available as soon as they
+ * are indexed, data after indexed rows are reported as not present.
+ * <p>
+ * Row starts are stored in chunks of int offsets to start position of the
+ * chunk, so that both row for data position and position of row are found by
+ * binary search over chunks and offsets inside chunk.
+ * <p>
+ * Edits of data have to be reported. Rows are rescanned from the row
+ * containing edit until row start matches shifted start of row after the
+ * edit, following chunks are then shifted without rescanning. Next row start
+ * returned by finder must depend on data from the row start only.
+ */
+@NullMarked
+public class RowIndexZoneDataSource implements ZoneDataSource, SparseZoneData {
+
+    private static final int CHUNK_ROWS = 4096;
+    private static final int INITIAL_CHUNK_CAPACITY = 64;
+    private static final int INDEXING_BATCH_ROWS = 4096;
+    private static final int REINDEX_ROWS_LIMIT = 4096;
+
+    private final BinaryData data;
+    private final RowBoundaryFinder finder;
+    private final List<RowChunk> chunks = new ArrayList<>();
+    private long dataSize;
+    private long rowsCount = 0;
+    /**
+     * End of the last indexed row which is also start of the next row.
+     */
+    private long indexedEnd = 0;
+    /**
+     * Counter of changes used to drop rows scanned before the change.
+     */
+    private int generation = 0;
+    /**
+     * Generation of data of the last use of finder, guarded by finder.
+     */
+    private int finderGeneration = -1;
+    @Nullable
+    private Executor executor = null;
+    private boolean indexingScheduled = false;
+
+    public RowIndexZoneDataSource(BinaryData data, RowBoundaryFinder finder) {
+        this.data = data;
+        this.finder = finder;
+        dataSize = data.getDataSize();
+    }
+
+    public BinaryData getData() {
+        return data;
+    }
+
+    public synchronized long getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * Returns size of data covered by indexed rows.
+     *
+     * @return indexed data size
+     */
+    public synchronized long getIndexedDataSize() {
+        return indexedEnd;
+    }
+
+    public synchronized boolean isIndexComplete() {
+        return indexedEnd >= dataSize;
+    }
+
+    /**
+     * Starts building of index in background on given executor.
+     * <p>
+     * Indexing continues after edits of data until stopped.
+     *
+     * @param executor executor
+     */
+    public synchronized void startIndexing(Executor executor) {
+        this.executor = executor;
+        scheduleIndexing();
+    }
+
+    /**
+     * Stops building of index in background after current batch.
+     */
+    public synchronized void stopIndexing() {
+        executor = null;
+    }
+
+    /**
+     * Builds remaining index in the current thread.
+     */
+    public void buildIndex() {
+        while (indexBatch()) {
+            // Continue until index is complete
+        }
+    }
+
+    /**
+     * Updates index after insertion of data.
+     *
+     * @param position position of inserted data
+     * @param length length of inserted data
+     */
+    public void insertData(long position, long length) {
+        updateRows(position, 0, length);
+    }
+
+    /**
+     * Updates index after removal of data.
+     *
+     * @param position position of removed data
+     * @param length length of removed data
+     */
+    public void removeData(long position, long length) {
+        updateRows(position, length, 0);
+    }
+
+    /**
+     * Updates index after modification of data without change of size.
+     *
+     * @param position position of modified data
+     * @param length length of modified data
+     */
+    public void modifyData(long position, long length) {
+        updateRows(position, length, length);
+    }
+
+    /**
+     * Returns index of row on given data position.
+     *
+     * @param dataPosition data position
+     * @return row index
+     * @throws ZoneNotPresentException if position is not indexed yet
+     */
+    public synchronized long findZoneIndex(long dataPosition) {
+        checkIndexedPosition(dataPosition);
+        return findRow(dataPosition);
+    }
+
+    @Override
+    public synchronized ZoneData getZone(long zoneIndex) {
+        checkZoneIndex(zoneIndex);
+        return new ZoneData(RowZoneType.ROW, getRowStart(zoneIndex), getRowEnd(zoneIndex));
+    }
+
+    /**
+     * Returns count of rows indexed so far.
+     *
+     * @return count of rows
+     */
+    @Override
+    public synchronized long getZonesCount() {
+        return rowsCount;
+    }
+
+    @Override
+    public synchronized void updateZoneState(ZoneState zoneState, long zoneIndex) {
+        checkZoneIndex(zoneIndex);
+        zoneState.setZoneType(RowZoneType.ROW);
+        zoneState.setStartPosition(getRowStart(zoneIndex));
+        zoneState.setEndPosition(getRowEnd(zoneIndex));
+    }
+
+    @Override
+    public synchronized Optional<ZoneType> findZoneType(long dataPosition) {
+        checkIndexedPosition(dataPosition);
+        return Optional.of(RowZoneType.ROW);
+    }
+
+    @Override
+    public synchronized ZoneType findZone(long dataPosition) {
+        checkIndexedPosition(dataPosition);
+        return RowZoneType.ROW;
+    }
+
+    @Override
+    public synchronized DataRange findZoneRange(long dataPosition) {
+        long rowIndex = findZoneIndex(dataPosition);
+        return new DataRange(getRowStart(rowIndex), getRowEnd(rowIndex));
+    }
+
+    @Override
+    public synchronized long findZoneStart(long dataPosition) {
+        return getRowStart(findZoneIndex(dataPosition));
+    }
+
+    @Override
+    public synchronized long findZoneEnd(long dataPosition) {
+        return getRowEnd(findZoneIndex(dataPosition));
+    }
+
+    @Override
+    public synchronized void findZoneState(ZoneState zoneState, long dataPosition) {
+        updateZoneState(zoneState, findZoneIndex(dataPosition));
+    }
+
+    @Override
+    public synchronized boolean isDataPresent(long position) {
+        return position < indexedEnd;
+    }
+
+    @Override
+    public synchronized long closestNextPossiblePresenceChange(long position) {
+        return position < indexedEnd ? indexedEnd : dataSize;
+    }
+
+    @Override
+    public synchronized long closestPreviousPossiblePresenceChange(long position) {
+        return position >= indexedEnd ? indexedEnd - 1 : -1;
+    }
+
+    private void updateRows(long position, long oldLength, long newLength) {
+        synchronized (this) {
+            generation++;
+            dataSize = data.getDataSize();
+            long rowPosition = position > 0 ? position - 1 : 0;
+            if (rowPosition < indexedEnd) {
+                reindexRows(findRow(rowPosition), position + oldLength, newLength - oldLength);
+            }
+            scheduleIndexing();
+        }
+    }
+
+    /**
+     * Rescans rows from given row until row start matches start of row after
+     * edit or limit of rows is reached.
+     *
+     * @param rowIndex index of the first affected row
+     * @param oldEditEnd end of edited area before edit
+     * @param shift shift of data after edit
+     */
+    private void reindexRows(long rowIndex, long oldEditEnd, long shift) {
+        long nextOldRow = oldEditEnd >= indexedEnd ? rowsCount : findRow(oldEditEnd);
+        if (nextOldRow < rowsCount && getRowStart(nextOldRow) < oldEditEnd) {
+            nextOldRow++;
+        }
+
+        long[] rowStarts = new long[INITIAL_CHUNK_CAPACITY];
+        int count = 0;
+        long position = getRowStart(rowIndex);
+        synchronized (finder) {
+            finder.reset();
+            finderGeneration = generation;
+            while (position < dataSize && count < REINDEX_ROWS_LIMIT) {
+                if (count == rowStarts.length) {
+                    rowStarts = Arrays.copyOf(rowStarts, count * 2);
+                }
+                rowStarts[count++] = position;
+                long next = findNextRowStart(position, dataSize);
+                while (nextOldRow < rowsCount && getRowStart(nextOldRow) + shift < next) {
+                    nextOldRow++;
+                }
+                if (nextOldRow < rowsCount && getRowStart(nextOldRow) + shift == next) {
+                    replaceRows(rowIndex, nextOldRow, rowStarts, count, shift);
+                    indexedEnd += shift;
+                    return;
+                }
+
+                position = next;
+                if (nextOldRow == rowsCount && position >= indexedEnd + shift) {
+                    break;
+                }
+            }
+        }
+
+        replaceRows(rowIndex, rowsCount, rowStarts, count, shift);
+        indexedEnd = position;
+    }
+
+    /**
+     * Replaces rows in given range with new rows and shifts following rows.
+     *
+     * @param fromRow first replaced row
+     * @param toRow row after the last replaced row
+     * @param rowStarts starts of new rows
+     * @param count count of new rows
+     * @param shift shift of data positions of following rows
+     */
+    private void replaceRows(long fromRow, long toRow, long[] rowStarts, int count, long shift) {
+        int firstChunkIndex = findChunk(fromRow);
+        RowChunk firstChunk = chunks.get(firstChunkIndex);
+        List<RowChunk> replacement = new ArrayList<>();
+        long row = firstChunk.firstRow;
+        for (int i = 0; i < fromRow - firstChunk.firstRow; i++) {
+            addRowStart(replacement, row++, firstChunk.basePosition + firstChunk.offsets[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            addRowStart(replacement, row++, rowStarts[i]);
+        }
+
+        int lastChunkIndex = toRow < rowsCount ? findChunk(toRow) : chunks.size() - 1;
+        RowChunk lastChunk = chunks.get(lastChunkIndex);
+        for (int i = (int) (toRow - lastChunk.firstRow); i < lastChunk.count; i++) {
+            addRowStart(replacement, row++, lastChunk.basePosition + lastChunk.offsets[i] + shift);
+        }
+
+        long rowsShift = row - (lastChunk.firstRow + lastChunk.count);
+        for (int i = lastChunkIndex + 1; i < chunks.size(); i++) {
+            RowChunk chunk = chunks.get(i);
+            chunk.firstRow += rowsShift;
+            chunk.basePosition += shift;
+        }
+        chunks.subList(firstChunkIndex, lastChunkIndex + 1).clear();
+        chunks.addAll(firstChunkIndex, replacement);
+        rowsCount += rowsShift;
+    }
+
+    private synchronized void scheduleIndexing() {
+        Executor currentExecutor = executor;
+        if (currentExecutor != null && !indexingScheduled && indexedEnd < dataSize) {
+            indexingScheduled = true;
+            currentExecutor.execute(this::indexRows);
+        }
+    }
+
+    private void indexRows() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (executor == null || indexedEnd >= dataSize) {
+                        indexingScheduled = false;
+                        return;
+                    }
+                }
+                indexBatch();
+            }
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                indexingScheduled = false;
+            }
+            Logger.getLogger(RowIndexZoneDataSource.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+
+    /**
+     * Scans next batch of rows and appends them to index unless data were
+     * changed meanwhile.
+     *
+     * @return false if index is complete
+     */
+    private boolean indexBatch() {
+        long rowStart;
+        long size;
+        int batchGeneration;
+        synchronized (this) {
+            if (indexedEnd >= dataSize) {
+                return false;
+            }
+            rowStart = indexedEnd;
+            size = dataSize;
+            batchGeneration = generation;
+        }
+
+        long[] rowEnds = new long[INDEXING_BATCH_ROWS];
+        int count = 0;
+        try {
+            synchronized (finder) {
+                if (finderGeneration != batchGeneration) {
+                    finder.reset();
+                    finderGeneration = batchGeneration;
+                }
+                while (count < INDEXING_BATCH_ROWS && rowStart < size) {
+                    rowStart = findNextRowStart(rowStart, size);
+                    rowEnds[count++] = rowStart;
+                }
+            }
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                if (batchGeneration != generation) {
+                    return true;
+                }
+            }
+            throw ex;
+        }
+
+        synchronized (this) {
+            if (batchGeneration == generation) {
+                for (int i = 0; i < count; i++) {
+                    addRowStart(chunks, rowsCount, indexedEnd);
+                    rowsCount++;
+                    indexedEnd = rowEnds[i];
+                }
+            }
+        }
+        return true;
+    }
+
+    private long findNextRowStart(long rowStart, long size) {
+        long next = finder.findNextRowStart(data, rowStart);
+        if (next <= rowStart) {
+            throw new IllegalStateException("Row boundary finder returned invalid position " + next + " for row starting at " + rowStart);
+        }
+        return Math.min(next, size);
+    }
+
+    private static void addRowStart(List<RowChunk> chunkList, long rowIndex, long rowStart) {
+        RowChunk chunk = chunkList.isEmpty() ? null : chunkList.get(chunkList.size() - 1);
+        if (chunk == null || chunk.count == CHUNK_ROWS || rowStart - chunk.basePosition > Integer.MAX_VALUE) {
+            chunk = new RowChunk(rowIndex, rowStart);
+            chunkList.add(chunk);
+        } else if (chunk.count == chunk.offsets.length) {
+            chunk.offsets = Arrays.copyOf(chunk.offsets, Math.min(chunk.count * 2, CHUNK_ROWS));
+        }
+        chunk.offsets[chunk.count++] = (int) (rowStart - chunk.basePosition);
+    }
+
+    private long getRowStart(long rowIndex) {
+        RowChunk chunk = chunks.get(findChunk(rowIndex));
+        return chunk.basePosition + chunk.offsets[(int) (rowIndex - chunk.firstRow)];
+    }
+
+    private long getRowEnd(long rowIndex) {
+        return (rowIndex + 1 < rowsCount ? getRowStart(rowIndex + 1) : indexedEnd) - 1;
+    }
+
+    /**
+     * Returns index of chunk containing given row.
+     */
+    private int findChunk(long rowIndex) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chunks.get(middle).firstRow <= rowIndex) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns index of row containing given indexed position.
+     */
+    private long findRow(long dataPosition) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chunks.get(middle).basePosition <= dataPosition) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        RowChunk chunk = chunks.get(high);
+        int offset = (int) Math.min(dataPosition - chunk.basePosition, Integer.MAX_VALUE);
+        int index = Arrays.binarySearch(chunk.offsets, 0, chunk.count, offset);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return chunk.firstRow + index;
+    }
+
+    private void checkZoneIndex(long zoneIndex) {
+        if (zoneIndex < 0 || (zoneIndex >= rowsCount && indexedEnd >= dataSize)) {
+            throw new OutOfBoundsException("Zone index " + zoneIndex + " is out of range");
+        }
+        if (zoneIndex >= rowsCount) {
+            throw new ZoneNotPresentException("Row is not indexed yet", new DataRange(indexedEnd, dataSize - 1));
+        }
+    }
+
+    private void checkIndexedPosition(long dataPosition) {
+        if (dataPosition < 0 || dataPosition >= dataSize) {
+            throw new OutOfBoundsException("Position " + dataPosition + " is out of data range");
+        }
+        if (dataPosition >= indexedEnd) {
+            throw new ZoneNotPresentException("Row is not indexed yet", new DataRange(indexedEnd, dataSize - 1));
+        }
+    }
+
+    /**
+     * Chunk of row starts stored as offsets to the base position.
+     */
+    private static final class RowChunk {
+
+        long firstRow;
+        long basePosition;
+        int[] offsets = new int[INITIAL_CHUNK_CAPACITY];
+        int count = 0;
+
+        RowChunk(long firstRow, long basePosition) {
+            this.firstRow = firstRow;
+            this.basePosition = basePosition;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for default zone data source.
+ */
+@NullMarked
+public class DefaultZoneDataSourceTest {
+
+    public DefaultZoneDataSourceTest() {
+    }
+
+    @Test
+    public void testZones() {
+        DefaultZoneDataSource source = createSampleSource();
+        Assert.assertEquals(3, source.getZonesCount());
+        ZoneData zone = source.getZone(1);
+        Assert.assertEquals(20, zone.getStartPosition());
+        Assert.assertEquals(29, zone.getEndPosition());
+        Assert.assertEquals(Optional.of(EditZoneType.ADDED), zone.getZoneType());
+
+        Assert.assertEquals(EditZoneType.MODIFIED, source.findZone(10));
+        Assert.assertEquals(EditZoneType.ADDED, source.findZone(25));
+        Assert.assertEquals(Optional.empty(), source.findZoneType(15));
+        Assert.assertEquals(Optional.empty(), source.findZoneType(45));
+        Assert.assertEquals(1, source.findZoneIndex(29));
+        Assert.assertEquals(-1, source.findZoneIndex(30));
+
+        try {
+            source.findZone(15);
+            Assert.fail("Position without zone should fail");
+        } catch (ZoneNotPresentException ex) {
+            DataRange dataRange = ex.getDataRange().get();
+            Assert.assertEquals(15, dataRange.getStartPosition());
+            Assert.assertEquals(19, dataRange.getEndPosition());
+        }
+
+        try {
+            source.findZone(100);
+            Assert.fail("Position out of data should fail");
+        } catch (OutOfBoundsException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testZoneRanges() {
+        DefaultZoneDataSource source = createSampleSource();
+        Assert.assertEquals(0, source.findZoneStart(3));
+        Assert.assertEquals(9, source.findZoneEnd(3));
+        Assert.assertEquals(10, source.findZoneStart(14));
+        Assert.assertEquals(14, source.findZoneEnd(10));
+        Assert.assertEquals(15, source.findZoneStart(17));
+        Assert.assertEquals(19, source.findZoneEnd(17));
+        Assert.assertEquals(40, source.findZoneStart(99));
+        Assert.assertEquals(99, source.findZoneEnd(50));
+
+        DataRange range = source.findZoneRange(32);
+        Assert.assertEquals(30, range.getStartPosition());
+        Assert.assertEquals(34, range.getEndPosition());
+    }
+
+    @Test
+    public void testZoneState() {
+        DefaultZoneDataSource source = createSampleSource();
+        TestZoneState zoneState = new TestZoneState();
+        source.updateZoneState(zoneState, 2);
+        Assert.assertEquals(DiffZoneType.REMOVED, zoneState.zoneType);
+        Assert.assertEquals(35, zoneState.getStartPosition());
+        Assert.assertEquals(39, zoneState.getEndPosition());
+
+        // Sequential scan using the same state
+        int zonesCount = 0;
+        long position = 0;
+        while (position < source.getDataSize()) {
+            source.findZoneState(zoneState, position);
+            if (zoneState.zoneType != null) {
+                zonesCount++;
+            }
+            position = zoneState.getEndPosition() + 1;
+        }
+        Assert.assertEquals(3, zonesCount);
+
+        source.findZoneState(zoneState, 32);
+        Assert.assertNull(zoneState.zoneType);
+        Assert.assertEquals(30, zoneState.getStartPosition());
+        Assert.assertEquals(34, zoneState.getEndPosition());
+    }
+
+    @Test
+    public void testManyZones() {
+        int zonesCount = 100000;
+        DefaultZoneDataSource source = new DefaultZoneDataSource(zonesCount * 10L);
+        for (int i = 0; i < zonesCount; i++) {
+            source.addZone(i % 2 == 0 ? RowZoneType.ROW : null, i * 10L, i * 10L + 7);
+        }
+        source.trimToSize();
+        Assert.assertEquals(zonesCount, source.getZonesCount());
+
+        for (long position = 0; position < source.getDataSize(); position += 3) {
+            long zoneIndex = position / 10;
+            if (position % 10 < 8) {
+                Assert.assertEquals(zoneIndex, source.findZoneIndex(position));
+                Assert.assertEquals(zoneIndex * 10, source.findZoneStart(position));
+            } else {
+                Assert.assertEquals(-1, source.findZoneIndex(position));
+                Assert.assertEquals(zoneIndex * 10 + 8, source.findZoneStart(position));
+            }
+        }
+        Assert.assertEquals(54320, source.findZoneStart(54327));
+        Assert.assertEquals(RowZoneType.ROW, source.findZone(20));
+
+        source.setDataSize(55);
+        Assert.assertEquals(6, source.getZonesCount());
+        Assert.assertEquals(54, source.getZone(5).getEndPosition());
+    }
+
+    @Test
+    public void testAddAfterTrimToSize() {
+        DefaultZoneDataSource source = new DefaultZoneDataSource(100);
+        source.trimToSize();
+        source.addZone(EditZoneType.MODIFIED, 10, 14);
+        source.trimToSize();
+        source.addZone(EditZoneType.ADDED, 20, 29);
+        Assert.assertEquals(2, source.getZonesCount());
+        assertZone(source, 1, 20, 29);
+
+        source = new DefaultZoneDataSource(100);
+        source.addZone(EditZoneType.ADDED, 20, 29);
+        source.trimToSize();
+        source.setEditPolicy(ZoneEditPolicy.SPLIT);
+        source.insertData(25, 5);
+        Assert.assertEquals(2, source.getZonesCount());
+        assertZone(source, 0, 20, 24);
+        assertZone(source, 1, 30, 34);
+    }
+
+    @Test
+    public void testInsertData() {
+        DefaultZoneDataSource source = createSampleSource();
+        source.insertData(0, 5);
+        source.insertData(17, 3);
+        source.insertData(25, 2);
+        Assert.assertEquals(110, source.getDataSize());
+        assertZone(source, 0, 15, 22);
+        assertZone(source, 1, 30, 39);
+        assertZone(source, 2, 45, 49);
+        // Insertion at zone start shifts zone
+        source.insertData(45, 1);
+        assertZone(source, 2, 46, 50);
+        Assert.assertEquals(EditZoneType.MODIFIED, source.findZone(22));
+        Assert.assertEquals(Optional.empty(), source.findZoneType(23));
+
+        source.setEditPolicy(ZoneEditPolicy.SPLIT);
+        source.insertData(33, 4);
+        Assert.assertEquals(4, source.getZonesCount());
+        assertZone(source, 1, 30, 32);
+        assertZone(source, 2, 37, 43);
+        assertZone(source, 3, 50, 54);
+        Assert.assertEquals(Optional.empty(), source.findZoneType(34));
+        Assert.assertEquals(EditZoneType.ADDED, source.findZone(37));
+    }
+
+    @Test
+    public void testRemoveData() {
+        DefaultZoneDataSource source = createSampleSource();
+        source.removeData(0, 5);
+        assertZone(source, 0, 5, 9);
+        source.removeData(7, 10);
+        assertZone(source, 0, 5, 6);
+        assertZone(source, 1, 7, 14);
+        assertZone(source, 2, 20, 24);
+
+        // Zones inside removed data are removed
+        source.removeData(6, 18);
+        Assert.assertEquals(2, source.getZonesCount());
+        assertZone(source, 0, 5, 5);
+        assertZone(source, 1, 6, 6);
+        Assert.assertEquals(DiffZoneType.REMOVED, source.findZone(6));
+        Assert.assertEquals(67, source.getDataSize());
+        Assert.assertEquals(66, source.findZoneEnd(10));
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(3);
+        List<ZoneType> model = new ArrayList<>();
+        DefaultZoneDataSource source = new DefaultZoneDataSource(1000);
+        for (int i = 0; i < 1000; i++) {
+            model.add(null);
+        }
+        for (int i = 0; i < 50; i++) {
+            long start = i * 20L + random.nextInt(5);
+            long end = start + random.nextInt(10);
+            ZoneType zoneType = i % 2 == 0 ? EditZoneType.ADDED : DiffZoneType.INSERTED;
+            source.addZone(zoneType, start, end);
+            for (long position = start; position <= end; position++) {
+                model.set((int) position, zoneType);
+            }
+        }
+
+        for (int i = 0; i < 300; i++) {
+            int dataSize = model.size();
+            if (random.nextBoolean() || dataSize < 100) {
+                int position = random.nextInt(dataSize + 1);
+                int length = 1 + random.nextInt(10);
+                // Stretched zone covers inserted data
+                ZoneType zoneType = position > 0 && position < dataSize && model.get(position - 1) != null && model.get(position - 1) == model.get(position) && source.findZoneStart(position) < position ? model.get(position) : null;
+                source.insertData(position, length);
+                for (int j = 0; j < length; j++) {
+                    model.add(position, zoneType);
+                }
+            } else {
+                int position = random.nextInt(dataSize);
+                int length = 1 + random.nextInt(Math.min(30, dataSize - position));
+                source.removeData(position, length);
+                model.subList(position, position + length).clear();
+            }
+
+            Assert.assertEquals(model.size(), source.getDataSize());
+            for (int position = 0; position < model.size(); position += 1 + random.nextInt(5)) {
+                Assert.assertEquals("Issue on position " + position + " after edit " + i, Optional.ofNullable(model.get(position)), source.findZoneType(position));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidZone() {
+        DefaultZoneDataSource source = createSampleSource();
+        try {
+            source.addZone(RowZoneType.ROW, 35, 45);
+            Assert.fail("Overlapping zone should fail");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static void assertZone(DefaultZoneDataSource source, long zoneIndex, long expectedStart, long expectedEnd) {
+        ZoneData zone = source.getZone(zoneIndex);
+        Assert.assertEquals(expectedStart, zone.getStartPosition());
+        Assert.assertEquals(expectedEnd, zone.getEndPosition());
+    }
+
+    private static DefaultZoneDataSource createSampleSource() {
+        DefaultZoneDataSource source = new DefaultZoneDataSource(100);
+        source.addZone(EditZoneType.MODIFIED, 10, 14);
+        source.addZone(new ZoneData(EditZoneType.ADDED, 20, 29));
+        source.addZone(DiffZoneType.REMOVED, 35, 39);
+        return source;
+    }
+
+    @NullMarked
+    private static class TestZoneState implements ZoneState {
+
+        @Nullable
+        private ZoneType zoneType;
+        private long startPosition;
+        private long endPosition;
+
+        @Override
+        public Optional<ZoneType> getZoneType(long dataPosition) {
+            return dataPosition >= startPosition && dataPosition <= endPosition ? Optional.ofNullable(zoneType) : Optional.empty();
+        }
+
+        @Override
+        public void setZoneType(@Nullable ZoneType zoneType) {
+            this.zoneType = zoneType;
+        }
+
+        @Override
+        public long getStartPosition() {
+            return startPosition;
+        }
+
+        @Override
+        public void setStartPosition(long dataPosition) {
+            this.startPosition = dataPosition;
+        }
+
+        @Override
+        public long getEndPosition() {
+            return endPosition;
+        }
+
+        @Override
+        public void setEndPosition(long dataPosition) {
+            this.endPosition = dataPosition;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.exbin.auxiliary.zone_data.DiffZoneType;
+import org.exbin.auxiliary.zone_data.ZoneType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for binary diff.
+ */
+@NullMarked
+public class BinaryDiffTest {
+
+    public static final int SAMPLE_WINDOW_SIZE = 4096;
+
+    public BinaryDiffTest() {
+    }
+
+    @Test
+    public void testEqualData() {
+        byte[] sampleData = createSampleData(10000, 1);
+        List<DiffZone> zones = compare(new ByteArrayData(sampleData), new ByteArrayData(sampleData.clone()));
+        Assert.assertTrue(zones.isEmpty());
+    }
+
+    @Test
+    public void testSimpleEdits() {
+        byte[] sampleData = createSampleData(10000, 1);
+        ByteArrayEditableData targetData = new ByteArrayEditableData(sampleData.clone());
+        targetData.setByte(100, (byte) (sampleData[100] + 1));
+        targetData.insert(5000, new byte[]{1, 2, 3});
+        targetData.remove(8003, 10);
+
+        List<DiffZone> zones = compare(new ByteArrayData(sampleData), targetData);
+        Assert.assertEquals(3, zones.size());
+        assertZone(zones.get(0), DiffZoneType.REPLACED, 100, 1, 100, 1);
+        Assert.assertEquals(DiffZoneType.INSERTED, zones.get(1).getZoneType());
+        Assert.assertEquals(3, zones.get(1).getTargetLength());
+        Assert.assertEquals(0, zones.get(1).getSourceLength());
+        Assert.assertEquals(DiffZoneType.REMOVED, zones.get(2).getZoneType());
+        Assert.assertEquals(10, zones.get(2).getSourceLength());
+        assertZones(new ByteArrayData(sampleData), targetData, zones);
+    }
+
+    @Test
+    public void testLargeInsertion() {
+        byte[] sampleData = createSampleData(50000, 1);
+        ByteArrayEditableData targetData = new ByteArrayEditableData(sampleData.clone());
+        targetData.insert(20000, createSampleData(3 * SAMPLE_WINDOW_SIZE, 2));
+        targetData.remove(45000, 2 * SAMPLE_WINDOW_SIZE);
+
+        List<DiffZone> zones = compare(new ByteArrayData(sampleData), targetData);
+        assertZones(new ByteArrayData(sampleData), targetData, zones);
+        long changedSize = 0;
+        for (DiffZone zone : zones) {
+            changedSize += Math.max(zone.getSourceLength(), zone.getTargetLength());
+        }
+        Assert.assertTrue("Too large difference " + changedSize, changedSize < 6 * SAMPLE_WINDOW_SIZE);
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(5);
+        byte[] sampleData = createSampleData(100000, 1);
+        ByteArrayEditableData targetData = new ByteArrayEditableData(sampleData.clone());
+        for (int i = 0; i < 100; i++) {
+            long position = random.nextInt((int) targetData.getDataSize());
+            switch (random.nextInt(3)) {
+                case 0:
+                    targetData.setByte(position, (byte) random.nextInt());
+                    break;
+                case 1:
+                    targetData.insert(position, createSampleData(1 + random.nextInt(50), i + 10));
+                    break;
+                default:
+                    targetData.remove(position, Math.min(1 + random.nextInt(50), targetData.getDataSize() - position));
+                    break;
+            }
+        }
+
+        assertZones(new ByteArrayData(sampleData), targetData, compare(new ByteArrayData(sampleData), targetData));
+        // Completely different data
+        byte[] otherData = createSampleData(30000, 3);
+        assertZones(new ByteArrayData(sampleData), new ByteArrayData(otherData), compare(new ByteArrayData(sampleData), new ByteArrayData(otherData)));
+    }
+
+    @Test
+    public void testZonesCollector() {
+        byte[] sampleData = createSampleData(10000, 1);
+        ByteArrayEditableData targetData = new ByteArrayEditableData(sampleData.clone());
+        targetData.insert(3000, new byte[20]);
+        targetData.remove(7000, 5);
+
+        DiffZonesCollector collector = new DiffZonesCollector(sampleData.length, targetData.getDataSize());
+        new BinaryDiff(new ByteArrayData(sampleData), targetData, Runnable::run, SAMPLE_WINDOW_SIZE).compare(collector);
+        Optional<ZoneType> emptyZone = Optional.empty();
+        Assert.assertEquals(emptyZone, collector.getSourceZones().findZoneType(3000));
+        Assert.assertEquals(DiffZoneType.INSERTED, collector.getTargetZones().findZone(3010));
+        Assert.assertEquals(DiffZoneType.REMOVED, collector.getSourceZones().findZone(6982));
+        Assert.assertEquals(1, collector.getSourceZones().getZonesCount());
+        Assert.assertEquals(1, collector.getTargetZones().getZonesCount());
+    }
+
+    @Test
+    public void testCancel() {
+        byte[] sampleData = createSampleData(10000, 1);
+        BinaryDiff diff = new BinaryDiff(new ByteArrayData(sampleData), new ByteArrayData(createSampleData(10000, 2)));
+        diff.cancel();
+        try {
+            diff.compare((zone) -> {
+            });
+            Assert.fail("Cancelled comparison should fail");
+        } catch (CancellationException ex) {
+            // expected
+        }
+    }
+
+    private static List<DiffZone> compare(BinaryData sourceData, BinaryData targetData) {
+        List<DiffZone> zones = new ArrayList<>();
+        new BinaryDiff(sourceData, targetData, ForkJoinPool.commonPool(), SAMPLE_WINDOW_SIZE).compare(zones::add);
+        return zones;
+    }
+
+    /**
+     * Checks that zones are ordered and data outside of zones are equal.
+     */
+    private static void assertZones(BinaryData sourceData, BinaryData targetData, List<DiffZone> zones) {
+        long sourcePosition = 0;
+        long targetPosition = 0;
+        for (DiffZone zone : zones) {
+            long equalLength = zone.getSourcePosition() - sourcePosition;
+            Assert.assertEquals(equalLength, zone.getTargetPosition() - targetPosition);
+            Assert.assertTrue(equalLength >= 0);
+            assertEqualData(sourceData, sourcePosition, targetData, targetPosition, equalLength);
+            if (zone.getZoneType() == DiffZoneType.REPLACED) {
+                Assert.assertEquals(zone.getSourceLength(), zone.getTargetLength());
+            }
+            sourcePosition = zone.getSourcePosition() + zone.getSourceLength();
+            targetPosition = zone.getTargetPosition() + zone.getTargetLength();
+        }
+        long equalLength = sourceData.getDataSize() - sourcePosition;
+        Assert.assertEquals(equalLength, targetData.getDataSize() - targetPosition);
+        assertEqualData(sourceData, sourcePosition, targetData, targetPosition, equalLength);
+    }
+
+    private static void assertEqualData(BinaryData sourceData, long sourcePosition, BinaryData targetData, long targetPosition, long length) {
+        for (long i = 0; i < length; i++) {
+            Assert.assertEquals("Issue on position " + (sourcePosition + i), sourceData.getByte(sourcePosition + i), targetData.getByte(targetPosition + i));
+        }
+    }
+
+    private static void assertZone(DiffZone zone, DiffZoneType zoneType, long sourcePosition, long sourceLength, long targetPosition, long targetLength) {
+        Assert.assertEquals(zoneType, zone.getZoneType());
+        Assert.assertEquals(sourcePosition, zone.getSourcePosition());
+        Assert.assertEquals(sourceLength, zone.getSourceLength());
+        Assert.assertEquals(targetPosition, zone.getTargetPosition());
+        Assert.assertEquals(targetLength, zone.getTargetLength());
+    }
+
+    private static byte[] createSampleData(int length, int seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.auxiliary.zone_data.RowZoneType;
+import org.exbin.auxiliary.zone_data.ZoneData;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for fixed row zone data source.
+ */
+@NullMarked
+public class FixedRowZoneDataSourceTest {
+
+    public FixedRowZoneDataSourceTest() {
+    }
+
+    @Test
+    public void testRows() {
+        FixedRowZoneDataSource source = new FixedRowZoneDataSource(10, 4);
+        Assert.assertEquals(3, source.getZonesCount());
+        ZoneData zone = source.getZone(2);
+        Assert.assertEquals(8, zone.getStartPosition());
+        Assert.assertEquals(9, zone.getEndPosition());
+        Assert.assertEquals(RowZoneType.ROW, source.findZone(5));
+        Assert.assertEquals(1, source.findZoneIndex(7));
+        Assert.assertEquals(4, source.findZoneStart(6));
+        Assert.assertEquals(7, source.findZoneEnd(6));
+
+        source.setDataSize(12);
+        Assert.assertEquals(3, source.getZonesCount());
+        Assert.assertEquals(11, source.getZone(2).getEndPosition());
+
+        try {
+            source.getZone(3);
+            Assert.fail("Zone after last row should fail");
+        } catch (OutOfBoundsException ex) {
+            // Expected
+        }
+
+        FixedRowZoneDataSource hugeSource = new FixedRowZoneDataSource(Long.MAX_VALUE, 16);
+        Assert.assertEquals(50000000L * 16, hugeSource.getZone(50000000L).getStartPosition());
+        Assert.assertEquals(Long.MAX_VALUE / 16, hugeSource.findZoneIndex(Long.MAX_VALUE - 1));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.auxiliary.zone_data.row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jspecify.annotations.NullMarked;
+import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
+import org.exbin.auxiliary.binary_data.DataRange;
+import org.exbin.auxiliary.zone_data.RowZoneType;
+import org.exbin.auxiliary.zone_data.ZoneData;
+import org.exbin.auxiliary.zone_data.ZoneNotPresentException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for row index zone data source.
+ */
+@NullMarked
+public class RowIndexZoneDataSourceTest {
+
+    private static final byte NEW_LINE = '\n';
+
+    public RowIndexZoneDataSourceTest() {
+    }
+
+    @Test
+    public void testDelimitedRows() {
+        ByteArrayEditableData data = new ByteArrayEditableData("ab\ncd\n\nxyz".getBytes());
+        RowIndexZoneDataSource source = new RowIndexZoneDataSource(data, new DelimiterRowBoundaryFinder(NEW_LINE));
+        Assert.assertEquals(0, source.getZonesCount());
+        Assert.assertFalse(source.isDataPresent(0));
+        try {
+            source.findZone(0);
+            Assert.fail("Position which is not indexed should fail");
+        } catch (ZoneNotPresentException ex) {
+            DataRange dataRange = ex.getDataRange().get();
+            Assert.assertEquals(0, dataRange.getStartPosition());
+            Assert.assertEquals(9, dataRange.getEndPosition());
+        }
+
+        source.buildIndex();
+        Assert.assertTrue(source.isIndexComplete());
+        Assert.assertEquals(4, source.getZonesCount());
+        ZoneData zone = source.getZone(1);
+        Assert.assertEquals(RowZoneType.ROW, zone.getZoneType().get());
+        Assert.assertEquals(3, zone.getStartPosition());
+        Assert.assertEquals(5, zone.getEndPosition());
+        Assert.assertEquals(2, source.findZoneIndex(6));
+        Assert.assertEquals(7, source.findZoneStart(9));
+        Assert.assertEquals(9, source.findZoneEnd(8));
+
+        data.insert(4, new byte[]{NEW_LINE});
+        source.insertData(4, 1);
+        checkRows(source, data);
+        data.remove(2, 2);
+        source.removeData(2, 2);
+        checkRows(source, data);
+        data.replace(0, new byte[]{NEW_LINE});
+        source.modifyData(0, 1);
+        checkRows(source, data);
+    }
+
+    @Test
+    public void testBackgroundIndexing() {
+        ByteArrayEditableData data = new ByteArrayEditableData(createSampleData(new Random(1), 100000));
+        RowIndexZoneDataSource source = new RowIndexZoneDataSource(data, new DelimiterRowBoundaryFinder(NEW_LINE));
+        source.startIndexing(Runnable::run);
+        Assert.assertTrue(source.isIndexComplete());
+        checkRows(source, data);
+
+        data.insert(50000, new byte[]{NEW_LINE, 1, 2});
+        source.insertData(50000, 3);
+        Assert.assertTrue(source.isIndexComplete());
+        checkRows(source, data);
+
+        source.stopIndexing();
+        data.remove(20000, 5);
+        source.removeData(20000, 5);
+        Assert.assertTrue(source.isIndexComplete());
+        checkRows(source, data);
+    }
+
+    @Test
+    public void testLengthPrefixedRows() {
+        ByteArrayEditableData data = new ByteArrayEditableData(new byte[]{0, 2, 1, 1, 0, 0, 0, 3, 1, 1, 1, 0, 5, 1});
+        RowIndexZoneDataSource source = new RowIndexZoneDataSource(data, new LengthPrefixRowBoundaryFinder(2, true));
+        source.buildIndex();
+        Assert.assertEquals(4, source.getZonesCount());
+        Assert.assertEquals(4, source.getZone(1).getStartPosition());
+        Assert.assertEquals(5, source.getZone(1).getEndPosition());
+        Assert.assertEquals(6, source.getZone(2).getStartPosition());
+        Assert.assertEquals(11, source.getZone(3).getStartPosition());
+        Assert.assertEquals(13, source.getZone(3).getEndPosition());
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(42);
+        ByteArrayEditableData data = new ByteArrayEditableData(createSampleData(random, 100000));
+        RowIndexZoneDataSource source = new RowIndexZoneDataSource(data, new DelimiterRowBoundaryFinder(NEW_LINE));
+        source.buildIndex();
+        checkRows(source, data);
+
+        for (int i = 0; i < 200; i++) {
+            long dataSize = data.getDataSize();
+            long position = random.nextInt((int) dataSize + 1);
+            int length = random.nextInt(i % 10 == 0 ? 20000 : 20) + 1;
+            switch (random.nextInt(3)) {
+                case 0: {
+                    data.insert(position, createSampleData(random, length));
+                    source.insertData(position, length);
+                    break;
+                }
+                case 1: {
+                    length = (int) Math.min(length, dataSize - position);
+                    data.remove(position, length);
+                    source.removeData(position, length);
+                    break;
+                }
+                default: {
+                    length = (int) Math.min(length, dataSize - position);
+                    data.replace(position, createSampleData(random, length));
+                    source.modifyData(position, length);
+                }
+            }
+            if (i % 3 == 0) {
+                source.buildIndex();
+                checkRows(source, data);
+            }
+        }
+    }
+
+    private static void checkRows(RowIndexZoneDataSource source, ByteArrayEditableData data) {
+        source.buildIndex();
+        List<Long> rowStarts = new ArrayList<>();
+        long dataSize = data.getDataSize();
+        for (long position = 0; position < dataSize; position++) {
+            if (position == 0 || data.getByte(position - 1) == NEW_LINE) {
+                rowStarts.add(position);
+            }
+        }
+
+        Assert.assertEquals(rowStarts.size(), source.getZonesCount());
+        for (int i = 0; i < rowStarts.size(); i++) {
+            ZoneData zone = source.getZone(i);
+            Assert.assertEquals((long) rowStarts.get(i), zone.getStartPosition());
+            Assert.assertEquals(i + 1 < rowStarts.size() ? rowStarts.get(i + 1) - 1 : dataSize - 1, zone.getEndPosition());
+        }
+        for (long position = 0; position < dataSize; position += 97) {
+            long rowIndex = source.findZoneIndex(position);
+            Assert.assertTrue(rowStarts.get((int) rowIndex) <= position);
+            Assert.assertTrue(rowIndex + 1 == rowStarts.size() || rowStarts.get((int) rowIndex + 1) > position);
+        }
+    }
+
+    private static byte[] createSampleData(Random random, int length) {
+        byte[] sampleData = new byte[length];
+        for (int i = 0; i < length; i++) {
+            sampleData[i] = random.nextInt(8) == 0 ? NEW_LINE : (byte) ('a' + random.nextInt(26));
+        }
+        return sampleData;
+    }
+}